@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.api;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.util.cache.AccountCacheLoader;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Evicts the cached accounts once their update transaction has been committed. This is local to the node performing
+ * the update: other nodes keep serving their entry until it expires (see the timeToLiveSeconds of the account region in ehcache.xml).
+ * <p/>
+ * Each eviction bumps the generation of the account: an entry loaded while an eviction of that account was in progress
+ * may be its previous version and is dropped by the reader (see DefaultAccountInternalApi), instead of being served until it expires.
+ */
+@Singleton
+public class AccountCacheInvalidation {
+
+    // Generations only need to outlive the readers which looked them up (a missing generation is recreated with a different value)
+    private static final long GENERATION_EXPIRATION_SEC = 60;
+
+    private final CacheController<Object, Object> accountCacheController;
+    private final LoadingCache<UUID, AtomicLong> generations;
+
+    @Inject
+    public AccountCacheInvalidation(final CacheControllerDispatcher cacheControllerDispatcher) {
+        this.accountCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT);
+        this.generations = CacheBuilder.newBuilder()
+                                       .expireAfterAccess(GENERATION_EXPIRATION_SEC, TimeUnit.SECONDS)
+                                       .build(new CacheLoader<UUID, AtomicLong>() {
+                                           @Override
+                                           public AtomicLong load(final UUID accountId) {
+                                               return new AtomicLong();
+                                           }
+                                       });
+    }
+
+    public void invalidate(final UUID accountId, final Long tenantRecordId) {
+        if (accountCacheController == null) {
+            return;
+        }
+        generations.getUnchecked(accountId).incrementAndGet();
+        accountCacheController.remove(AccountCacheLoader.getCacheKey(accountId, tenantRecordId));
+    }
+
+    public long getGeneration(final UUID accountId) {
+        final AtomicLong generation = generations.getIfPresent(accountId);
+        return generation == null ? 0L : generation.get();
+    }
+}
@@ -22,7 +22,9 @@ import java.util.UUID;
 import javax.inject.Inject;
 
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountCacheInvalidation;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
@@ -34,6 +36,12 @@ import org.killbill.billing.account.dao.AccountEmailModelDao;
 import org.killbill.billing.account.dao.AccountModelDao;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.cache.AccountCacheLoader;
+import org.killbill.billing.util.cache.AccountCacheLoader.LoaderCallback;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 
@@ -45,15 +53,26 @@ import com.google.common.collect.Iterators;
 public class DefaultAccountInternalApi implements AccountInternalApi {
 
     private final AccountDao accountDao;
+    private final CacheController<Object, Object> accountCacheController;
+    private final AccountCacheInvalidation accountCacheInvalidation;
+    private final LoaderCallback loaderCallback;
 
     @Inject
-    public DefaultAccountInternalApi(final AccountDao accountDao) {
+    public DefaultAccountInternalApi(final AccountDao accountDao, final CacheControllerDispatcher cacheControllerDispatcher, final AccountCacheInvalidation accountCacheInvalidation) {
         this.accountDao = accountDao;
+        this.accountCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT);
+        this.accountCacheInvalidation = accountCacheInvalidation;
+        this.loaderCallback = new LoaderCallback() {
+            @Override
+            public Object loadAccount(final UUID accountId, final InternalTenantContext context) {
+                return accountDao.getById(accountId, context);
+            }
+        };
     }
 
     @Override
     public Account getAccountById(final UUID accountId, final InternalTenantContext context) throws AccountApiException {
-        final AccountModelDao account = accountDao.getById(accountId, context);
+        final AccountModelDao account = getAccountModelDaoById(accountId, context);
         if (account == null) {
             throw new AccountApiException(ErrorCode.ACCOUNT_DOES_NOT_EXIST_FOR_ID, accountId);
         }
@@ -119,6 +138,23 @@ public class DefaultAccountInternalApi implements AccountInternalApi {
         return accountModelDao.getId();
     }
 
+    // The account is read by most modules for each operation: the cache entry is evicted by AccountCacheInvalidation when the account is updated
+    private AccountModelDao getAccountModelDaoById(final UUID accountId, final InternalTenantContext context) {
+        if (accountCacheController == null) {
+            return accountDao.getById(accountId, context);
+        }
+
+        final long generation = accountCacheInvalidation.getGeneration(accountId);
+        final String cacheKey = AccountCacheLoader.getCacheKey(accountId, context.getTenantRecordId());
+        final AccountModelDao account = (AccountModelDao) accountCacheController.get(cacheKey, new CacheLoaderArgument(ObjectType.ACCOUNT, new Object[]{loaderCallback}, context));
+        if (account == null || generation != accountCacheInvalidation.getGeneration(accountId)) {
+            // Don't remember unknown accounts, they may be created later on. Also drop an entry which may have been
+            // loaded before a concurrent update was committed (and put after its eviction)
+            accountCacheController.remove(cacheKey);
+        }
+        return account;
+    }
+
     private AccountModelDao getAccountModelDaoByRecordId(final Long recordId, final InternalTenantContext context) throws AccountApiException {
         final AccountModelDao accountModelDao = accountDao.getByRecordId(recordId, context);
         if (accountModelDao == null) {
@@ -23,6 +23,7 @@ import java.util.UUID;
 import org.killbill.billing.BillingExceptionBase;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountCacheInvalidation;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.user.DefaultAccountChangeEvent;
 import org.killbill.billing.account.api.user.DefaultAccountCreationEvent;
@@ -57,13 +58,16 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
 
     private final PersistentBus eventBus;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final AccountCacheInvalidation accountCacheInvalidation;
 
     @Inject
     public DefaultAccountDao(final IDBI dbi, final PersistentBus eventBus, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao) {
+                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao,
+                             final AccountCacheInvalidation accountCacheInvalidation) {
         super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao), AccountSqlDao.class);
         this.eventBus = eventBus;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.accountCacheInvalidation = accountCacheInvalidation;
     }
 
     @Override
@@ -117,6 +121,16 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final AccountSqlDao accountSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.getSearchNextRecordIdFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildFromRecordId(final AccountSqlDao accountSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -168,6 +182,8 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                 return null;
             }
         });
+        // Once the transaction has been committed, so that the next read sees the new version
+        accountCacheInvalidation.invalidate(specifiedAccount.getId(), context.getTenantRecordId());
     }
 
     @Override
@@ -206,6 +222,7 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                 return null;
             }
         });
+        accountCacheInvalidation.invalidate(accountId, context.getTenantRecordId());
     }
 
     @Override
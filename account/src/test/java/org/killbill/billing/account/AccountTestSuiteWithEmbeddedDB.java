@@ -21,6 +21,8 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 
 import org.killbill.billing.GuicyKillbillTestSuiteWithEmbeddedDB;
+import org.killbill.billing.account.api.AccountCacheInvalidation;
+import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.dao.AccountDao;
 import org.killbill.billing.account.glue.TestAccountModuleWithEmbeddedDB;
@@ -45,6 +47,10 @@ public abstract class AccountTestSuiteWithEmbeddedDB extends GuicyKillbillTestSu
     @Inject
     protected AccountUserApi accountUserApi;
     @Inject
+    protected AccountInternalApi accountInternalApi;
+    @Inject
+    protected AccountCacheInvalidation accountCacheInvalidation;
+    @Inject
     protected AuditDao auditDao;
     @Inject
     protected CacheControllerDispatcher controllerDispatcher;
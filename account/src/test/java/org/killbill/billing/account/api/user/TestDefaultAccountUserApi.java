@@ -24,6 +24,9 @@ import org.killbill.billing.account.api.DefaultAccount;
 import org.killbill.billing.account.api.DefaultMutableAccountData;
 import org.killbill.billing.account.api.MutableAccountData;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.cache.AccountCacheLoader;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -52,6 +55,48 @@ public class TestDefaultAccountUserApi extends AccountTestSuiteWithEmbeddedDB {
         Assert.assertEquals(retrievedAccount.getBillCycleDayLocal(), account.getBillCycleDayLocal());
     }
 
+    @Test(groups = "slow", description = "Test Account cache is invalidated on update")
+    public void testAccountCacheInvalidation() throws Exception {
+        final Account account = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
+        final CacheController<Object, Object> accountCache = controllerDispatcher.getCacheController(CacheType.ACCOUNT);
+        final String cacheKey = AccountCacheLoader.getCacheKey(account.getId(), internalCallContext.getTenantRecordId());
+
+        Assert.assertEquals(accountInternalApi.getAccountById(account.getId(), internalCallContext).getAddress1(), account.getAddress1());
+        Assert.assertEquals(accountCache.size(), 1);
+
+        final MutableAccountData mutableAccountData = new DefaultMutableAccountData(null, null, null, 0, null, 0, null,
+                                                                                    null, null, null, null, null, null,
+                                                                                    null, null, null, null, false, false);
+        final String newAddress1 = UUID.randomUUID().toString();
+        mutableAccountData.setAddress1(newAddress1);
+        accountUserApi.updateAccount(account.getId(), mutableAccountData, callContext);
+        Assert.assertFalse(accountCache.remove(cacheKey));
+
+        Assert.assertEquals(accountInternalApi.getAccountById(account.getId(), internalCallContext).getAddress1(), newAddress1);
+        Assert.assertEquals(accountCache.size(), 1);
+    }
+
+    @Test(groups = "slow", description = "Test Account cache invalidation only bumps the generation of the invalidated account")
+    public void testAccountCacheInvalidationGeneration() throws Exception {
+        final Account account = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
+        final Account otherAccount = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
+        final CacheController<Object, Object> accountCache = controllerDispatcher.getCacheController(CacheType.ACCOUNT);
+        final String cacheKey = AccountCacheLoader.getCacheKey(account.getId(), internalCallContext.getTenantRecordId());
+
+        accountInternalApi.getAccountById(account.getId(), internalCallContext);
+        accountInternalApi.getAccountById(otherAccount.getId(), internalCallContext);
+        Assert.assertEquals(accountCache.size(), 2);
+
+        final long generation = accountCacheInvalidation.getGeneration(account.getId());
+        final long otherGeneration = accountCacheInvalidation.getGeneration(otherAccount.getId());
+        accountCacheInvalidation.invalidate(account.getId(), internalCallContext.getTenantRecordId());
+
+        Assert.assertFalse(accountCache.remove(cacheKey));
+        Assert.assertEquals(accountCache.size(), 1);
+        Assert.assertEquals(accountCacheInvalidation.getGeneration(account.getId()), generation + 1);
+        Assert.assertEquals(accountCacheInvalidation.getGeneration(otherAccount.getId()), otherGeneration);
+    }
+
     @Test(groups = "slow", expectedExceptions = IllegalArgumentException.class, description = "Test updating Account BCD does throws an exception")
     public void testShouldntBeAbleToUpdateBillCycleDay() throws Exception {
         final Account account = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
@@ -17,6 +17,7 @@
 package org.killbill.billing.account.dao;
 
 import java.sql.SQLException;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -46,6 +47,7 @@ import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
@@ -104,6 +106,39 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
         Assert.assertEquals(auditLogsForAccount.get(0).getChangeType(), ChangeType.INSERT);
     }
 
+    @Test(groups = "slow", description = "Test Account DAO: keyset pagination")
+    public void testKeysetPagination() throws AccountApiException {
+        final List<AccountModelDao> accounts = new LinkedList<AccountModelDao>();
+        for (int i = 0; i < 5; i++) {
+            final AccountModelDao account = createTestAccount();
+            accountDao.create(account, internalCallContext);
+            accounts.add(account);
+        }
+
+        final List<AccountModelDao> retrievedAccounts = new LinkedList<AccountModelDao>();
+        Long offset = DefaultPaginationSqlDaoHelper.KEYSET_FIRST_PAGE;
+        int nbPages = 0;
+        while (offset != null) {
+            final Pagination<AccountModelDao> page = accountDao.get(offset, 2L, internalCallContext);
+            Assert.assertNull(page.getTotalNbRecords());
+            retrievedAccounts.addAll(ImmutableList.<AccountModelDao>copyOf(page));
+            offset = page.getNextOffset();
+            nbPages++;
+        }
+        Assert.assertEquals(nbPages, 3);
+        Assert.assertEquals(retrievedAccounts.size(), accounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            checkAccountsEqual(retrievedAccounts.get(i), accounts.get(i));
+        }
+
+        // Search the same way
+        final Pagination<AccountModelDao> firstSearchPage = accountDao.searchAccounts(accounts.get(2).getExternalKey(), DefaultPaginationSqlDaoHelper.KEYSET_FIRST_PAGE, 2L, internalCallContext);
+        final List<AccountModelDao> searchResults = ImmutableList.<AccountModelDao>copyOf(firstSearchPage);
+        Assert.assertEquals(searchResults.size(), 1);
+        checkAccountsEqual(searchResults.get(0), accounts.get(2));
+        Assert.assertNull(firstSearchPage.getNextOffset());
+    }
+
     @Test(groups = "slow", description = "Test Account: verify audits")
     public void testAudits() throws AccountApiException {
         // Special test to verify audits - they are handled a bit differently due to the account record id (see EntitySqlDaoWrapperInvocationHandler#insertAudits)
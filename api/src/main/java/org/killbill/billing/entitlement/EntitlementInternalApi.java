@@ -16,12 +16,34 @@
 
 package org.killbill.billing.entitlement;
 
+import java.util.List;
 import java.util.UUID;
 
+import org.joda.time.LocalDate;
+
+import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 
 public interface EntitlementInternalApi {
 
     public AccountEntitlements getAllEntitlementsForAccountId(UUID accountId, TenantContext context) throws EntitlementApiException;
+
+    /**
+     * Transfer several bundles at once from one account to another: unlike {@code EntitlementApi#transferEntitlementsOverrideBillingPolicy},
+     * both accounts are locked once and all the subscription changes are persisted in a single transaction. The subscriptions
+     * of the source bundles are then blocked, as for a single transfer.
+     *
+     * @param sourceAccountId the unique id for the account on which the bundles will be transferred from
+     * @param destAccountId   the unique id for the account on which the bundles will be transferred to
+     * @param bundleIds       the ids of the bundles to transfer, each at most once
+     * @param effectiveDate   the date at which this transfer should occur, using the start date of the base subscription of each bundle as reference time
+     * @param billingPolicy   the billing policy for the cancellations on the source account
+     * @param context         the user callcontext
+     * @return the ids of the new bundles, in the order of {@code bundleIds}
+     * @throws EntitlementApiException if one of the bundles could not be transferred, in which case none is transferred
+     */
+    public List<UUID> transferEntitlements(UUID sourceAccountId, UUID destAccountId, List<UUID> bundleIds, LocalDate effectiveDate,
+                                           BillingActionPolicy billingPolicy, CallContext context) throws EntitlementApiException;
 }
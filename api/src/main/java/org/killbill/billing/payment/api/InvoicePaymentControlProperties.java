@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+/**
+ * Plugin properties of the invoice payment control plugin which are shared between the payment module and the server.
+ */
+public final class InvoicePaymentControlProperties {
+
+    /**
+     * Invoice paid by the payment (required by the invoice payment control plugin).
+     */
+    public static final String PROP_IPCD_INVOICE_ID = "IPCD_INVOICE_ID";
+
+    /**
+     * Set by server-side callers which already rebalanced the account CBA prior to paying its invoices (e.g. bulk payment runs).
+     * <p/>
+     * It is never accepted from clients: the JAX-RS layer strips it from the plugin properties of the requests.
+     */
+    public static final String PROP_IPCD_CBA_REBALANCED = "IPCD_CBA_REBALANCED";
+
+    private InvoicePaymentControlProperties() {
+    }
+}
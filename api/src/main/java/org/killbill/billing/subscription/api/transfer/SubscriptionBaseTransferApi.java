@@ -16,6 +16,8 @@
 
 package org.killbill.billing.subscription.api.transfer;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -43,4 +45,23 @@ public interface SubscriptionBaseTransferApi {
     public SubscriptionBaseBundle transferBundle(final UUID sourceAccountId, final UUID destAccountId, final String bundleKey, final DateTime requestedDate,
                                              final boolean transferAddOn, final boolean cancelImmediately, final CallContext context)
             throws SubscriptionBaseTransferApiException;
+
+    /**
+     * Transfer several bundles at once: the source account is read once, both accounts are locked once and all
+     * cancellations and creations are persisted in a single transaction.
+     *
+     * @param sourceAccountId   the unique id for the account on which the bundles will be transferred from
+     * @param destAccountId     the unique id for the account on which the bundles will be transferred to
+     * @param bundleIds         the ids of the bundles to transfer
+     * @param requestedDates    the date at which the transfer of each bundle should occur, keyed by bundle id (now if absent)
+     * @param transferAddOn     whether or not we should also transfer ADD_ON subscriptions existing on those {@code SubscriptionBaseBundle}
+     * @param cancelImmediately whether cancellation on the sourceAccount occurs immediately
+     * @param context           the user callcontext
+     * @return the newly created {@code SubscriptionBaseBundle}, in the order of {@code bundleIds}
+     * @throws SubscriptionBaseTransferApiException
+     *          if the system could not transfer one of the {@code SubscriptionBaseBundle}, in which case none is transferred
+     */
+    public List<SubscriptionBaseBundle> transferBundles(final UUID sourceAccountId, final UUID destAccountId, final List<UUID> bundleIds, final Map<UUID, DateTime> requestedDates,
+                                                        final boolean transferAddOn, final boolean cancelImmediately, final CallContext context)
+            throws SubscriptionBaseTransferApiException;
 }
@@ -17,6 +17,7 @@
 package org.killbill.billing.tag;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -42,5 +43,15 @@ public interface TagInternalApi {
 
     public void addTag(final UUID objectId, final ObjectType objectType, UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
 
+    /**
+     * Add tags to many objects in a single transaction (tags which already exist are skipped)
+     *
+     * @param objectType                  the type of the tagged objects
+     * @param tagDefinitionIdsPerObjectId mapping object id -> tag definition ids to add
+     * @param contextPerObjectId          mapping object id -> call context (objects may belong to different accounts)
+     * @throws TagApiException if one of the tag definitions does not exist
+     */
+    public void addTags(ObjectType objectType, Map<UUID, List<UUID>> tagDefinitionIdsPerObjectId, Map<UUID, InternalCallContext> contextPerObjectId) throws TagApiException;
+
     public void removeTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
 }
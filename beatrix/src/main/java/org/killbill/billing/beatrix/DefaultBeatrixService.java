@@ -22,6 +22,7 @@ import javax.inject.Inject;
 
 import org.killbill.billing.beatrix.bus.api.BeatrixService;
 import org.killbill.billing.beatrix.extbus.BeatrixListener;
+import org.killbill.billing.beatrix.extbus.ExternalBusBatchPoster;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.bus.api.PersistentBus;
@@ -31,12 +32,14 @@ public class DefaultBeatrixService implements BeatrixService {
     public static final String BEATRIX_SERVICE_NAME = "beatrix-service";
 
     private final BeatrixListener beatrixListener;
+    private final ExternalBusBatchPoster externalBusPoster;
     private final PersistentBus eventBus;
 
     @Inject
-    public DefaultBeatrixService(final PersistentBus eventBus, final BeatrixListener beatrixListener) {
+    public DefaultBeatrixService(final PersistentBus eventBus, final BeatrixListener beatrixListener, final ExternalBusBatchPoster externalBusPoster) {
         this.eventBus = eventBus;
         this.beatrixListener = beatrixListener;
+        this.externalBusPoster = externalBusPoster;
     }
 
     @Override
@@ -46,6 +49,7 @@ public class DefaultBeatrixService implements BeatrixService {
 
     @LifecycleHandlerType(LifecycleLevel.INIT_SERVICE)
     public void registerForNotifications() {
+        externalBusPoster.start();
         try {
             eventBus.register(beatrixListener);
         } catch (final PersistentBus.EventBusException e) {
@@ -59,6 +63,9 @@ public class DefaultBeatrixService implements BeatrixService {
             eventBus.unregister(beatrixListener);
         } catch (final PersistentBus.EventBusException e) {
             throw new RuntimeException("Unable to unregister to the EventBus!", e);
+        } finally {
+            // Flush the external bus events still being batched
+            externalBusPoster.stop();
         }
     }
 }
@@ -22,7 +22,6 @@ import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -48,7 +47,6 @@ import org.killbill.billing.events.TenantConfigChangeInternalEvent;
 import org.killbill.billing.events.TenantConfigDeletionInternalEvent;
 import org.killbill.billing.events.UserTagCreationInternalEvent;
 import org.killbill.billing.events.UserTagDeletionInternalEvent;
-import org.killbill.billing.lifecycle.glue.BusModule;
 import org.killbill.billing.notification.plugin.api.ExtBusEventType;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.callcontext.CallOrigin;
@@ -56,7 +54,6 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.callcontext.UserType;
 import org.killbill.bus.api.BusEvent;
-import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,15 +68,15 @@ public class BeatrixListener {
 
     private static final Logger log = LoggerFactory.getLogger(BeatrixListener.class);
 
-    private final PersistentBus externalBus;
+    private final ExternalBusBatchPoster externalBusPoster;
     private final InternalCallContextFactory internalCallContextFactory;
 
     protected final ObjectMapper objectMapper;
 
     @Inject
-    public BeatrixListener(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus externalBus,
+    public BeatrixListener(final ExternalBusBatchPoster externalBusPoster,
                            final InternalCallContextFactory internalCallContextFactory) {
-        this.externalBus = externalBus;
+        this.externalBusPoster = externalBusPoster;
         this.internalCallContextFactory = internalCallContextFactory;
         this.objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JodaModule());
@@ -93,7 +90,7 @@ public class BeatrixListener {
         try {
             final BusEvent externalEvent = computeExtBusEventEntryFromBusInternalEvent(event, internalContext);
             if (externalEvent != null) {
-                externalBus.post(externalEvent);
+                externalBusPoster.post(externalEvent);
             }
         } catch (final EventBusException e) {
             log.warn("Failed to dispatch external bus events", e);
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.killbill.billing.lifecycle.glue.BusModule;
+import org.killbill.billing.util.config.BeatrixConfig;
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.commons.concurrent.Executors;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Posts the external bus events in batches: events handed over by concurrent callers within a few milliseconds are
+ * inserted in a single transaction, instead of one transaction per event.
+ * <p/>
+ * Callers block until their event has been committed (group commit), so an event is never lost once post returns,
+ * and events are inserted in the order they were handed over, which preserves the ordering per account.
+ * <p/>
+ * Callers never wait more than POST_TIMEOUT_SEC: an event the worker has not picked up by then is posted directly,
+ * and if the worker dies, batching is turned off and pending and new events are posted directly.
+ * <p/>
+ * Batching is off by default (org.killbill.beatrix.extbus.batch.size is 1): events are then posted directly by the callers.
+ */
+public class ExternalBusBatchPoster {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalBusBatchPoster.class);
+
+    private static final long POLL_TIMEOUT_MSEC = 100;
+    private static final long STOP_TIMEOUT_SEC = 10;
+    private static final long POST_TIMEOUT_SEC = 30;
+
+    private final PersistentBus externalBus;
+    private final IDBI dbi;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final long postTimeoutMillis;
+    private final BlockingQueue<PendingEvent> pendingEvents;
+
+    private volatile boolean isStarted;
+    private ExecutorService executor;
+
+    @Inject
+    public ExternalBusBatchPoster(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus externalBus,
+                                  final IDBI dbi,
+                                  final BeatrixConfig config) {
+        this(externalBus, dbi, config.getExternalBusBatchSize(), config.getExternalBusBatchDelay().getMillis());
+    }
+
+    @VisibleForTesting
+    ExternalBusBatchPoster(final PersistentBus externalBus, final IDBI dbi, final int maxBatchSize, final long maxBatchDelayMillis) {
+        this(externalBus, dbi, maxBatchSize, maxBatchDelayMillis, TimeUnit.SECONDS.toMillis(POST_TIMEOUT_SEC));
+    }
+
+    @VisibleForTesting
+    ExternalBusBatchPoster(final PersistentBus externalBus, final IDBI dbi, final int maxBatchSize, final long maxBatchDelayMillis, final long postTimeoutMillis) {
+        this.externalBus = externalBus;
+        this.dbi = dbi;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+        this.postTimeoutMillis = postTimeoutMillis;
+        this.pendingEvents = new LinkedBlockingQueue<PendingEvent>();
+        this.isStarted = false;
+    }
+
+    public synchronized void start() {
+        if (executor != null || maxBatchSize <= 1) {
+            return;
+        }
+        isStarted = true;
+        executor = Executors.newSingleThreadExecutor("ExternalBusBatchPoster");
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    processBatches();
+                } finally {
+                    onWorkerExit();
+                }
+            }
+        });
+    }
+
+    public synchronized void stop() {
+        // The executor is also shut down when the worker died (isStarted is already false in that case)
+        if (executor == null) {
+            return;
+        }
+        isStarted = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                log.warn("ExternalBusBatchPoster did not stop within {} seconds", STOP_TIMEOUT_SEC);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        // Flush whatever was handed over while we were stopping
+        flushPendingEvents();
+    }
+
+    public void post(final BusEvent event) throws EventBusException {
+        if (!isStarted) {
+            externalBus.post(event);
+            return;
+        }
+
+        final PendingEvent pendingEvent = new PendingEvent(event);
+        pendingEvents.add(pendingEvent);
+        if (!isStarted) {
+            // We raced with stop(): make sure our event does not stay in the queue
+            flushPendingEvents();
+        }
+        try {
+            pendingEvent.waitForCompletion(postTimeoutMillis);
+        } catch (final TimeoutException e) {
+            if (pendingEvents.remove(pendingEvent)) {
+                // The worker did not pick it up (stuck on a previous batch): nobody else will post it
+                log.warn("External bus event was not batched within {} ms, posting it directly", postTimeoutMillis);
+                externalBus.post(event);
+            } else {
+                // Part of a batch still in flight, which may or may not be committed
+                throw new EventBusException(String.format("Timed out after %s ms waiting for the external bus event to be posted", postTimeoutMillis), e);
+            }
+        }
+    }
+
+    private void processBatches() {
+        while (isStarted) {
+            final List<PendingEvent> batch = new ArrayList<PendingEvent>(maxBatchSize);
+            boolean interrupted = false;
+            try {
+                final PendingEvent first = pendingEvents.poll(POLL_TIMEOUT_MSEC, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                final long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    final long remainingNanos = deadline - System.nanoTime();
+                    final PendingEvent next = remainingNanos > 0 ? pendingEvents.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    pendingEvents.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+
+            // Callers are waiting on the events we already dequeued, post them even if we were interrupted
+            if (!batch.isEmpty()) {
+                postBatch(batch);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // The worker only exits on its own if it died (e.g. Error thrown by the bus): turn batching off, so that new events
+    // are posted directly, and post the events already handed over
+    private void onWorkerExit() {
+        if (!isStarted) {
+            return;
+        }
+        isStarted = false;
+        log.error("ExternalBusBatchPoster worker exited unexpectedly, external bus events will be posted directly");
+        flushPendingEvents();
+    }
+
+    private synchronized void flushPendingEvents() {
+        final List<PendingEvent> batch = new ArrayList<PendingEvent>();
+        while (pendingEvents.drainTo(batch, maxBatchSize) > 0) {
+            postBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void postBatch(final List<PendingEvent> batch) {
+        try {
+            dbi.inTransaction(new TransactionCallback<Void>() {
+                @Override
+                public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                    for (final PendingEvent pendingEvent : batch) {
+                        externalBus.postFromTransaction(pendingEvent.getEvent(), handle.getConnection());
+                    }
+                    return null;
+                }
+            });
+            for (final PendingEvent pendingEvent : batch) {
+                pendingEvent.complete(null);
+            }
+        } catch (final RuntimeException e) {
+            // Fall back to one transaction per event, so that a single bad event does not fail the whole batch
+            log.warn("Failed to post a batch of {} external bus events, retrying them one by one", batch.size(), e);
+            for (final PendingEvent pendingEvent : batch) {
+                try {
+                    externalBus.post(pendingEvent.getEvent());
+                    pendingEvent.complete(null);
+                } catch (final EventBusException ex) {
+                    pendingEvent.complete(ex);
+                } catch (final RuntimeException ex) {
+                    pendingEvent.complete(new EventBusException("Failed to post external bus event", ex));
+                }
+            }
+        } finally {
+            // Never leave a caller waiting (no-op for the events already completed)
+            for (final PendingEvent pendingEvent : batch) {
+                pendingEvent.complete(new EventBusException("Failed to post external bus event"));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getNbPendingEvents() {
+        return pendingEvents.size();
+    }
+
+    private static final class PendingEvent {
+
+        private final BusEvent event;
+        private final SettableFuture<Void> result;
+
+        private PendingEvent(final BusEvent event) {
+            this.event = event;
+            this.result = SettableFuture.<Void>create();
+        }
+
+        public BusEvent getEvent() {
+            return event;
+        }
+
+        public void complete(final EventBusException exception) {
+            if (exception == null) {
+                result.set(null);
+            } else {
+                result.setException(exception);
+            }
+        }
+
+        public void waitForCompletion(final long timeoutMillis) throws EventBusException, TimeoutException {
+            try {
+                result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EventBusException("Interrupted while waiting for the external bus event to be posted", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof EventBusException) {
+                    throw (EventBusException) e.getCause();
+                }
+                throw new EventBusException("Failed to post external bus event", e.getCause());
+            }
+        }
+    }
+}
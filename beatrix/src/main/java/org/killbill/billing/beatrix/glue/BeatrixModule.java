@@ -21,8 +21,11 @@ package org.killbill.billing.beatrix.glue;
 import org.killbill.billing.beatrix.DefaultBeatrixService;
 import org.killbill.billing.beatrix.bus.api.BeatrixService;
 import org.killbill.billing.beatrix.extbus.BeatrixListener;
+import org.killbill.billing.beatrix.extbus.ExternalBusBatchPoster;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.BeatrixConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class BeatrixModule extends KillBillModule {
 
@@ -39,6 +42,10 @@ public class BeatrixModule extends KillBillModule {
         bind(BeatrixService.class).to(DefaultBeatrixService.class);
         bind(DefaultBeatrixService.class).asEagerSingleton();
 
+        final BeatrixConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(BeatrixConfig.class);
+        bind(BeatrixConfig.class).toInstance(config);
+
+        bind(ExternalBusBatchPoster.class).asEagerSingleton();
         bind(BeatrixListener.class).asEagerSingleton();
     }
 }
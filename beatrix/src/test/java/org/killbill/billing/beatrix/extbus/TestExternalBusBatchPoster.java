@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.beatrix.BeatrixTestSuite;
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestExternalBusBatchPoster extends BeatrixTestSuite {
+
+    private PersistentBus externalBus;
+    private IDBI dbi;
+    private AtomicInteger nbTransactions;
+    private List<BusEvent> postedEvents;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        externalBus = Mockito.mock(PersistentBus.class);
+        nbTransactions = new AtomicInteger();
+        postedEvents = Collections.synchronizedList(new ArrayList<BusEvent>());
+
+        final Handle handle = Mockito.mock(Handle.class);
+        Mockito.when(handle.getConnection()).thenReturn(Mockito.mock(Connection.class));
+        dbi = Mockito.mock(IDBI.class);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                nbTransactions.incrementAndGet();
+                try {
+                    return ((TransactionCallback<?>) invocation.getArguments()[0]).inTransaction(handle, Mockito.mock(TransactionStatus.class));
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }).when(dbi).inTransaction(Mockito.<TransactionCallback<Object>>any());
+
+        final Answer<Void> recordEvent = new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                postedEvents.add((BusEvent) invocation.getArguments()[0]);
+                return null;
+            }
+        };
+        Mockito.doAnswer(recordEvent).when(externalBus).postFromTransaction(Mockito.<BusEvent>any(), Mockito.<Connection>any());
+        Mockito.doAnswer(recordEvent).when(externalBus).post(Mockito.<BusEvent>any());
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentEventsAreInsertedInBatches() throws Exception {
+        final ExternalBusBatchPoster poster = new ExternalBusBatchPoster(externalBus, dbi, 100, 50);
+        poster.start();
+
+        final int nbThreads = 10;
+        final int nbEventsPerThread = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<List<BusEvent>>> futures = new ArrayList<Future<List<BusEvent>>>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executor.submit(new Callable<List<BusEvent>>() {
+                    @Override
+                    public List<BusEvent> call() throws Exception {
+                        final List<BusEvent> events = new ArrayList<BusEvent>();
+                        for (int j = 0; j < nbEventsPerThread; j++) {
+                            final BusEvent event = Mockito.mock(BusEvent.class);
+                            poster.post(event);
+                            // Once post returns, the event has been committed
+                            Assert.assertTrue(postedEvents.contains(event));
+                            events.add(event);
+                        }
+                        return events;
+                    }
+                }));
+            }
+
+            for (final Future<List<BusEvent>> future : futures) {
+                // Events of a given caller are inserted in order
+                final List<BusEvent> events = future.get();
+                final List<BusEvent> posted = new ArrayList<BusEvent>(postedEvents);
+                posted.retainAll(events);
+                Assert.assertEquals(posted, events);
+            }
+        } finally {
+            executor.shutdownNow();
+            poster.stop();
+        }
+
+        Assert.assertEquals(postedEvents.size(), nbThreads * nbEventsPerThread);
+        Assert.assertTrue(nbTransactions.get() < nbThreads * nbEventsPerThread, "Expected batches, got " + nbTransactions.get() + " transactions");
+        Mockito.verify(externalBus, Mockito.never()).post(Mockito.<BusEvent>any());
+    }
+
+    @Test(groups = "fast")
+    public void testFailedBatchIsRetriedEventPerEvent() throws Exception {
+        final BusEvent event = Mockito.mock(BusEvent.class);
+        Mockito.doThrow(new PersistentBus.EventBusException("Boom")).when(externalBus).postFromTransaction(Mockito.eq(event), Mockito.<Connection>any());
+
+        final ExternalBusBatchPoster poster = new ExternalBusBatchPoster(externalBus, dbi, 100, 5);
+        poster.start();
+        try {
+            poster.post(event);
+        } finally {
+            poster.stop();
+        }
+
+        Assert.assertEquals(postedEvents, Collections.singletonList(event));
+        Mockito.verify(externalBus).post(event);
+    }
+
+    @Test(groups = "fast")
+    public void testEventsArePostedDirectlyWhenBatchingIsDisabled() throws Exception {
+        final ExternalBusBatchPoster poster = new ExternalBusBatchPoster(externalBus, dbi, 1, 5);
+        poster.start();
+
+        final BusEvent event = Mockito.mock(BusEvent.class);
+        poster.post(event);
+        poster.stop();
+
+        Assert.assertEquals(postedEvents, Collections.singletonList(event));
+        Assert.assertEquals(nbTransactions.get(), 0);
+        Assert.assertEquals(poster.getNbPendingEvents(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testEventIsPostedDirectlyWhenWorkerIsStuck() throws Exception {
+        final CountDownLatch inTransaction = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BusEvent stuckEvent = Mockito.mock(BusEvent.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                inTransaction.countDown();
+                release.await();
+                postedEvents.add(stuckEvent);
+                return null;
+            }
+        }).when(externalBus).postFromTransaction(Mockito.eq(stuckEvent), Mockito.<Connection>any());
+
+        final ExternalBusBatchPoster poster = new ExternalBusBatchPoster(externalBus, dbi, 100, 5, 200);
+        poster.start();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> stuckPost = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    poster.post(stuckEvent);
+                    return null;
+                }
+            });
+            Assert.assertTrue(inTransaction.await(5, TimeUnit.SECONDS));
+
+            // The worker is stuck on the first batch: the second event is taken back from the queue and posted directly
+            final BusEvent event = Mockito.mock(BusEvent.class);
+            poster.post(event);
+            Mockito.verify(externalBus).post(event);
+            Assert.assertEquals(poster.getNbPendingEvents(), 0);
+
+            // The first caller gives up on its in-flight batch instead of waiting forever
+            try {
+                stuckPost.get();
+                Assert.fail("Post of the in-flight event should have timed out");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof PersistentBus.EventBusException);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            poster.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testEventsArePostedDirectlyWhenWorkerDies() throws Exception {
+        final BusEvent fatalEvent = Mockito.mock(BusEvent.class);
+        Mockito.doThrow(new Error("Boom")).when(externalBus).postFromTransaction(Mockito.eq(fatalEvent), Mockito.<Connection>any());
+
+        final ExternalBusBatchPoster poster = new ExternalBusBatchPoster(externalBus, dbi, 100, 5);
+        poster.start();
+        try {
+            // The caller is failed instead of waiting for an event that will never be completed
+            try {
+                poster.post(fatalEvent);
+                Assert.fail("Post should have failed");
+            } catch (final PersistentBus.EventBusException e) {
+                Assert.assertEquals(e.getMessage(), "Failed to post external bus event");
+            }
+
+            // The worker is gone: the next events are flushed or posted directly, but never left in the queue
+            final BusEvent event = Mockito.mock(BusEvent.class);
+            poster.post(event);
+            Assert.assertTrue(postedEvents.contains(event));
+        } finally {
+            poster.stop();
+        }
+        Assert.assertEquals(poster.getNbPendingEvents(), 0);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files (as written by {@link BenchmarkRunner}), benchmark by benchmark and
+ * parameter set by parameter set, on both the primary score and the normalized allocation rate (bytes per operation).
+ * <p/>
+ * Entries only present on one side are reported as such: they are usually new or renamed benchmarks.
+ */
+public class BaselineComparison {
+
+    private static final String ALLOCATION_METRIC_SUFFIX = "gc.alloc.rate.norm";
+
+    private final Map<String, Score> baseline;
+    private final Map<String, Score> current;
+
+    public BaselineComparison(final File baselineFile, final File currentFile) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        this.baseline = readScores(mapper.readTree(baselineFile));
+        this.current = readScores(mapper.readTree(currentFile));
+    }
+
+    public void print(final PrintStream out) {
+        out.println(String.format("%-100s %15s %15s %9s %15s %15s %9s", "Benchmark", "Baseline", "Current", "Delta", "Baseline B/op", "Current B/op", "Delta"));
+        for (final Entry<String, Score> entry : current.entrySet()) {
+            final Score before = baseline.get(entry.getKey());
+            final Score after = entry.getValue();
+            if (before == null) {
+                out.println(String.format("%-100s %15s %15.3f %9s %15s %15.1f %9s", entry.getKey(), "-", after.score, "new", "-", after.allocatedBytes, "new"));
+            } else {
+                out.println(String.format("%-100s %15.3f %15.3f %9s %15.1f %15.1f %9s", entry.getKey(),
+                                          before.score, after.score, delta(before.score, after.score),
+                                          before.allocatedBytes, after.allocatedBytes, delta(before.allocatedBytes, after.allocatedBytes)));
+            }
+        }
+        for (final String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                out.println(String.format("%-100s %15.3f %15s %9s", key, baseline.get(key).score, "-", "missing"));
+            }
+        }
+    }
+
+    private static String delta(final double before, final double after) {
+        if (before == 0) {
+            return after == 0 ? "0.0%" : "n/a";
+        }
+        return String.format("%+.1f%%", 100 * (after - before) / before);
+    }
+
+    private static Map<String, Score> readScores(final JsonNode results) {
+        final Map<String, Score> scores = new LinkedHashMap<String, Score>();
+        for (final JsonNode result : results) {
+            final StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            final Iterator<Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                final Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+
+            double allocatedBytes = Double.NaN;
+            final Iterator<Entry<String, JsonNode>> secondaryMetrics = result.path("secondaryMetrics").fields();
+            while (secondaryMetrics.hasNext()) {
+                final Entry<String, JsonNode> metric = secondaryMetrics.next();
+                if (metric.getKey().endsWith(ALLOCATION_METRIC_SUFFIX)) {
+                    allocatedBytes = metric.getValue().path("score").asDouble();
+                }
+            }
+
+            scores.put(key.toString(), new Score(result.path("primaryMetric").path("score").asDouble(), allocatedBytes));
+        }
+        return scores;
+    }
+
+    private static final class Score {
+
+        private final double score;
+        private final double allocatedBytes;
+
+        private Score(final double score, final double allocatedBytes) {
+            this.score = score;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
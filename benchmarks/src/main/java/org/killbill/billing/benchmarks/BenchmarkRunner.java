@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * <p/>
+ * Usage: {@code java -jar benchmarks.jar [regex] [--result <file>] [--baseline <file>]}
+ * <ul>
+ * <li>regex: only run the benchmarks matching it (all of them by default)</li>
+ * <li>--result: where to write the JMH JSON results (target/jmh-result.json by default)</li>
+ * <li>--baseline: previous JMH JSON results to compare against, see {@link BaselineComparison}</li>
+ * </ul>
+ * The GC profiler is always enabled, so that allocation rates are reported along with the timings.
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    public static void main(final String[] args) throws Exception {
+        String include = null;
+        String result = DEFAULT_RESULT;
+        String baseline = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--result".equals(args[i]) && i + 1 < args.length) {
+                result = args[++i];
+            } else if ("--baseline".equals(args[i]) && i + 1 < args.length) {
+                baseline = args[++i];
+            } else if (include == null && !args[i].startsWith("--")) {
+                include = args[i];
+            } else {
+                System.err.println("Usage: java -jar benchmarks.jar [regex] [--result <file>] [--baseline <file>]");
+                System.exit(1);
+            }
+        }
+
+        final File resultFile = new File(result);
+        if (resultFile.getParentFile() != null) {
+            resultFile.getParentFile().mkdirs();
+        }
+
+        final ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class)
+                                                                  .resultFormat(ResultFormatType.JSON)
+                                                                  .result(resultFile.getPath());
+        if (include != null) {
+            options.include(include);
+        }
+        new Runner(options.build()).run();
+
+        if (baseline != null) {
+            new BaselineComparison(new File(baseline), resultFile).print(System.out);
+        }
+    }
+}
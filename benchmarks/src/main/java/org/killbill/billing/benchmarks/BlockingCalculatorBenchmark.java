@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.benchmarks.fixtures.BillingFixtures;
+import org.killbill.billing.benchmarks.fixtures.Stubs;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Insertion of the disable/re-enable billing events for an account whose first bundle went through
+ * {@code nbBlockingPeriods} blocked periods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BlockingCalculatorBenchmark {
+
+    @Param({"10", "100"})
+    public int nbSubscriptions;
+
+    @Param({"1", "12"})
+    public int nbBlockingPeriods;
+
+    private BlockingCalculator blockingCalculator;
+    private SortedSet<BillingEvent> events;
+    private InternalTenantContext context;
+
+    @Setup
+    public void setUp() {
+        final Account account = BillingFixtures.account();
+        final List<SubscriptionBase> subscriptions = BillingFixtures.subscriptions(nbSubscriptions, 1);
+        events = BillingFixtures.billingEvents(account, subscriptions);
+
+        final List<BlockingState> blockingStates = BillingFixtures.blockingStates(subscriptions.get(0).getBundleId(), nbBlockingPeriods);
+        blockingCalculator = new BlockingCalculator(Stubs.stub(BlockingInternalApi.class, ImmutableMap.<String, Object>of("getBlockingAllForAccount", blockingStates)));
+        context = new InternalTenantContext(1L, 1L);
+    }
+
+    @Benchmark
+    public SortedSet<BillingEvent> insertBlockingEvents() {
+        // The calculator mutates the set it is given: the copy is part of the measurement, but is cheap in comparison
+        final SortedSet<BillingEvent> billingEvents = new DefaultBillingEventSet();
+        billingEvents.addAll(events);
+        blockingCalculator.insertBlockingEvents(billingEvents, context);
+        return billingEvents;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.entitlement.api.Entitlement.EntitlementState;
+import org.killbill.billing.invoice.api.user.DefaultInvoiceCreationEvent;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.subscription.api.user.DefaultEffectiveSubscriptionEvent;
+import org.killbill.billing.util.jackson.ObjectMapper;
+import org.killbill.billing.util.jackson.ObjectReaderWriterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Round trip (serialization then deserialization of the concrete class, as the persistent bus and the notification
+ * queues do) of representative bus events and notification keys, through the mapper and through the pre-built readers
+ * and writers of {@link ObjectReaderWriterRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BusEventSerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private ObjectReaderWriterRegistry registry;
+    private List<Object> events;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        registry = new ObjectReaderWriterRegistry(mapper);
+
+        final DateTime now = new DateTime(2015, 6, 1, 0, 0, DateTimeZone.UTC);
+        final UUID subscriptionId = UUID.randomUUID();
+        events = ImmutableList.<Object>of(new DefaultEffectiveSubscriptionEvent(UUID.randomUUID(), subscriptionId, UUID.randomUUID(), now, now,
+                                                                                EntitlementState.ACTIVE, "benchmark-product-monthly", "benchmark-product-monthly-trial", "DEFAULT",
+                                                                                EntitlementState.ACTIVE, "benchmark-product-monthly", "benchmark-product-monthly-evergreen", "DEFAULT",
+                                                                                12L, SubscriptionBaseTransitionType.PHASE, 0, now.minusDays(30), 1L, 2L, UUID.randomUUID()),
+                                          new DefaultInvoiceCreationEvent(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("29.95"), Currency.USD, 1L, 2L, UUID.randomUUID()),
+                                          new NextBillingDateNotificationKey(subscriptionId, ImmutableSet.<UUID>of(subscriptionId, UUID.randomUUID()), now.plusMonths(1), Boolean.FALSE));
+    }
+
+    @Benchmark
+    public int roundTripWithMapper() throws IOException {
+        int result = 0;
+        for (final Object event : events) {
+            final String json = mapper.writeValueAsString(event);
+            result += mapper.readValue(json, event.getClass()).hashCode();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int roundTripWithRegistry() throws IOException {
+        int result = 0;
+        for (final Object event : events) {
+            final String json = registry.writeValueAsString(event);
+            result += registry.readValue(json, event.getClass()).hashCode();
+        }
+        return result;
+    }
+}
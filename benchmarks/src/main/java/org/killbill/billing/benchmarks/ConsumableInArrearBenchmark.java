@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.benchmarks.fixtures.BillingFixtures;
+import org.killbill.billing.benchmarks.fixtures.UsageFixtures;
+import org.killbill.billing.catalog.DefaultUsage;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.usage.ContiguousIntervalConsumableInArrear;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.usage.RawUsage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Rating of a single consumable in-arrear usage section: one raw usage record per day, billed monthly
+ * against {@code nbTiers} tiers, with nothing invoiced yet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConsumableInArrearBenchmark {
+
+    @Param({"31", "365", "3650"})
+    public int nbRawUsages;
+
+    @Param({"1", "10"})
+    public int nbTiers;
+
+    private DefaultUsage usage;
+    private List<RawUsage> rawUsages;
+    private BillingEvent billingEvent;
+    private LocalDate targetDate;
+
+    @Setup
+    public void setUp() {
+        usage = UsageFixtures.consumableInArrearUsage(nbTiers, 1000);
+        final Account account = BillingFixtures.account();
+        final SubscriptionBase subscription = BillingFixtures.subscriptions(1, 1).get(0);
+        rawUsages = UsageFixtures.rawUsages(subscription.getId(), nbRawUsages);
+        billingEvent = BillingFixtures.billingEvent(account, subscription, BillingFixtures.toDateTime(BillingFixtures.START_DATE),
+                                                    new MockPlan("benchmark-plan"), 0);
+        targetDate = UsageFixtures.lastRecordDate(nbRawUsages).plusMonths(1);
+    }
+
+    @Benchmark
+    public List<InvoiceItem> computeMissingItems() throws CatalogApiException {
+        final ContiguousIntervalConsumableInArrear interval = new ContiguousIntervalConsumableInArrear(usage, UUID.randomUUID(), rawUsages, targetDate, BillingFixtures.START_DATE);
+        interval.addBillingEvent(billingEvent);
+        interval.build(false);
+        return interval.computeMissingItems(ImmutableList.<InvoiceItem>of());
+    }
+}
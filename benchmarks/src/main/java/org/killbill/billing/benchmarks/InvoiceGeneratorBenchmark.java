@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.benchmarks.fixtures.BillingFixtures;
+import org.killbill.billing.benchmarks.fixtures.InvoiceFixtures;
+import org.killbill.billing.benchmarks.fixtures.Stubs;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.usage.InternalUserApi;
+import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Steady state invoice run: the account has been invoiced every month since the subscriptions started,
+ * and the generator has to figure out that only the upcoming period is missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InvoiceGeneratorBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int nbSubscriptions;
+
+    @Param({"12", "60"})
+    public int nbMonths;
+
+    private DefaultInvoiceGenerator generator;
+    private Account account;
+    private BillingEventSet events;
+    private List<Invoice> existingInvoices;
+    private LocalDate targetDate;
+    private InternalCallContext context;
+
+    @Setup
+    public void setUp() {
+        targetDate = BillingFixtures.START_DATE.plusMonths(nbMonths);
+        final Clock clock = BillingFixtures.clock(targetDate);
+        final InvoiceConfig invoiceConfig = Stubs.stub(InvoiceConfig.class, ImmutableMap.<String, Object>of("getNumberOfMonthsInFuture", 36,
+                                                                                                            "getMaxRawUsagePreviousPeriod", 2));
+        final InternalUserApi usageApi = Stubs.stub(InternalUserApi.class, ImmutableMap.<String, Object>of("getRawUsageForAccount", ImmutableList.<RawUsage>of()));
+        generator = new DefaultInvoiceGenerator(clock, invoiceConfig, new RawUsageOptimizer(invoiceConfig, usageApi));
+
+        account = BillingFixtures.account();
+        events = BillingFixtures.billingEvents(account, BillingFixtures.subscriptions(nbSubscriptions, 1));
+        existingInvoices = InvoiceFixtures.monthlyInvoices(account, events, nbMonths);
+        context = BillingFixtures.internalCallContext(clock);
+    }
+
+    @Benchmark
+    public Invoice generateInvoice() throws InvoiceApiException {
+        return generator.generateInvoice(account, events, existingInvoices, targetDate, BillingFixtures.CURRENCY, context);
+    }
+}
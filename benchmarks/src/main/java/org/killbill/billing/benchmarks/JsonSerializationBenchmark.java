@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.fixtures.BillingFixtures;
+import org.killbill.billing.benchmarks.fixtures.InvoiceFixtures;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.jaxrs.json.AccountJson;
+import org.killbill.billing.jaxrs.json.AccountTimelineJson;
+import org.killbill.billing.jaxrs.json.BundleJson;
+import org.killbill.billing.jaxrs.json.InvoiceJson;
+import org.killbill.billing.jaxrs.json.InvoicePaymentJson;
+import org.killbill.billing.jaxrs.json.PaymentTransactionJson;
+import org.killbill.billing.jaxrs.json.SubscriptionJson;
+import org.killbill.billing.util.jackson.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Serialization of the two largest payloads the server returns: an invoice with {@code nbItems} items
+ * (including the conversion from the API object), and an account timeline with {@code nbItems} invoices,
+ * bundles and payments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final BigDecimal AMOUNT = BillingFixtures.MONTHLY_RATE;
+    private static final String CURRENCY = BillingFixtures.CURRENCY.toString();
+
+    @Param({"10", "100", "1000"})
+    public int nbItems;
+
+    private ObjectMapper mapper;
+    private Invoice invoice;
+    private AccountTimelineJson accountTimeline;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        final UUID accountId = UUID.randomUUID();
+        invoice = InvoiceFixtures.invoiceWithItems(accountId, nbItems);
+        accountTimeline = accountTimeline(accountId);
+    }
+
+    @Benchmark
+    public byte[] serializeInvoice() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(new InvoiceJson(invoice, true, null));
+    }
+
+    @Benchmark
+    public byte[] serializeAccountTimeline() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(accountTimeline);
+    }
+
+    private AccountTimelineJson accountTimeline(final UUID accountId) {
+        final AccountJson account = new AccountJson(accountId.toString(), "Benchmark Account", 9, "benchmark-external-key", "benchmark@example.com",
+                                                    BillingFixtures.BCD, CURRENCY, UUID.randomUUID().toString(), "UTC",
+                                                    "12 Main Street", null, "94105", "Benchmark Inc", "San Francisco", "CA", "US", "en_US", "555-0100",
+                                                    false, true, AMOUNT, BigDecimal.ZERO, null);
+
+        final List<BundleJson> bundles = new ArrayList<BundleJson>(nbItems);
+        final List<InvoiceJson> invoices = new ArrayList<InvoiceJson>(nbItems);
+        final List<InvoicePaymentJson> payments = new ArrayList<InvoicePaymentJson>(nbItems);
+        for (int i = 0; i < nbItems; i++) {
+            final String bundleId = UUID.randomUUID().toString();
+            final SubscriptionJson subscription = new SubscriptionJson(accountId.toString(), bundleId, UUID.randomUUID().toString(), "benchmark-bundle-" + i,
+                                                                       BillingFixtures.START_DATE, "benchmark-product", "BASE", "MONTHLY", "EVERGREEN",
+                                                                       "DEFAULT", "ACTIVE", "NATIVE", null, BillingFixtures.START_DATE.plusMonths(i + 1),
+                                                                       BillingFixtures.START_DATE, null, null, null, null);
+            bundles.add(new BundleJson(accountId.toString(), bundleId, "benchmark-bundle-" + i, ImmutableList.<SubscriptionJson>of(subscription), null, null));
+
+            final Invoice invoice = InvoiceFixtures.invoiceWithItems(accountId, 10);
+            invoices.add(new InvoiceJson(invoice, true, null));
+            payments.add(new InvoicePaymentJson(invoice.getId().toString(), accountId.toString(), UUID.randomUUID().toString(), String.valueOf(i), "benchmark-payment-" + i,
+                                                AMOUNT, AMOUNT, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, CURRENCY, UUID.randomUUID().toString(),
+                                                ImmutableList.<PaymentTransactionJson>of(), null));
+        }
+        return new AccountTimelineJson(account, bundles, invoices, payments);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.fixtures.InvoiceFixtures;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.tree.SubscriptionItemTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The two ways the generator drives a subscription tree: building the view of existing items, and
+ * merging the proposed items (one more period than what has been invoiced so far) into them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SubscriptionItemTreeBenchmark {
+
+    @Param({"12", "60", "240", "10000"})
+    public int nbItems;
+
+    private UUID subscriptionId;
+    private UUID invoiceId;
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+
+    @Setup
+    public void setUp() {
+        subscriptionId = UUID.randomUUID();
+        invoiceId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        existingItems = InvoiceFixtures.recurringItems(UUID.randomUUID(), accountId, subscriptionId, nbItems);
+        proposedItems = InvoiceFixtures.recurringItems(invoiceId, accountId, subscriptionId, nbItems + 1);
+    }
+
+    @Benchmark
+    public List<InvoiceItem> buildView() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, invoiceId);
+        for (final InvoiceItem item : existingItems) {
+            tree.addItem(item);
+        }
+        tree.build();
+        return tree.getView();
+    }
+
+    @Benchmark
+    public List<InvoiceItem> mergeProposedItems() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, invoiceId);
+        for (final InvoiceItem item : existingItems) {
+            tree.addItem(item);
+        }
+        tree.flatten(true);
+        for (final InvoiceItem item : proposedItems) {
+            tree.mergeProposedItem(item);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+}
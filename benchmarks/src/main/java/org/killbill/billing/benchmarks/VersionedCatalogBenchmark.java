@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.benchmarks.fixtures.BillingFixtures;
+import org.killbill.billing.benchmarks.fixtures.CatalogFixtures;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Plan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Plan lookups against a catalog with {@code nbVersions} monthly versions, for a subscription started on the first one
+ * (worst case: every later version has to be considered and skipped).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VersionedCatalogBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int nbVersions;
+
+    @Param({"10", "200"})
+    public int nbPlansPerVersion;
+
+    private VersionedCatalog catalog;
+    private String planName;
+    private DateTime requestedDate;
+    private DateTime subscriptionStartDate;
+
+    @Setup
+    public void setUp() throws CatalogApiException {
+        catalog = CatalogFixtures.versionedCatalog(BillingFixtures.clock(BillingFixtures.START_DATE), nbVersions, nbPlansPerVersion);
+        // Last plan of each version, to also pay for the scan within a version
+        planName = CatalogFixtures.planName(nbPlansPerVersion - 1);
+        subscriptionStartDate = BillingFixtures.toDateTime(BillingFixtures.START_DATE);
+        requestedDate = BillingFixtures.toDateTime(BillingFixtures.START_DATE.plusMonths(nbVersions));
+    }
+
+    @Benchmark
+    public Plan findPlanForNewSubscription() throws CatalogApiException {
+        return catalog.findPlan(planName, requestedDate, requestedDate);
+    }
+
+    @Benchmark
+    public Plan findPlanForExistingSubscription() throws CatalogApiException {
+        return catalog.findPlan(planName, requestedDate, subscriptionStartDate);
+    }
+}
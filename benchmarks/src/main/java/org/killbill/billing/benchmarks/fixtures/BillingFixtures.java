@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.fixtures;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.clock.Clock;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Synthetic accounts, subscriptions and billing events. Everything is derived from the parameters only
+ * (no randomness besides the ids), so two forks of the same benchmark see the same shape of data.
+ */
+public abstract class BillingFixtures {
+
+    public static final Currency CURRENCY = Currency.USD;
+    public static final int BCD = 1;
+    public static final BigDecimal MONTHLY_RATE = new BigDecimal("29.95");
+    public static final LocalDate START_DATE = new LocalDate(2012, 1, 1);
+
+    public static Account account() {
+        return Stubs.stub(Account.class, ImmutableMap.<String, Object>of("getId", UUID.randomUUID(),
+                                                                         "getTimeZone", DateTimeZone.UTC,
+                                                                         "getCurrency", CURRENCY,
+                                                                         "getBillCycleDayLocal", BCD));
+    }
+
+    public static List<SubscriptionBase> subscriptions(final int nbBundles, final int nbSubscriptionsPerBundle) {
+        final List<SubscriptionBase> subscriptions = new ArrayList<SubscriptionBase>(nbBundles * nbSubscriptionsPerBundle);
+        for (int i = 0; i < nbBundles; i++) {
+            final UUID bundleId = UUID.randomUUID();
+            for (int j = 0; j < nbSubscriptionsPerBundle; j++) {
+                subscriptions.add(Stubs.stub(SubscriptionBase.class, ImmutableMap.<String, Object>of("getId", UUID.randomUUID(),
+                                                                                                     "getBundleId", bundleId,
+                                                                                                     "getStartDate", toDateTime(START_DATE))));
+            }
+        }
+        return subscriptions;
+    }
+
+    /**
+     * @return one CREATE event per subscription on {@link #START_DATE}, on a monthly in-advance evergreen plan
+     */
+    public static DefaultBillingEventSet billingEvents(final Account account, final List<SubscriptionBase> subscriptions) {
+        final DefaultBillingEventSet events = new DefaultBillingEventSet();
+        events.setRecurrringBillingMode(BillingMode.IN_ADVANCE);
+        long totalOrdering = 0;
+        for (final SubscriptionBase subscription : subscriptions) {
+            events.add(billingEvent(account, subscription, toDateTime(START_DATE), new MockPlan("benchmark-plan-" + totalOrdering), totalOrdering++));
+        }
+        return events;
+    }
+
+    public static BillingEvent billingEvent(final Account account, final SubscriptionBase subscription, final DateTime effectiveDate, final Plan plan, final long totalOrdering) {
+        return new DefaultBillingEvent(account, subscription, effectiveDate, plan, plan.getFinalPhase(),
+                                       null, MONTHLY_RATE, CURRENCY, BillingPeriod.MONTHLY, BCD, BillingMode.IN_ADVANCE,
+                                       "benchmark", totalOrdering, SubscriptionBaseTransitionType.CREATE, DateTimeZone.UTC);
+    }
+
+    /**
+     * @return {@code nbPeriods} consecutive one-month billing blocks on the bundle, one month apart
+     */
+    public static List<BlockingState> blockingStates(final UUID bundleId, final int nbPeriods) {
+        final List<BlockingState> blockingStates = new ArrayList<BlockingState>(2 * nbPeriods);
+        for (int i = 0; i < nbPeriods; i++) {
+            final LocalDate blockedDate = START_DATE.plusMonths(2 * i).plusDays(5);
+            blockingStates.add(new DefaultBlockingState(bundleId, BlockingStateType.SUBSCRIPTION_BUNDLE, "BLOCKED", "benchmark-service",
+                                                        true, true, true, toDateTime(blockedDate)));
+            blockingStates.add(new DefaultBlockingState(bundleId, BlockingStateType.SUBSCRIPTION_BUNDLE, "CLEAR", "benchmark-service",
+                                                        false, false, false, toDateTime(blockedDate.plusMonths(1))));
+        }
+        return blockingStates;
+    }
+
+    /**
+     * @return a clock frozen at the beginning of the given day, so that generated dates don't depend on when the benchmark runs
+     */
+    public static Clock clock(final LocalDate today) {
+        return Stubs.stub(Clock.class, ImmutableMap.<String, Object>of("getUTCNow", toDateTime(today),
+                                                                       "getUTCToday", today));
+    }
+
+    public static InternalCallContext internalCallContext(final Clock clock) {
+        return new InternalCallContext(1L, 1L, UUID.randomUUID(), "benchmark", CallOrigin.INTERNAL, UserType.SYSTEM,
+                                       null, null, clock.getUTCNow(), clock.getUTCNow());
+    }
+
+    public static DateTime toDateTime(final LocalDate localDate) {
+        return localDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+    }
+}
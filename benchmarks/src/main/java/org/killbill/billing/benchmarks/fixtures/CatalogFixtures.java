@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.fixtures;
+
+import java.util.Date;
+
+import org.killbill.billing.catalog.DefaultPlan;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.StandaloneCatalog;
+import org.killbill.billing.catalog.StandaloneCatalogWithPriceOverride;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.clock.Clock;
+
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.START_DATE;
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.toDateTime;
+
+/**
+ * Synthetic multi-version catalogs: every version redefines the same plan names, one month apart.
+ */
+public abstract class CatalogFixtures {
+
+    public static final String CATALOG_NAME = "benchmark-catalog";
+
+    public static VersionedCatalog versionedCatalog(final Clock clock, final int nbVersions, final int nbPlansPerVersion) throws CatalogApiException {
+        final VersionedCatalog versionedCatalog = new VersionedCatalog(clock);
+        for (int version = 0; version < nbVersions; version++) {
+            final DefaultPlan[] plans = new DefaultPlan[nbPlansPerVersion];
+            for (int i = 0; i < nbPlansPerVersion; i++) {
+                plans[i] = new MockPlan(planName(i));
+            }
+            final Date effectiveDate = toDateTime(START_DATE.plusMonths(version)).toDate();
+            versionedCatalog.add(new StandaloneCatalogWithPriceOverride(new SyntheticCatalog(effectiveDate, plans), null, 0L, null));
+        }
+        return versionedCatalog;
+    }
+
+    public static String planName(final int i) {
+        // Names ending with -<digits> are reserved for plans with price overrides
+        return "benchmark-plan-" + i + "-monthly";
+    }
+
+    private static final class SyntheticCatalog extends StandaloneCatalog {
+
+        private SyntheticCatalog(final Date effectiveDate, final DefaultPlan[] plans) {
+            setCatalogName(CATALOG_NAME);
+            setRecurringBillingMode(BillingMode.IN_ADVANCE);
+            setEffectiveDate(effectiveDate);
+            setPlans(plans);
+        }
+    }
+}
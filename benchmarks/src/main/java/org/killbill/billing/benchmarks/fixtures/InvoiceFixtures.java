@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.fixtures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.junction.BillingEvent;
+
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.CURRENCY;
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.MONTHLY_RATE;
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.START_DATE;
+
+/**
+ * Synthetic invoice history, shaped like what the generator itself would have produced for the
+ * {@link BillingFixtures} events.
+ */
+public abstract class InvoiceFixtures {
+
+    /**
+     * @return one invoice per month since {@link BillingFixtures#START_DATE}, each with one recurring item per billing event
+     */
+    public static List<Invoice> monthlyInvoices(final Account account, final Iterable<BillingEvent> events, final int nbMonths) {
+        final List<Invoice> invoices = new ArrayList<Invoice>(nbMonths);
+        for (int month = 0; month < nbMonths; month++) {
+            final LocalDate startDate = START_DATE.plusMonths(month);
+            final Invoice invoice = new DefaultInvoice(account.getId(), startDate, startDate, CURRENCY);
+            for (final BillingEvent event : events) {
+                invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), account.getId(), event.getSubscription().getBundleId(), event.getSubscription().getId(),
+                                                                event.getPlan().getName(), event.getPlanPhase().getName(),
+                                                                startDate, startDate.plusMonths(1), MONTHLY_RATE, MONTHLY_RATE, CURRENCY));
+            }
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+
+    /**
+     * @return consecutive monthly recurring items for a single subscription
+     */
+    public static List<InvoiceItem> recurringItems(final UUID invoiceId, final UUID accountId, final UUID subscriptionId, final int nbMonths) {
+        final UUID bundleId = UUID.randomUUID();
+        final List<InvoiceItem> items = new ArrayList<InvoiceItem>(nbMonths);
+        for (int month = 0; month < nbMonths; month++) {
+            final LocalDate startDate = START_DATE.plusMonths(month);
+            items.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "benchmark-plan", "benchmark-plan-evergreen",
+                                               startDate, startDate.plusMonths(1), MONTHLY_RATE, MONTHLY_RATE, CURRENCY));
+        }
+        return items;
+    }
+
+    public static Invoice invoiceWithItems(final UUID accountId, final int nbItems) {
+        final Invoice invoice = new DefaultInvoice(accountId, START_DATE, START_DATE, CURRENCY);
+        for (int i = 0; i < nbItems; i++) {
+            invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "benchmark-plan-" + i, "benchmark-plan-" + i + "-evergreen",
+                                                            START_DATE, START_DATE.plusMonths(1), MONTHLY_RATE, MONTHLY_RATE, CURRENCY));
+        }
+        return invoice;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.fixtures;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Minimal interface stubs for the collaborators the measured code paths call into.
+ * <p/>
+ * Mockito would work too, but its invocation recording allocates on every call and shows up in the
+ * allocation profile of the code under test.
+ */
+public abstract class Stubs {
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = ImmutableMap.<Class<?>, Object>builder()
+                                                                                .put(boolean.class, false)
+                                                                                .put(byte.class, (byte) 0)
+                                                                                .put(short.class, (short) 0)
+                                                                                .put(char.class, (char) 0)
+                                                                                .put(int.class, 0)
+                                                                                .put(long.class, 0L)
+                                                                                .put(float.class, 0f)
+                                                                                .put(double.class, 0d)
+                                                                                .build();
+
+    /**
+     * @param type                     interface to stub
+     * @param returnValuesByMethodName canned return values, keyed by method name (overloads share the value)
+     * @return a stub returning the canned values, and null (or the primitive default) for everything else
+     */
+    public static <T> T stub(final Class<T> type, final Map<String, ?> returnValuesByMethodName) {
+        final InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName()) && args == null) {
+                    return System.identityHashCode(proxy);
+                } else if ("toString".equals(method.getName()) && args == null) {
+                    return type.getSimpleName() + "Stub" + returnValuesByMethodName;
+                } else if (returnValuesByMethodName.containsKey(method.getName())) {
+                    return returnValuesByMethodName.get(method.getName());
+                } else {
+                    return PRIMITIVE_DEFAULTS.get(method.getReturnType());
+                }
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.fixtures;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.DefaultInternationalPrice;
+import org.killbill.billing.catalog.DefaultPrice;
+import org.killbill.billing.catalog.DefaultTier;
+import org.killbill.billing.catalog.DefaultTieredBlock;
+import org.killbill.billing.catalog.DefaultUnit;
+import org.killbill.billing.catalog.DefaultUsage;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.UsageType;
+import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.api.svcs.DefaultRawUsage;
+
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.CURRENCY;
+import static org.killbill.billing.benchmarks.fixtures.BillingFixtures.START_DATE;
+
+/**
+ * Synthetic consumable in-arrear usage sections and raw usage records.
+ */
+public abstract class UsageFixtures {
+
+    public static final String UNIT = "benchmark-unit";
+
+    /**
+     * @return a monthly consumable usage section with {@code nbTiers} tiers, each made of a single block for {@link #UNIT}
+     */
+    public static DefaultUsage consumableInArrearUsage(final int nbTiers, final int tierSize) {
+        final DefaultTier[] tiers = new DefaultTier[nbTiers];
+        for (int i = 0; i < nbTiers; i++) {
+            final DefaultTieredBlock block = new DefaultTieredBlock();
+            block.setUnit(new DefaultUnit().setName(UNIT));
+            block.setSize(1.0);
+            block.setMax((double) tierSize);
+
+            final DefaultPrice[] prices = new DefaultPrice[1];
+            prices[0] = new DefaultPrice();
+            // Cheaper as the volume goes up
+            prices[0].setCurrency(CURRENCY).setValue(BigDecimal.ONE.divide(BigDecimal.valueOf(i + 1), 4, BigDecimal.ROUND_HALF_UP));
+            block.setPrice(new DefaultInternationalPrice().setPrices(prices));
+
+            tiers[i] = new DefaultTier();
+            tiers[i].setBlocks(new DefaultTieredBlock[]{block});
+        }
+
+        final DefaultUsage usage = new DefaultUsage();
+        usage.setName("benchmark-usage");
+        usage.setBillingMode(BillingMode.IN_ARREAR);
+        usage.setUsageType(UsageType.CONSUMABLE);
+        usage.setBillingPeriod(BillingPeriod.MONTHLY);
+        usage.setTiers(tiers);
+        return usage;
+    }
+
+    /**
+     * @return {@code nbRecords} raw usage records spread evenly, one per day, from {@link BillingFixtures#START_DATE}
+     */
+    public static List<RawUsage> rawUsages(final UUID subscriptionId, final int nbRecords) {
+        final List<RawUsage> rawUsages = new ArrayList<RawUsage>(nbRecords);
+        for (int i = 0; i < nbRecords; i++) {
+            rawUsages.add(new DefaultRawUsage(subscriptionId, START_DATE.plusDays(i), UNIT, (long) (i % 100 + 1)));
+        }
+        return rawUsages;
+    }
+
+    public static LocalDate lastRecordDate(final int nbRecords) {
+        return START_DATE.plusDays(nbRecords - 1);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.subscription.engine.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.fixtures.Stubs;
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+
+/**
+ * Grouping of the account events per subscription, as done by {@code getSubscriptionsForAccount} for every
+ * entitlement and billing events build: the time per operation should grow linearly with {@code nbSubscriptions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SubscriptionEventGroupingBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int nbSubscriptions;
+
+    @Param({"10"})
+    public int nbEventsPerSubscription;
+
+    private List<SubscriptionBaseEvent> eventsForAccount;
+
+    @Setup
+    public void setUp() {
+        final List<UUID> subscriptionIds = new ArrayList<UUID>(nbSubscriptions);
+        for (int i = 0; i < nbSubscriptions; i++) {
+            subscriptionIds.add(UUID.randomUUID());
+        }
+
+        // Events come back from the database ordered by effective date, hence interleaved across subscriptions
+        eventsForAccount = new ArrayList<SubscriptionBaseEvent>(nbSubscriptions * nbEventsPerSubscription);
+        for (int i = 0; i < nbEventsPerSubscription; i++) {
+            for (final UUID subscriptionId : subscriptionIds) {
+                eventsForAccount.add(Stubs.stub(SubscriptionBaseEvent.class, ImmutableMap.<String, Object>of("getSubscriptionId", subscriptionId)));
+            }
+        }
+    }
+
+    @Benchmark
+    public Multimap<UUID, SubscriptionBaseEvent> groupEventsBySubscriptionId() {
+        return DefaultSubscriptionDao.groupEventsBySubscriptionId(eventsForAccount);
+    }
+}
@@ -19,9 +19,10 @@ package org.killbill.billing.entitlement.api;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,7 @@ import org.killbill.billing.entitlement.block.BlockingChecker.BlockingAggregator
 import org.killbill.billing.entitlement.block.DefaultBlockingChecker.DefaultBlockingAggregator;
 import org.killbill.billing.junction.DefaultBlockingState;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -66,62 +68,27 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
             blockingStates.addAll(((DefaultEntitlement) entitlement).getEventsStream().getBlockingStates());
         }
 
+        // Work on an array list (random access), and copy the result back at the end
+        final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>(result);
+        final EventsSweep sweep = new EventsSweep(allEntitlementUUIDs, events);
+
         // Trust the incoming ordering here: blocking states were sorted using ProxyBlockingStateDao#sortedCopy
         for (final BlockingState bs : blockingStates) {
             final List<SubscriptionEvent> newEvents = new ArrayList<SubscriptionEvent>();
-            final int index = insertFromBlockingEvent(accountTimeZone, allEntitlementUUIDs, result, bs, bs.getEffectiveDate(), newEvents);
-            insertAfterIndex(result, newEvents, index);
+            final int index = insertFromBlockingEvent(accountTimeZone, allEntitlementUUIDs, sweep, bs, bs.getEffectiveDate(), newEvents);
+            insertAfterIndex(events, newEvents, index);
         }
+
+        result.clear();
+        result.addAll(events);
     }
 
     // Returns the index and the newEvents generated from the incoming blocking state event. Those new events will all be created for the same effectiveDate and should be ordered.
-    private int insertFromBlockingEvent(final DateTimeZone accountTimeZone, final Collection<UUID> allEntitlementUUIDs, final List<SubscriptionEvent> result, final BlockingState bs, final DateTime bsEffectiveDate, final List<SubscriptionEvent> newEvents) {
-        // Keep the current state per entitlement
-        final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
-        for (final UUID cur : allEntitlementUUIDs) {
-            targetStates.put(cur, new TargetState());
-        }
-
+    private int insertFromBlockingEvent(final DateTimeZone accountTimeZone, final Collection<UUID> allEntitlementUUIDs, final EventsSweep sweep, final BlockingState bs, final DateTime bsEffectiveDate, final List<SubscriptionEvent> newEvents) {
         //
         // Find out where to insert next event, and calculate current state for each entitlement at the position where we stop.
         //
-        int index = -1;
-        final Iterator<SubscriptionEvent> it = result.iterator();
-        // Where we need to insert in that stream
-        DefaultSubscriptionEvent curInsertion = null;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) it.next();
-            final int compEffectiveDate = bsEffectiveDate.compareTo(cur.getEffectiveDateTime());
-            final boolean shouldContinue = (compEffectiveDate >= 0);
-            if (!shouldContinue) {
-                break;
-            }
-            index++;
-
-            final TargetState curTargetState = targetStates.get(cur.getEntitlementId());
-            switch (cur.getSubscriptionEventType()) {
-                case START_ENTITLEMENT:
-                    curTargetState.setEntitlementStarted();
-                    break;
-                case STOP_ENTITLEMENT:
-                    curTargetState.setEntitlementStopped();
-                    break;
-                case START_BILLING:
-                    curTargetState.setBillingStarted();
-                    break;
-                case PAUSE_BILLING:
-                case PAUSE_ENTITLEMENT:
-                case RESUME_ENTITLEMENT:
-                case RESUME_BILLING:
-                case SERVICE_STATE_CHANGE:
-                    curTargetState.addEntitlementEvent(cur);
-                    break;
-                case STOP_BILLING:
-                    curTargetState.setBillingStopped();
-                    break;
-            }
-            curInsertion = cur;
-        }
+        final int index = sweep.advanceTo(bsEffectiveDate);
 
         // Extract the list of targets based on the type of blocking state
         final List<UUID> targetEntitlementIds = bs.getType() == BlockingStateType.SUBSCRIPTION ? ImmutableList.<UUID>of(bs.getBlockedId()) :
@@ -129,8 +96,9 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
 
         // For each target compute the new events that should be inserted in the stream
         for (final UUID targetEntitlementId : targetEntitlementIds) {
-            final SubscriptionEvent[] prevNext = findPrevNext(result, targetEntitlementId, curInsertion);
-            final TargetState curTargetState = targetStates.get(targetEntitlementId);
+            final SubscriptionEvent[] prevNext = sweep.findPrevNext(targetEntitlementId);
+            // The state is only used to compute the effect of the blocking state: it will be updated when the sweep goes over the new events
+            final TargetState curTargetState = new TargetState(sweep.getTargetState(targetEntitlementId));
 
             final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(bs);
             for (final SubscriptionEventType t : eventTypes) {
@@ -140,41 +108,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         return index;
     }
 
-    // Extract prev and next events in the stream events for that particular target subscription from the insertionEvent
-    private SubscriptionEvent[] findPrevNext(final List<SubscriptionEvent> events, final UUID targetEntitlementId, final SubscriptionEvent insertionEvent) {
-        // Find prev/next event for the same entitlement
-        final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
-        if (insertionEvent == null) {
-            result[0] = null;
-            result[1] = !events.isEmpty() ? events.get(0) : null;
-            return result;
-        }
-
-        final Iterator<SubscriptionEvent> it = events.iterator();
-        DefaultSubscriptionEvent prev = null;
-        DefaultSubscriptionEvent next = null;
-        boolean foundCur = false;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent tmp = (DefaultSubscriptionEvent) it.next();
-            if (tmp.getEntitlementId().equals(targetEntitlementId)) {
-                if (!foundCur) {
-                    prev = tmp;
-                } else {
-                    next = tmp;
-                    break;
-                }
-            }
-            // Check both the id and the event type because of multiplexing
-            if (tmp.getId().equals(insertionEvent.getId()) &&
-                tmp.getSubscriptionEventType().equals(insertionEvent.getSubscriptionEventType())) {
-                foundCur = true;
-            }
-        }
-        result[0] = prev;
-        result[1] = next;
-        return result;
-    }
-
     private SubscriptionEvent toSubscriptionEvent(@Nullable final SubscriptionEvent prev, @Nullable final SubscriptionEvent next,
                                                   final UUID entitlementId, final BlockingState in, final SubscriptionEventType eventType, final DateTimeZone accountTimeZone) {
         final Product prevProduct;
@@ -261,15 +194,16 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                                             accountTimeZone);
     }
 
-    private void insertAfterIndex(final LinkedList<SubscriptionEvent> original, final Collection<SubscriptionEvent> newEvents, final int index) {
+    @VisibleForTesting
+    static void insertAfterIndex(final List<SubscriptionEvent> original, final Collection<SubscriptionEvent> newEvents, final int index) {
         final boolean firstPosition = (index == -1);
         final boolean lastPosition = (index == original.size() - 1);
         if (lastPosition || firstPosition) {
             for (final SubscriptionEvent cur : newEvents) {
                 if (lastPosition) {
-                    original.addLast(cur);
+                    original.add(cur);
                 } else {
-                    original.addFirst(cur);
+                    original.add(0, cur);
                 }
             }
         } else {
@@ -277,6 +211,156 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         }
     }
 
+    //
+    // Single forward pass over the event stream: the blocking states are processed in order, and each one of them is inserted
+    // after the last event with an effective date before (or on) its own. Events are only ever inserted after the current position,
+    // so the state per entitlement and the indexes built over the events already visited remain valid when moving forward.
+    // The pass is restarted from the beginning if a blocking state goes back in time (the blocking states of each entitlement
+    // are sorted, but are not across entitlements).
+    //
+    @VisibleForTesting
+    static final class EventsSweep {
+
+        private final Collection<UUID> allEntitlementUUIDs;
+        private final List<SubscriptionEvent> events;
+
+        // State of each entitlement, for all events up to (and including) the current position
+        private final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
+        // Positions of the events visited so far, per entitlement (in increasing order)
+        private final Map<UUID, List<Integer>> positionsPerEntitlement = new HashMap<UUID, List<Integer>>();
+        // Position of the first visited event for a given id and type (blocking states are multiplexed into several events sharing the same id)
+        private final Map<UUID, Map<SubscriptionEventType, Integer>> firstPositionPerEvent = new HashMap<UUID, Map<SubscriptionEventType, Integer>>();
+        // First event after the current position, per entitlement (lazily computed, reset each time we move)
+        private final Map<UUID, SubscriptionEvent> nextEventPerEntitlement = new HashMap<UUID, SubscriptionEvent>();
+
+        private int currentPosition;
+        private int nextEventsScanPosition;
+        private DateTime latestEffectiveDate;
+
+        EventsSweep(final Collection<UUID> allEntitlementUUIDs, final List<SubscriptionEvent> events) {
+            this.allEntitlementUUIDs = allEntitlementUUIDs;
+            this.events = events;
+            reset();
+        }
+
+        private void reset() {
+            targetStates.clear();
+            for (final UUID cur : allEntitlementUUIDs) {
+                targetStates.put(cur, new TargetState());
+            }
+            positionsPerEntitlement.clear();
+            firstPositionPerEvent.clear();
+            currentPosition = -1;
+            latestEffectiveDate = null;
+        }
+
+        // Move to the last event with an effective date before (or on) the specified date, and return its position
+        public int advanceTo(final DateTime effectiveDate) {
+            if (latestEffectiveDate != null && effectiveDate.compareTo(latestEffectiveDate) < 0) {
+                reset();
+            }
+
+            while (currentPosition + 1 < events.size()) {
+                final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) events.get(currentPosition + 1);
+                final int compEffectiveDate = effectiveDate.compareTo(cur.getEffectiveDateTime());
+                final boolean shouldContinue = (compEffectiveDate >= 0);
+                if (!shouldContinue) {
+                    break;
+                }
+                currentPosition++;
+                visit(cur, currentPosition);
+            }
+
+            nextEventPerEntitlement.clear();
+            nextEventsScanPosition = currentPosition + 1;
+            return currentPosition;
+        }
+
+        private void visit(final DefaultSubscriptionEvent cur, final int position) {
+            final TargetState curTargetState = targetStates.get(cur.getEntitlementId());
+            switch (cur.getSubscriptionEventType()) {
+                case START_ENTITLEMENT:
+                    curTargetState.setEntitlementStarted();
+                    break;
+                case STOP_ENTITLEMENT:
+                    curTargetState.setEntitlementStopped();
+                    break;
+                case START_BILLING:
+                    curTargetState.setBillingStarted();
+                    break;
+                case PAUSE_BILLING:
+                case PAUSE_ENTITLEMENT:
+                case RESUME_ENTITLEMENT:
+                case RESUME_BILLING:
+                case SERVICE_STATE_CHANGE:
+                    curTargetState.addEntitlementEvent(cur);
+                    break;
+                case STOP_BILLING:
+                    curTargetState.setBillingStopped();
+                    break;
+            }
+
+            if (latestEffectiveDate == null || cur.getEffectiveDateTime().compareTo(latestEffectiveDate) > 0) {
+                latestEffectiveDate = cur.getEffectiveDateTime();
+            }
+
+            if (positionsPerEntitlement.get(cur.getEntitlementId()) == null) {
+                positionsPerEntitlement.put(cur.getEntitlementId(), new ArrayList<Integer>());
+            }
+            positionsPerEntitlement.get(cur.getEntitlementId()).add(position);
+
+            if (firstPositionPerEvent.get(cur.getId()) == null) {
+                firstPositionPerEvent.put(cur.getId(), new EnumMap<SubscriptionEventType, Integer>(SubscriptionEventType.class));
+            }
+            if (firstPositionPerEvent.get(cur.getId()).get(cur.getSubscriptionEventType()) == null) {
+                firstPositionPerEvent.get(cur.getId()).put(cur.getSubscriptionEventType(), position);
+            }
+        }
+
+        public TargetState getTargetState(final UUID entitlementId) {
+            return targetStates.get(entitlementId);
+        }
+
+        // Extract prev and next events in the stream events for that particular target subscription from the insertion event (the one at the current position)
+        public SubscriptionEvent[] findPrevNext(final UUID targetEntitlementId) {
+            final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
+            if (currentPosition == -1) {
+                result[0] = null;
+                result[1] = !events.isEmpty() ? events.get(0) : null;
+                return result;
+            }
+
+            // Check both the id and the event type because of multiplexing: the insertion point is the first event matching the one at the current position
+            final SubscriptionEvent insertionEvent = events.get(currentPosition);
+            final int insertionPosition = firstPositionPerEvent.get(insertionEvent.getId()).get(insertionEvent.getSubscriptionEventType());
+
+            final List<Integer> positions = positionsPerEntitlement.get(targetEntitlementId);
+            if (positions != null) {
+                // Index of the first visited event for that entitlement after the insertion point
+                final int searchResult = Collections.binarySearch(positions, insertionPosition);
+                final int firstNextIndex = searchResult >= 0 ? searchResult + 1 : -searchResult - 1;
+                result[0] = firstNextIndex > 0 ? events.get(positions.get(firstNextIndex - 1)) : null;
+                if (firstNextIndex < positions.size()) {
+                    result[1] = events.get(positions.get(firstNextIndex));
+                    return result;
+                }
+            }
+            result[1] = findNextEventAfterCurrentPosition(targetEntitlementId);
+            return result;
+        }
+
+        private SubscriptionEvent findNextEventAfterCurrentPosition(final UUID targetEntitlementId) {
+            while (!nextEventPerEntitlement.containsKey(targetEntitlementId) && nextEventsScanPosition < events.size()) {
+                final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) events.get(nextEventsScanPosition);
+                if (!nextEventPerEntitlement.containsKey(cur.getEntitlementId())) {
+                    nextEventPerEntitlement.put(cur.getEntitlementId(), cur);
+                }
+                nextEventsScanPosition++;
+            }
+            return nextEventPerEntitlement.get(targetEntitlementId);
+        }
+    }
+
     //
     // Internal class to keep the state associated with each subscription
     //
@@ -297,6 +381,14 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
             this.perServiceBlockingState = new HashMap<String, BlockingState>();
         }
 
+        public TargetState(final TargetState targetState) {
+            this.isEntitlementStarted = targetState.isEntitlementStarted;
+            this.isEntitlementStopped = targetState.isEntitlementStopped;
+            this.isBillingStarted = targetState.isBillingStarted;
+            this.isBillingStopped = targetState.isBillingStopped;
+            this.perServiceBlockingState = new HashMap<String, BlockingState>(targetState.perServiceBlockingState);
+        }
+
         public void setEntitlementStarted() {
             isEntitlementStarted = true;
         }
@@ -19,19 +19,31 @@ package org.killbill.billing.entitlement.api.svcs;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
 
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.BillingActionPolicy;
+import org.killbill.billing.catalog.api.ProductCategory;
 import org.killbill.clock.Clock;
 import org.killbill.billing.entitlement.AccountEntitlements;
 import org.killbill.billing.entitlement.AccountEventsStreams;
 import org.killbill.billing.entitlement.EntitlementInternalApi;
+import org.killbill.billing.entitlement.EntitlementService;
 import org.killbill.billing.entitlement.EventsStream;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
 import org.killbill.billing.entitlement.api.DefaultEntitlement;
+import org.killbill.billing.entitlement.api.DefaultEntitlementApi;
 import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.entitlement.api.EntitlementApi;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
@@ -40,8 +52,15 @@ import org.killbill.billing.entitlement.block.BlockingChecker;
 import org.killbill.billing.entitlement.dao.BlockingStateDao;
 import org.killbill.billing.entitlement.engine.core.EntitlementUtils;
 import org.killbill.billing.entitlement.engine.core.EventsStreamBuilder;
+import org.killbill.billing.junction.DefaultBlockingState;
 import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
+import org.killbill.billing.subscription.api.transfer.SubscriptionBaseTransferApi;
+import org.killbill.billing.subscription.api.transfer.SubscriptionBaseTransferApiException;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
+import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 
@@ -49,6 +68,7 @@ public class DefaultEntitlementInternalApi implements EntitlementInternalApi {
 
     private final EntitlementApi entitlementApi;
     private final SubscriptionBaseInternalApi subscriptionInternalApi;
+    private final SubscriptionBaseTransferApi subscriptionBaseTransferApi;
     private final Clock clock;
     private final InternalCallContextFactory internalCallContextFactory;
     private final BlockingChecker checker;
@@ -60,13 +80,14 @@ public class DefaultEntitlementInternalApi implements EntitlementInternalApi {
 
     @Inject
     public DefaultEntitlementInternalApi(final EntitlementApi entitlementApi, final InternalCallContextFactory internalCallContextFactory,
-                                         final SubscriptionBaseInternalApi subscriptionInternalApi,
+                                         final SubscriptionBaseInternalApi subscriptionInternalApi, final SubscriptionBaseTransferApi subscriptionBaseTransferApi,
                                          final AccountInternalApi accountApi, final BlockingStateDao blockingStateDao, final Clock clock,
                                          final BlockingChecker checker, final NotificationQueueService notificationQueueService,
                                          final EventsStreamBuilder eventsStreamBuilder, final EntitlementUtils entitlementUtils) {
         this.entitlementApi = entitlementApi;
         this.internalCallContextFactory = internalCallContextFactory;
         this.subscriptionInternalApi = subscriptionInternalApi;
+        this.subscriptionBaseTransferApi = subscriptionBaseTransferApi;
         this.clock = clock;
         this.checker = checker;
         this.blockingStateDao = blockingStateDao;
@@ -98,4 +119,71 @@ public class DefaultEntitlementInternalApi implements EntitlementInternalApi {
 
         return new DefaultAccountEntitlements(accountEventsStreams, entitlementsPerBundle);
     }
+
+    @Override
+    public List<UUID> transferEntitlements(final UUID sourceAccountId, final UUID destAccountId, final List<UUID> bundleIds, final LocalDate effectiveDate,
+                                           final BillingActionPolicy billingPolicy, final CallContext context) throws EntitlementApiException {
+        final boolean cancelImm;
+        switch (billingPolicy) {
+            case IMMEDIATE:
+                cancelImm = true;
+                break;
+            case END_OF_TERM:
+                cancelImm = false;
+                break;
+            default:
+                throw new RuntimeException("Unexpected billing policy " + billingPolicy);
+        }
+        if (bundleIds.isEmpty()) {
+            return new LinkedList<UUID>();
+        }
+
+        final InternalCallContext contextWithValidAccountRecordId = internalCallContextFactory.createInternalCallContext(sourceAccountId, context);
+        try {
+            // Single read of the source subscriptions, used both for the reference times and for the blocking states below
+            final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = subscriptionInternalApi.getSubscriptionsForAccount(contextWithValidAccountRecordId);
+
+            // As for a single transfer, the reference time of each bundle is the start date of its base subscription
+            final Map<UUID, DateTime> requestedDates = new HashMap<UUID, DateTime>();
+            for (final UUID bundleId : bundleIds) {
+                final SubscriptionBase baseSubscription = getBaseSubscription(subscriptionsForAccount.get(bundleId));
+                if (baseSubscription == null) {
+                    throw new EntitlementApiException(new SubscriptionBaseApiException(ErrorCode.SUB_GET_INVALID_BUNDLE_ID, bundleId));
+                }
+                requestedDates.put(bundleId, dateHelper.fromLocalDateAndReferenceTime(effectiveDate, baseSubscription.getStartDate(), contextWithValidAccountRecordId));
+            }
+
+            final List<SubscriptionBaseBundle> newBundles = subscriptionBaseTransferApi.transferBundles(sourceAccountId, destAccountId, bundleIds, requestedDates, true, cancelImm, context);
+
+            // Block all associated subscriptions, see DefaultEntitlementApi#transferEntitlementsOverrideBillingPolicy
+            for (final UUID bundleId : bundleIds) {
+                for (final SubscriptionBase subscriptionBase : subscriptionsForAccount.get(bundleId)) {
+                    final BlockingState blockingState = new DefaultBlockingState(subscriptionBase.getId(), BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_CANCELLED, EntitlementService.ENTITLEMENT_SERVICE_NAME, true, true, false, requestedDates.get(bundleId));
+                    entitlementUtils.setBlockingStateAndPostBlockingTransitionEvent(blockingState, contextWithValidAccountRecordId);
+                }
+            }
+
+            final List<UUID> result = new LinkedList<UUID>();
+            for (final SubscriptionBaseBundle newBundle : newBundles) {
+                result.add(newBundle.getId());
+            }
+            return result;
+        } catch (SubscriptionBaseTransferApiException e) {
+            throw new EntitlementApiException(e);
+        } catch (SubscriptionBaseApiException e) {
+            throw new EntitlementApiException(e);
+        }
+    }
+
+    private SubscriptionBase getBaseSubscription(final List<SubscriptionBase> subscriptionsForBundle) {
+        if (subscriptionsForBundle == null) {
+            return null;
+        }
+        for (final SubscriptionBase subscription : subscriptionsForBundle) {
+            if (ProductCategory.BASE.equals(subscription.getCategory())) {
+                return subscription;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.entitlement.EntitlementTestSuiteNoDB;
+import org.killbill.billing.entitlement.api.BlockingStateOrdering.EventsSweep;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+// Differential checks of the EventsSweep against the straightforward scans it replaced (see referenceIndex and referenceFindPrevNext)
+public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
+
+    private static final DateTime START_DATE = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final List<SubscriptionEventType> BLOCKING_EVENT_TYPES = ImmutableList.<SubscriptionEventType>of(SubscriptionEventType.PAUSE_ENTITLEMENT,
+                                                                                                                     SubscriptionEventType.PAUSE_BILLING,
+                                                                                                                     SubscriptionEventType.RESUME_ENTITLEMENT,
+                                                                                                                     SubscriptionEventType.RESUME_BILLING,
+                                                                                                                     SubscriptionEventType.SERVICE_STATE_CHANGE,
+                                                                                                                     SubscriptionEventType.STOP_ENTITLEMENT);
+
+    @Test(groups = "fast")
+    public void testInterleavings() throws Exception {
+        final UUID entitlementId1 = UUID.randomUUID();
+        final UUID entitlementId2 = UUID.randomUUID();
+        final List<UUID> allEntitlementIds = ImmutableList.<UUID>of(entitlementId1, entitlementId2);
+
+        final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>();
+        events.add(createEvent(UUID.randomUUID(), entitlementId1, SubscriptionEventType.START_ENTITLEMENT, 0));
+        events.add(createEvent(UUID.randomUUID(), entitlementId1, SubscriptionEventType.START_BILLING, 0));
+        events.add(createEvent(UUID.randomUUID(), entitlementId2, SubscriptionEventType.START_ENTITLEMENT, 2));
+        events.add(createEvent(UUID.randomUUID(), entitlementId2, SubscriptionEventType.START_BILLING, 2));
+        events.add(createEvent(UUID.randomUUID(), entitlementId1, SubscriptionEventType.STOP_ENTITLEMENT, 6));
+        events.add(createEvent(UUID.randomUUID(), entitlementId1, SubscriptionEventType.STOP_BILLING, 6));
+
+        final List<Step> steps = ImmutableList.<Step>of(// Before any event
+                                                        new Step(-1, ImmutableList.<UUID>of(entitlementId1), SubscriptionEventType.SERVICE_STATE_CHANGE),
+                                                        // Same date as the first events, account level state multiplexed on both entitlements
+                                                        new Step(0, allEntitlementIds, SubscriptionEventType.PAUSE_ENTITLEMENT, SubscriptionEventType.PAUSE_BILLING),
+                                                        // Between the events of both entitlements
+                                                        new Step(1, ImmutableList.<UUID>of(entitlementId2), SubscriptionEventType.SERVICE_STATE_CHANGE),
+                                                        // Same date as the events inserted by the previous state
+                                                        new Step(1, ImmutableList.<UUID>of(entitlementId1), SubscriptionEventType.RESUME_ENTITLEMENT),
+                                                        new Step(4, allEntitlementIds, SubscriptionEventType.RESUME_BILLING),
+                                                        // Back in time (states of another entitlement): the sweep restarts
+                                                        new Step(2, ImmutableList.<UUID>of(entitlementId2), SubscriptionEventType.PAUSE_BILLING),
+                                                        // After all the events
+                                                        new Step(10, allEntitlementIds, SubscriptionEventType.STOP_ENTITLEMENT),
+                                                        // Back to the beginning
+                                                        new Step(-1, ImmutableList.<UUID>of(entitlementId2), SubscriptionEventType.SERVICE_STATE_CHANGE),
+                                                        new Step(6, ImmutableList.<UUID>of(entitlementId1), SubscriptionEventType.SERVICE_STATE_CHANGE));
+
+        runSteps(allEntitlementIds, events, steps);
+        Assert.assertEquals(events.size(), 6 + 1 + 4 + 1 + 1 + 2 + 1 + 2 + 1 + 1);
+    }
+
+    @Test(groups = "fast")
+    public void testRandomInterleavings() throws Exception {
+        for (long seed = 0; seed < 2000; seed++) {
+            try {
+                runRandomInterleaving(new Random(seed));
+            } catch (final AssertionError e) {
+                throw new AssertionError("Mismatch with seed " + seed + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void runRandomInterleaving(final Random random) {
+        final List<UUID> allEntitlementIds = new ArrayList<UUID>();
+        final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>();
+        final int nbEntitlements = 1 + random.nextInt(3);
+        for (int i = 0; i < nbEntitlements; i++) {
+            final UUID entitlementId = UUID.randomUUID();
+            allEntitlementIds.add(entitlementId);
+
+            final int startDay = random.nextInt(5);
+            events.add(createEvent(UUID.randomUUID(), entitlementId, SubscriptionEventType.START_ENTITLEMENT, startDay));
+            events.add(createEvent(UUID.randomUUID(), entitlementId, SubscriptionEventType.START_BILLING, startDay));
+            if (random.nextBoolean()) {
+                final int stopDay = startDay + 1 + random.nextInt(10);
+                events.add(createEvent(UUID.randomUUID(), entitlementId, SubscriptionEventType.STOP_ENTITLEMENT, stopDay));
+                events.add(createEvent(UUID.randomUUID(), entitlementId, SubscriptionEventType.STOP_BILLING, stopDay));
+            }
+        }
+        // Stable sort, the events of each entitlement remain in order
+        Collections.sort(events, new Comparator<SubscriptionEvent>() {
+            @Override
+            public int compare(final SubscriptionEvent o1, final SubscriptionEvent o2) {
+                return ((DefaultSubscriptionEvent) o1).getEffectiveDateTime().compareTo(((DefaultSubscriptionEvent) o2).getEffectiveDateTime());
+            }
+        });
+
+        final List<Step> steps = new ArrayList<Step>();
+        final int nbSteps = 1 + random.nextInt(15);
+        int day = random.nextInt(3) - 1;
+        for (int i = 0; i < nbSteps; i++) {
+            // Mostly moving forward (with ties), sometimes going back in time
+            day = random.nextInt(5) == 0 ? random.nextInt(16) - 1 : day + random.nextInt(3);
+
+            final List<UUID> targets = random.nextInt(3) == 0 ? allEntitlementIds : ImmutableList.<UUID>of(allEntitlementIds.get(random.nextInt(nbEntitlements)));
+            final int nbEventTypes = random.nextInt(3);
+            final SubscriptionEventType[] eventTypes = new SubscriptionEventType[nbEventTypes];
+            for (int j = 0; j < nbEventTypes; j++) {
+                eventTypes[j] = BLOCKING_EVENT_TYPES.get(random.nextInt(BLOCKING_EVENT_TYPES.size()));
+            }
+            steps.add(new Step(day, targets, eventTypes));
+        }
+
+        runSteps(allEntitlementIds, events, steps);
+    }
+
+    // Same sequence of calls as BlockingStateOrdering#computeEvents, checking each answer of the sweep against the reference scans
+    private void runSteps(final List<UUID> allEntitlementIds, final List<SubscriptionEvent> events, final List<Step> steps) {
+        final EventsSweep sweep = new EventsSweep(allEntitlementIds, events);
+        for (final Step step : steps) {
+            final DateTime effectiveDate = START_DATE.plusDays(step.day);
+
+            final int index = sweep.advanceTo(effectiveDate);
+            Assert.assertEquals(index, referenceIndex(events, effectiveDate));
+            final SubscriptionEvent insertionEvent = index == -1 ? null : events.get(index);
+
+            // All the events generated by a blocking state share its id
+            final UUID blockingStateId = UUID.randomUUID();
+            final List<SubscriptionEvent> newEvents = new ArrayList<SubscriptionEvent>();
+            for (final UUID targetEntitlementId : step.targets) {
+                final SubscriptionEvent[] prevNext = sweep.findPrevNext(targetEntitlementId);
+                final SubscriptionEvent[] expectedPrevNext = referenceFindPrevNext(events, targetEntitlementId, insertionEvent);
+                Assert.assertSame(prevNext[0], expectedPrevNext[0], "prev on day " + step.day);
+                Assert.assertSame(prevNext[1], expectedPrevNext[1], "next on day " + step.day);
+
+                for (final SubscriptionEventType eventType : step.eventTypes) {
+                    newEvents.add(createEvent(blockingStateId, targetEntitlementId, eventType, step.day));
+                }
+            }
+            BlockingStateOrdering.insertAfterIndex(events, newEvents, index);
+        }
+    }
+
+    // Index of the last event with an effective date before (or on) the specified date, scanning from the head
+    private int referenceIndex(final List<SubscriptionEvent> events, final DateTime effectiveDate) {
+        int index = -1;
+        for (final SubscriptionEvent cur : events) {
+            if (effectiveDate.compareTo(((DefaultSubscriptionEvent) cur).getEffectiveDateTime()) < 0) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    // Prev and next events for the target entitlement around the insertion event, scanning from the head
+    private SubscriptionEvent[] referenceFindPrevNext(final List<SubscriptionEvent> events, final UUID targetEntitlementId, final SubscriptionEvent insertionEvent) {
+        final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
+        if (insertionEvent == null) {
+            result[0] = null;
+            result[1] = !events.isEmpty() ? events.get(0) : null;
+            return result;
+        }
+
+        final Iterator<SubscriptionEvent> it = events.iterator();
+        DefaultSubscriptionEvent prev = null;
+        DefaultSubscriptionEvent next = null;
+        boolean foundCur = false;
+        while (it.hasNext()) {
+            final DefaultSubscriptionEvent tmp = (DefaultSubscriptionEvent) it.next();
+            if (tmp.getEntitlementId().equals(targetEntitlementId)) {
+                if (!foundCur) {
+                    prev = tmp;
+                } else {
+                    next = tmp;
+                    break;
+                }
+            }
+            if (tmp.getId().equals(insertionEvent.getId()) &&
+                tmp.getSubscriptionEventType().equals(insertionEvent.getSubscriptionEventType())) {
+                foundCur = true;
+            }
+        }
+        result[0] = prev;
+        result[1] = next;
+        return result;
+    }
+
+    private SubscriptionEvent createEvent(final UUID id, final UUID entitlementId, final SubscriptionEventType eventType, final int day) {
+        final DateTime effectiveDate = START_DATE.plusDays(day);
+        return new DefaultSubscriptionEvent(id,
+                                            entitlementId,
+                                            effectiveDate,
+                                            effectiveDate,
+                                            eventType,
+                                            false,
+                                            false,
+                                            "service",
+                                            "state",
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            effectiveDate,
+                                            DateTimeZone.UTC);
+    }
+
+    private static final class Step {
+
+        private final int day;
+        private final List<UUID> targets;
+        private final SubscriptionEventType[] eventTypes;
+
+        private Step(final int day, final List<UUID> targets, final SubscriptionEventType... eventTypes) {
+            this.day = day;
+            this.targets = targets;
+            this.eventTypes = eventTypes;
+        }
+    }
+}
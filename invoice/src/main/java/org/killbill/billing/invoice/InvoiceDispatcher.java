@@ -95,6 +95,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
@@ -150,11 +151,15 @@ public class InvoiceDispatcher {
     }
 
     public void processSubscriptionForInvoiceGeneration(final UUID subscriptionId, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
-        processSubscriptionInternal(subscriptionId, targetDate, false, context);
+        processSubscriptionsForInvoiceGeneration(ImmutableSet.<UUID>of(subscriptionId), targetDate, context);
     }
 
-    public void processSubscriptionForInvoiceNotification(final UUID subscriptionId, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
-        final Invoice dryRunInvoice = processSubscriptionInternal(subscriptionId, targetDate, true, context);
+    public void processSubscriptionsForInvoiceGeneration(final Set<UUID> subscriptionIds, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
+        processSubscriptionsInternal(subscriptionIds, targetDate, false, context);
+    }
+
+    public void processSubscriptionsForInvoiceNotification(final Set<UUID> subscriptionIds, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
+        final Invoice dryRunInvoice = processSubscriptionsInternal(subscriptionIds, targetDate, true, context);
         if (dryRunInvoice != null && dryRunInvoice.getBalance().compareTo(BigDecimal.ZERO) > 0) {
             final InvoiceNotificationInternalEvent event = new DefaultInvoiceNotificationInternalEvent(dryRunInvoice.getAccountId(), dryRunInvoice.getBalance(), dryRunInvoice.getCurrency(),
                                                                                                        targetDate, context.getAccountRecordId(), context.getTenantRecordId(), context.getUserToken());
@@ -167,7 +172,9 @@ public class InvoiceDispatcher {
     }
 
 
-    private Invoice processSubscriptionInternal(final UUID subscriptionId, final DateTime targetDate, final boolean dryRunForNotification, final InternalCallContext context) throws InvoiceApiException {
+    // All subscriptions are expected to belong to the same account: a single invoice run is made for all of them
+    private Invoice processSubscriptionsInternal(final Set<UUID> subscriptionIds, final DateTime targetDate, final boolean dryRunForNotification, final InternalCallContext context) throws InvoiceApiException {
+        final UUID subscriptionId = subscriptionIds != null ? Iterables.getFirst(subscriptionIds, null) : null;
         try {
             if (subscriptionId == null) {
                 log.error("Failed handling SubscriptionBase change.", new InvoiceApiException(ErrorCode.INVOICE_INVALID_TRANSITION));
@@ -176,7 +183,7 @@ public class InvoiceDispatcher {
             final UUID accountId = subscriptionApi.getAccountIdFromSubscriptionId(subscriptionId, context);
             final DryRunArguments dryRunArguments = dryRunForNotification ? NULL_DRY_RUN_ARGUMENTS : null;
 
-            return processAccount(accountId, targetDate, dryRunArguments, context);
+            return processAccount(accountId, subscriptionIds, targetDate, dryRunArguments, context);
         } catch (final SubscriptionBaseApiException e) {
             log.error("Failed handling SubscriptionBase change.",
                       new InvoiceApiException(ErrorCode.INVOICE_NO_ACCOUNT_ID_FOR_SUBSCRIPTION_ID, subscriptionId.toString()));
@@ -187,11 +194,16 @@ public class InvoiceDispatcher {
 
     public Invoice processAccount(final UUID accountId, final DateTime targetDate,
                                   @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+        return processAccount(accountId, null, targetDate, dryRunArguments, context);
+    }
+
+    private Invoice processAccount(final UUID accountId, @Nullable final Set<UUID> triggeringSubscriptionIds, final DateTime targetDate,
+                                   @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
         GlobalLock lock = null;
         try {
             lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), NB_LOCK_TRY);
 
-            return processAccountWithLock(accountId, targetDate, dryRunArguments, context);
+            return processAccountWithLock(accountId, triggeringSubscriptionIds, targetDate, dryRunArguments, context);
         } catch (final LockFailedException e) {
             // Not good!
             log.error(String.format("Failed to process invoice for account %s, targetDate %s",
@@ -204,7 +216,7 @@ public class InvoiceDispatcher {
         return null;
     }
 
-    private Invoice processAccountWithLock(final UUID accountId, final DateTime targetDateTime,
+    private Invoice processAccountWithLock(final UUID accountId, @Nullable final Set<UUID> triggeringSubscriptionIds, final DateTime targetDateTime,
                                            @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
 
         final boolean isDryRun = dryRunArguments != null;
@@ -232,7 +244,7 @@ public class InvoiceDispatcher {
             final Currency targetCurrency = account.getCurrency();
 
             final LocalDate targetDate = dateAndTimeZoneContext != null ? dateAndTimeZoneContext.computeTargetDate(targetDateTime) : null;
-            final Invoice invoice = targetDate != null ? generator.generateInvoice(account, billingEvents, invoices, targetDate, targetCurrency, context) : null;
+            final Invoice invoice = targetDate != null ? generator.generateInvoice(account, billingEvents, invoices, triggeringSubscriptionIds, targetDate, targetCurrency, context) : null;
             //
             // If invoice comes back null, there is nothing new to generate, we can bail early
             //
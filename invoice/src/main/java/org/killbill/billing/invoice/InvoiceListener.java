@@ -16,8 +16,11 @@
 
 package org.killbill.billing.invoice;
 
+import java.util.Set;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +31,7 @@ import org.killbill.clock.Clock;
 import org.killbill.billing.events.BlockingTransitionInternalEvent;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.notification.InvoiceDebouncePoster;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
@@ -37,6 +41,7 @@ import org.killbill.billing.events.EffectiveSubscriptionInternalEvent;
 import org.killbill.billing.events.RepairSubscriptionInternalEvent;
 import org.killbill.billing.util.config.InvoiceConfig;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 
@@ -48,15 +53,17 @@ public class InvoiceListener {
     private final InternalCallContextFactory internalCallContextFactory;
     private final AccountInternalApi accountApi;
     private final InvoiceConfig invoiceConfig;
+    private final InvoiceDebouncePoster debouncePoster;
     private final Clock clock;
 
     @Inject
     public InvoiceListener(final AccountInternalApi accountApi, final Clock clock, final InternalCallContextFactory internalCallContextFactory,
-                           final InvoiceConfig invoiceConfig, final InvoiceDispatcher dispatcher) {
+                           final InvoiceConfig invoiceConfig, final InvoiceDispatcher dispatcher, final InvoiceDebouncePoster debouncePoster) {
         this.accountApi = accountApi;
         this.dispatcher = dispatcher;
         this.invoiceConfig = invoiceConfig;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.debouncePoster = debouncePoster;
         this.clock = clock;
     }
 
@@ -83,6 +90,9 @@ public class InvoiceListener {
                 return;
             }
             final InternalCallContext context = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "SubscriptionBaseTransition", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+            if (debouncePoster.debounceInvoiceRun(ImmutableSet.<UUID>of(event.getSubscriptionId()), event.getEffectiveTransitionTime(), context)) {
+                return;
+            }
             dispatcher.processSubscriptionForInvoiceGeneration(event, context);
         } catch (InvoiceApiException e) {
             log.error(e.getMessage());
@@ -94,6 +104,9 @@ public class InvoiceListener {
 
         try {
             final InternalCallContext context = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "SubscriptionBaseTransition", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+            if (debouncePoster.debounceInvoiceRun(null, event.getEffectiveTransitionTime(), context)) {
+                return;
+            }
             dispatcher.processAccount(event.getAccountId(), event.getEffectiveTransitionTime(), null, context);
         } catch (InvoiceApiException e) {
             log.error(e.getMessage());
@@ -110,6 +123,9 @@ public class InvoiceListener {
 
         try {
             final InternalCallContext context = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "SubscriptionBaseTransition", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+            if (debouncePoster.debounceInvoiceRun(null, clock.getUTCNow(), context)) {
+                return;
+            }
             final UUID accountId = accountApi.getByRecordId(event.getSearchKey1(), context);
             dispatcher.processAccount(accountId, clock.getUTCNow(), null, context);
         } catch (InvoiceApiException e) {
@@ -119,19 +135,35 @@ public class InvoiceListener {
         }
     }
 
-    public void handleNextBillingDateEvent(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+    public void handleNextBillingDateEvent(final Set<UUID> subscriptionIds, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
         try {
             final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, "Next Billing Date", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
-            dispatcher.processSubscriptionForInvoiceGeneration(subscriptionId, eventDateTime, context);
+            dispatcher.processSubscriptionsForInvoiceGeneration(subscriptionIds, eventDateTime, context);
+        } catch (InvoiceApiException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    public void handleDebouncedInvoiceRun(@Nullable final Set<UUID> subscriptionIds, final DateTime targetDate, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        try {
+            final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, "Invoice Debounce", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
+            if (subscriptionIds == null) {
+                final UUID accountId = accountApi.getByRecordId(accountRecordId, context);
+                dispatcher.processAccount(accountId, targetDate, null, context);
+            } else {
+                dispatcher.processSubscriptionsForInvoiceGeneration(subscriptionIds, targetDate, context);
+            }
         } catch (InvoiceApiException e) {
             log.error(e.getMessage());
+        } catch (AccountApiException e) {
+            log.error(e.getMessage());
         }
     }
 
-    public void handleEventForInvoiceNotification(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+    public void handleEventForInvoiceNotification(final Set<UUID> subscriptionIds, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
         try {
             final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, "Next Billing Date", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
-            dispatcher.processSubscriptionForInvoiceNotification(subscriptionId, eventDateTime, context);
+            dispatcher.processSubscriptionsForInvoiceNotification(subscriptionIds, eventDateTime, context);
         } catch (InvoiceApiException e) {
             log.error(e.getMessage());
         }
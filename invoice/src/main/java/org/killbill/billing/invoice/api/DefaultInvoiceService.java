@@ -21,6 +21,7 @@ package org.killbill.billing.invoice.api;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
+import org.killbill.billing.invoice.notification.InvoiceDebounceNotifier;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
@@ -33,16 +34,19 @@ public class DefaultInvoiceService implements InvoiceService {
 
     public static final String INVOICE_SERVICE_NAME = "invoice-service";
     private final NextBillingDateNotifier dateNotifier;
+    private final InvoiceDebounceNotifier debounceNotifier;
     private final InvoiceListener invoiceListener;
     private final InvoiceTagHandler tagHandler;
     private final PersistentBus eventBus;
 
     @Inject
-    public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final PersistentBus eventBus, final NextBillingDateNotifier dateNotifier) {
+    public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final PersistentBus eventBus, final NextBillingDateNotifier dateNotifier,
+                                 final InvoiceDebounceNotifier debounceNotifier) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
+        this.debounceNotifier = debounceNotifier;
     }
 
     @Override
@@ -59,11 +63,13 @@ public class DefaultInvoiceService implements InvoiceService {
             throw new RuntimeException("Unable to register to the EventBus!", e);
         }
         dateNotifier.initialize();
+        debounceNotifier.initialize();
     }
 
     @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
     public void start() {
         dateNotifier.start();
+        debounceNotifier.start();
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
@@ -75,5 +81,6 @@ public class DefaultInvoiceService implements InvoiceService {
             throw new RuntimeException("Unable to unregister to the EventBus!", e);
         }
         dateNotifier.stop();
+        debounceNotifier.stop();
     }
 }
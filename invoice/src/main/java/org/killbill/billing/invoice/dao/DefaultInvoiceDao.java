@@ -132,7 +132,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                                                                                                              return !invoice.isMigrated();
                                                                                                                                                                          }
                                                                                                                                                                      })));
-                invoiceDaoHelper.populateChildren(invoices, entitySqlDaoWrapperFactory, context);
+                invoiceDaoHelper.populateChildren(invoices, true, entitySqlDaoWrapperFactory, context);
 
                 return invoices;
             }
@@ -164,13 +164,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     }
 
     private List<InvoiceModelDao> getAllNonMigratedInvoicesByAccountAfterDate(final InvoiceSqlDao invoiceSqlDao, final LocalDate fromDate, final InternalTenantContext context) {
-        return ImmutableList.<InvoiceModelDao>copyOf(INVOICE_MODEL_DAO_ORDERING.sortedCopy(Iterables.<InvoiceModelDao>filter(invoiceSqlDao.getByAccountRecordId(context),
-                                                                                                                             new Predicate<InvoiceModelDao>() {
-                                                                                                                                 @Override
-                                                                                                                                 public boolean apply(final InvoiceModelDao invoice) {
-                                                                                                                                     return !invoice.isMigrated() && invoice.getTargetDate().compareTo(fromDate) >= 0;
-                                                                                                                                 }
-                                                                                                                             })));
+        // Filter on the database side, so that only the requested invoices (and their children) are loaded
+        return ImmutableList.<InvoiceModelDao>copyOf(INVOICE_MODEL_DAO_ORDERING.sortedCopy(invoiceSqlDao.getNonMigratedInvoicesByAccountAfterDate(fromDate.toDate(), context)));
     }
 
     @Override
@@ -342,6 +337,18 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                           return Iterators.<InvoiceModelDao>emptyIterator();
                                                       }
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final InvoiceSqlDao invoiceSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return invoiceNumber != null ? null : invoiceSqlDao.getSearchNextRecordIdFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<InvoiceModelDao> buildFromRecordId(final InvoiceSqlDao invoiceSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return invoiceNumber != null ?
+                                                             build(invoiceSqlDao, limit, context) :
+                                                             invoiceSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -791,18 +798,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                              final FutureAccountNotifications callbackDateTimePerSubscriptions, final InternalCallContext internalCallContext) {
 
         final long dryRunNotificationTime = invoiceConfig.getDryRunNotificationSchedule().getMillis();
-        final boolean isInvoiceNotificationEnabled = dryRunNotificationTime > 0;
-        for (final UUID subscriptionId : callbackDateTimePerSubscriptions.getNotifications().keySet()) {
-            final List<DateTime> callbackDateTimeUTC = callbackDateTimePerSubscriptions.getNotifications().get(subscriptionId);
-            for (final DateTime cur : callbackDateTimeUTC) {
-                if (isInvoiceNotificationEnabled) {
-                    final DateTime curDryRunNotificationTime = cur.minus(dryRunNotificationTime);
-                    final DateTime effectiveCurDryRunNotificationTime = (curDryRunNotificationTime.isAfter(clock.getUTCNow())) ? curDryRunNotificationTime : clock.getUTCNow();
-                    nextBillingDatePoster.insertNextBillingDryRunNotificationFromTransaction(entitySqlDaoWrapperFactory, accountId, subscriptionId, effectiveCurDryRunNotificationTime, cur, callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
-                }
-                nextBillingDatePoster.insertNextBillingNotificationFromTransaction(entitySqlDaoWrapperFactory, accountId, subscriptionId, cur, callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
-            }
-        }
+        nextBillingDatePoster.insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, accountId, callbackDateTimePerSubscriptions.getNotifications(), dryRunNotificationTime,
+                                                                            callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
     }
 
     private void notifyBusOfInvoiceAdjustment(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID invoiceId, final UUID accountId,
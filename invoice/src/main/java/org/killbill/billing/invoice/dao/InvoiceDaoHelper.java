@@ -39,14 +39,24 @@ import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.collect.Lists;
 
 public class InvoiceDaoHelper {
 
+    // Above that many invoices, a single account-wide read of the items and payments is cheaper than the invoice-scoped queries
+    @VisibleForTesting
+    static final int MAX_INVOICES_FOR_SCOPED_CHILDREN_QUERIES = 500;
+
+    // Maximum number of invoice ids in the IN clause of the invoice-scoped queries
+    @VisibleForTesting
+    static final int MAX_INVOICE_IDS_PER_QUERY = 100;
+
     /**
      * Find amounts to adjust for individual items, if not specified.
      * The user gives us a list of items to adjust associated with a given amount (how much to refund per invoice item).
@@ -207,18 +217,28 @@ public class InvoiceDaoHelper {
     }
 
     public void populateChildren(final InvoiceModelDao invoice, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
-        getInvoiceItemsWithinTransaction(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory, context);
-        getInvoicePaymentsWithinTransaction(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory, context);
+        populateChildren(ImmutableList.<InvoiceModelDao>of(invoice), false, entitySqlDaoWrapperFactory, context);
     }
 
     public void populateChildren(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
-        getInvoiceItemsWithinTransaction(invoices, entitySqlDaoWrapperFactory, context);
-        getInvoicePaymentsWithinTransaction(invoices, entitySqlDaoWrapperFactory, context);
+        populateChildren(invoices, false, entitySqlDaoWrapperFactory, context);
+    }
+
+    /**
+     * @param invoices              the invoices to populate
+     * @param allInvoicesForAccount whether the invoices are all (or almost all) the invoices of the account, in which case the items
+     *                              and payments are read with the account-wide queries instead of the invoice-scoped ones
+     */
+    public void populateChildren(final Iterable<InvoiceModelDao> invoices, final boolean allInvoicesForAccount, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final List<InvoiceModelDao> invoicesToPopulate = ImmutableList.<InvoiceModelDao>copyOf(invoices);
+        final List<List<String>> invoiceIdsChunks = getInvoiceIdsChunks(invoicesToPopulate, allInvoicesForAccount);
+        getInvoiceItemsWithinTransaction(invoicesToPopulate, invoiceIdsChunks, entitySqlDaoWrapperFactory, context);
+        getInvoicePaymentsWithinTransaction(invoicesToPopulate, invoiceIdsChunks, entitySqlDaoWrapperFactory, context);
     }
 
     public List<InvoiceModelDao> getAllInvoicesByAccountFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getByAccountRecordId(context);
-        populateChildren(invoices, entitySqlDaoWrapperFactory, context);
+        populateChildren(invoices, true, entitySqlDaoWrapperFactory, context);
         return invoices;
     }
 
@@ -227,9 +247,34 @@ public class InvoiceDaoHelper {
         return amount == null ? BigDecimal.ZERO : amount;
     }
 
-    private void getInvoiceItemsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+    // Returns null when the children should be loaded with the account-wide queries: the whole account is loaded anyway
+    // (single indexed read by account_record_id), or the invoice-scoped queries would need too many round trips
+    @VisibleForTesting
+    @Nullable
+    static List<List<String>> getInvoiceIdsChunks(final List<InvoiceModelDao> invoices, final boolean allInvoicesForAccount) {
+        if (allInvoicesForAccount || invoices.size() > MAX_INVOICES_FOR_SCOPED_CHILDREN_QUERIES) {
+            return null;
+        }
+
+        final List<String> invoiceIds = new ArrayList<String>(invoices.size());
+        for (final InvoiceModelDao invoice : invoices) {
+            invoiceIds.add(invoice.getId().toString());
+        }
+        return Lists.partition(invoiceIds, MAX_INVOICE_IDS_PER_QUERY);
+    }
+
+    private void getInvoiceItemsWithinTransaction(final List<InvoiceModelDao> invoices, @Nullable final List<List<String>> invoiceIdsChunks,
+                                                  final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
-        final List<InvoiceItemModelDao> invoiceItemsForAccount = invoiceItemSqlDao.getByAccountRecordId(context);
+        final List<InvoiceItemModelDao> invoiceItemsForAccount;
+        if (invoiceIdsChunks == null) {
+            invoiceItemsForAccount = invoiceItemSqlDao.getByAccountRecordId(context);
+        } else {
+            invoiceItemsForAccount = new LinkedList<InvoiceItemModelDao>();
+            for (final List<String> invoiceIds : invoiceIdsChunks) {
+                invoiceItemsForAccount.addAll(invoiceItemSqlDao.getInvoiceItemsByInvoiceIds(invoiceIds, context));
+            }
+        }
 
         final Map<UUID, List<InvoiceItemModelDao>> invoiceItemsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
         for (final InvoiceItemModelDao item : invoiceItemsForAccount) {
@@ -246,9 +291,18 @@ public class InvoiceDaoHelper {
         }
     }
 
-    private void getInvoicePaymentsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+    private void getInvoicePaymentsWithinTransaction(final List<InvoiceModelDao> invoices, @Nullable final List<List<String>> invoiceIdsChunks,
+                                                     final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoicePaymentSqlDao invoicePaymentSqlDao = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
-        final List<InvoicePaymentModelDao> invoicePaymentsForAccount = invoicePaymentSqlDao.getByAccountRecordId(context);
+        final List<InvoicePaymentModelDao> invoicePaymentsForAccount;
+        if (invoiceIdsChunks == null) {
+            invoicePaymentsForAccount = invoicePaymentSqlDao.getByAccountRecordId(context);
+        } else {
+            invoicePaymentsForAccount = new LinkedList<InvoicePaymentModelDao>();
+            for (final List<String> invoiceIds : invoiceIdsChunks) {
+                invoicePaymentsForAccount.addAll(invoicePaymentSqlDao.getPaymentsForInvoiceIds(invoiceIds, context));
+            }
+        }
 
         final Map<UUID, List<InvoicePaymentModelDao>> invoicePaymentsPerInvoiceId = new HashMap<UUID, List<InvoicePaymentModelDao>>();
         for (final InvoicePaymentModelDao invoicePayment : invoicePaymentsForAccount) {
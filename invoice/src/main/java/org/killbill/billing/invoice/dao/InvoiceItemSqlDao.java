@@ -16,6 +16,7 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
@@ -26,6 +27,7 @@ import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 
 @EntitySqlDaoStringTemplate
 public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, InvoiceItem> {
@@ -34,6 +36,10 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     List<InvoiceItemModelDao> getInvoiceItemsByInvoice(@Bind("invoiceId") final String invoiceId,
                                                        @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    List<InvoiceItemModelDao> getInvoiceItemsByInvoiceIds(@UUIDCollectionBinder final Collection<String> invoiceIds,
+                                                          @BindBean final InternalTenantContext context);
+
     @SqlQuery
     List<InvoiceItemModelDao> getInvoiceItemsBySubscription(@Bind("subscriptionId") final String subscriptionId,
                                                             @BindBean final InternalTenantContext context);
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,6 +36,10 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     List<InvoiceModelDao> getInvoicesBySubscription(@Bind("subscriptionId") final String subscriptionId,
                                                     @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    List<InvoiceModelDao> getNonMigratedInvoicesByAccountAfterDate(@Bind("fromDate") final Date fromDate,
+                                                                   @BindBean final InternalTenantContext context);
+
     @SqlQuery
     UUID getInvoiceIdByPaymentId(@Bind("paymentId") final String paymentId,
                                  @BindBean final InternalTenantContext context);
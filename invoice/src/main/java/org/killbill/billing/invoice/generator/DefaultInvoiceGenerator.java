@@ -21,10 +21,12 @@ package org.killbill.billing.invoice.generator;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -95,6 +97,15 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
                                    @Nullable final List<Invoice> existingInvoices,
                                    final LocalDate targetDate,
                                    final Currency targetCurrency, final InternalCallContext context) throws InvoiceApiException {
+        return generateInvoice(account, events, existingInvoices, null, targetDate, targetCurrency, context);
+    }
+
+    @Override
+    public Invoice generateInvoice(final Account account, @Nullable final BillingEventSet events,
+                                   @Nullable final List<Invoice> existingInvoices,
+                                   @Nullable final Set<UUID> triggeringSubscriptionIds,
+                                   final LocalDate targetDate,
+                                   final Currency targetCurrency, final InternalCallContext context) throws InvoiceApiException {
         if ((events == null) || (events.size() == 0) || events.isAccountAutoInvoiceOff()) {
             return null;
         }
@@ -105,17 +116,73 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         final Invoice invoice = new DefaultInvoice(account.getId(), new LocalDate(clock.getUTCNow(), account.getTimeZone()), adjustedTargetDate, targetCurrency);
         final UUID invoiceId = invoice.getId();
 
-        final List<InvoiceItem> inAdvanceItems = generateInAdvanceInvoiceItems(account.getId(), invoiceId, events, existingInvoices, adjustedTargetDate, targetCurrency);
+        final Set<UUID> subscriptionIds = triggeringSubscriptionIds != null && config.isIncrementalGenerationEnabled() ?
+                                          getSubscriptionIdsToInvoice(account, triggeringSubscriptionIds, events, existingInvoices, adjustedTargetDate) :
+                                          null;
+
+        final List<InvoiceItem> inAdvanceItems = generateInAdvanceInvoiceItems(account.getId(), invoiceId, events, subscriptionIds, existingInvoices, adjustedTargetDate, targetCurrency);
         invoice.addInvoiceItems(inAdvanceItems);
 
-        final List<InvoiceItem> usageItems = generateUsageConsumableInArrearItems(account, invoiceId, events, existingInvoices, targetDate, context);
+        final List<InvoiceItem> usageItems = generateUsageConsumableInArrearItems(account, invoiceId, events, subscriptionIds, existingInvoices, targetDate, context);
         invoice.addInvoiceItems(usageItems);
 
         return invoice.getInvoiceItems().size() != 0 ? invoice : null;
     }
 
+    /**
+     * Computes the subscriptions whose items may differ from what has already been invoiced: the ones which triggered the run,
+     * the ones with billing events since the last invoice run, and the ones which haven't been invoiced up to the target date yet.
+     * Items of any other subscription would be proposed and merged back to exactly what exists on disk.
+     *
+     * @return the subscriptions to invoice, or null if all of them should be considered
+     */
+    private Set<UUID> getSubscriptionIdsToInvoice(final Account account, final Set<UUID> triggeringSubscriptionIds, final BillingEventSet events,
+                                                  @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate) {
+        if (existingInvoices == null || existingInvoices.isEmpty()) {
+            return null;
+        }
+
+        LocalDate lastTargetDate = null;
+        final Map<UUID, LocalDate> invoicedThroughDates = new HashMap<UUID, LocalDate>();
+        for (final Invoice invoice : existingInvoices) {
+            for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                if (item.getInvoiceItemType() != InvoiceItemType.RECURRING && item.getInvoiceItemType() != InvoiceItemType.FIXED) {
+                    continue;
+                }
+                if (lastTargetDate == null || invoice.getTargetDate().isAfter(lastTargetDate)) {
+                    lastTargetDate = invoice.getTargetDate();
+                }
+                final LocalDate invoicedThroughDate = invoicedThroughDates.get(item.getSubscriptionId());
+                if (item.getInvoiceItemType() == InvoiceItemType.RECURRING &&
+                    (invoicedThroughDate == null || item.getEndDate().isAfter(invoicedThroughDate))) {
+                    invoicedThroughDates.put(item.getSubscriptionId(), item.getEndDate());
+                }
+            }
+        }
+        if (lastTargetDate == null) {
+            return null;
+        }
+
+        final Set<UUID> result = new HashSet<UUID>(triggeringSubscriptionIds);
+        for (final BillingEvent event : events) {
+            final UUID subscriptionId = event.getSubscription().getId();
+            if (result.contains(subscriptionId)) {
+                continue;
+            }
+            final LocalDate invoicedThroughDate = invoicedThroughDates.get(subscriptionId);
+            if (invoicedThroughDate == null ||
+                !invoicedThroughDate.isAfter(targetDate) ||
+                new LocalDate(event.getEffectiveDate(), account.getTimeZone()).isAfter(lastTargetDate)) {
+                result.add(subscriptionId);
+            }
+        }
+        log.debug("Incremental invoice generation for accountId {}: {} subscription(s) to invoice", account.getId(), result.size());
+        return result;
+    }
+
     private List<InvoiceItem> generateUsageConsumableInArrearItems(final Account account,
                                                                    final UUID invoiceId, final BillingEventSet eventSet,
+                                                                   @Nullable final Set<UUID> subscriptionIds,
                                                                    @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
                                                                    final InternalCallContext internalCallContext) throws InvoiceApiException {
 
@@ -129,6 +196,10 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
             UUID curSubscriptionId = null;
             while (events.hasNext()) {
                 final BillingEvent event = events.next();
+                // Skip events of subscriptions left out of an incremental run
+                if (subscriptionIds != null && !subscriptionIds.contains(event.getSubscription().getId())) {
+                    continue;
+                }
                 // Skip events that are posterior to the targetDate
                 final LocalDate eventLocalEffectiveDate = new LocalDate(event.getEffectiveDate(), event.getAccount().getTimeZone());
                 if (eventLocalEffectiveDate.isAfter(targetDate)) {
@@ -210,9 +281,10 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     }
 
     private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID accountId, final UUID invoiceId, final BillingEventSet eventSet,
+                                                            @Nullable final Set<UUID> subscriptionIds,
                                                             @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
                                                             final Currency targetCurrency) throws InvoiceApiException {
-        final AccountItemTree accountItemTree = new AccountItemTree(accountId, invoiceId);
+        final AccountItemTree accountItemTree = new AccountItemTree(accountId, invoiceId, subscriptionIds);
         if (existingInvoices != null) {
             for (final Invoice invoice : existingInvoices) {
                 for (final InvoiceItem item : invoice.getInvoiceItems()) {
@@ -226,7 +298,13 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         }
 
         // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
-        final List<InvoiceItem> proposedItems = generateInAdvanceInvoiceItems(invoiceId, accountId, eventSet, targetDate, targetCurrency);
+        final Iterable<BillingEvent> events = subscriptionIds == null ? eventSet : Iterables.filter(eventSet, new Predicate<BillingEvent>() {
+            @Override
+            public boolean apply(final BillingEvent input) {
+                return subscriptionIds.contains(input.getSubscription().getId());
+            }
+        });
+        final List<InvoiceItem> proposedItems = generateInAdvanceInvoiceItems(invoiceId, accountId, events, eventSet.getSubscriptionIdsWithAutoInvoiceOff(), targetDate, targetCurrency);
 
         accountItemTree.mergeWithProposedItems(proposedItems);
         return accountItemTree.getResultingItemList();
@@ -255,11 +333,13 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         return maxDate;
     }
 
-    private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
+    private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID invoiceId, final UUID accountId, final Iterable<BillingEvent> events,
+                                                            final List<UUID> subscriptionIdsWithAutoInvoiceOff,
                                                             final LocalDate targetDate, final Currency currency) throws InvoiceApiException {
         final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
 
-        if (events.size() == 0) {
+        final Iterator<BillingEvent> eventIt = events.iterator();
+        if (!eventIt.hasNext()) {
             return items;
         }
 
@@ -269,12 +349,11 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
                 .append(" and accountId ")
                 .append(accountId);
 
-        final Iterator<BillingEvent> eventIt = events.iterator();
         BillingEvent nextEvent = eventIt.next();
         while (eventIt.hasNext()) {
             final BillingEvent thisEvent = nextEvent;
             nextEvent = eventIt.next();
-            if (!events.getSubscriptionIdsWithAutoInvoiceOff().
+            if (!subscriptionIdsWithAutoInvoiceOff.
                     contains(thisEvent.getSubscription().getId())) { // don't consider events for subscriptions that have auto_invoice_off
                 final BillingEvent adjustedNextEvent = (thisEvent.getSubscription().getId() == nextEvent.getSubscription().getId()) ? nextEvent : null;
                 items.addAll(processInAdvanceEvents(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, logStringBuilder));
@@ -17,6 +17,7 @@
 package org.killbill.billing.invoice.generator;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -34,4 +35,12 @@ public interface InvoiceGenerator {
 
     public Invoice generateInvoice(Account account, @Nullable BillingEventSet events, @Nullable List<Invoice> existingInvoices,
                                    LocalDate targetDate, Currency targetCurrency, final InternalCallContext context) throws InvoiceApiException;
+
+    /**
+     * Same as above, for a run triggered by a change on specific subscriptions: in incremental mode (see InvoiceConfig), only the
+     * subscriptions which may have changed since the last invoice are regenerated and merged with the existing items.
+     */
+    public Invoice generateInvoice(Account account, @Nullable BillingEventSet events, @Nullable List<Invoice> existingInvoices,
+                                   @Nullable Set<UUID> triggeringSubscriptionIds, LocalDate targetDate, Currency targetCurrency,
+                                   final InternalCallContext context) throws InvoiceApiException;
 }
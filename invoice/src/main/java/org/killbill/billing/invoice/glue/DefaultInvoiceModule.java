@@ -40,9 +40,13 @@ import org.killbill.billing.invoice.dao.DefaultInvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
+import org.killbill.billing.invoice.notification.DefaultInvoiceDebounceNotifier;
+import org.killbill.billing.invoice.notification.DefaultInvoiceDebouncePoster;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDatePoster;
 import org.killbill.billing.invoice.notification.EmailInvoiceNotifier;
+import org.killbill.billing.invoice.notification.InvoiceDebounceNotifier;
+import org.killbill.billing.invoice.notification.InvoiceDebouncePoster;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.NextBillingDatePoster;
 import org.killbill.billing.invoice.notification.NullInvoiceNotifier;
@@ -106,6 +110,8 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
     protected void installNotifiers() {
         bind(NextBillingDateNotifier.class).to(DefaultNextBillingDateNotifier.class).asEagerSingleton();
         bind(NextBillingDatePoster.class).to(DefaultNextBillingDatePoster.class).asEagerSingleton();
+        bind(InvoiceDebounceNotifier.class).to(DefaultInvoiceDebounceNotifier.class).asEagerSingleton();
+        bind(InvoiceDebouncePoster.class).to(DefaultInvoiceDebouncePoster.class).asEagerSingleton();
         final TranslatorConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(TranslatorConfig.class);
         bind(TranslatorConfig.class).toInstance(config);
         bind(InvoiceFormatterFactory.class).to(config.getInvoiceFormatterFactoryClass()).asEagerSingleton();
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+public class DefaultInvoiceDebouncePoster implements InvoiceDebouncePoster {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultInvoiceDebouncePoster.class);
+
+    private final NotificationQueueService notificationQueueService;
+    private final IDBI dbi;
+    private final InvoiceConfig config;
+    private final Clock clock;
+
+    @Inject
+    public DefaultInvoiceDebouncePoster(final NotificationQueueService notificationQueueService, final IDBI dbi, final InvoiceConfig config, final Clock clock) {
+        this.notificationQueueService = notificationQueueService;
+        this.dbi = dbi;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean debounceInvoiceRun(@Nullable final Set<UUID> subscriptionIds, final DateTime targetDate, final InternalCallContext context) {
+        final long debounceWindow = config.getDebounceWindow().getMillis();
+        if (debounceWindow <= 0) {
+            return false;
+        }
+
+        final NotificationQueue debounceQueue;
+        try {
+            debounceQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                          DefaultInvoiceDebounceNotifier.INVOICE_DEBOUNCE_NOTIFIER_QUEUE);
+        } catch (final NoSuchNotificationQueue e) {
+            log.error("Attempting to put items on a non-existent queue (InvoiceDebounceNotifier).", e);
+            return false;
+        }
+
+        try {
+            return dbi.inTransaction(new TransactionCallback<Boolean>() {
+                @Override
+                public Boolean inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                    mergeAndRecordFromTransaction(debounceQueue, subscriptionIds, targetDate, debounceWindow, handle.getConnection(), context);
+                    return true;
+                }
+            });
+        } catch (final RuntimeException e) {
+            log.error("Failed to debounce invoice run for accountRecordId " + context.getAccountRecordId(), e);
+            return false;
+        }
+    }
+
+    // The pending run is read, replaced and recorded in the same transaction, so that it is never lost (or duplicated) if we fail half-way
+    private void mergeAndRecordFromTransaction(final NotificationQueue debounceQueue, @Nullable final Set<UUID> subscriptionIds, final DateTime targetDate,
+                                               final long debounceWindow, final Connection connection, final InternalCallContext context) throws IOException {
+        // The window starts with the first event: the pending run for the account (if any) is replaced by one covering all the events seen so far,
+        // without being pushed back, so that a steady flow of events cannot delay the invoice generation forever
+        DateTime notificationDate = clock.getUTCNow().plus(debounceWindow);
+        DateTime latestTargetDate = targetDate;
+        Set<UUID> debouncedSubscriptionIds = subscriptionIds == null || subscriptionIds.isEmpty() ? null : new LinkedHashSet<UUID>(subscriptionIds);
+        final List<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>> pendingNotifications = debounceQueue.getFutureNotificationFromTransactionForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId(), connection);
+        for (final NotificationEventWithMetadata<InvoiceDebounceNotificationKey> pendingNotification : pendingNotifications) {
+            final InvoiceDebounceNotificationKey pendingKey = pendingNotification.getEvent();
+            if (pendingNotification.getEffectiveDate().isBefore(notificationDate)) {
+                notificationDate = pendingNotification.getEffectiveDate();
+            }
+            if (pendingKey.getTargetDate().isAfter(latestTargetDate)) {
+                latestTargetDate = pendingKey.getTargetDate();
+            }
+            if (pendingKey.isAccountRun()) {
+                debouncedSubscriptionIds = null;
+            } else if (debouncedSubscriptionIds != null) {
+                debouncedSubscriptionIds.addAll(pendingKey.getSubscriptionIds());
+            }
+            debounceQueue.removeNotificationFromTransaction(connection, pendingNotification.getRecordId());
+        }
+
+        debounceQueue.recordFutureNotificationFromTransaction(connection, notificationDate, new InvoiceDebounceNotificationKey(debouncedSubscriptionIds, latestTargetDate),
+                                                              context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+    }
+}
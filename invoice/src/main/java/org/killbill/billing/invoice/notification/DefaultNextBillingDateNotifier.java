@@ -16,9 +16,17 @@
 
 package org.killbill.billing.invoice.notification;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.subscription.api.SubscriptionBase;
@@ -27,6 +35,7 @@ import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.InvoiceConfig;
 import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
@@ -35,6 +44,7 @@ import org.killbill.notificationq.api.NotificationQueueService.NotificationQueue
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 
 public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
@@ -45,6 +55,7 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
 
     private final NotificationQueueService notificationQueueService;
     private final InvoiceConfig config;
+    private final AccountInternalApi accountApi;
     private final SubscriptionBaseInternalApi subscriptionApi;
     private final InvoiceListener listener;
     private final InternalCallContextFactory callContextFactory;
@@ -54,11 +65,13 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
     @Inject
     public DefaultNextBillingDateNotifier(final NotificationQueueService notificationQueueService,
                                           final InvoiceConfig config,
+                                          final AccountInternalApi accountApi,
                                           final SubscriptionBaseInternalApi subscriptionApi,
                                           final InvoiceListener listener,
                                           final InternalCallContextFactory callContextFactory) {
         this.notificationQueueService = notificationQueueService;
         this.config = config;
+        this.accountApi = accountApi;
         this.subscriptionApi = subscriptionApi;
         this.listener = listener;
         this.callContextFactory = callContextFactory;
@@ -80,20 +93,34 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
 
                     // Just to ensure compatibility with json that might not have that targetDate field (old versions < 0.13.6)
                     final DateTime targetDate = key.getTargetDate() != null ? key.getTargetDate() : eventDate;
-                    try {
-                        final SubscriptionBase subscription = subscriptionApi.getSubscriptionFromId(key.getUuidKey(), callContextFactory.createInternalTenantContext(tenantRecordId, accountRecordId));
-                        if (subscription == null) {
-                            log.warn("Next Billing Date Notification Queue handled spurious notification (key: " + key + ")");
-                            return;
+                    // Just to ensure compatibility with json that might not have that field (old versions < 0.13.6)
+                    final boolean isDryRunForInvoiceNotification = key.isDryRunForInvoiceNotification() != null && key.isDryRunForInvoiceNotification();
+
+                    final InternalTenantContext tenantContext = callContextFactory.createInternalTenantContext(tenantRecordId, accountRecordId);
+                    final Set<UUID> subscriptionIds = new LinkedHashSet<UUID>(key.getSubscriptionIds());
+                    subscriptionIds.addAll(coalesceNotificationsForSameDay(eventDate, targetDate, isDryRunForInvoiceNotification, accountRecordId, tenantRecordId, tenantContext));
+
+                    final Set<UUID> existingSubscriptionIds = new LinkedHashSet<UUID>();
+                    for (final UUID subscriptionId : subscriptionIds) {
+                        try {
+                            final SubscriptionBase subscription = subscriptionApi.getSubscriptionFromId(subscriptionId, tenantContext);
+                            if (subscription == null) {
+                                log.warn("Next Billing Date Notification Queue handled spurious notification (key: " + key + ", subscriptionId: " + subscriptionId + ")");
+                            } else {
+                                existingSubscriptionIds.add(subscriptionId);
+                            }
+                        } catch (SubscriptionBaseApiException e) {
+                            log.warn("Next Billing Date Notification Queue handled spurious notification (key: " + key + ", subscriptionId: " + subscriptionId + ")", e);
                         }
-                        if (key.isDryRunForInvoiceNotification() != null && // Just to ensure compatibility with json that might not have that field (old versions < 0.13.6)
-                            key.isDryRunForInvoiceNotification()) {
-                            processEventForInvoiceNotification(key.getUuidKey(), targetDate, userToken, accountRecordId, tenantRecordId);
-                        } else {
-                            processEventForInvoiceGeneration(key.getUuidKey(), targetDate, userToken, accountRecordId, tenantRecordId);
-                        }
-                    } catch (SubscriptionBaseApiException e) {
-                        log.warn("Next Billing Date Notification Queue handled spurious notification (key: " + key + ")", e);
+                    }
+                    if (existingSubscriptionIds.isEmpty()) {
+                        return;
+                    }
+
+                    if (isDryRunForInvoiceNotification) {
+                        processEventForInvoiceNotification(existingSubscriptionIds, targetDate, userToken, accountRecordId, tenantRecordId);
+                    } else {
+                        processEventForInvoiceGeneration(existingSubscriptionIds, targetDate, userToken, accountRecordId, tenantRecordId);
                     }
                 } catch (IllegalArgumentException e) {
                     log.error("The key returned from the NextBillingNotificationQueue is not a valid UUID", e);
@@ -119,11 +146,49 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
         }
     }
 
-    private void processEventForInvoiceGeneration(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
-        listener.handleNextBillingDateEvent(subscriptionId, eventDateTime, userToken, accountRecordId, tenantRecordId);
+    /**
+     * Invoice runs are made for the whole account: the pending notifications of the same kind for the same account and day
+     * would regenerate the exact same invoice, so they are removed and their subscriptions folded into the current run.
+     *
+     * @return the subscriptions of the removed notifications
+     */
+    private Set<UUID> coalesceNotificationsForSameDay(final DateTime eventDate, final DateTime targetDate, final boolean isDryRunForInvoiceNotification,
+                                                      final Long accountRecordId, final Long tenantRecordId, final InternalTenantContext tenantContext) {
+        final DateTimeZone accountTimeZone;
+        try {
+            accountTimeZone = accountApi.getAccountByRecordId(accountRecordId, tenantContext).getTimeZone();
+        } catch (final AccountApiException e) {
+            log.warn("Unable to retrieve account for accountRecordId " + accountRecordId + ", skipping coalescing of notifications", e);
+            return ImmutableSet.<UUID>of();
+        }
+
+        final LocalDate effectiveLocalDate = new LocalDate(eventDate, accountTimeZone);
+        final LocalDate targetLocalDate = new LocalDate(targetDate, accountTimeZone);
+
+        final Set<UUID> result = new LinkedHashSet<UUID>();
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationForSearchKeys(accountRecordId, tenantRecordId);
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : futureNotifications) {
+            final NextBillingDateNotificationKey otherKey = notification.getEvent();
+            final boolean isOtherDryRunForInvoiceNotification = otherKey.isDryRunForInvoiceNotification() != null && otherKey.isDryRunForInvoiceNotification();
+            final DateTime otherTargetDate = otherKey.getTargetDate() != null ? otherKey.getTargetDate() : notification.getEffectiveDate();
+            if (isOtherDryRunForInvoiceNotification != isDryRunForInvoiceNotification ||
+                !effectiveLocalDate.equals(new LocalDate(notification.getEffectiveDate(), accountTimeZone)) ||
+                !targetLocalDate.equals(new LocalDate(otherTargetDate, accountTimeZone))) {
+                continue;
+            }
+
+            log.debug("Coalescing next billing date notification {} for subscriptionIds {}", notification.getRecordId(), otherKey.getSubscriptionIds());
+            nextBillingQueue.removeNotification(notification.getRecordId());
+            result.addAll(otherKey.getSubscriptionIds());
+        }
+        return result;
+    }
+
+    private void processEventForInvoiceGeneration(final Set<UUID> subscriptionIds, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        listener.handleNextBillingDateEvent(subscriptionIds, eventDateTime, userToken, accountRecordId, tenantRecordId);
     }
 
-    private void processEventForInvoiceNotification(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
-        listener.handleEventForInvoiceNotification(subscriptionId, eventDateTime, userToken, accountRecordId, tenantRecordId);
+    private void processEventForInvoiceNotification(final Set<UUID> subscriptionIds, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        listener.handleEventForInvoiceNotification(subscriptionIds, eventDateTime, userToken, accountRecordId, tenantRecordId);
     }
 }
@@ -19,7 +19,13 @@
 package org.killbill.billing.invoice.notification;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -28,6 +34,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.timezone.DateAndTimeZoneContext;
+import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
@@ -35,8 +42,10 @@ import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificatio
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Predicate;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
 public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
@@ -44,65 +53,196 @@ public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
     private static final Logger log = LoggerFactory.getLogger(DefaultNextBillingDatePoster.class);
 
     private final NotificationQueueService notificationQueueService;
+    private final Clock clock;
 
     @Inject
-    public DefaultNextBillingDatePoster(final NotificationQueueService notificationQueueService) {
+    public DefaultNextBillingDatePoster(final NotificationQueueService notificationQueueService, final Clock clock) {
         this.notificationQueueService = notificationQueueService;
+        this.clock = clock;
     }
 
     @Override
     public void insertNextBillingNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                              final UUID subscriptionId, final DateTime futureNotificationTime, final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
-        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory, accountId, subscriptionId, Boolean.FALSE, futureNotificationTime, futureNotificationTime, accountDateAndTimeZoneContext, internalCallContext);
+        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory,
+                                                 ImmutableList.<PendingNotification>of(new PendingNotification(subscriptionId, Boolean.FALSE, futureNotificationTime, futureNotificationTime)),
+                                                 accountDateAndTimeZoneContext, internalCallContext);
     }
 
 
     @Override
     public void insertNextBillingDryRunNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                                    final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate, final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
-        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory, accountId, subscriptionId, Boolean.TRUE, futureNotificationTime, targetDate, accountDateAndTimeZoneContext, internalCallContext);
+        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory,
+                                                 ImmutableList.<PendingNotification>of(new PendingNotification(subscriptionId, Boolean.TRUE, futureNotificationTime, targetDate)),
+                                                 accountDateAndTimeZoneContext, internalCallContext);
     }
 
+    @Override
+    public void insertNextBillingNotificationsFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
+                                                              final Map<UUID, List<DateTime>> callbackDateTimePerSubscriptions, final long dryRunNotificationTime,
+                                                              final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
+        final List<PendingNotification> pendingNotifications = new LinkedList<PendingNotification>();
+        for (final UUID subscriptionId : callbackDateTimePerSubscriptions.keySet()) {
+            for (final DateTime cur : callbackDateTimePerSubscriptions.get(subscriptionId)) {
+                if (dryRunNotificationTime > 0) {
+                    final DateTime curDryRunNotificationTime = cur.minus(dryRunNotificationTime);
+                    final DateTime effectiveCurDryRunNotificationTime = (curDryRunNotificationTime.isAfter(clock.getUTCNow())) ? curDryRunNotificationTime : clock.getUTCNow();
+                    pendingNotifications.add(new PendingNotification(subscriptionId, Boolean.TRUE, effectiveCurDryRunNotificationTime, cur));
+                }
+                pendingNotifications.add(new PendingNotification(subscriptionId, Boolean.FALSE, cur, cur));
+            }
+        }
+        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory, pendingNotifications, accountDateAndTimeZoneContext, internalCallContext);
+    }
+
+    private void insertNextBillingFromTransactionInternal(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final List<PendingNotification> pendingNotifications,
+                                                          final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
+        if (pendingNotifications.isEmpty()) {
+            return;
+        }
 
-    private void insertNextBillingFromTransactionInternal(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
-                                                                   final UUID subscriptionId, final Boolean isDryRunForInvoiceNotification,  final DateTime futureNotificationTime, final DateTime targetDate, final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
         final NotificationQueue nextBillingQueue;
         try {
             nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
                                                                              DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        } catch (final NoSuchNotificationQueue e) {
+            log.error("Attempting to put items on a non-existent queue (NextBillingDateNotifier).", e);
+            return;
+        }
 
-            // If we see existing notification for the same date (and isDryRunForInvoiceNotification mode), we don't insert a new notification
-            final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications =  nextBillingQueue.getFutureNotificationFromTransactionForSearchKeys(internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId(), entitySqlDaoWrapperFactory.getHandle().getConnection());
-            final NotificationEventWithMetadata<NextBillingDateNotificationKey> existingFutureNotificationWithSameDate = Iterables.tryFind(futureNotifications, new Predicate<NotificationEventWithMetadata<NextBillingDateNotificationKey>>() {
-                @Override
-                public boolean apply(final NotificationEventWithMetadata<NextBillingDateNotificationKey> input) {
-                    final boolean isEventDryRunForNotifications = input.getEvent().isDryRunForInvoiceNotification() != null ?
-                                                                  input.getEvent().isDryRunForInvoiceNotification() : false;
-
-                    final LocalDate notificationEffectiveLocaleDate = new LocalDate(futureNotificationTime, accountDateAndTimeZoneContext.getAccountTimeZone());
-                    final LocalDate eventEffectiveLocaleDate = new LocalDate(input.getEffectiveDate(), accountDateAndTimeZoneContext.getAccountTimeZone());
+        final Connection connection = entitySqlDaoWrapperFactory.getHandle().getConnection();
+
+        // If we see existing notification for the same subscription and date (and isDryRunForInvoiceNotification mode), we don't insert a new notification
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationFromTransactionForSearchKeys(internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId(), connection);
+        final Set<NotificationDate> existingNotificationDates = new HashSet<NotificationDate>();
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> futureNotification : futureNotifications) {
+            final NextBillingDateNotificationKey key = futureNotification.getEvent();
+            final boolean isDryRunForInvoiceNotification = key.isDryRunForInvoiceNotification() != null ? key.isDryRunForInvoiceNotification() : false;
+            final LocalDate effectiveLocalDate = new LocalDate(futureNotification.getEffectiveDate(), accountDateAndTimeZoneContext.getAccountTimeZone());
+            for (final UUID subscriptionId : key.getSubscriptionIds()) {
+                existingNotificationDates.add(new NotificationDate(subscriptionId, effectiveLocalDate, isDryRunForInvoiceNotification));
+            }
+        }
 
-                    return notificationEffectiveLocaleDate.compareTo(eventEffectiveLocaleDate) == 0 &&
-                           ((isDryRunForInvoiceNotification && isEventDryRunForNotifications) ||
-                            (!isDryRunForInvoiceNotification && !isEventDryRunForNotifications));
+        // Missing notifications sharing the same date are recorded as a single notification for all their subscriptions
+        final Map<PendingNotification, Set<UUID>> notificationsToRecord = new LinkedHashMap<PendingNotification, Set<UUID>>();
+        for (final PendingNotification pendingNotification : pendingNotifications) {
+            final LocalDate effectiveLocalDate = new LocalDate(pendingNotification.getFutureNotificationTime(), accountDateAndTimeZoneContext.getAccountTimeZone());
+            final NotificationDate notificationDate = new NotificationDate(pendingNotification.getSubscriptionId(), effectiveLocalDate, pendingNotification.isDryRunForInvoiceNotification());
+            if (!existingNotificationDates.add(notificationDate)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("*********************   SKIPPING Queuing next billing date notification at {} for subscriptionId {} *******************", pendingNotification.getFutureNotificationTime().toString(), pendingNotification.getSubscriptionId().toString());
                 }
-            }).orNull();
+                continue;
+            }
 
-            if (existingFutureNotificationWithSameDate == null) {
-                log.info("Queuing next billing date notification at {} for subscriptionId {}", futureNotificationTime.toString(), subscriptionId.toString());
+            final PendingNotification notificationTimes = pendingNotification.withoutSubscription();
+            if (notificationsToRecord.get(notificationTimes) == null) {
+                notificationsToRecord.put(notificationTimes, Sets.<UUID>newLinkedHashSet());
+            }
+            notificationsToRecord.get(notificationTimes).add(pendingNotification.getSubscriptionId());
+        }
 
-                nextBillingQueue.recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), futureNotificationTime,
-                                                                         new NextBillingDateNotificationKey(subscriptionId, targetDate, isDryRunForInvoiceNotification), internalCallContext.getUserToken(),
-                                                                         internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
-            } else if (log.isDebugEnabled()) {
-                    log.debug("*********************   SKIPPING Queuing next billing date notification at {} for subscriptionId {} *******************", futureNotificationTime.toString(), subscriptionId.toString());
+        for (final Map.Entry<PendingNotification, Set<UUID>> entry : notificationsToRecord.entrySet()) {
+            final PendingNotification notificationTimes = entry.getKey();
+            final Set<UUID> subscriptionIds = entry.getValue();
+            log.info("Queuing next billing date notification at {} for subscriptionIds {}", notificationTimes.getFutureNotificationTime().toString(), subscriptionIds);
+            try {
+                nextBillingQueue.recordFutureNotificationFromTransaction(connection, notificationTimes.getFutureNotificationTime(),
+                                                                         new NextBillingDateNotificationKey(Iterables.getFirst(subscriptionIds, null), subscriptionIds.size() > 1 ? subscriptionIds : null,
+                                                                                                            notificationTimes.getTargetDate(), notificationTimes.isDryRunForInvoiceNotification()),
+                                                                         internalCallContext.getUserToken(), internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
+            } catch (final IOException e) {
+                log.error("Failed to serialize notificationKey for subscriptionIds {}", subscriptionIds);
             }
+        }
+    }
 
-        } catch (final NoSuchNotificationQueue e) {
-            log.error("Attempting to put items on a non-existent queue (NextBillingDateNotifier).", e);
-        } catch (final IOException e) {
-            log.error("Failed to serialize notificationKey for subscriptionId {}", subscriptionId);
+    private static final class PendingNotification {
+
+        private final UUID subscriptionId;
+        private final Boolean isDryRunForInvoiceNotification;
+        private final DateTime futureNotificationTime;
+        private final DateTime targetDate;
+
+        private PendingNotification(final UUID subscriptionId, final Boolean isDryRunForInvoiceNotification, final DateTime futureNotificationTime, final DateTime targetDate) {
+            this.subscriptionId = subscriptionId;
+            this.isDryRunForInvoiceNotification = isDryRunForInvoiceNotification;
+            this.futureNotificationTime = futureNotificationTime;
+            this.targetDate = targetDate;
+        }
+
+        public PendingNotification withoutSubscription() {
+            return new PendingNotification(null, isDryRunForInvoiceNotification, futureNotificationTime, targetDate);
+        }
+
+        public UUID getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        public Boolean isDryRunForInvoiceNotification() {
+            return isDryRunForInvoiceNotification;
+        }
+
+        public DateTime getFutureNotificationTime() {
+            return futureNotificationTime;
+        }
+
+        public DateTime getTargetDate() {
+            return targetDate;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final PendingNotification that = (PendingNotification) o;
+            return Objects.equal(subscriptionId, that.subscriptionId) &&
+                   Objects.equal(isDryRunForInvoiceNotification, that.isDryRunForInvoiceNotification) &&
+                   futureNotificationTime.compareTo(that.futureNotificationTime) == 0 &&
+                   targetDate.compareTo(that.targetDate) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(subscriptionId, isDryRunForInvoiceNotification, futureNotificationTime.getMillis(), targetDate.getMillis());
         }
     }
 
+    private static final class NotificationDate {
+
+        private final UUID subscriptionId;
+        private final LocalDate effectiveLocalDate;
+        private final boolean isDryRunForInvoiceNotification;
+
+        private NotificationDate(final UUID subscriptionId, final LocalDate effectiveLocalDate, final boolean isDryRunForInvoiceNotification) {
+            this.subscriptionId = subscriptionId;
+            this.effectiveLocalDate = effectiveLocalDate;
+            this.isDryRunForInvoiceNotification = isDryRunForInvoiceNotification;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final NotificationDate that = (NotificationDate) o;
+            return isDryRunForInvoiceNotification == that.isDryRunForInvoiceNotification &&
+                   subscriptionId.equals(that.subscriptionId) &&
+                   effectiveLocalDate.equals(that.effectiveLocalDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(subscriptionId, effectiveLocalDate, isDryRunForInvoiceNotification);
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.notificationq.api.NotificationEvent;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class InvoiceDebounceNotificationKey implements NotificationEvent {
+
+    private final Set<UUID> subscriptionIds;
+    private final DateTime targetDate;
+
+    @JsonCreator
+    public InvoiceDebounceNotificationKey(@JsonProperty("subscriptionIds") @Nullable final Set<UUID> subscriptionIds,
+                                          @JsonProperty("targetDate") final DateTime targetDate) {
+        this.subscriptionIds = subscriptionIds;
+        this.targetDate = targetDate;
+    }
+
+    // Null when one of the debounced events was not specific to a subscription (entitlement or blocking state transitions)
+    public Set<UUID> getSubscriptionIds() {
+        return subscriptionIds;
+    }
+
+    public DateTime getTargetDate() {
+        return targetDate;
+    }
+
+    @JsonIgnore
+    public boolean isAccountRun() {
+        return subscriptionIds == null || subscriptionIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoiceDebounceNotificationKey{");
+        sb.append("subscriptionIds=").append(subscriptionIds);
+        sb.append(", targetDate=").append(targetDate);
+        sb.append('}');
+        return sb.toString();
+    }
+}
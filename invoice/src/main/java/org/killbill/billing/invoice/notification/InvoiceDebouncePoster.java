@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
+
+public interface InvoiceDebouncePoster {
+
+    /**
+     * Delay the invoice run triggered by an event, so that the events received for the same account within the debounce window
+     * end up in a single run, for the latest target date.
+     *
+     * @param subscriptionIds the subscriptions which triggered the run, null for a run on the whole account
+     * @param targetDate      the target date of the run
+     * @return false if debouncing is disabled (or failed), in which case the caller should run the invoice generation right away
+     */
+    boolean debounceInvoiceRun(@Nullable Set<UUID> subscriptionIds, DateTime targetDate, InternalCallContext context);
+
+}
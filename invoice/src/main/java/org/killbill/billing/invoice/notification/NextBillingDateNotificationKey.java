@@ -16,24 +16,36 @@
 
 package org.killbill.billing.invoice.notification;
 
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
 import org.killbill.notificationq.DefaultUUIDNotificationKey;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
 
 public class NextBillingDateNotificationKey extends DefaultUUIDNotificationKey {
 
     private Boolean isDryRunForInvoiceNotification;
     private DateTime targetDate;
+    private Set<UUID> uuidKeys;
+
+    public NextBillingDateNotificationKey(final UUID uuidKey,
+                                          final DateTime targetDate,
+                                          final Boolean isDryRunForInvoiceNotification) {
+        this(uuidKey, null, targetDate, isDryRunForInvoiceNotification);
+    }
 
     @JsonCreator
     public NextBillingDateNotificationKey(@JsonProperty("uuidKey") final UUID uuidKey,
+                                          @JsonProperty("uuidKeys") final Set<UUID> uuidKeys,
                                           @JsonProperty("targetDate") final DateTime targetDate,
                                           @JsonProperty("isDryRunForInvoiceNotification") final Boolean isDryRunForInvoiceNotification) {
         super(uuidKey);
+        this.uuidKeys = uuidKeys;
         this.targetDate = targetDate;
         this.isDryRunForInvoiceNotification = isDryRunForInvoiceNotification;
     }
@@ -46,4 +58,15 @@ public class NextBillingDateNotificationKey extends DefaultUUIDNotificationKey {
     public DateTime getTargetDate() {
         return targetDate;
     }
+
+    @JsonProperty("uuidKeys")
+    public Set<UUID> getUuidKeys() {
+        return uuidKeys;
+    }
+
+    // Just to ensure compatibility with json that might not have the uuidKeys field (single subscription notifications)
+    @JsonIgnore
+    public Set<UUID> getSubscriptionIds() {
+        return uuidKeys != null && !uuidKeys.isEmpty() ? uuidKeys : ImmutableSet.<UUID>of(getUuidKey());
+    }
 }
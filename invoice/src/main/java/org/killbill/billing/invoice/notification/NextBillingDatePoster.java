@@ -18,6 +18,8 @@
 
 package org.killbill.billing.invoice.notification;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -33,4 +35,14 @@ public interface NextBillingDatePoster {
     void insertNextBillingDryRunNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                             final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate, final DateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext);
 
+    /**
+     * Insert the next billing date notifications for all the subscriptions of an account, reading the existing ones only once.
+     *
+     * @param callbackDateTimePerSubscriptions the next billing dates, per subscription
+     * @param dryRunNotificationTime           how long (in milliseconds) before each billing date the invoice notification should happen, 0 to disable it
+     */
+    void insertNextBillingNotificationsFromTransaction(EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, UUID accountId,
+                                                       Map<UUID, List<DateTime>> callbackDateTimePerSubscriptions, long dryRunNotificationTime,
+                                                       DateAndTimeZoneContext accountDateAndTimeZoneContext, InternalCallContext internalCallContext);
+
 }
@@ -23,14 +23,15 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
 
 /**
  * Tree of invoice items for a given account.
@@ -52,17 +53,25 @@ public class AccountItemTree {
     private final UUID accountId;
     private final UUID targetInvoiceId;
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
-    private final List<InvoiceItem> allExistingItems;
+    // Only used to retrieve the original item for linked items
+    private final Map<UUID, InvoiceItem> allExistingItems;
     private List<InvoiceItem> pendingItemAdj;
+    // Subscriptions to build trees for (null means all of them)
+    private final Set<UUID> subscriptionIds;
 
     private boolean isBuilt;
 
     public AccountItemTree(final UUID accountId, final UUID targetInvoiceId) {
+        this(accountId, targetInvoiceId, null);
+    }
+
+    public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, @Nullable final Set<UUID> subscriptionIds) {
         this.accountId = accountId;
         this.targetInvoiceId = targetInvoiceId;
+        this.subscriptionIds = subscriptionIds;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
         this.isBuilt = false;
-        this.allExistingItems = new LinkedList<InvoiceItem>();
+        this.allExistingItems = new HashMap<UUID, InvoiceItem>();
         this.pendingItemAdj = new LinkedList<InvoiceItem>();
     }
 
@@ -96,8 +105,9 @@ public class AccountItemTree {
     private void addExistingItem(final InvoiceItem existingItem, final boolean failOnMissingSubscription) {
         Preconditions.checkState(!isBuilt);
 
-        // Only used to retrieve the original item for linked items
-        allExistingItems.add(existingItem);
+        if (!allExistingItems.containsKey(existingItem.getId())) {
+            allExistingItems.put(existingItem.getId(), existingItem);
+        }
 
         switch (existingItem.getInvoiceItemType()) {
             case EXTERNAL_CHARGE:
@@ -138,6 +148,10 @@ public class AccountItemTree {
             return;
         }
 
+        if (subscriptionIds != null && subscriptionId != null && !subscriptionIds.contains(subscriptionId)) {
+            return;
+        }
+
         if (!subscriptionItemTree.containsKey(subscriptionId)) {
             subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId));
         }
@@ -190,7 +204,7 @@ public class AccountItemTree {
         return accountId;
     }
 
-    private UUID getSubscriptionId(final InvoiceItem item, final List<InvoiceItem> allItems) {
+    private UUID getSubscriptionId(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
         if (item.getInvoiceItemType() == InvoiceItemType.RECURRING ||
             item.getInvoiceItemType() == InvoiceItemType.FIXED) {
             return item.getSubscriptionId();
@@ -200,12 +214,7 @@ public class AccountItemTree {
         }
     }
 
-    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Iterable<InvoiceItem> allItems) {
-        return Iterables.tryFind(allItems, new Predicate<InvoiceItem>() {
-            @Override
-            public boolean apply(final InvoiceItem input) {
-                return input.getId().equals(item.getLinkedItemId());
-            }
-        }).orNull();
+    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
+        return item.getLinkedItemId() != null ? allItems.get(item.getLinkedItemId()) : null;
     }
 }
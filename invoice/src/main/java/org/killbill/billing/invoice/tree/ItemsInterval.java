@@ -39,6 +39,12 @@ import com.google.common.collect.Lists;
 
 /**
  * Keeps track of all the items existing on a specified interval.
+ * <p/>
+ * The items are kept in a list and looked up by scanning it on purpose. An interval only holds the items with exactly
+ * the same service period: an ADD item and the CANCEL items repairing it, and at most two of them once the cancelling
+ * pairs have been merged (more is rejected as double billing, see getResulting_ADD_Item). Indexing them by id would cost
+ * more than the scans it saves. The lookups that grow with the size of the subscription are the sibling walks in
+ * {@code NodeInterval} and the linked item lookups in {@code AccountItemTree}, see SubscriptionItemTreeBenchmark.
  */
 public class ItemsInterval {
 
@@ -33,6 +33,12 @@ public class NodeInterval {
     protected LocalDate start;
     protected LocalDate end;
 
+    // Bookkeeping to append a node at the end of the children list in constant time (see addNode):
+    // last child of the list (null if unknown) and upper bounds of the start and end dates of all the children
+    private NodeInterval rightMostChild;
+    private LocalDate maxChildStart;
+    private LocalDate maxChildEnd;
+
     public NodeInterval() {
         this(null, null, null);
     }
@@ -102,6 +108,21 @@ public class NodeInterval {
         if (leftChild == null) {
             if (callback.shouldInsertNode(this)) {
                 leftChild = newNode;
+                rightMostChild = newNode;
+                maxChildStart = newNode.getStart();
+                maxChildEnd = newNode.getEnd();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        // Items typically come in chronological order: when the new node starts after and ends after all the children,
+        // none of them can contain or overlap it and the loop below would end up appending it at the end of the list.
+        if (newNode.getStart().compareTo(maxChildStart) > 0 && newNode.getEnd().compareTo(maxChildEnd) > 0) {
+            if (callback.shouldInsertNode(this)) {
+                getRightMostChild().rightSibling = newNode;
+                onChildInserted(newNode, true);
                 return true;
             } else {
                 return false;
@@ -132,6 +153,7 @@ public class NodeInterval {
                     } else {
                         prevChild.rightSibling = newNode;
                     }
+                    onChildInserted(newNode, false);
                     return true;
                 } else {
                     return false;
@@ -143,13 +165,35 @@ public class NodeInterval {
 
         if (callback.shouldInsertNode(this)) {
             prevChild.rightSibling = newNode;
+            onChildInserted(newNode, true);
             return true;
         } else {
             return false;
         }
     }
 
+    private void onChildInserted(final NodeInterval newNode, final boolean isRightMostChild) {
+        if (isRightMostChild) {
+            rightMostChild = newNode;
+        }
+        // Bounds are never lowered: they remain upper bounds when children are moved further down (rebalance) or removed
+        maxChildStart = maxChildStart.compareTo(newNode.getStart()) < 0 ? newNode.getStart() : maxChildStart;
+        maxChildEnd = maxChildEnd.compareTo(newNode.getEnd()) < 0 ? newNode.getEnd() : maxChildEnd;
+    }
+
+    private NodeInterval getRightMostChild() {
+        if (rightMostChild == null) {
+            NodeInterval curChild = leftChild;
+            while (curChild.getRightSibling() != null) {
+                curChild = curChild.getRightSibling();
+            }
+            rightMostChild = curChild;
+        }
+        return rightMostChild;
+    }
+
     public void removeChild(final NodeInterval toBeRemoved) {
+        rightMostChild = null;
         NodeInterval prevChild = null;
         NodeInterval curChild = leftChild;
         while (curChild != null) {
@@ -180,6 +224,8 @@ public class NodeInterval {
         NodeInterval tmpChild = curNode.getLeftChild();
         NodeInterval preTmpChild = null;
         while (tmpChild != null) {
+            // The children of the removed node are moved up one level
+            onChildInserted(tmpChild, false);
             preTmpChild = tmpChild;
             tmpChild = tmpChild.getRightSibling();
         }
@@ -367,6 +413,8 @@ public class NodeInterval {
         } while (curChild != null);
 
         newNode.parent = this;
+        rightMostChild = null;
+        onChildInserted(newNode, false);
         final NodeInterval lastNodeToRebalance = toBeRebalanced.get(toBeRebalanced.size() - 1);
         newNode.rightSibling = lastNodeToRebalance.rightSibling;
         lastNodeToRebalance.rightSibling = null;
@@ -381,9 +429,12 @@ public class NodeInterval {
             cur.parent = newNode;
             if (prev == null) {
                 newNode.leftChild = cur;
+                newNode.maxChildStart = cur.getStart();
+                newNode.maxChildEnd = cur.getEnd();
             } else {
                 prev.rightSibling = cur;
             }
+            newNode.onChildInserted(cur, true);
             prev = cur;
         }
     }
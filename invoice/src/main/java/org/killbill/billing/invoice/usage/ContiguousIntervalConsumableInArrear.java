@@ -71,6 +71,8 @@ public class ContiguousIntervalConsumableInArrear {
     private final UUID invoiceId;
     private final AtomicBoolean isBuilt;
     private final LocalDate rawUsageStartDate;
+    // Compiled tiered blocks per unitType (the currency is the same for the whole interval)
+    private final Map<String, TierTable> tierTables;
 
     public ContiguousIntervalConsumableInArrear(final Usage usage, final UUID invoiceId, final List<RawUsage> rawSubscriptionUsage, final LocalDate targetDate, final LocalDate rawUsageStartDate) {
         this.usage = usage;
@@ -82,6 +84,7 @@ public class ContiguousIntervalConsumableInArrear {
         this.billingEvents = Lists.newLinkedList();
         this.transitionTimes = Lists.newLinkedList();
         this.isBuilt = new AtomicBoolean(false);
+        this.tierTables = new HashMap<String, TierTable>();
     }
 
     /**
@@ -283,24 +286,12 @@ public class ContiguousIntervalConsumableInArrear {
 
         Preconditions.checkState(isBuilt.get());
 
-        BigDecimal result = BigDecimal.ZERO;
-        final List<TieredBlock> tieredBlocks = getConsumableInArrearTieredBlocks(usage, unitType);
-        int remainingUnits = nbUnits.intValue();
-        for (TieredBlock tieredBlock : tieredBlocks) {
-
-            final int blockTierSize = tieredBlock.getSize().intValue();
-            final int tmp = remainingUnits / blockTierSize + (remainingUnits % blockTierSize == 0 ? 0 : 1);
-            final int nbUsedTierBlocks;
-            if (tmp > tieredBlock.getMax()) {
-                nbUsedTierBlocks = tieredBlock.getMax().intValue();
-                remainingUnits -= tieredBlock.getMax() * blockTierSize;
-            } else {
-                nbUsedTierBlocks = tmp;
-                remainingUnits = 0;
-            }
-            result = result.add(tieredBlock.getPrice().getPrice(getCurrency()).multiply(new BigDecimal(nbUsedTierBlocks)));
+        TierTable tierTable = tierTables.get(unitType);
+        if (tierTable == null) {
+            tierTable = new TierTable(getConsumableInArrearTieredBlocks(usage, unitType), getCurrency());
+            tierTables.put(unitType, tierTable);
         }
-        return result;
+        return tierTable.computePrice(nbUnits);
     }
 
     /**
@@ -384,4 +375,80 @@ public class ContiguousIntervalConsumableInArrear {
         return billingEvents.get(0).getTimeZone();
     }
 
+    /**
+     * Tiered blocks of a given unitType, compiled into cumulative unit boundaries and prices, so that the price
+     * of N units is a binary search over the boundaries plus a single multiplication.
+     */
+    @VisibleForTesting
+    static final class TierTable {
+
+        // Number of units covered by blocks [0, i] when all of them are fully used
+        private final long[] cumulativeUnits;
+        // Price of blocks [0, i) when all of them are fully used
+        private final BigDecimal[] cumulativePrices;
+        private final long[] blockSizes;
+        private final BigDecimal[] blockPrices;
+        // Price when every block is fully used: units past the last tier are not billed
+        private final BigDecimal maxPrice;
+
+        TierTable(final List<TieredBlock> tieredBlocks, final Currency currency) throws CatalogApiException {
+            final int nbBlocks = tieredBlocks.size();
+            this.cumulativeUnits = new long[nbBlocks];
+            this.cumulativePrices = new BigDecimal[nbBlocks];
+            this.blockSizes = new long[nbBlocks];
+            this.blockPrices = new BigDecimal[nbBlocks];
+
+            long units = 0;
+            BigDecimal price = BigDecimal.ZERO;
+            int i = 0;
+            for (final TieredBlock tieredBlock : tieredBlocks) {
+                final long blockTierSize = tieredBlock.getSize().longValue();
+                final long maxBlocks = tieredBlock.getMax().longValue();
+                final BigDecimal blockPrice = tieredBlock.getPrice().getPrice(currency);
+
+                blockSizes[i] = blockTierSize;
+                blockPrices[i] = blockPrice;
+                cumulativePrices[i] = price;
+                units = saturatedAdd(units, saturatedMultiply(maxBlocks, blockTierSize));
+                cumulativeUnits[i] = units;
+
+                price = price.add(blockPrice.multiply(BigDecimal.valueOf(maxBlocks)));
+                i++;
+            }
+            this.maxPrice = price;
+        }
+
+        BigDecimal computePrice(final long nbUnits) {
+            // First block whose cumulative capacity covers all the units
+            int low = 0;
+            int high = cumulativeUnits.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (cumulativeUnits[mid] < nbUnits) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == cumulativeUnits.length) {
+                return maxPrice;
+            }
+
+            final long remainingUnits = nbUnits - (low == 0 ? 0 : cumulativeUnits[low - 1]);
+            final long nbUsedTierBlocks = remainingUnits / blockSizes[low] + (remainingUnits % blockSizes[low] == 0 ? 0 : 1);
+            return cumulativePrices[low].add(blockPrices[low].multiply(BigDecimal.valueOf(nbUsedTierBlocks)));
+        }
+
+        private static long saturatedAdd(final long a, final long b) {
+            final long result = a + b;
+            return ((a ^ result) & (b ^ result)) < 0 ? Long.MAX_VALUE : result;
+        }
+
+        private static long saturatedMultiply(final long a, final long b) {
+            if (a == 0 || b == 0) {
+                return 0;
+            }
+            return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.invoice;
 
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -23,23 +24,27 @@ import javax.inject.Inject;
 import org.joda.time.DateTime;
 
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.invoice.notification.InvoiceDebouncePoster;
 import org.killbill.clock.Clock;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 
+import com.google.common.collect.Iterables;
+
 public class TestInvoiceNotificationQListener extends InvoiceListener {
 
     int eventCount = 0;
     UUID latestSubscriptionId = null;
 
     @Inject
-    public TestInvoiceNotificationQListener(final AccountInternalApi accountApi, final Clock clock, final InternalCallContextFactory internalCallContextFactory, final InvoiceDispatcher dispatcher) {
-        super(accountApi, clock, internalCallContextFactory, null, dispatcher);
+    public TestInvoiceNotificationQListener(final AccountInternalApi accountApi, final Clock clock, final InternalCallContextFactory internalCallContextFactory, final InvoiceDispatcher dispatcher,
+                                            final InvoiceDebouncePoster debouncePoster) {
+        super(accountApi, clock, internalCallContextFactory, null, dispatcher, debouncePoster);
     }
 
     @Override
-    public void handleNextBillingDateEvent(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+    public void handleNextBillingDateEvent(final Set<UUID> subscriptionIds, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
         eventCount++;
-        latestSubscriptionId = subscriptionId;
+        latestSubscriptionId = Iterables.getLast(subscriptionIds);
     }
 
     public int getEventCount() {
@@ -17,6 +17,8 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -25,9 +27,11 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 public class TestDefaultInvoiceDaoUnit extends InvoiceTestSuiteNoDB {
@@ -60,6 +64,44 @@ public class TestDefaultInvoiceDaoUnit extends InvoiceTestSuiteNoDB {
         }
     }
 
+    @Test(groups = "fast")
+    public void testInvoiceIdsChunksForChildrenQueries() throws Exception {
+        // No invoice, no query
+        Assert.assertEquals(InvoiceDaoHelper.getInvoiceIdsChunks(ImmutableList.<InvoiceModelDao>of(), false).size(), 0);
+
+        // Single invoice (getById, getByNumber, ...): one invoice-scoped query
+        final InvoiceModelDao invoice = createInvoice();
+        final List<List<String>> singleInvoiceChunks = InvoiceDaoHelper.getInvoiceIdsChunks(ImmutableList.<InvoiceModelDao>of(invoice), false);
+        Assert.assertEquals(singleInvoiceChunks.size(), 1);
+        Assert.assertEquals(singleInvoiceChunks.get(0), ImmutableList.<String>of(invoice.getId().toString()));
+
+        // Several invoices: the IN clauses are chunked
+        final List<List<String>> chunks = InvoiceDaoHelper.getInvoiceIdsChunks(createInvoices(InvoiceDaoHelper.MAX_INVOICE_IDS_PER_QUERY * 2 + 1), false);
+        Assert.assertEquals(chunks.size(), 3);
+        Assert.assertEquals(chunks.get(0).size(), InvoiceDaoHelper.MAX_INVOICE_IDS_PER_QUERY);
+        Assert.assertEquals(chunks.get(1).size(), InvoiceDaoHelper.MAX_INVOICE_IDS_PER_QUERY);
+        Assert.assertEquals(chunks.get(2).size(), 1);
+
+        // Too many invoices: fall back to the account-wide queries
+        Assert.assertNull(InvoiceDaoHelper.getInvoiceIdsChunks(createInvoices(InvoiceDaoHelper.MAX_INVOICES_FOR_SCOPED_CHILDREN_QUERIES + 1), false));
+
+        // Whole account (invoice generation, account listings): always the account-wide queries, whatever the number of invoices
+        Assert.assertNull(InvoiceDaoHelper.getInvoiceIdsChunks(ImmutableList.<InvoiceModelDao>of(invoice), true));
+        Assert.assertNull(InvoiceDaoHelper.getInvoiceIdsChunks(createInvoices(InvoiceDaoHelper.MAX_INVOICE_IDS_PER_QUERY * 2 + 1), true));
+    }
+
+    private List<InvoiceModelDao> createInvoices(final int nbInvoices) {
+        final List<InvoiceModelDao> invoices = new ArrayList<InvoiceModelDao>(nbInvoices);
+        for (int i = 0; i < nbInvoices; i++) {
+            invoices.add(createInvoice());
+        }
+        return invoices;
+    }
+
+    private InvoiceModelDao createInvoice() {
+        return new InvoiceModelDao(UUID.randomUUID(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+    }
+
     private void verifyComputedRefundAmount(final BigDecimal paymentAmount, final BigDecimal requestedAmount,
                                             final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final BigDecimal expectedRefundAmount) throws InvoiceApiException {
         final InvoicePaymentModelDao invoicePayment = Mockito.mock(InvoicePaymentModelDao.class);
@@ -497,6 +497,33 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoices.size(), 0);
     }
 
+    @Test(groups = "slow")
+    public void testGetInvoicesForAccountAfterDateWithMigratedInvoicesAndItems() {
+        final UUID accountId = account.getId();
+
+        // Before the cut-off date
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 10, 6), Currency.USD);
+        invoice1.addInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase",
+                                                         new LocalDate(2011, 10, 6), new LocalDate(2011, 11, 6), new BigDecimal("10.00"), new BigDecimal("10.00"), Currency.USD));
+        invoiceUtil.createInvoice(invoice1, true, context);
+
+        // After the cut-off date
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 12, 6), Currency.USD);
+        invoice2.addInvoiceItem(new RecurringInvoiceItem(invoice2.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase",
+                                                         new LocalDate(2011, 12, 6), new LocalDate(2012, 1, 6), new BigDecimal("20.00"), new BigDecimal("20.00"), Currency.USD));
+        invoiceUtil.createInvoice(invoice2, true, context);
+
+        // Migrated invoice after the cut-off date
+        final Invoice invoice3 = new DefaultInvoice(UUID.randomUUID(), accountId, null, clock.getUTCToday(), new LocalDate(2011, 12, 6), Currency.USD, true);
+        invoiceUtil.createInvoice(invoice3, true, context);
+
+        final List<InvoiceModelDao> invoices = invoiceDao.getInvoicesByAccount(new LocalDate(2011, 11, 1), context);
+        assertEquals(invoices.size(), 1);
+        assertEquals(invoices.get(0).getId(), invoice2.getId());
+        assertEquals(invoices.get(0).getInvoiceItems().size(), 1);
+        assertEquals(invoices.get(0).getInvoiceItems().get(0).getInvoiceId(), invoice2.getId());
+    }
+
     @Test(groups = "slow")
     public void testAccountBalance() throws EntityPersistenceException {
         final UUID accountId = account.getId();
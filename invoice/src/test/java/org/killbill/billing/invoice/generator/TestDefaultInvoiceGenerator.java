@@ -20,6 +20,7 @@ package org.killbill.billing.invoice.generator;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -73,6 +74,8 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 import static org.killbill.billing.invoice.TestInvoiceHelper.EIGHT;
 import static org.killbill.billing.invoice.TestInvoiceHelper.FIFTEEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.FIVE;
@@ -100,6 +103,7 @@ import static org.testng.Assert.assertTrue;
 public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
 
     private Account account;
+    private InvoiceGenerator incrementalGenerator;
 
     private static final Logger log = LoggerFactory.getLogger(TestDefaultInvoiceGenerator.class);
 
@@ -107,7 +111,25 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
     protected void beforeClass() throws Exception {
         super.beforeClass();
         final Clock clock = new DefaultClock();
-        final InvoiceConfig invoiceConfig = new InvoiceConfig() {
+        this.generator = new DefaultInvoiceGenerator(clock, createInvoiceConfig(false), null);
+        this.incrementalGenerator = new DefaultInvoiceGenerator(clock, createInvoiceConfig(true), null);
+        this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
+                                               .firstNameLength(6)
+                                               .email(UUID.randomUUID().toString().substring(1, 8))
+                                               .phone(UUID.randomUUID().toString().substring(1, 8))
+                                               .migrated(false)
+                                               .isNotifiedForInvoices(true)
+                                               .externalKey(UUID.randomUUID().toString().substring(1, 8))
+                                               .billingCycleDayLocal(31)
+                                               .currency(Currency.USD)
+                                               .paymentMethodId(UUID.randomUUID())
+                                               .timeZone(DateTimeZone.UTC)
+                                               .build();
+
+    }
+
+    private InvoiceConfig createInvoiceConfig(final boolean incrementalGeneration) {
+        return new InvoiceConfig() {
             @Override
             public int getNumberOfMonthsInFuture() {
                 return 36;
@@ -127,21 +149,17 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
             public int getMaxRawUsagePreviousPeriod() {
                 return -1;
             }
-        };
-        this.generator = new DefaultInvoiceGenerator(clock, invoiceConfig, null);
-        this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
-                                               .firstNameLength(6)
-                                               .email(UUID.randomUUID().toString().substring(1, 8))
-                                               .phone(UUID.randomUUID().toString().substring(1, 8))
-                                               .migrated(false)
-                                               .isNotifiedForInvoices(true)
-                                               .externalKey(UUID.randomUUID().toString().substring(1, 8))
-                                               .billingCycleDayLocal(31)
-                                               .currency(Currency.USD)
-                                               .paymentMethodId(UUID.randomUUID())
-                                               .timeZone(DateTimeZone.UTC)
-                                               .build();
 
+            @Override
+            public boolean isIncrementalGenerationEnabled() {
+                return incrementalGeneration;
+            }
+
+            @Override
+            public TimeSpan getDebounceWindow() {
+                return new TimeSpan("0s");
+            }
+        };
     }
 
     @Test(groups = "fast")
@@ -1106,6 +1124,52 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
         assertTrue(invoice3.getBalance().compareTo(FIFTEEN.multiply(TWO).add(TWELVE)) == 0);
     }
 
+    @Test(groups = "fast")
+    public void testIncrementalGenerationMatchesFullGeneration() throws CatalogApiException, InvoiceApiException {
+        final BillingEventSet events = new MockBillingEventSet();
+        final SubscriptionBase subA = createSubscription();
+        final SubscriptionBase subB = createSubscription();
+        final LocalDate startDate = invoiceUtil.buildDate(2011, 9, 1);
+        final Plan plan = new MockPlan();
+        events.add(createBillingEvent(subA.getId(), subA.getBundleId(), startDate, plan, createMockMonthlyPlanPhase(TEN), 1));
+        events.add(createBillingEvent(subB.getId(), subB.getBundleId(), startDate, plan, createMockMonthlyPlanPhase(TEN), 1));
+
+        final List<Invoice> invoices = new ArrayList<Invoice>();
+        invoices.add(generator.generateInvoice(account, events, null, startDate, Currency.USD, internalCallContext));
+
+        // Plan change in the middle of the period for B only: A has nothing to repair nor to invoice
+        final LocalDate changeDate = invoiceUtil.buildDate(2011, 9, 15);
+        events.add(createBillingEvent(subB.getId(), subB.getBundleId(), changeDate, plan, createMockMonthlyPlanPhase(TWENTY), 1));
+        final Invoice fullInvoice = generator.generateInvoice(account, events, invoices, changeDate, Currency.USD, internalCallContext);
+        final Invoice incrementalInvoice = incrementalGenerator.generateInvoice(account, events, invoices, ImmutableSet.<UUID>of(subB.getId()), changeDate, Currency.USD, internalCallContext);
+        assertNotNull(fullInvoice);
+        assertEquals(describeItems(incrementalInvoice), describeItems(fullInvoice));
+        invoices.add(fullInvoice);
+
+        // Next BCD, triggered by A: B is due as well and must end up on the same invoice
+        final LocalDate nextBillingDate = invoiceUtil.buildDate(2011, 10, 1);
+        final Invoice fullInvoice2 = generator.generateInvoice(account, events, invoices, nextBillingDate, Currency.USD, internalCallContext);
+        final Invoice incrementalInvoice2 = incrementalGenerator.generateInvoice(account, events, invoices, ImmutableSet.<UUID>of(subA.getId()), nextBillingDate, Currency.USD, internalCallContext);
+        assertNotNull(fullInvoice2);
+        assertEquals(fullInvoice2.getNumberOfItems(), 2);
+        assertEquals(describeItems(incrementalInvoice2), describeItems(fullInvoice2));
+
+        // Without a trigger, the incremental generator runs on the full account
+        assertEquals(describeItems(incrementalGenerator.generateInvoice(account, events, invoices, nextBillingDate, Currency.USD, internalCallContext)),
+                     describeItems(fullInvoice2));
+    }
+
+    private List<String> describeItems(@Nullable final Invoice invoice) {
+        final List<String> result = new ArrayList<String>();
+        if (invoice != null) {
+            for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                result.add(item.getInvoiceItemType() + " " + item.getSubscriptionId() + " " + item.getStartDate() + " " + item.getEndDate() + " " + item.getAmount());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
     private void printDetailInvoice(final Invoice invoice) {
         log.info("--------------------  START DETAIL ----------------------");
         log.info("Invoice " + invoice.getId() + ": BALANCE = " + invoice.getBalance()
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.sql.Connection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.events.EffectiveEntitlementInternalEvent;
+import org.killbill.billing.events.EffectiveSubscriptionInternalEvent;
+import org.killbill.billing.invoice.InvoiceDispatcher;
+import org.killbill.billing.invoice.InvoiceListener;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.invoice.api.DryRunArguments;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.clock.ClockMock;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.skife.config.TimeSpan;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TestInvoiceDebounceNotifier extends InvoiceTestSuiteNoDB {
+
+    private static final Long ACCOUNT_RECORD_ID = 12L;
+    private static final Long TENANT_RECORD_ID = 34L;
+    private static final int NB_ADD_ONS = 20;
+
+    private final List<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>> availableNotifications = new LinkedList<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>>();
+
+    private InvoiceConfig invoiceConfig;
+    private InvoiceDispatcher dispatcher;
+    private UUID accountId;
+    private InvoiceListener listener;
+    private NotificationQueueHandler handler;
+    private long recordIdSequence;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        availableNotifications.clear();
+        recordIdSequence = 0;
+        ((ClockMock) clock).resetDeltaFromReality();
+
+        final NotificationQueue debounceQueue = Mockito.mock(NotificationQueue.class);
+        Mockito.when(debounceQueue.getFutureNotificationFromTransactionForSearchKeys(Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID), Mockito.<Connection>any())).thenAnswer(new Answer<List<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>>>() {
+            @Override
+            public List<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>> answer(final InvocationOnMock invocation) throws Throwable {
+                return ImmutableList.<NotificationEventWithMetadata<InvoiceDebounceNotificationKey>>copyOf(availableNotifications);
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final DateTime effectiveDate = (DateTime) invocation.getArguments()[1];
+                final InvoiceDebounceNotificationKey key = (InvoiceDebounceNotificationKey) invocation.getArguments()[2];
+                availableNotifications.add(new NotificationEventWithMetadata<InvoiceDebounceNotificationKey>(++recordIdSequence, UUID.randomUUID(), clock.getUTCNow(), ACCOUNT_RECORD_ID, TENANT_RECORD_ID,
+                                                                                                             key, (UUID) invocation.getArguments()[3], effectiveDate, DefaultInvoiceDebounceNotifier.INVOICE_DEBOUNCE_NOTIFIER_QUEUE));
+                return null;
+            }
+        }).when(debounceQueue).recordFutureNotificationFromTransaction(Mockito.<Connection>any(), Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Long recordId = (Long) invocation.getArguments()[1];
+                for (final NotificationEventWithMetadata<InvoiceDebounceNotificationKey> notification : ImmutableList.copyOf(availableNotifications)) {
+                    if (notification.getRecordId().equals(recordId)) {
+                        availableNotifications.remove(notification);
+                    }
+                }
+                return null;
+            }
+        }).when(debounceQueue).removeNotificationFromTransaction(Mockito.<Connection>any(), Mockito.anyLong());
+
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        final ArgumentCaptor<NotificationQueueHandler> handlerCaptor = ArgumentCaptor.forClass(NotificationQueueHandler.class);
+        Mockito.when(notificationQueueService.createNotificationQueue(Mockito.eq(DefaultInvoiceService.INVOICE_SERVICE_NAME),
+                                                                      Mockito.eq(DefaultInvoiceDebounceNotifier.INVOICE_DEBOUNCE_NOTIFIER_QUEUE),
+                                                                      handlerCaptor.capture())).thenReturn(debounceQueue);
+        Mockito.when(notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                   DefaultInvoiceDebounceNotifier.INVOICE_DEBOUNCE_NOTIFIER_QUEUE)).thenReturn(debounceQueue);
+
+        final InternalCallContext accountCallContext = Mockito.mock(InternalCallContext.class);
+        Mockito.when(accountCallContext.getAccountRecordId()).thenReturn(ACCOUNT_RECORD_ID);
+        Mockito.when(accountCallContext.getTenantRecordId()).thenReturn(TENANT_RECORD_ID);
+        final InternalCallContextFactory callContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(callContextFactory.createInternalCallContext(Mockito.eq(TENANT_RECORD_ID), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.anyString(),
+                                                                  Mockito.<CallOrigin>any(), Mockito.<UserType>any(), Mockito.<UUID>any())).thenReturn(accountCallContext);
+
+        accountId = UUID.randomUUID();
+        Mockito.when(accountApi.getByRecordId(Mockito.eq(ACCOUNT_RECORD_ID), Mockito.<InternalTenantContext>any())).thenReturn(accountId);
+
+        invoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(invoiceConfig.getDebounceWindow()).thenReturn(new TimeSpan("5s"));
+
+        // Each call to the dispatcher is a full invoice generation for the account
+        dispatcher = Mockito.mock(InvoiceDispatcher.class);
+
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        Mockito.when(dbi.inTransaction(Mockito.<TransactionCallback<Object>>any())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return ((TransactionCallback<Object>) invocation.getArguments()[0]).inTransaction(Mockito.mock(Handle.class), Mockito.mock(TransactionStatus.class));
+            }
+        });
+
+        final DefaultInvoiceDebouncePoster poster = new DefaultInvoiceDebouncePoster(notificationQueueService, dbi, invoiceConfig, clock);
+        listener = new InvoiceListener(accountApi, clock, callContextFactory, invoiceConfig, dispatcher, poster);
+
+        final DefaultInvoiceDebounceNotifier notifier = new DefaultInvoiceDebounceNotifier(notificationQueueService, listener);
+        notifier.initialize();
+        handler = handlerCaptor.getValue();
+    }
+
+    @Test(groups = "fast")
+    public void testBundleWithAddOnsTriggersOneInvoiceRun() throws Exception {
+        final ImmutableSet.Builder<UUID> subscriptionIdsBuilder = ImmutableSet.builder();
+        DateTime latestEffectiveDate = null;
+        for (int i = 0; i <= NB_ADD_ONS; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            subscriptionIdsBuilder.add(subscriptionId);
+            latestEffectiveDate = clock.getUTCNow();
+            listener.handleSubscriptionTransition(createSubscriptionEvent(subscriptionId, latestEffectiveDate));
+            ((ClockMock) clock).addDeltaFromReality(100);
+        }
+        final Set<UUID> subscriptionIds = subscriptionIdsBuilder.build();
+
+        Assert.assertEquals(availableNotifications.size(), 1);
+        Mockito.verifyZeroInteractions(dispatcher);
+
+        dispatchAvailableNotifications();
+
+        Mockito.verify(dispatcher, Mockito.times(1)).processSubscriptionsForInvoiceGeneration(Mockito.eq(subscriptionIds), Mockito.eq(latestEffectiveDate), Mockito.<InternalCallContext>any());
+        Mockito.verifyNoMoreInteractions(dispatcher);
+    }
+
+    @Test(groups = "fast")
+    public void testWindowIsNotExtendedByLaterEvents() throws Exception {
+        final DateTime firstEventDate = clock.getUTCNow();
+        for (int i = 0; i <= NB_ADD_ONS; i++) {
+            listener.handleSubscriptionTransition(createSubscriptionEvent(UUID.randomUUID(), clock.getUTCNow()));
+            ((ClockMock) clock).addDeltaFromReality(1000);
+        }
+
+        Assert.assertEquals(availableNotifications.size(), 1);
+        Assert.assertEquals(availableNotifications.get(0).getEffectiveDate().compareTo(firstEventDate.plusSeconds(5)), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testEntitlementEventTriggersAccountRun() throws Exception {
+        final DateTime subscriptionEventDate = clock.getUTCNow();
+        listener.handleSubscriptionTransition(createSubscriptionEvent(UUID.randomUUID(), subscriptionEventDate));
+        ((ClockMock) clock).addDeltaFromReality(100);
+        final DateTime entitlementEventDate = clock.getUTCNow();
+        listener.handleEntitlementTransition(createEntitlementEvent(entitlementEventDate));
+        ((ClockMock) clock).addDeltaFromReality(100);
+        listener.handleSubscriptionTransition(createSubscriptionEvent(UUID.randomUUID(), subscriptionEventDate));
+
+        dispatchAvailableNotifications();
+
+        Mockito.verify(dispatcher, Mockito.times(1)).processAccount(Mockito.eq(accountId), Mockito.eq(entitlementEventDate), (DryRunArguments) Mockito.isNull(), Mockito.<InternalCallContext>any());
+        Mockito.verifyNoMoreInteractions(dispatcher);
+    }
+
+    @Test(groups = "fast")
+    public void testDebounceDisabled() throws Exception {
+        Mockito.when(invoiceConfig.getDebounceWindow()).thenReturn(new TimeSpan("0s"));
+
+        for (int i = 0; i <= NB_ADD_ONS; i++) {
+            listener.handleSubscriptionTransition(createSubscriptionEvent(UUID.randomUUID(), clock.getUTCNow()));
+        }
+
+        Assert.assertTrue(availableNotifications.isEmpty());
+        Mockito.verify(dispatcher, Mockito.times(NB_ADD_ONS + 1)).processSubscriptionForInvoiceGeneration(Mockito.<EffectiveSubscriptionInternalEvent>any(), Mockito.<InternalCallContext>any());
+        Mockito.verifyNoMoreInteractions(dispatcher);
+    }
+
+    private EffectiveSubscriptionInternalEvent createSubscriptionEvent(final UUID subscriptionId, final DateTime effectiveDate) {
+        final EffectiveSubscriptionInternalEvent event = Mockito.mock(EffectiveSubscriptionInternalEvent.class);
+        Mockito.when(event.getTransitionType()).thenReturn(SubscriptionBaseTransitionType.CREATE);
+        Mockito.when(event.getRemainingEventsForUserOperation()).thenReturn(0);
+        Mockito.when(event.getSubscriptionId()).thenReturn(subscriptionId);
+        Mockito.when(event.getEffectiveTransitionTime()).thenReturn(effectiveDate);
+        Mockito.when(event.getSearchKey1()).thenReturn(ACCOUNT_RECORD_ID);
+        Mockito.when(event.getSearchKey2()).thenReturn(TENANT_RECORD_ID);
+        return event;
+    }
+
+    private EffectiveEntitlementInternalEvent createEntitlementEvent(final DateTime effectiveDate) {
+        final EffectiveEntitlementInternalEvent event = Mockito.mock(EffectiveEntitlementInternalEvent.class);
+        Mockito.when(event.getAccountId()).thenReturn(accountId);
+        Mockito.when(event.getEffectiveTransitionTime()).thenReturn(effectiveDate);
+        Mockito.when(event.getSearchKey1()).thenReturn(ACCOUNT_RECORD_ID);
+        Mockito.when(event.getSearchKey2()).thenReturn(TENANT_RECORD_ID);
+        return event;
+    }
+
+    // Mimic the notification queue: notifications are claimed one at a time and are no longer available while being processed
+    private void dispatchAvailableNotifications() {
+        while (!availableNotifications.isEmpty()) {
+            final NotificationEventWithMetadata<InvoiceDebounceNotificationKey> notification = availableNotifications.remove(0);
+            handler.handleReadyNotification(notification.getEvent(), notification.getEffectiveDate(), notification.getUserToken(), ACCOUNT_RECORD_ID, TENANT_RECORD_ID);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.killbill.billing.invoice.notification;
 
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -24,6 +25,8 @@ import org.killbill.billing.util.jackson.ObjectMapper;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 public class TestNextBillingDateNotificationKey {
 
     private static final ObjectMapper mapper = new ObjectMapper();
@@ -44,6 +47,19 @@ public class TestNextBillingDateNotificationKey {
         Assert.assertEquals(result.isDryRunForInvoiceNotification(), isDryRunForInvoiceNotification);
     }
 
+    @Test(groups = "fast")
+    public void testWithSubscriptionIds() throws Exception {
+        final UUID uuidKey = UUID.randomUUID();
+        final Set<UUID> uuidKeys = ImmutableSet.<UUID>of(uuidKey, UUID.randomUUID(), UUID.randomUUID());
+
+        final NextBillingDateNotificationKey key = new NextBillingDateNotificationKey(uuidKey, uuidKeys, new DateTime(), Boolean.FALSE);
+        final String json = mapper.writeValueAsString(key);
+
+        final NextBillingDateNotificationKey result = mapper.readValue(json, NextBillingDateNotificationKey.class);
+        Assert.assertEquals(result.getUuidKey(), uuidKey);
+        Assert.assertEquals(result.getSubscriptionIds(), uuidKeys);
+    }
+
     @Test(groups = "fast")
     public void testWithMissingFields() throws Exception {
         final String json = "{\"uuidKey\":\"a38c363f-b25b-4287-8ebc-55964e116d2f\"}";
@@ -51,6 +67,7 @@ public class TestNextBillingDateNotificationKey {
         Assert.assertEquals(result.getUuidKey().toString(), "a38c363f-b25b-4287-8ebc-55964e116d2f");
         Assert.assertNull(result.getTargetDate());
         Assert.assertNull(result.isDryRunForInvoiceNotification());
+        Assert.assertEquals(result.getSubscriptionIds(), ImmutableSet.<UUID>of(result.getUuidKey()));
 
     }
 }
\ No newline at end of file
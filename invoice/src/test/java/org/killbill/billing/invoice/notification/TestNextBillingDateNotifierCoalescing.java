@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.InvoiceListener;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TestNextBillingDateNotifierCoalescing extends InvoiceTestSuiteNoDB {
+
+    private static final Long ACCOUNT_RECORD_ID = 12L;
+    private static final Long TENANT_RECORD_ID = 34L;
+
+    private final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> availableNotifications = new LinkedList<NotificationEventWithMetadata<NextBillingDateNotificationKey>>();
+
+    private InvoiceListener listener;
+    private NotificationQueueHandler handler;
+    private long recordIdSequence;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        availableNotifications.clear();
+        recordIdSequence = 0;
+
+        final NotificationQueue nextBillingQueue = Mockito.mock(NotificationQueue.class);
+        Mockito.when(nextBillingQueue.getFutureNotificationForSearchKeys(ACCOUNT_RECORD_ID, TENANT_RECORD_ID)).thenAnswer(new Answer<List<NotificationEventWithMetadata<NextBillingDateNotificationKey>>>() {
+            @Override
+            public List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> answer(final InvocationOnMock invocation) throws Throwable {
+                return ImmutableList.<NotificationEventWithMetadata<NextBillingDateNotificationKey>>copyOf(availableNotifications);
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Long recordId = (Long) invocation.getArguments()[0];
+                for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : ImmutableList.copyOf(availableNotifications)) {
+                    if (notification.getRecordId().equals(recordId)) {
+                        availableNotifications.remove(notification);
+                    }
+                }
+                return null;
+            }
+        }).when(nextBillingQueue).removeNotification(Mockito.anyLong());
+
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        final ArgumentCaptor<NotificationQueueHandler> handlerCaptor = ArgumentCaptor.forClass(NotificationQueueHandler.class);
+        Mockito.when(notificationQueueService.createNotificationQueue(Mockito.eq(DefaultInvoiceService.INVOICE_SERVICE_NAME),
+                                                                      Mockito.eq(DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE),
+                                                                      handlerCaptor.capture())).thenReturn(nextBillingQueue);
+
+        final Account account = Mockito.mock(Account.class);
+        Mockito.when(account.getTimeZone()).thenReturn(DateTimeZone.forID("America/Los_Angeles"));
+        Mockito.when(accountApi.getAccountByRecordId(Mockito.eq(ACCOUNT_RECORD_ID), Mockito.<InternalTenantContext>any())).thenReturn(account);
+
+        Mockito.when(subscriptionApi.getSubscriptionFromId(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any())).thenReturn(Mockito.mock(SubscriptionBase.class));
+
+        listener = Mockito.mock(InvoiceListener.class);
+
+        final DefaultNextBillingDateNotifier notifier = new DefaultNextBillingDateNotifier(notificationQueueService,
+                                                                                           Mockito.mock(InvoiceConfig.class),
+                                                                                           accountApi,
+                                                                                           subscriptionApi,
+                                                                                           listener,
+                                                                                           Mockito.mock(InternalCallContextFactory.class));
+        notifier.initialize();
+        handler = handlerCaptor.getValue();
+    }
+
+    @Test(groups = "fast")
+    public void testSameDayNotificationsTriggerOneInvoiceRun() throws Exception {
+        // 2015-06-01 in America/Los_Angeles
+        final DateTime firstEffectiveDate = new DateTime("2015-06-01T08:00:00Z");
+        final int nbSubscriptions = 10;
+        final ImmutableSet.Builder<UUID> subscriptionIdsBuilder = ImmutableSet.builder();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            subscriptionIdsBuilder.add(subscriptionId);
+            recordNotification(subscriptionId, firstEffectiveDate.plusHours(i), false);
+        }
+        final Set<UUID> subscriptionIds = subscriptionIdsBuilder.build();
+
+        // Neither the next day nor the invoice notifications (dry-run) should be folded in the same run
+        final UUID nextDaySubscriptionId = UUID.randomUUID();
+        recordNotification(nextDaySubscriptionId, firstEffectiveDate.plusDays(1), false);
+        final UUID dryRunSubscriptionId = UUID.randomUUID();
+        recordNotification(dryRunSubscriptionId, firstEffectiveDate, true);
+
+        dispatchAvailableNotifications();
+
+        Mockito.verify(listener, Mockito.times(1)).handleNextBillingDateEvent(Mockito.eq(subscriptionIds), Mockito.eq(firstEffectiveDate),
+                                                                              Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verify(listener, Mockito.times(1)).handleNextBillingDateEvent(Mockito.eq(ImmutableSet.<UUID>of(nextDaySubscriptionId)), Mockito.eq(firstEffectiveDate.plusDays(1)),
+                                                                              Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verify(listener, Mockito.times(1)).handleEventForInvoiceNotification(Mockito.eq(ImmutableSet.<UUID>of(dryRunSubscriptionId)), Mockito.eq(firstEffectiveDate),
+                                                                                     Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verifyNoMoreInteractions(listener);
+        Assert.assertTrue(availableNotifications.isEmpty());
+    }
+
+    private void recordNotification(final UUID subscriptionId, final DateTime effectiveDate, final boolean isDryRunForInvoiceNotification) {
+        final NextBillingDateNotificationKey key = new NextBillingDateNotificationKey(subscriptionId, effectiveDate, isDryRunForInvoiceNotification);
+        availableNotifications.add(new NotificationEventWithMetadata<NextBillingDateNotificationKey>(++recordIdSequence, UUID.randomUUID(), effectiveDate, ACCOUNT_RECORD_ID, TENANT_RECORD_ID,
+                                                                                                     key, UUID.randomUUID(), effectiveDate, DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE));
+    }
+
+    // Mimic the notification queue: notifications are claimed one at a time and are no longer available while being processed
+    private void dispatchAvailableNotifications() {
+        while (!availableNotifications.isEmpty()) {
+            final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification = availableNotifications.remove(0);
+            handler.handleReadyNotification(notification.getEvent(), notification.getEffectiveDate(), notification.getUserToken(), ACCOUNT_RECORD_ID, TENANT_RECORD_ID);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.timezone.DateAndTimeZoneContext;
+import org.killbill.clock.ClockMock;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.skife.jdbi.v2.Handle;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class TestNextBillingDatePoster {
+
+    private static final Long ACCOUNT_RECORD_ID = 12L;
+    private static final Long TENANT_RECORD_ID = 34L;
+
+    private final ClockMock clock = new ClockMock();
+
+    private NotificationQueue nextBillingQueue;
+    private Connection connection;
+    private EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory;
+    private InternalCallContext internalCallContext;
+    private DateAndTimeZoneContext dateAndTimeZoneContext;
+    private NextBillingDatePoster poster;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        clock.setTime(new DateTime("2015-05-01T12:00:00Z"));
+
+        nextBillingQueue = Mockito.mock(NotificationQueue.class);
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        Mockito.when(notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME, DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE)).thenReturn(nextBillingQueue);
+
+        connection = Mockito.mock(Connection.class);
+        final Handle handle = Mockito.mock(Handle.class);
+        Mockito.when(handle.getConnection()).thenReturn(connection);
+        entitySqlDaoWrapperFactory = Mockito.mock(EntitySqlDaoWrapperFactory.class);
+        Mockito.when(entitySqlDaoWrapperFactory.getHandle()).thenReturn(handle);
+
+        internalCallContext = Mockito.mock(InternalCallContext.class);
+        Mockito.when(internalCallContext.getAccountRecordId()).thenReturn(ACCOUNT_RECORD_ID);
+        Mockito.when(internalCallContext.getTenantRecordId()).thenReturn(TENANT_RECORD_ID);
+
+        dateAndTimeZoneContext = new DateAndTimeZoneContext(clock.getUTCNow(), DateTimeZone.UTC, clock);
+        poster = new DefaultNextBillingDatePoster(notificationQueueService, clock);
+    }
+
+    @Test(groups = "fast")
+    public void testInsertOnlyMissingNotifications() throws Exception {
+        final DateTime nextBillingDate = new DateTime("2015-06-01T12:00:00Z");
+        final UUID alreadyNotifiedSubscriptionId = UUID.randomUUID();
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+
+        final NotificationEventWithMetadata<NextBillingDateNotificationKey> existingNotification = new NotificationEventWithMetadata<NextBillingDateNotificationKey>(1L, UUID.randomUUID(), clock.getUTCNow(), ACCOUNT_RECORD_ID, TENANT_RECORD_ID,
+                                                                                                                                                                   new NextBillingDateNotificationKey(alreadyNotifiedSubscriptionId, nextBillingDate, Boolean.FALSE),
+                                                                                                                                                                   UUID.randomUUID(), nextBillingDate, DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        Mockito.when(nextBillingQueue.<NextBillingDateNotificationKey>getFutureNotificationFromTransactionForSearchKeys(ACCOUNT_RECORD_ID, TENANT_RECORD_ID, connection))
+               .thenReturn(ImmutableList.<NotificationEventWithMetadata<NextBillingDateNotificationKey>>of(existingNotification));
+
+        // The second date for subscriptionId1 is on the same day: it should not be queued twice
+        poster.insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, UUID.randomUUID(),
+                                                             ImmutableMap.<UUID, List<DateTime>>of(alreadyNotifiedSubscriptionId, ImmutableList.<DateTime>of(nextBillingDate),
+                                                                                                   subscriptionId1, ImmutableList.<DateTime>of(nextBillingDate, nextBillingDate.plusHours(1)),
+                                                                                                   subscriptionId2, ImmutableList.<DateTime>of(nextBillingDate)),
+                                                             0, dateAndTimeZoneContext, internalCallContext);
+
+        Mockito.verify(nextBillingQueue, Mockito.times(1)).getFutureNotificationFromTransactionForSearchKeys(ACCOUNT_RECORD_ID, TENANT_RECORD_ID, connection);
+        final ArgumentCaptor<NextBillingDateNotificationKey> keyCaptor = ArgumentCaptor.forClass(NextBillingDateNotificationKey.class);
+        Mockito.verify(nextBillingQueue, Mockito.times(1)).recordFutureNotificationFromTransaction(Mockito.eq(connection), Mockito.eq(nextBillingDate), keyCaptor.capture(),
+                                                                                                  Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verifyNoMoreInteractions(nextBillingQueue);
+
+        final NextBillingDateNotificationKey key = keyCaptor.getValue();
+        Assert.assertEquals(key.getSubscriptionIds(), ImmutableSet.<UUID>of(subscriptionId1, subscriptionId2));
+        Assert.assertEquals(key.getTargetDate(), nextBillingDate);
+        Assert.assertFalse(key.isDryRunForInvoiceNotification());
+    }
+
+    @Test(groups = "fast")
+    public void testInsertDryRunNotifications() throws Exception {
+        final DateTime nextBillingDate = new DateTime("2015-06-01T12:00:00Z");
+        final UUID subscriptionId = UUID.randomUUID();
+        Mockito.when(nextBillingQueue.<NextBillingDateNotificationKey>getFutureNotificationFromTransactionForSearchKeys(ACCOUNT_RECORD_ID, TENANT_RECORD_ID, connection))
+               .thenReturn(ImmutableList.<NotificationEventWithMetadata<NextBillingDateNotificationKey>>of());
+
+        final long oneWeek = 7 * 24 * 3600 * 1000L;
+        poster.insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, UUID.randomUUID(),
+                                                             ImmutableMap.<UUID, List<DateTime>>of(subscriptionId, ImmutableList.<DateTime>of(nextBillingDate)),
+                                                             oneWeek, dateAndTimeZoneContext, internalCallContext);
+
+        Mockito.verify(nextBillingQueue, Mockito.times(1)).getFutureNotificationFromTransactionForSearchKeys(ACCOUNT_RECORD_ID, TENANT_RECORD_ID, connection);
+        final ArgumentCaptor<NextBillingDateNotificationKey> keyCaptor = ArgumentCaptor.forClass(NextBillingDateNotificationKey.class);
+        Mockito.verify(nextBillingQueue, Mockito.times(1)).recordFutureNotificationFromTransaction(Mockito.eq(connection), Mockito.eq(nextBillingDate.minus(oneWeek)), keyCaptor.capture(),
+                                                                                                  Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verify(nextBillingQueue, Mockito.times(1)).recordFutureNotificationFromTransaction(Mockito.eq(connection), Mockito.eq(nextBillingDate), keyCaptor.capture(),
+                                                                                                  Mockito.<UUID>any(), Mockito.eq(ACCOUNT_RECORD_ID), Mockito.eq(TENANT_RECORD_ID));
+
+        final List<NextBillingDateNotificationKey> keys = keyCaptor.getAllValues();
+        Assert.assertTrue(keys.get(0).isDryRunForInvoiceNotification());
+        Assert.assertEquals(keys.get(0).getTargetDate(), nextBillingDate);
+        Assert.assertEquals(keys.get(0).getUuidKey(), subscriptionId);
+        Assert.assertFalse(keys.get(1).isDryRunForInvoiceNotification());
+        Assert.assertEquals(keys.get(1).getUuidKey(), subscriptionId);
+    }
+}
@@ -427,6 +427,48 @@ public class TestNodeInterval /* extends InvoiceTestSuiteNoDB  */ {
 
     }
 
+    @Test(groups = "fast")
+    public void testAddManyItemsInAndOutOfOrder() {
+        final DummyNodeInterval root = new DummyNodeInterval();
+
+        final List<DummyNodeInterval> monthlyNodes = new ArrayList<DummyNodeInterval>();
+        LocalDate startDate = new LocalDate("2014-01-01");
+        for (int i = 0; i < 120; i++) {
+            final DummyNodeInterval node = createNodeInterval(startDate, startDate.plusMonths(1));
+            monthlyNodes.add(node);
+            startDate = startDate.plusMonths(1);
+        }
+
+        // Even months first (appended at the end of the list), then odd ones (inserted in between)
+        for (int i = 0; i < monthlyNodes.size(); i += 2) {
+            root.addNode(monthlyNodes.get(i), CALLBACK);
+        }
+        for (int i = 1; i < monthlyNodes.size(); i += 2) {
+            root.addNode(monthlyNodes.get(i), CALLBACK);
+        }
+
+        // Rebalance: the first year ends up below a yearly node
+        final DummyNodeInterval firstYear = createNodeInterval("2014-01-01", "2015-01-01");
+        root.addNode(firstYear, CALLBACK);
+        // Items appended after the rebalance
+        final DummyNodeInterval afterLast = createNodeInterval(startDate, startDate.plusMonths(1));
+        root.addNode(afterLast, CALLBACK);
+        // Contained item, goes below the last monthly node
+        final DummyNodeInterval lastMonthPart = createNodeInterval(startDate.minusDays(10), startDate);
+        root.addNode(lastMonthPart, CALLBACK);
+
+        assertEquals(root.getNbChildren(), 120 - 12 + 2);
+        checkNode(firstYear, 12, root, monthlyNodes.get(0), monthlyNodes.get(12));
+        for (int i = 0; i < 12; i++) {
+            checkNode(monthlyNodes.get(i), 0, firstYear, null, i < 11 ? monthlyNodes.get(i + 1) : null);
+        }
+        for (int i = 12; i < 119; i++) {
+            checkNode(monthlyNodes.get(i), 0, root, null, monthlyNodes.get(i + 1));
+        }
+        checkNode(monthlyNodes.get(119), 1, root, lastMonthPart, afterLast);
+        checkNode(afterLast, 0, root, null, null);
+    }
+
     private void checkInterval(final NodeInterval real, final NodeInterval expected) {
         assertEquals(real.getStart(), expected.getStart());
         assertEquals(real.getEnd(), expected.getEnd());
@@ -136,6 +136,56 @@ public class TestContiguousIntervalConsumableInArrear extends TestUsageInArrearB
         assertEquals(result, new BigDecimal("15"));
     }
 
+    @Test(groups = "fast")
+    public void testComputeBilledUsageAcrossTiers() throws CatalogApiException {
+
+        // 10 blocks of 100 at $1, 5 blocks of 1000 at $5, 1000 blocks of 10000 at $20
+        final DefaultTier tier1 = createDefaultTier(createDefaultTieredBlock("unit", 100, 10, BigDecimal.ONE));
+        final DefaultTier tier2 = createDefaultTier(createDefaultTieredBlock("unit", 1000, 5, new BigDecimal("5")));
+        final DefaultTier tier3 = createDefaultTier(createDefaultTieredBlock("unit", 10000, 1000, new BigDecimal("20")));
+        final DefaultUsage usage = createDefaultUsage(usageName, BillingPeriod.MONTHLY, tier1, tier2, tier3);
+
+        final LocalDate targetDate = new LocalDate(2014, 03, 20);
+
+        final ContiguousIntervalConsumableInArrear intervalConsumableInArrear = createContiguousIntervalConsumableInArrear(usage, ImmutableList.<RawUsage>of(), targetDate, false,
+                                                                                                                           createMockBillingEvent(targetDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                                                                                                                                  Collections.<Usage>emptyList())
+                                                                                                                          );
+
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(0L, "unit"), new BigDecimal("0"));
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(1L, "unit"), new BigDecimal("1"));
+        // Exactly the first tier
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(1000L, "unit"), new BigDecimal("10"));
+        // First unit of the second tier
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(1001L, "unit"), new BigDecimal("15"));
+        // 1000 (tier1) + 5000 (tier2) + 1 (tier3) => 10 + 25 + 20 = 55
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(6001L, "unit"), new BigDecimal("55"));
+        // Units past the last tier are not billed
+        assertEquals(intervalConsumableInArrear.computeToBeBilledUsage(100000000L, "unit"), new BigDecimal("20035"));
+    }
+
+    @Test(groups = "fast")
+    public void testComputeBilledUsageWithHighVolume() throws CatalogApiException {
+
+        final DefaultTieredBlock block1 = createDefaultTieredBlock("unit", 1000, 1000000, BigDecimal.ONE);
+        final DefaultTier tier1 = createDefaultTier(block1);
+
+        final DefaultTieredBlock block2 = createDefaultTieredBlock("unit", 1000, 100000000, BigDecimal.TEN);
+        final DefaultTier tier2 = createDefaultTier(block2);
+        final DefaultUsage usage = createDefaultUsage(usageName, BillingPeriod.MONTHLY, tier1, tier2);
+
+        final LocalDate targetDate = new LocalDate(2014, 03, 20);
+
+        final ContiguousIntervalConsumableInArrear intervalConsumableInArrear = createContiguousIntervalConsumableInArrear(usage, ImmutableList.<RawUsage>of(), targetDate, false,
+                                                                                                                           createMockBillingEvent(targetDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                                                                                                                                  Collections.<Usage>emptyList())
+                                                                                                                          );
+
+        // 5000000000 units does not fit in an int: 1000000000 (tier1) + 4000000000 (tier2) => 1000000 + 40000000 = 41000000
+        final BigDecimal result = intervalConsumableInArrear.computeToBeBilledUsage(5000000000L, "unit");
+        assertEquals(result, new BigDecimal("41000000"));
+    }
+
     @Test(groups = "fast")
     public void testComputeMissingItems() throws CatalogApiException {
 
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.jaxrs.json;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner.Failure;
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner.Run;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class InvoicePaymentRunJson {
+
+    private final String runId;
+    private final Long nbAccounts;
+    private final Long processedAccounts;
+    private final Long failedAccounts;
+    private final Long succeededPayments;
+    private final Long failedPayments;
+    private final DateTime startDate;
+    private final Long elapsedMillis;
+    private final Double accountsPerSecond;
+    private final Boolean isComplete;
+    private final List<InvoicePaymentRunFailureJson> failures;
+
+    @JsonCreator
+    public InvoicePaymentRunJson(@JsonProperty("runId") final String runId,
+                                 @JsonProperty("nbAccounts") final Long nbAccounts,
+                                 @JsonProperty("processedAccounts") final Long processedAccounts,
+                                 @JsonProperty("failedAccounts") final Long failedAccounts,
+                                 @JsonProperty("succeededPayments") final Long succeededPayments,
+                                 @JsonProperty("failedPayments") final Long failedPayments,
+                                 @JsonProperty("startDate") final DateTime startDate,
+                                 @JsonProperty("elapsedMillis") final Long elapsedMillis,
+                                 @JsonProperty("accountsPerSecond") final Double accountsPerSecond,
+                                 @JsonProperty("isComplete") final Boolean isComplete,
+                                 @JsonProperty("failures") @Nullable final List<InvoicePaymentRunFailureJson> failures) {
+        this.runId = runId;
+        this.nbAccounts = nbAccounts;
+        this.processedAccounts = processedAccounts;
+        this.failedAccounts = failedAccounts;
+        this.succeededPayments = succeededPayments;
+        this.failedPayments = failedPayments;
+        this.startDate = startDate;
+        this.elapsedMillis = elapsedMillis;
+        this.accountsPerSecond = accountsPerSecond;
+        this.isComplete = isComplete;
+        this.failures = failures == null ? ImmutableList.<InvoicePaymentRunFailureJson>of() : failures;
+    }
+
+    public InvoicePaymentRunJson(final Run run) {
+        this(run.getId().toString(),
+             run.getNbAccounts(),
+             run.getProcessedAccounts(),
+             run.getFailedAccounts(),
+             run.getSucceededPayments(),
+             run.getFailedPayments(),
+             run.getStartDate(),
+             run.getElapsedMillis(),
+             run.getAccountsPerSecond(),
+             run.isComplete(),
+             Lists.<Failure, InvoicePaymentRunFailureJson>transform(run.getFailures(), new Function<Failure, InvoicePaymentRunFailureJson>() {
+                 @Override
+                 public InvoicePaymentRunFailureJson apply(final Failure failure) {
+                     return new InvoicePaymentRunFailureJson(failure.getAccountId().toString(),
+                                                             failure.getInvoiceId() == null ? null : failure.getInvoiceId().toString(),
+                                                             failure.getMessage());
+                 }
+             }));
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public Long getNbAccounts() {
+        return nbAccounts;
+    }
+
+    public Long getProcessedAccounts() {
+        return processedAccounts;
+    }
+
+    public Long getFailedAccounts() {
+        return failedAccounts;
+    }
+
+    public Long getSucceededPayments() {
+        return succeededPayments;
+    }
+
+    public Long getFailedPayments() {
+        return failedPayments;
+    }
+
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Double getAccountsPerSecond() {
+        return accountsPerSecond;
+    }
+
+    @JsonProperty("isComplete")
+    public Boolean isComplete() {
+        return isComplete;
+    }
+
+    public List<InvoicePaymentRunFailureJson> getFailures() {
+        return failures;
+    }
+
+    public static class InvoicePaymentRunFailureJson {
+
+        private final String accountId;
+        private final String invoiceId;
+        private final String message;
+
+        @JsonCreator
+        public InvoicePaymentRunFailureJson(@JsonProperty("accountId") final String accountId,
+                                            @JsonProperty("invoiceId") @Nullable final String invoiceId,
+                                            @JsonProperty("message") final String message) {
+            this.accountId = accountId;
+            this.invoiceId = invoiceId;
+            this.message = message;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public String getInvoiceId() {
+            return invoiceId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
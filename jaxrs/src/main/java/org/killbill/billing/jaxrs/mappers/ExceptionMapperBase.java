@@ -37,7 +37,7 @@ import org.killbill.billing.subscription.api.timeline.SubscriptionBaseRepairExce
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
 import org.killbill.billing.util.email.EmailApiException;
-import org.killbill.billing.util.jackson.ObjectMapper;
+import org.killbill.billing.util.jackson.ObjectReaderWriterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +46,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 public abstract class ExceptionMapperBase {
 
     private static final Logger log = LoggerFactory.getLogger(ExceptionMapperBase.class);
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReaderWriterRegistry jsonRegistry = new ObjectReaderWriterRegistry();
 
     private static final String QUERY_WITH_STACK_TRACE = "withStackTrace";
 
@@ -168,7 +168,7 @@ public abstract class ExceptionMapperBase {
         final BillingExceptionJson billingExceptionJson = new BillingExceptionJson(e, withStackTrace);
 
         try {
-            final String billingExceptionJsonAsString = mapper.writeValueAsString(billingExceptionJson);
+            final String billingExceptionJsonAsString = jsonRegistry.writeValueAsString(billingExceptionJson);
             responseBuilder.entity(billingExceptionJsonAsString).type(MediaType.APPLICATION_JSON);
         } catch (final JsonProcessingException jsonException) {
             log.warn("Unable to serialize exception", jsonException);
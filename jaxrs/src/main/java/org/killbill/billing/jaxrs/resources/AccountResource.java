@@ -23,8 +23,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
@@ -68,11 +69,13 @@ import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.InvoiceEmailJson;
 import org.killbill.billing.jaxrs.json.InvoiceJson;
 import org.killbill.billing.jaxrs.json.InvoicePaymentJson;
+import org.killbill.billing.jaxrs.json.InvoicePaymentRunJson;
 import org.killbill.billing.jaxrs.json.OverdueStateJson;
 import org.killbill.billing.jaxrs.json.PaymentJson;
 import org.killbill.billing.jaxrs.json.PaymentMethodJson;
 import org.killbill.billing.jaxrs.json.PaymentTransactionJson;
 import org.killbill.billing.jaxrs.json.TagJson;
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.overdue.OverdueInternalApi;
@@ -129,6 +132,7 @@ public class AccountResource extends JaxRsResourceBase {
     private final InvoicePaymentApi invoicePaymentApi;
     private final OverdueInternalApi overdueApi;
     private final PaymentConfig paymentConfig;
+    private final BulkInvoicePaymentRunner bulkInvoicePaymentRunner;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -143,6 +147,7 @@ public class AccountResource extends JaxRsResourceBase {
                            final OverdueInternalApi overdueApi,
                            final Clock clock,
                            final PaymentConfig paymentConfig,
+                           final BulkInvoicePaymentRunner bulkInvoicePaymentRunner,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, clock, context);
         this.subscriptionApi = subscriptionApi;
@@ -150,6 +155,7 @@ public class AccountResource extends JaxRsResourceBase {
         this.invoicePaymentApi = invoicePaymentApi;
         this.overdueApi = overdueApi;
         this.paymentConfig = paymentConfig;
+        this.bulkInvoicePaymentRunner = bulkInvoicePaymentRunner;
     }
 
     @Timed
@@ -179,12 +185,13 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+        final Pagination<Account> accounts = accountUserApi.getAccounts(toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                            QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
                                                                                                                                                            QUERY_AUDIT, auditMode.getLevel().toString()));
@@ -209,12 +216,13 @@ public class AccountResource extends JaxRsResourceBase {
     public Response searchAccounts(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Account> accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
+        final Pagination<Account> accounts = accountUserApi.searchAccounts(searchKey, toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "searchAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
@@ -486,12 +494,12 @@ public class AccountResource extends JaxRsResourceBase {
 
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
 
-        final List<InvoiceJson> result = new LinkedList<InvoiceJson>();
-        for (final Invoice invoice : invoices) {
-            result.add(new InvoiceJson(invoice, withItems, accountAuditLogs));
-        }
-
-        return Response.status(Status.OK).entity(result).build();
+        return buildStreamingResponse(invoices, new Function<Invoice, InvoiceJson>() {
+            @Override
+            public InvoiceJson apply(final Invoice invoice) {
+                return new InvoiceJson(invoice, withItems, accountAuditLogs);
+            }
+        });
     }
 
     /*
@@ -518,12 +526,13 @@ public class AccountResource extends JaxRsResourceBase {
         final List<Payment> payments = paymentApi.getAccountPayments(account.getId(), withPluginInfo, pluginProperties, tenantContext);
         final List<InvoicePayment> invoicePayments = invoicePaymentApi.getInvoicePaymentsByAccount(accountId, tenantContext);
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
-        final List<InvoicePaymentJson> result = new ArrayList<InvoicePaymentJson>(payments.size());
-        for (final Payment payment : payments) {
-            final UUID invoiceId = getInvoiceId(invoicePayments, payment);
-            result.add(new InvoicePaymentJson(payment, invoiceId, accountAuditLogs));
-        }
-        return Response.status(Status.OK).entity(result).build();
+        final Map<UUID, UUID> invoiceIdsByPaymentId = getInvoiceIdsByPaymentId(invoicePayments);
+        return buildStreamingResponse(payments, new Function<Payment, InvoicePaymentJson>() {
+            @Override
+            public InvoicePaymentJson apply(final Payment payment) {
+                return new InvoicePaymentJson(payment, invoiceIdsByPaymentId.get(payment.getId()), accountAuditLogs);
+            }
+        });
     }
 
     @Timed
@@ -577,6 +586,53 @@ public class AccountResource extends JaxRsResourceBase {
         return Response.status(Status.OK).build();
     }
 
+    @Timed
+    @POST
+    @Produces(APPLICATION_JSON)
+    @Consumes(APPLICATION_JSON)
+    @Path("/" + INVOICE_PAYMENTS)
+    @ApiOperation(value = "Trigger a payment for all unpaid invoices of several accounts",
+                  notes = "The run is local to the node processing the request: its progress can only be retrieved from that node, and it isn't resumed if the node stops")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid account id supplied")})
+    public Response payAllInvoicesForAccounts(final List<String> accountIdsString,
+                                              @QueryParam(QUERY_PAYMENT_EXTERNAL) @DefaultValue("false") final Boolean externalPayment,
+                                              @QueryParam(QUERY_PLUGIN_PROPERTY) final List<String> pluginPropertiesString,
+                                              @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                              @HeaderParam(HDR_REASON) final String reason,
+                                              @HeaderParam(HDR_COMMENT) final String comment,
+                                              @javax.ws.rs.core.Context final UriInfo uriInfo,
+                                              @javax.ws.rs.core.Context final HttpServletRequest request) {
+        verifyNonNullOrEmpty(accountIdsString, "Account ids need to be specified");
+
+        final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+
+        final Collection<UUID> accountIds = new LinkedHashSet<UUID>();
+        for (final String accountId : accountIdsString) {
+            accountIds.add(UUID.fromString(accountId));
+        }
+
+        final BulkInvoicePaymentRunner.Run run = bulkInvoicePaymentRunner.start(accountIds, externalPayment, pluginProperties, createInvoicePaymentControlPluginApiPaymentOptions(externalPayment), callContext);
+        return uriBuilder.buildResponse(uriInfo, AccountResource.class, "getInvoicePaymentRun", run.getId());
+    }
+
+    @Timed
+    @GET
+    @Path("/" + INVOICE_PAYMENTS + "/{runId:" + UUID_PATTERN + "}")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Retrieve the progress of a bulk invoice payment run", response = InvoicePaymentRunJson.class)
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid run id supplied"),
+                           @ApiResponse(code = 404, message = "Run not found")})
+    public Response getInvoicePaymentRun(@PathParam("runId") final String runId,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createContext(request);
+        final BulkInvoicePaymentRunner.Run run = bulkInvoicePaymentRunner.getRun(UUID.fromString(runId), tenantContext.getTenantId());
+        if (run == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        return Response.status(Status.OK).entity(new InvoicePaymentRunJson(run)).build();
+    }
+
     @Timed
     @POST
     @Path("/{accountId:" + UUID_PATTERN + "}/" + PAYMENT_METHODS)
@@ -698,13 +754,12 @@ public class AccountResource extends JaxRsResourceBase {
         final TenantContext tenantContext = context.createContext(request);
         final List<Payment> payments = paymentApi.getAccountPayments(accountId, withPluginInfo, pluginProperties, tenantContext);
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
-        final List<PaymentJson> result = ImmutableList.copyOf(Iterables.transform(payments, new Function<Payment, PaymentJson>() {
+        return buildStreamingResponse(payments, new Function<Payment, PaymentJson>() {
             @Override
             public PaymentJson apply(final Payment payment) {
                 return new PaymentJson(payment, accountAuditLogs);
             }
-        }));
-        return Response.status(Response.Status.OK).entity(result).build();
+        });
     }
 
     @Timed
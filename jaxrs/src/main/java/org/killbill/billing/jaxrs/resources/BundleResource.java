@@ -18,6 +18,7 @@ package org.killbill.billing.jaxrs.resources;
 
 import java.net.URI;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -44,6 +45,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
 import org.killbill.billing.entitlement.api.EntitlementApi;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
 import org.killbill.billing.entitlement.api.SubscriptionApi;
@@ -86,6 +88,7 @@ public class BundleResource extends JaxRsResourceBase {
 
     private final SubscriptionApi subscriptionApi;
     private final EntitlementApi entitlementApi;
+    private final EntitlementInternalApi entitlementInternalApi;
 
     @Inject
     public BundleResource(final JaxrsUriBuilder uriBuilder,
@@ -95,11 +98,13 @@ public class BundleResource extends JaxRsResourceBase {
                           final AccountUserApi accountUserApi,
                           final SubscriptionApi subscriptionApi,
                           final EntitlementApi entitlementApi,
+                          final EntitlementInternalApi entitlementInternalApi,
                           final PaymentApi paymentApi,
                           final Clock clock,
                           final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
         this.entitlementApi = entitlementApi;
+        this.entitlementInternalApi = entitlementInternalApi;
         this.subscriptionApi = subscriptionApi;
     }
 
@@ -138,10 +143,11 @@ public class BundleResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getBundles(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                               @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<SubscriptionBundle> bundles = subscriptionApi.getSubscriptionBundles(offset, limit, tenantContext);
+        final Pagination<SubscriptionBundle> bundles = subscriptionApi.getSubscriptionBundles(toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(BundleResource.class, "getBundles", bundles.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_AUDIT, auditMode.getLevel().toString()));
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
         return buildStreamingPaginationResponse(bundles,
@@ -167,10 +173,11 @@ public class BundleResource extends JaxRsResourceBase {
     public Response searchBundles(@PathParam("searchKey") final String searchKey,
                                   @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                   @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                  @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                   @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                   @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<SubscriptionBundle> bundles = subscriptionApi.searchSubscriptionBundles(searchKey, offset, limit, tenantContext);
+        final Pagination<SubscriptionBundle> bundles = subscriptionApi.searchSubscriptionBundles(searchKey, toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(BundleResource.class, "searchBundles", bundles.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                            QUERY_AUDIT, auditMode.getLevel().toString()));
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
@@ -330,6 +337,46 @@ public class BundleResource extends JaxRsResourceBase {
         return uriBuilder.buildResponse(BundleResource.class, "getBundle", newBundleId, uriInfo.getBaseUri().toString());
     }
 
+    @Timed
+    @PUT
+    @Path("/" + TRANSFER)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Transfer several bundles of the same account to another account",
+                  notes = "Either all bundles are transferred or none is. Returns the ids of the new bundles, in the order of the bundle ids supplied")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid bundle id, account id, requested date or policy supplied"),
+                           @ApiResponse(code = 404, message = "Bundle not found")})
+    public Response transferBundles(final List<String> bundleIdsString,
+                                    @QueryParam(QUERY_ACCOUNT_ID) final String accountIdString,
+                                    @QueryParam(QUERY_REQUESTED_DT) final String requestedDate,
+                                    @QueryParam(QUERY_BILLING_POLICY) @DefaultValue("END_OF_TERM") final String policyString,
+                                    @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                    @HeaderParam(HDR_REASON) final String reason,
+                                    @HeaderParam(HDR_COMMENT) final String comment,
+                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws EntitlementApiException, SubscriptionApiException, AccountApiException {
+        verifyNonNullOrEmpty(bundleIdsString, "Bundle ids need to be specified");
+        verifyNonNullOrEmpty(accountIdString, "Destination accountId needs to be specified");
+
+        final BillingActionPolicy policy = BillingActionPolicy.valueOf(policyString.toUpperCase());
+
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+        final List<UUID> bundleIds = new LinkedList<UUID>();
+        for (final String bundleId : bundleIdsString) {
+            bundleIds.add(UUID.fromString(bundleId));
+        }
+
+        // All bundles are expected to be on the account of the first one, the transfer fails otherwise
+        final SubscriptionBundle firstBundle = subscriptionApi.getSubscriptionBundle(bundleIds.get(0), callContext);
+        final LocalDate inputLocalDate = toLocalDate(firstBundle.getAccountId(), requestedDate, callContext);
+
+        final List<UUID> newBundleIds = entitlementInternalApi.transferEntitlements(firstBundle.getAccountId(), UUID.fromString(accountIdString), bundleIds, inputLocalDate, policy, callContext);
+        final List<String> result = new LinkedList<String>();
+        for (final UUID newBundleId : newBundleIds) {
+            result.add(newBundleId.toString());
+        }
+        return Response.status(Status.OK).entity(result).build();
+    }
+
     @Timed
     @POST
     @Path("/{bundleId:" + UUID_PATTERN + "}/" + TAGS)
@@ -17,16 +17,22 @@
 package org.killbill.billing.jaxrs.resources;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountUserApi;
@@ -39,8 +45,10 @@ import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.Clock;
 
@@ -51,6 +59,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
+import com.wordnik.swagger.annotations.ApiResponse;
 import com.wordnik.swagger.annotations.ApiResponses;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -80,10 +89,11 @@ public class CustomFieldResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getCustomFields(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                     @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                    @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                     @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                     @javax.ws.rs.core.Context final HttpServletRequest request) throws CustomFieldApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<CustomField> customFields = customFieldUserApi.getCustomFields(offset, limit, tenantContext);
+        final Pagination<CustomField> customFields = customFieldUserApi.getCustomFields(toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(CustomFieldResource.class, "getCustomFields", customFields.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_AUDIT, auditMode.getLevel().toString()));
 
         return buildStreamingPaginationResponse(customFields,
@@ -107,10 +117,11 @@ public class CustomFieldResource extends JaxRsResourceBase {
     public Response searchCustomFields(@PathParam("searchKey") final String searchKey,
                                        @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                        @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                       @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                        @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                        @javax.ws.rs.core.Context final HttpServletRequest request) throws CustomFieldApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<CustomField> customFields = customFieldUserApi.searchCustomFields(searchKey, offset, limit, tenantContext);
+        final Pagination<CustomField> customFields = customFieldUserApi.searchCustomFields(searchKey, toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(CustomFieldResource.class, "searchCustomFields", customFields.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
         return buildStreamingPaginationResponse(customFields,
@@ -124,4 +135,30 @@ public class CustomFieldResource extends JaxRsResourceBase {
                                                 },
                                                 nextPageUri);
     }
+
+    @Timed
+    @POST
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Add custom fields to several objects at once")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid custom fields supplied")})
+    public Response createCustomFieldsForObjects(final List<CustomFieldJson> customFields,
+                                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                                 @HeaderParam(HDR_REASON) final String reason,
+                                                 @HeaderParam(HDR_COMMENT) final String comment,
+                                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws CustomFieldApiException {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+
+        final List<CustomField> input = new ArrayList<CustomField>(customFields.size());
+        for (final CustomFieldJson cur : customFields) {
+            verifyNonNullOrEmpty(cur.getObjectId(), "CustomFieldJson objectId needs to be set",
+                                 cur.getObjectType(), "CustomFieldJson objectType needs to be set",
+                                 cur.getName(), "CustomFieldJson name needs to be set",
+                                 cur.getValue(), "CustomFieldJson value needs to be set");
+            input.add(new StringCustomField(cur.getName(), cur.getValue(), cur.getObjectType(), UUID.fromString(cur.getObjectId()), callContext.getCreatedDate()));
+        }
+
+        customFieldUserApi.addCustomFields(input, callContext);
+        return Response.status(Status.CREATED).build();
+    }
 }
@@ -219,11 +219,12 @@ public class InvoiceResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getInvoices(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                 @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+        final Pagination<Invoice> invoices = invoiceApi.getInvoices(toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
                                                                                                                                                            QUERY_AUDIT, auditMode.getLevel().toString()));
 
@@ -252,11 +253,12 @@ public class InvoiceResource extends JaxRsResourceBase {
     public Response searchInvoices(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                    @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Invoice> invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
+        final Pagination<Invoice> invoices = invoiceApi.searchInvoices(searchKey, toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
                                                                                                                                                               QUERY_AUDIT, auditMode.getLevel().toString()));
@@ -515,14 +517,12 @@ public class InvoiceResource extends JaxRsResourceBase {
             final Payment payment = paymentApi.getPayment(cur.getPaymentId(), withPluginInfo, ImmutableList.<PluginProperty>of(), tenantContext);
             payments.add(payment);
         }
-        final List<InvoicePaymentJson> result = new ArrayList<InvoicePaymentJson>(payments.size());
-        if (payments.isEmpty()) {
-            return Response.status(Status.OK).entity(result).build();
-        }
-        for (final Payment cur : payments) {
-            result.add(new InvoicePaymentJson(cur, invoice.getId(), null));
-        }
-        return Response.status(Status.OK).entity(result).build();
+        return buildStreamingResponse(payments, new Function<Payment, InvoicePaymentJson>() {
+            @Override
+            public InvoicePaymentJson apply(final Payment payment) {
+                return new InvoicePaymentJson(payment, invoice.getId(), null);
+            }
+        });
     }
 
     @Timed
@@ -34,6 +34,7 @@ import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
@@ -52,11 +53,14 @@ import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.jaxrs.json.BillingExceptionJson;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.JsonBase;
 import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.jaxrs.util.PaginationContinuationToken;
+import org.killbill.billing.payment.api.InvoicePaymentControlProperties;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PaymentApiException;
@@ -79,6 +83,7 @@ import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
@@ -95,6 +100,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.io.CountingOutputStream;
 
 public abstract class JaxRsResourceBase implements JaxrsResource {
 
@@ -255,32 +261,69 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
                                                                                                final Function<E, J> toJson,
                                                                                                final URI nextPageUri) {
-        final StreamingOutput json = new StreamingOutput() {
+        final StreamingOutput json = buildStreamingOutput(entities, toJson);
+
+        if (DefaultPaginationSqlDaoHelper.isKeysetToken(entities.getCurrentOffset())) {
+            // Keyset pagination: offsets are internal, only expose the continuation token (counts aren't computed)
+            return Response.status(Status.OK)
+                           .entity(json)
+                           .header(HDR_PAGINATION_NEXT_CONTINUATION_TOKEN, entities.getNextOffset() == null ? null : PaginationContinuationToken.encode(entities.getNextOffset()))
+                           .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                           .build();
+        }
+
+        return Response.status(Status.OK)
+                       .entity(json)
+                       .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
+                       .header(HDR_PAGINATION_NEXT_OFFSET, entities.getNextOffset())
+                       .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
+                       .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
+                       .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                       .build();
+    }
+
+    // Write the JSON array element by element, so that the resulting JSON objects are never held in memory all at once
+    // (the entities themselves are still loaded up front by the callers, as the user APIs return Lists)
+    protected <E, J extends JsonBase> Response buildStreamingResponse(final Iterable<E> entities, final Function<E, J> toJson) {
+        return Response.status(Status.OK).entity(buildStreamingOutput(entities, toJson)).build();
+    }
+
+    // If an entity fails to be converted or written before anything was sent to the container (the generator buffers
+    // the first few KB), the response is not committed yet and is replaced by a regular 500. Otherwise the 200 status is
+    // already out: the array is left open and the failure is rethrown, so that the container aborts the response and
+    // clients see a truncated, malformed body instead of silently reading a partial list.
+    private <E, J extends JsonBase> StreamingOutput buildStreamingOutput(final Iterable<E> entities, final Function<E, J> toJson) {
+        return new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
-                final JsonGenerator generator = mapper.getFactory().createJsonGenerator(output);
+                final CountingOutputStream countingOutput = new CountingOutputStream(output);
+                final JsonGenerator generator = mapper.getFactory().createJsonGenerator(countingOutput);
                 generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
                 generator.writeStartArray();
-                for (final E entity : entities) {
-                    final J asJson = toJson.apply(entity);
-                    if (asJson != null) {
-                        generator.writeObject(asJson);
+                try {
+                    for (final E entity : entities) {
+                        final J asJson = toJson.apply(entity);
+                        if (asJson != null) {
+                            generator.writeObject(asJson);
+                        }
                     }
+                } catch (final RuntimeException e) {
+                    if (countingOutput.getCount() == 0) {
+                        throw new WebApplicationException(e, Response.status(Status.INTERNAL_SERVER_ERROR)
+                                                                     .entity(new BillingExceptionJson(e, false))
+                                                                     .type(MediaType.APPLICATION_JSON)
+                                                                     .build());
+                    }
+                    log.warn("Failed to stream the response after the first {} bytes, aborting it", countingOutput.getCount(), e);
+                    // Don't close the generator, it would close the array
+                    generator.flush();
+                    throw e;
                 }
                 generator.writeEndArray();
                 generator.close();
             }
         };
-
-        return Response.status(Status.OK)
-                       .entity(json)
-                       .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
-                       .header(HDR_PAGINATION_NEXT_OFFSET, entities.getNextOffset())
-                       .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
-                       .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
-                       .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
-                       .build();
     }
 
     protected void validatePaymentMethodForAccount(final UUID accountId, final UUID paymentMethodId, final CallContext callContext) throws PaymentApiException {
@@ -353,6 +396,10 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
             if (pluginProperty.endsWith("=")) {
                 value += "=";
             }
+            // Only set server-side, after the CBA has been rebalanced: clients could otherwise pay invoices without their CBA applied
+            if (InvoicePaymentControlProperties.PROP_IPCD_CBA_REBALANCED.equals(key)) {
+                continue;
+            }
             properties.add(new PluginProperty(key, value, false));
         }
         for (final PluginProperty cur : additionalProperties) {
@@ -371,8 +418,7 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
 
         final String paymentExternalKey = UUID.randomUUID().toString();
         final String transactionExternalKey = UUID.randomUUID().toString();
-        final PluginProperty invoiceProperty = new PluginProperty("IPCD_INVOICE_ID" /* InvoicePaymentControlPluginApi.PROP_IPCD_INVOICE_ID (contract with plugin)  */,
-                                                                  invoiceId.toString(), false);
+        final PluginProperty invoiceProperty = new PluginProperty(InvoicePaymentControlProperties.PROP_IPCD_INVOICE_ID, invoiceId.toString(), false);
         properties.add(invoiceProperty);
 
         final UUID paymentMethodId = externalPayment ? null : account.getPaymentMethodId();
@@ -417,6 +463,17 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         }));
     }
 
+    public static Map<UUID, UUID> getInvoiceIdsByPaymentId(final Iterable<InvoicePayment> invoicePayments) {
+        final Map<UUID, UUID> invoiceIdsByPaymentId = new HashMap<UUID, UUID>();
+        for (final InvoicePayment invoicePayment : invoicePayments) {
+            // Keep the first match, as getInvoiceId would
+            if (invoicePayment.getType() == InvoicePaymentType.ATTEMPT && !invoiceIdsByPaymentId.containsKey(invoicePayment.getPaymentId())) {
+                invoiceIdsByPaymentId.put(invoicePayment.getPaymentId(), invoicePayment.getInvoiceId());
+            }
+        }
+        return invoiceIdsByPaymentId;
+    }
+
     public static UUID getInvoiceId(final List<InvoicePayment> invoicePayments, final Payment payment) {
         final InvoicePayment invoicePayment = Iterables.tryFind(invoicePayments, new Predicate<InvoicePayment>() {
             @Override
@@ -427,6 +484,20 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         return invoicePayment != null ? invoicePayment.getInvoiceId() : null;
     }
 
+    // Negative offsets are reserved for keyset paginations, which clients request through continuation tokens
+    protected Long toPaginationOffset(final Long offset, @Nullable final String continuationToken) {
+        if (continuationToken == null) {
+            verifyPaginationOffset(offset);
+            return offset;
+        } else {
+            return PaginationContinuationToken.decode(continuationToken);
+        }
+    }
+
+    protected void verifyPaginationOffset(final Long offset) {
+        Preconditions.checkArgument(offset >= 0, "offset should be positive");
+    }
+
     protected void verifyNonNullOrEmpty(final Object... elements) {
         Preconditions.checkArgument(elements.length % 2 == 0, "%s should have an even number of elements", Arrays.toString(elements));
         for (int i = 0; i < elements.length; i += 2) {
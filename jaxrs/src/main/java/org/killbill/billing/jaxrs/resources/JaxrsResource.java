@@ -49,6 +49,7 @@ public interface JaxrsResource {
     public static String HDR_PAGINATION_TOTAL_NB_RECORDS = "X-Killbill-Pagination-TotalNbRecords";
     public static String HDR_PAGINATION_MAX_NB_RECORDS = "X-Killbill-Pagination-MaxNbRecords";
     public static String HDR_PAGINATION_NEXT_PAGE_URI = "X-Killbill-Pagination-NextPageUri";
+    public static String HDR_PAGINATION_NEXT_CONTINUATION_TOKEN = "X-Killbill-Pagination-NextContinuationToken";
 
     /*
      * Patterns
@@ -72,6 +73,7 @@ public interface JaxrsResource {
     public static final String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     public static final String QUERY_SEARCH_OFFSET = "offset";
     public static final String QUERY_SEARCH_LIMIT = "limit";
+    public static final String QUERY_SEARCH_CONTINUATION_TOKEN = "continuationToken";
 
     public static final String QUERY_ACCOUNT_WITH_BALANCE = "accountWithBalance";
     public static final String QUERY_ACCOUNT_WITH_BALANCE_AND_CBA = "accountWithBalanceAndCBA";
@@ -90,6 +92,7 @@ public interface JaxrsResource {
 
     public static final String QUERY_TAGS = "tagList";
     public static final String QUERY_TAGS_INCLUDED_DELETED = "includedDeleted";
+    public static final String QUERY_TAGS_OBJECT_TYPE = "objectType";
     public static final String QUERY_CUSTOM_FIELDS = "customFieldList";
 
     public static final String QUERY_PAYMENT_METHOD_PLUGIN_NAME = "pluginName";
@@ -204,6 +207,7 @@ public interface JaxrsResource {
 
     public static final String PAUSE = "pause";
     public static final String RESUME = "resume";
+    public static final String TRANSFER = "transfer";
 
     public static final String AUTHORIZATION = "authorization";
     public static final String CAPTURE = "capture";
@@ -123,6 +123,8 @@ public class PaymentResource extends JaxRsResourceBase {
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @QueryParam(QUERY_WITH_PLUGIN_INFO) @DefaultValue("false") final Boolean withPluginInfo,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws PaymentApiException {
+        // Payments and payment methods are paginated across plugins, which only support offsets
+        verifyPaginationOffset(offset);
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createContext(request);
 
@@ -167,6 +169,8 @@ public class PaymentResource extends JaxRsResourceBase {
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @QueryParam(QUERY_WITH_PLUGIN_INFO) @DefaultValue("false") final Boolean withPluginInfo,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws PaymentApiException {
+        // Payments and payment methods are paginated across plugins, which only support offsets
+        verifyPaginationOffset(offset);
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createContext(request);
 
@@ -17,21 +17,28 @@
 package org.killbill.billing.jaxrs.resources;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.clock.Clock;
@@ -42,7 +49,10 @@ import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.tag.Tag;
@@ -65,9 +75,14 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.TAGS_PATH, description = "Operations on tags")
 public class TagResource extends JaxRsResourceBase {
 
+    private final TagInternalApi tagInternalApi;
+    private final InternalCallContextFactory internalCallContextFactory;
+
     @Inject
     public TagResource(final JaxrsUriBuilder uriBuilder,
                        final TagUserApi tagUserApi,
+                       final TagInternalApi tagInternalApi,
+                       final InternalCallContextFactory internalCallContextFactory,
                        final CustomFieldUserApi customFieldUserApi,
                        final AuditUserApi auditUserApi,
                        final AccountUserApi accountUserApi,
@@ -75,6 +90,8 @@ public class TagResource extends JaxRsResourceBase {
                        final Clock clock,
                        final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
+        this.tagInternalApi = tagInternalApi;
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @Timed
@@ -85,10 +102,11 @@ public class TagResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getTags(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                             @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                            @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                             @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                             @javax.ws.rs.core.Context final HttpServletRequest request) throws TagApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Tag> tags = tagUserApi.getTags(offset, limit, tenantContext);
+        final Pagination<Tag> tags = tagUserApi.getTags(toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(TagResource.class, "getTags", tags.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_AUDIT, auditMode.getLevel().toString()));
 
         final Map<UUID, TagDefinition> tagDefinitionsCache = new HashMap<UUID, TagDefinition>();
@@ -119,10 +137,11 @@ public class TagResource extends JaxRsResourceBase {
     public Response searchTags(@PathParam("searchKey") final String searchKey,
                                @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                               @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
                                @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                @javax.ws.rs.core.Context final HttpServletRequest request) throws TagApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Tag> tags = tagUserApi.searchTags(searchKey, offset, limit, tenantContext);
+        final Pagination<Tag> tags = tagUserApi.searchTags(searchKey, toPaginationOffset(offset, continuationToken), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(TagResource.class, "searchTags", tags.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                   QUERY_AUDIT, auditMode.getLevel().toString()));
         final Map<UUID, TagDefinition> tagDefinitionsCache = new HashMap<UUID, TagDefinition>();
@@ -142,4 +161,36 @@ public class TagResource extends JaxRsResourceBase {
                                                 },
                                                 nextPageUri);
     }
+
+    @Timed
+    @POST
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Add tags to several objects at once, the body maps each object id to its tag definition ids")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid object type, object id or tag definition id supplied")})
+    public Response createTagsForObjects(final Map<String, List<String>> tagDefinitionIdsPerObjectIdString,
+                                         @QueryParam(QUERY_TAGS_OBJECT_TYPE) final ObjectType objectType,
+                                         @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                         @HeaderParam(HDR_REASON) final String reason,
+                                         @HeaderParam(HDR_COMMENT) final String comment,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) throws TagApiException {
+        verifyNonNullOrEmpty(objectType, "objectType needs to be set");
+
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+        final Map<UUID, List<UUID>> tagDefinitionIdsPerObjectId = new LinkedHashMap<UUID, List<UUID>>();
+        final Map<UUID, InternalCallContext> contextPerObjectId = new HashMap<UUID, InternalCallContext>();
+        for (final Map.Entry<String, List<String>> entry : tagDefinitionIdsPerObjectIdString.entrySet()) {
+            final UUID objectId = UUID.fromString(entry.getKey());
+            final List<UUID> tagDefinitionIds = new ArrayList<UUID>(entry.getValue().size());
+            for (final String tagDefinitionId : entry.getValue()) {
+                tagDefinitionIds.add(UUID.fromString(tagDefinitionId));
+            }
+            tagDefinitionIdsPerObjectId.put(objectId, tagDefinitionIds);
+            // The objects may belong to different accounts
+            contextPerObjectId.put(objectId, internalCallContextFactory.createInternalCallContext(objectId, objectType, callContext));
+        }
+
+        tagInternalApi.addTags(objectType, tagDefinitionIdsPerObjectId, contextPerObjectId);
+        return Response.status(Status.CREATED).build();
+    }
 }
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.jaxrs.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.Subject;
+import org.joda.time.DateTime;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.payment.api.InvoicePaymentControlProperties;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.payment.api.PaymentOptions;
+import org.killbill.billing.payment.api.PaymentTransaction;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+/**
+ * Pays the unpaid invoices of many accounts on a bounded pool: accounts are processed concurrently, while the number
+ * of in-flight payments per payment plugin (gateway) is capped.
+ * <p/>
+ * The account CBA is rebalanced once up-front, instead of once per invoice payment by the invoice payment control plugin.
+ * <p/>
+ * Runs are node-local and not resumable: they are only kept in memory, by the node which started them (the most recent ones
+ * only, see MAX_RUNS). Their progress can't be retrieved from other nodes, and the accounts not yet processed when the
+ * node stops (or restarts) are dropped. Callers can simply start a new run, since only the unpaid invoices are paid.
+ */
+@Singleton
+public class BulkInvoicePaymentRunner {
+
+    private static final String EXTERNAL_PAYMENT_PLUGIN_NAME = "__EXTERNAL_PAYMENT__";
+
+    private static final int MAX_RUNS = 100;
+    @VisibleForTesting
+    static final int MAX_FAILURES_PER_RUN = 1000;
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+    private static final long TERMINATION_TIMEOUT_SEC = 5;
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInvoicePaymentRunner.class);
+
+    private final AccountUserApi accountUserApi;
+    private final InvoiceUserApi invoiceApi;
+    private final PaymentApi paymentApi;
+    private final Clock clock;
+    private final int maxConcurrencyPerPlugin;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Semaphore> permitsPerPlugin = new ConcurrentHashMap<String, Semaphore>();
+    // Node-local, not persisted
+    private final Cache<UUID, Run> runs = CacheBuilder.newBuilder().maximumSize(MAX_RUNS).build();
+
+    @Inject
+    public BulkInvoicePaymentRunner(final AccountUserApi accountUserApi,
+                                    final InvoiceUserApi invoiceApi,
+                                    final PaymentApi paymentApi,
+                                    final Clock clock,
+                                    final PaymentConfig paymentConfig) {
+        this.accountUserApi = accountUserApi;
+        this.invoiceApi = invoiceApi;
+        this.paymentApi = paymentApi;
+        this.clock = clock;
+        this.maxConcurrencyPerPlugin = paymentConfig.getBulkPaymentMaxConcurrencyPerPlugin();
+        this.executor = Executors.newFixedThreadPool(paymentConfig.getBulkPaymentThreadNb(), "BulkInvoicePaymentRunner");
+    }
+
+    public Run start(final Collection<UUID> accountIds, final boolean externalPayment, final Iterable<PluginProperty> pluginProperties,
+                     final PaymentOptions paymentOptions, final CallContext callContext) {
+        final Run run = new Run(UUID.randomUUID(), callContext.getTenantId(), accountIds.size(), clock.getUTCNow());
+        runs.put(run.getId(), run);
+        log.info("Starting bulk invoice payment run {} for {} accounts", run.getId(), accountIds.size());
+
+        final List<PluginProperty> properties = new ArrayList<PluginProperty>();
+        Iterables.addAll(properties, pluginProperties);
+        properties.add(new PluginProperty(InvoicePaymentControlProperties.PROP_IPCD_CBA_REBALANCED, "true", false));
+
+        // The account tasks run outside of the request thread: carry over the permissions of the caller
+        final Subject subject = SecurityUtils.getSubject();
+        for (final UUID accountId : accountIds) {
+            executor.submit(subject.associateWith(new Runnable() {
+                @Override
+                public void run() {
+                    payAccount(run, accountId, externalPayment, properties, paymentOptions, callContext);
+                }
+            }));
+        }
+        return run;
+    }
+
+    public void stop() {
+        // Accounts not yet started are dropped, in-flight payments complete
+        final List<Runnable> pendingTasks = executor.shutdownNow();
+        if (!pendingTasks.isEmpty()) {
+            log.warn("Stopping bulk invoice payment runs: {} accounts won't be processed", pendingTasks.size());
+        }
+        try {
+            final boolean success = executor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
+            if (!success) {
+                log.warn("BulkInvoicePaymentRunner failed to complete termination within " + TERMINATION_TIMEOUT_SEC + "sec");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("BulkInvoicePaymentRunner stop sequence got interrupted");
+        }
+    }
+
+    @Nullable
+    public Run getRun(final UUID runId, @Nullable final UUID tenantId) {
+        final Run run = runs.getIfPresent(runId);
+        if (run == null || (run.getTenantId() == null ? tenantId != null : !run.getTenantId().equals(tenantId))) {
+            return null;
+        }
+        return run;
+    }
+
+    private void payAccount(final Run run, final UUID accountId, final boolean externalPayment, final List<PluginProperty> properties,
+                            final PaymentOptions paymentOptions, final CallContext callContext) {
+        try {
+            final Account account = accountUserApi.getAccountById(accountId, callContext);
+            final UUID paymentMethodId = externalPayment ? null : account.getPaymentMethodId();
+            if (!externalPayment && paymentMethodId == null) {
+                run.accountFailed(accountId, null, "Account has no default payment method");
+                return;
+            }
+
+            invoiceApi.consumeExstingCBAOnAccountWithUnpaidInvoices(accountId, callContext);
+            final Collection<Invoice> unpaidInvoices = invoiceApi.getUnpaidInvoicesByAccountId(accountId, clock.getUTCToday(), callContext);
+            if (unpaidInvoices.isEmpty()) {
+                run.accountProcessed(true);
+                return;
+            }
+
+            final String pluginName = externalPayment ?
+                                      EXTERNAL_PAYMENT_PLUGIN_NAME :
+                                      paymentApi.getPaymentMethodById(paymentMethodId, false, false, ImmutableList.<PluginProperty>of(), callContext).getPluginName();
+            final Semaphore permits = getPermits(pluginName);
+            permits.acquire();
+            boolean allPaid = true;
+            try {
+                for (final Invoice invoice : unpaidInvoices) {
+                    if (invoice.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
+                        continue;
+                    }
+                    allPaid = payInvoice(run, account, paymentMethodId, invoice, properties, paymentOptions, callContext) && allPaid;
+                }
+            } finally {
+                permits.release();
+            }
+            run.accountProcessed(allPaid);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.accountFailed(accountId, null, e.toString());
+        } catch (final Exception e) {
+            log.warn("Bulk invoice payment run {}: failed to pay invoices for account {}", run.getId(), accountId, e);
+            run.accountFailed(accountId, null, e.toString());
+        }
+    }
+
+    private boolean payInvoice(final Run run, final Account account, @Nullable final UUID paymentMethodId, final Invoice invoice, final List<PluginProperty> properties,
+                               final PaymentOptions paymentOptions, final CallContext callContext) {
+        final List<PluginProperty> invoiceProperties = new ArrayList<PluginProperty>(properties.size() + 1);
+        invoiceProperties.addAll(properties);
+        invoiceProperties.add(new PluginProperty(InvoicePaymentControlProperties.PROP_IPCD_INVOICE_ID, invoice.getId().toString(), false));
+
+        try {
+            final Payment payment = paymentApi.createPurchaseWithPaymentControl(account, paymentMethodId, null, invoice.getBalance(), account.getCurrency(),
+                                                                                UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                                                                invoiceProperties, paymentOptions, callContext);
+            final PaymentTransaction lastTransaction = payment.getTransactions().isEmpty() ? null : payment.getTransactions().get(payment.getTransactions().size() - 1);
+            if (lastTransaction != null &&
+                lastTransaction.getTransactionStatus() != TransactionStatus.SUCCESS &&
+                lastTransaction.getTransactionStatus() != TransactionStatus.PENDING) {
+                run.paymentFailed(account.getId(), invoice.getId(), "Payment " + payment.getId() + " status is " + lastTransaction.getTransactionStatus());
+                return false;
+            }
+            run.paymentSucceeded();
+            return true;
+        } catch (final Exception e) {
+            run.paymentFailed(account.getId(), invoice.getId(), e.toString());
+            return false;
+        }
+    }
+
+    private Semaphore getPermits(final String pluginName) {
+        final Semaphore permits = permitsPerPlugin.get(pluginName);
+        if (permits != null) {
+            return permits;
+        }
+        final Semaphore newPermits = new Semaphore(maxConcurrencyPerPlugin);
+        final Semaphore existingPermits = permitsPerPlugin.putIfAbsent(pluginName, newPermits);
+        return existingPermits != null ? existingPermits : newPermits;
+    }
+
+    public static final class Run {
+
+        private final UUID id;
+        private final UUID tenantId;
+        private final long nbAccounts;
+        private final DateTime startDate;
+        private final long startNanos;
+        private final AtomicLong processedAccounts = new AtomicLong();
+        private final AtomicLong failedAccounts = new AtomicLong();
+        private final AtomicLong succeededPayments = new AtomicLong();
+        private final AtomicLong failedPayments = new AtomicLong();
+        private final AtomicLong nbFailures = new AtomicLong();
+        private final Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+
+        private volatile Long endNanos;
+
+        private Run(final UUID id, @Nullable final UUID tenantId, final long nbAccounts, final DateTime startDate) {
+            this.id = id;
+            this.tenantId = tenantId;
+            this.nbAccounts = nbAccounts;
+            this.startDate = startDate;
+            this.startNanos = System.nanoTime();
+            if (nbAccounts == 0) {
+                this.endNanos = startNanos;
+            }
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public UUID getTenantId() {
+            return tenantId;
+        }
+
+        public long getNbAccounts() {
+            return nbAccounts;
+        }
+
+        public DateTime getStartDate() {
+            return startDate;
+        }
+
+        public long getProcessedAccounts() {
+            return processedAccounts.get();
+        }
+
+        public long getFailedAccounts() {
+            return failedAccounts.get();
+        }
+
+        public long getSucceededPayments() {
+            return succeededPayments.get();
+        }
+
+        public long getFailedPayments() {
+            return failedPayments.get();
+        }
+
+        public boolean isComplete() {
+            return processedAccounts.get() >= nbAccounts;
+        }
+
+        public long getElapsedMillis() {
+            final Long end = endNanos;
+            return TimeUnit.NANOSECONDS.toMillis((end != null ? end : System.nanoTime()) - startNanos);
+        }
+
+        public double getAccountsPerSecond() {
+            final long elapsedMillis = getElapsedMillis();
+            return elapsedMillis == 0 ? 0 : processedAccounts.get() * 1000.0 / elapsedMillis;
+        }
+
+        // Only the first failures are kept
+        public List<Failure> getFailures() {
+            return ImmutableList.<Failure>copyOf(failures);
+        }
+
+        private void paymentSucceeded() {
+            succeededPayments.incrementAndGet();
+        }
+
+        private void paymentFailed(final UUID accountId, final UUID invoiceId, final String message) {
+            failedPayments.incrementAndGet();
+            addFailure(accountId, invoiceId, message);
+        }
+
+        private void accountFailed(final UUID accountId, @Nullable final UUID invoiceId, final String message) {
+            addFailure(accountId, invoiceId, message);
+            accountProcessed(false);
+        }
+
+        private void accountProcessed(final boolean success) {
+            if (!success) {
+                failedAccounts.incrementAndGet();
+            }
+
+            final long processed = processedAccounts.incrementAndGet();
+            if (processed == nbAccounts) {
+                endNanos = System.nanoTime();
+                log.info("Bulk invoice payment run {} completed: {} accounts ({} failed), {} payments ({} failed) in {} ms",
+                         id, nbAccounts, failedAccounts.get(), succeededPayments.get() + failedPayments.get(), failedPayments.get(), getElapsedMillis());
+            } else if (processed % PROGRESS_LOG_INTERVAL == 0) {
+                log.info("Bulk invoice payment run {}: {}/{} accounts processed ({} accounts/s)", id, processed, nbAccounts, String.format("%.1f", getAccountsPerSecond()));
+            }
+        }
+
+        private void addFailure(final UUID accountId, @Nullable final UUID invoiceId, final String message) {
+            if (nbFailures.incrementAndGet() <= MAX_FAILURES_PER_RUN) {
+                failures.add(new Failure(accountId, invoiceId, message));
+            }
+        }
+    }
+
+    public static final class Failure {
+
+        private final UUID accountId;
+        private final UUID invoiceId;
+        private final String message;
+
+        private Failure(final UUID accountId, @Nullable final UUID invoiceId, final String message) {
+            this.accountId = accountId;
+            this.invoiceId = invoiceId;
+            this.message = message;
+        }
+
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        public UUID getInvoiceId() {
+            return invoiceId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
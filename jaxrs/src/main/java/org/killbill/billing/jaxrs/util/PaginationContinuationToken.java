@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.util;
+
+import java.nio.charset.Charset;
+
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
+
+import com.google.common.io.BaseEncoding;
+
+// Continuation tokens for keyset (seek) paginations: clients start with FIRST_PAGE and follow the
+// X-Killbill-Pagination-NextContinuationToken header. Internally, the token is mapped to a negative offset (see
+// DefaultPaginationSqlDaoHelper), which clients can't pass directly. The encoding is versioned so that the format
+// can evolve without breaking the tokens held by clients.
+public class PaginationContinuationToken {
+
+    public static final String FIRST_PAGE = "FIRST";
+
+    private static final String VERSION_PREFIX = "1:";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    public static String encode(final Long keysetOffset) {
+        final Long recordId = DefaultPaginationSqlDaoHelper.toRecordId(keysetOffset);
+        return ENCODING.encode((VERSION_PREFIX + recordId).getBytes(UTF_8));
+    }
+
+    public static Long decode(final String token) {
+        if (FIRST_PAGE.equals(token)) {
+            return DefaultPaginationSqlDaoHelper.KEYSET_FIRST_PAGE;
+        }
+
+        final Long recordId;
+        try {
+            final String decoded = new String(ENCODING.decode(token), UTF_8);
+            if (!decoded.startsWith(VERSION_PREFIX)) {
+                throw new IllegalArgumentException("Invalid continuation token " + token);
+            }
+            recordId = Long.valueOf(decoded.substring(VERSION_PREFIX.length()));
+        } catch (final IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            throw new IllegalArgumentException("Invalid continuation token " + token, e);
+        }
+
+        if (recordId <= 0) {
+            throw new IllegalArgumentException("Invalid continuation token " + token);
+        }
+        return DefaultPaginationSqlDaoHelper.toKeysetToken(recordId);
+    }
+}
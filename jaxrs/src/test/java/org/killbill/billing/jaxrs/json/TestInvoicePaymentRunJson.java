@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.jaxrs.json;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.InvoicePaymentRunJson.InvoicePaymentRunFailureJson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestInvoicePaymentRunJson extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testJson() throws Exception {
+        final String runId = UUID.randomUUID().toString();
+        final DateTime startDate = clock.getUTCNow();
+        final InvoicePaymentRunFailureJson failureJson = new InvoicePaymentRunFailureJson(UUID.randomUUID().toString(), UUID.randomUUID().toString(), "Declined");
+        final InvoicePaymentRunJson runJson = new InvoicePaymentRunJson(runId, 10L, 4L, 1L, 5L, 1L, startDate, 2000L, 2.0, false, ImmutableList.<InvoicePaymentRunFailureJson>of(failureJson));
+
+        final String asJson = mapper.writeValueAsString(runJson);
+        final InvoicePaymentRunJson fromJson = mapper.readValue(asJson, InvoicePaymentRunJson.class);
+        Assert.assertEquals(fromJson.getRunId(), runId);
+        Assert.assertEquals(fromJson.getNbAccounts(), (Long) 10L);
+        Assert.assertEquals(fromJson.getProcessedAccounts(), (Long) 4L);
+        Assert.assertEquals(fromJson.getFailedAccounts(), (Long) 1L);
+        Assert.assertEquals(fromJson.getSucceededPayments(), (Long) 5L);
+        Assert.assertEquals(fromJson.getFailedPayments(), (Long) 1L);
+        Assert.assertEquals(fromJson.getStartDate().compareTo(startDate), 0);
+        Assert.assertEquals(fromJson.getElapsedMillis(), (Long) 2000L);
+        Assert.assertEquals(fromJson.getAccountsPerSecond(), 2.0);
+        Assert.assertFalse(fromJson.isComplete());
+        Assert.assertEquals(fromJson.getFailures().size(), 1);
+        Assert.assertEquals(fromJson.getFailures().get(0).getAccountId(), failureJson.getAccountId());
+        Assert.assertEquals(fromJson.getFailures().get(0).getInvoiceId(), failureJson.getInvoiceId());
+        Assert.assertEquals(fromJson.getFailures().get(0).getMessage(), "Declined");
+    }
+}
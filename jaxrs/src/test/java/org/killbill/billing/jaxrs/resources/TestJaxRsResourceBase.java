@@ -17,14 +17,28 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.ByteArrayOutputStream;
 import java.util.List;
+import java.util.UUID;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Function;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
 
 public class TestJaxRsResourceBase extends JaxrsTestSuiteNoDB {
 
@@ -51,6 +65,68 @@ public class TestJaxRsResourceBase extends JaxrsTestSuiteNoDB {
         Assert.assertEquals(pluginProperties.get(4).getValue(), "2020");
     }
 
+    @Test(groups = "fast")
+    public void testStreamingResponse() throws Exception {
+        final JsonNode result = streamTags(10, -1);
+        Assert.assertEquals(result.size(), 10);
+        Assert.assertEquals(result.get(9).get("tagDefinitionName").asText(), "tag-9");
+    }
+
+    @Test(groups = "fast")
+    public void testStreamingResponseFailureBeforeCommit() throws Exception {
+        try {
+            streamTags(10, 0);
+            Assert.fail("Nothing was written, the failure should be mapped to an error response");
+        } catch (final WebApplicationException e) {
+            Assert.assertEquals(e.getResponse().getStatus(), Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testStreamingResponseFailureAfterCommit() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            // Enough entities to overflow the generator buffer before the failure
+            streamTags(1000, 999, output);
+            Assert.fail("The response was committed, the failure should abort it");
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Failure on tag-999");
+        }
+
+        // The elements written so far are out, but the array is not closed
+        final String body = new String(output.toByteArray(), "UTF-8");
+        Assert.assertTrue(body.contains("tag-998"));
+        Assert.assertFalse(body.contains("Failure on tag-999"));
+        try {
+            mapper.readTree(body);
+            Assert.fail("The truncated body should not be valid JSON");
+        } catch (final JsonProcessingException e) {
+            // Expected
+        }
+    }
+
+    private JsonNode streamTags(final int nbTags, final int failingTag) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamTags(nbTags, failingTag, output);
+        return mapper.readTree(output.toByteArray());
+    }
+
+    private void streamTags(final int nbTags, final int failingTag, final ByteArrayOutputStream output) throws Exception {
+        final Iterable<Integer> tags = ContiguousSet.create(Range.closedOpen(0, nbTags), DiscreteDomain.integers());
+        final Response response = base.buildStreamingResponse(tags, new Function<Integer, TagJson>() {
+            @Override
+            public TagJson apply(final Integer input) {
+                if (input == failingTag) {
+                    throw new IllegalStateException("Failure on tag-" + input);
+                }
+                return new TagJson(UUID.randomUUID().toString(), ObjectType.ACCOUNT, UUID.randomUUID().toString(), "tag-" + input, null);
+            }
+        });
+        Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+
+        ((StreamingOutput) response.getEntity()).write(output);
+    }
+
     private static final class JaxRsResourceBaseTest extends JaxRsResourceBase {
 
         public JaxRsResourceBaseTest() {
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.util;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.util.ThreadContext;
+import org.joda.time.LocalDate;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner.Failure;
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner.Run;
+import org.killbill.billing.payment.api.InvoicePaymentControlProperties;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PaymentMethod;
+import org.killbill.billing.payment.api.PaymentOptions;
+import org.killbill.billing.payment.api.PaymentTransaction;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestBulkInvoicePaymentRunner extends JaxrsTestSuiteNoDB {
+
+    private static final int THREAD_NB = 8;
+    private static final int MAX_CONCURRENCY_PER_PLUGIN = 2;
+
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<UUID, Account>();
+    private final Map<UUID, Collection<Invoice>> unpaidInvoices = new ConcurrentHashMap<UUID, Collection<Invoice>>();
+    private final Map<UUID, String> pluginNames = new ConcurrentHashMap<UUID, String>();
+    // Outcome of the payment for each invoice (successful by default)
+    private final Map<UUID, TransactionStatus> paymentStatuses = new ConcurrentHashMap<UUID, TransactionStatus>();
+    private final Collection<UUID> paymentExceptions = new ConcurrentLinkedQueue<UUID>();
+    private final Map<String, AtomicInteger> inFlightPayments = new ConcurrentHashMap<String, AtomicInteger>();
+    private final Map<String, AtomicInteger> maxInFlightPayments = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private AccountUserApi accountUserApi;
+    private InvoiceUserApi invoiceApi;
+    private PaymentApi paymentApi;
+    private BulkInvoicePaymentRunner runner;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        // The account tasks carry over the caller subject
+        ThreadContext.bind(new DefaultSecurityManager());
+
+        accounts.clear();
+        unpaidInvoices.clear();
+        pluginNames.clear();
+        paymentStatuses.clear();
+        paymentExceptions.clear();
+        inFlightPayments.clear();
+        maxInFlightPayments.clear();
+
+        accountUserApi = Mockito.mock(AccountUserApi.class);
+        Mockito.when(accountUserApi.getAccountById(Mockito.<UUID>any(), Mockito.<TenantContext>any())).thenAnswer(new Answer<Account>() {
+            @Override
+            public Account answer(final InvocationOnMock invocation) throws Throwable {
+                return accounts.get(invocation.getArguments()[0]);
+            }
+        });
+
+        invoiceApi = Mockito.mock(InvoiceUserApi.class);
+        Mockito.when(invoiceApi.getUnpaidInvoicesByAccountId(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<TenantContext>any())).thenAnswer(new Answer<Collection<Invoice>>() {
+            @Override
+            public Collection<Invoice> answer(final InvocationOnMock invocation) throws Throwable {
+                final Collection<Invoice> invoices = unpaidInvoices.get(invocation.getArguments()[0]);
+                return invoices == null ? ImmutableList.<Invoice>of() : invoices;
+            }
+        });
+
+        paymentApi = Mockito.mock(PaymentApi.class);
+        Mockito.when(paymentApi.getPaymentMethodById(Mockito.<UUID>any(), Mockito.anyBoolean(), Mockito.anyBoolean(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<TenantContext>any())).thenAnswer(new Answer<PaymentMethod>() {
+            @Override
+            public PaymentMethod answer(final InvocationOnMock invocation) throws Throwable {
+                final PaymentMethod paymentMethod = Mockito.mock(PaymentMethod.class);
+                Mockito.when(paymentMethod.getPluginName()).thenReturn(pluginNames.get(invocation.getArguments()[0]));
+                return paymentMethod;
+            }
+        });
+        Mockito.when(paymentApi.createPurchaseWithPaymentControl(Mockito.<Account>any(), Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<BigDecimal>any(), Mockito.<Currency>any(),
+                                                                 Mockito.anyString(), Mockito.anyString(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<PaymentOptions>any(), Mockito.<CallContext>any()))
+               .thenAnswer(new Answer<Payment>() {
+                   @Override
+                   public Payment answer(final InvocationOnMock invocation) throws Throwable {
+                       final UUID paymentMethodId = (UUID) invocation.getArguments()[1];
+                       final UUID invoiceId = UUID.fromString(getPluginPropertyValue((Iterable<PluginProperty>) invocation.getArguments()[7], InvoicePaymentControlProperties.PROP_IPCD_INVOICE_ID));
+                       return pay(pluginNames.get(paymentMethodId), invoiceId);
+                   }
+               });
+
+        final PaymentConfig paymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(paymentConfig.getBulkPaymentThreadNb()).thenReturn(THREAD_NB);
+        Mockito.when(paymentConfig.getBulkPaymentMaxConcurrencyPerPlugin()).thenReturn(MAX_CONCURRENCY_PER_PLUGIN);
+
+        runner = new BulkInvoicePaymentRunner(accountUserApi, invoiceApi, paymentApi, clock, paymentConfig);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() throws Exception {
+        runner.stop();
+        ThreadContext.unbindSecurityManager();
+    }
+
+    @Test(groups = "fast", description = "Test the invoices of all the accounts are paid, with the invoice payment control properties")
+    public void testFanOut() throws Exception {
+        final List<UUID> accountIds = createAccounts(20, "pluginA", 2);
+
+        final Run run = waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+        Assert.assertEquals(run.getNbAccounts(), 20);
+        Assert.assertEquals(run.getProcessedAccounts(), 20);
+        Assert.assertEquals(run.getFailedAccounts(), 0);
+        Assert.assertEquals(run.getSucceededPayments(), 40);
+        Assert.assertEquals(run.getFailedPayments(), 0);
+        Assert.assertTrue(run.getFailures().isEmpty());
+        Assert.assertEquals(runner.getRun(run.getId(), callContext.getTenantId()), run);
+        Assert.assertNull(runner.getRun(run.getId(), UUID.randomUUID()));
+
+        for (final UUID accountId : accountIds) {
+            final Account account = accounts.get(accountId);
+            final UUID paymentMethodId = account.getPaymentMethodId();
+            for (final Invoice invoice : unpaidInvoices.get(accountId)) {
+                final UUID invoiceId = invoice.getId();
+                Mockito.verify(paymentApi).createPurchaseWithPaymentControl(Mockito.eq(account), Mockito.eq(paymentMethodId), (UUID) Mockito.isNull(), Mockito.eq(BigDecimal.TEN), Mockito.eq(Currency.USD),
+                                                                            Mockito.anyString(), Mockito.anyString(), Mockito.argThat(new PluginPropertiesMatcher(invoiceId)), Mockito.<PaymentOptions>any(), Mockito.eq(callContext));
+            }
+        }
+    }
+
+    @Test(groups = "fast", description = "Test the number of in-flight payments is capped per payment plugin")
+    public void testConcurrencyPerPlugin() throws Exception {
+        final List<UUID> accountIds = ImmutableList.<UUID>builder()
+                                                   .addAll(createAccounts(10, "pluginA", 1))
+                                                   .addAll(createAccounts(10, "pluginB", 1))
+                                                   .build();
+
+        final Run run = waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+        Assert.assertEquals(run.getSucceededPayments(), 20);
+
+        for (final String pluginName : ImmutableList.<String>of("pluginA", "pluginB")) {
+            Assert.assertTrue(maxInFlightPayments.get(pluginName).get() > 0);
+            Assert.assertTrue(maxInFlightPayments.get(pluginName).get() <= MAX_CONCURRENCY_PER_PLUGIN, pluginName + ": " + maxInFlightPayments.get(pluginName).get());
+        }
+    }
+
+    @Test(groups = "fast", description = "Test failed accounts and payments are accounted for")
+    public void testFailures() throws Exception {
+        final List<UUID> successfulAccountIds = createAccounts(3, "pluginA", 1);
+        // No default payment method
+        final List<UUID> accountIdsWithoutPaymentMethod = createAccounts(2, null, 1);
+        // First invoice failing, second one paid
+        final List<UUID> accountIdsWithFailedPayment = createAccounts(2, "pluginA", 2);
+        for (final UUID accountId : accountIdsWithFailedPayment) {
+            paymentStatuses.put(unpaidInvoices.get(accountId).iterator().next().getId(), TransactionStatus.PAYMENT_FAILURE);
+        }
+        final List<UUID> accountIdsWithPaymentException = createAccounts(1, "pluginA", 1);
+        paymentExceptions.add(unpaidInvoices.get(accountIdsWithPaymentException.get(0)).iterator().next().getId());
+
+        final List<UUID> accountIds = ImmutableList.<UUID>builder()
+                                                   .addAll(successfulAccountIds)
+                                                   .addAll(accountIdsWithoutPaymentMethod)
+                                                   .addAll(accountIdsWithFailedPayment)
+                                                   .addAll(accountIdsWithPaymentException)
+                                                   .build();
+        final Run run = waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+        Assert.assertEquals(run.getProcessedAccounts(), 8);
+        Assert.assertEquals(run.getFailedAccounts(), 5);
+        Assert.assertEquals(run.getSucceededPayments(), 5);
+        Assert.assertEquals(run.getFailedPayments(), 3);
+
+        final List<Failure> failures = run.getFailures();
+        Assert.assertEquals(failures.size(), 5);
+        for (final Failure failure : failures) {
+            if (accountIdsWithoutPaymentMethod.contains(failure.getAccountId())) {
+                Assert.assertNull(failure.getInvoiceId());
+            } else {
+                Assert.assertTrue(accountIdsWithFailedPayment.contains(failure.getAccountId()) || accountIdsWithPaymentException.contains(failure.getAccountId()));
+                Assert.assertEquals(failure.getInvoiceId(), unpaidInvoices.get(failure.getAccountId()).iterator().next().getId());
+            }
+        }
+
+        // Nothing is attempted for the accounts without payment method
+        for (final UUID accountId : accountIdsWithoutPaymentMethod) {
+            Mockito.verify(invoiceApi, Mockito.never()).consumeExstingCBAOnAccountWithUnpaidInvoices(accountId, callContext);
+        }
+    }
+
+    @Test(groups = "fast", description = "Test only the first failures of a run are kept")
+    public void testFailuresCap() throws Exception {
+        final int nbAccounts = BulkInvoicePaymentRunner.MAX_FAILURES_PER_RUN + 10;
+        final List<UUID> accountIds = createAccounts(nbAccounts, null, 1);
+
+        final Run run = waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+        Assert.assertEquals(run.getProcessedAccounts(), nbAccounts);
+        Assert.assertEquals(run.getFailedAccounts(), nbAccounts);
+        Assert.assertEquals(run.getFailures().size(), BulkInvoicePaymentRunner.MAX_FAILURES_PER_RUN);
+    }
+
+    @Test(groups = "fast", description = "Test the payments skip the CBA rebalancing only once the account CBA has been consumed")
+    public void testCBARebalancedAfterConsumingCBA() throws Exception {
+        final List<UUID> accountIds = createAccounts(1, "pluginA", 2);
+        final UUID accountId = accountIds.get(0);
+        final Account account = accounts.get(accountId);
+
+        waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+
+        final InOrder inOrder = Mockito.inOrder(invoiceApi, paymentApi);
+        inOrder.verify(invoiceApi).consumeExstingCBAOnAccountWithUnpaidInvoices(accountId, callContext);
+        inOrder.verify(invoiceApi).getUnpaidInvoicesByAccountId(Mockito.eq(accountId), Mockito.<LocalDate>any(), Mockito.eq(callContext));
+        inOrder.verify(paymentApi, Mockito.times(2)).createPurchaseWithPaymentControl(Mockito.eq(account), Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<BigDecimal>any(), Mockito.<Currency>any(),
+                                                                                      Mockito.anyString(), Mockito.anyString(), Mockito.argThat(new PluginPropertiesMatcher(null)), Mockito.<PaymentOptions>any(), Mockito.<CallContext>any());
+    }
+
+    @Test(groups = "fast", description = "Test no payment is made when the account CBA couldn't be consumed")
+    public void testCBAConsumptionFailure() throws Exception {
+        final List<UUID> accountIds = createAccounts(1, "pluginA", 1);
+        Mockito.doThrow(new IllegalStateException("CBA")).when(invoiceApi).consumeExstingCBAOnAccountWithUnpaidInvoices(accountIds.get(0), callContext);
+
+        final Run run = waitForCompletion(runner.start(accountIds, false, ImmutableList.<PluginProperty>of(), Mockito.mock(PaymentOptions.class), callContext));
+        Assert.assertEquals(run.getFailedAccounts(), 1);
+        Assert.assertEquals(run.getFailures().size(), 1);
+        Mockito.verify(paymentApi, Mockito.never()).createPurchaseWithPaymentControl(Mockito.<Account>any(), Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<BigDecimal>any(), Mockito.<Currency>any(),
+                                                                                     Mockito.anyString(), Mockito.anyString(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<PaymentOptions>any(), Mockito.<CallContext>any());
+    }
+
+    private Payment pay(final String pluginName, final UUID invoiceId) throws Exception {
+        final AtomicInteger inFlight = getCounter(inFlightPayments, pluginName);
+        final AtomicInteger maxInFlight = getCounter(maxInFlightPayments, pluginName);
+        final int nbInFlight = inFlight.incrementAndGet();
+        try {
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), nbInFlight));
+            }
+            // Slow gateway
+            Thread.sleep(20);
+
+            if (paymentExceptions.contains(invoiceId)) {
+                throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, "Gateway down");
+            }
+            final TransactionStatus status = paymentStatuses.containsKey(invoiceId) ? paymentStatuses.get(invoiceId) : TransactionStatus.SUCCESS;
+            final PaymentTransaction transaction = Mockito.mock(PaymentTransaction.class);
+            Mockito.when(transaction.getTransactionStatus()).thenReturn(status);
+            final Payment payment = Mockito.mock(Payment.class);
+            Mockito.when(payment.getId()).thenReturn(UUID.randomUUID());
+            Mockito.when(payment.getTransactions()).thenReturn(ImmutableList.<PaymentTransaction>of(transaction));
+            return payment;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private AtomicInteger getCounter(final Map<String, AtomicInteger> counters, final String pluginName) {
+        synchronized (counters) {
+            if (counters.get(pluginName) == null) {
+                counters.put(pluginName, new AtomicInteger());
+            }
+            return counters.get(pluginName);
+        }
+    }
+
+    private List<UUID> createAccounts(final int nbAccounts, final String pluginName, final int nbInvoicesPerAccount) {
+        final ImmutableList.Builder<UUID> accountIds = ImmutableList.<UUID>builder();
+        for (int i = 0; i < nbAccounts; i++) {
+            final UUID accountId = UUID.randomUUID();
+            final UUID paymentMethodId = pluginName == null ? null : UUID.randomUUID();
+            final Account account = Mockito.mock(Account.class);
+            Mockito.when(account.getId()).thenReturn(accountId);
+            Mockito.when(account.getPaymentMethodId()).thenReturn(paymentMethodId);
+            Mockito.when(account.getCurrency()).thenReturn(Currency.USD);
+            accounts.put(accountId, account);
+            if (paymentMethodId != null) {
+                pluginNames.put(paymentMethodId, pluginName);
+            }
+
+            final ImmutableList.Builder<Invoice> invoices = ImmutableList.<Invoice>builder();
+            for (int j = 0; j < nbInvoicesPerAccount; j++) {
+                final Invoice invoice = Mockito.mock(Invoice.class);
+                Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
+                Mockito.when(invoice.getBalance()).thenReturn(BigDecimal.TEN);
+                invoices.add(invoice);
+            }
+            unpaidInvoices.put(accountId, invoices.build());
+
+            accountIds.add(accountId);
+        }
+        return accountIds.build();
+    }
+
+    private Run waitForCompletion(final Run run) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 20000;
+        while (!run.isComplete() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(run.isComplete());
+        return run;
+    }
+
+    private static String getPluginPropertyValue(final Iterable<PluginProperty> properties, final String key) {
+        for (final PluginProperty property : properties) {
+            if (key.equals(property.getKey())) {
+                return String.valueOf(property.getValue());
+            }
+        }
+        return null;
+    }
+
+    // Matches the properties of the payment of the specified invoice (any invoice if null)
+    private static final class PluginPropertiesMatcher extends org.mockito.ArgumentMatcher<Iterable<PluginProperty>> {
+
+        private final UUID invoiceId;
+
+        private PluginPropertiesMatcher(final UUID invoiceId) {
+            this.invoiceId = invoiceId;
+        }
+
+        @Override
+        public boolean matches(final Object argument) {
+            final Iterable<PluginProperty> properties = (Iterable<PluginProperty>) argument;
+            final String paidInvoiceId = getPluginPropertyValue(properties, InvoicePaymentControlProperties.PROP_IPCD_INVOICE_ID);
+            return "true".equals(getPluginPropertyValue(properties, InvoicePaymentControlProperties.PROP_IPCD_CBA_REBALANCED)) &&
+                   paidInvoiceId != null &&
+                   (invoiceId == null || invoiceId.toString().equals(paidInvoiceId));
+        }
+    }
+}
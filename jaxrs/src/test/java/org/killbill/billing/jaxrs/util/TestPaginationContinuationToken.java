@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.util;
+
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.io.BaseEncoding;
+
+public class TestPaginationContinuationToken extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testRoundTrip() throws Exception {
+        Assert.assertEquals(PaginationContinuationToken.decode(PaginationContinuationToken.FIRST_PAGE), DefaultPaginationSqlDaoHelper.KEYSET_FIRST_PAGE);
+
+        final Long keysetOffset = DefaultPaginationSqlDaoHelper.toKeysetToken(123456789L);
+        final String token = PaginationContinuationToken.encode(keysetOffset);
+        // The token doesn't leak the record id as is and is safe in URIs
+        Assert.assertFalse(token.contains("123456789"));
+        Assert.assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        Assert.assertEquals(PaginationContinuationToken.decode(token), keysetOffset);
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidTokens() throws Exception {
+        final BaseEncoding encoding = BaseEncoding.base64Url().omitPadding();
+        for (final String token : new String[]{"-12",
+                                               "not base64!",
+                                               encoding.encode("12".getBytes("UTF-8")),
+                                               encoding.encode("2:12".getBytes("UTF-8")),
+                                               encoding.encode("1:abc".getBytes("UTF-8")),
+                                               encoding.encode("1:0".getBytes("UTF-8")),
+                                               encoding.encode("1:-12".getBytes("UTF-8"))}) {
+            try {
+                PaginationContinuationToken.decode(token);
+                Assert.fail("Token " + token + " should be rejected");
+            } catch (final IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().startsWith("Invalid continuation token"));
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.killbill.billing.catalog.glue.CatalogModule;
 import org.killbill.billing.entitlement.glue.DefaultEntitlementModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.subscription.glue.DefaultSubscriptionModule;
+import org.killbill.billing.util.glue.MemoryGlobalLockerModule;
 import org.killbill.billing.util.glue.NonEntityDaoModule;
 import org.killbill.billing.util.glue.TagStoreModule;
 
@@ -44,6 +45,7 @@ public class TestJunctionModuleWithEmbeddedDB extends TestJunctionModule {
         install(new DefaultAccountModule(configSource));
         install(new DefaultEntitlementModule(configSource));
         install(new DefaultSubscriptionModule(configSource));
+        install(new MemoryGlobalLockerModule(configSource));
         install(new TagStoreModule(configSource));
 
         bind(TestApiListener.class).asEagerSingleton();
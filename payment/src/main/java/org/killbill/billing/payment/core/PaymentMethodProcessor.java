@@ -71,15 +71,19 @@ import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
+import static org.killbill.billing.payment.glue.PaymentModule.PAGINATION_EXECUTOR_NAMED;
 import static org.killbill.billing.payment.glue.PaymentModule.PLUGIN_EXECUTOR_NAMED;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPlugins;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.verifyPluginPaginationOffset;
 
 public class PaymentMethodProcessor extends ProcessorBase {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentMethodProcessor.class);
 
     private final PluginDispatcher<UUID> uuidPluginNotificationDispatcher;
+    private final ExecutorService paginationExecutor;
+    private final long paginationTimeoutMs;
 
     @Inject
     public PaymentMethodProcessor(final OSGIServiceRegistration<PaymentPluginApi> pluginRegistry,
@@ -90,11 +94,14 @@ public class PaymentMethodProcessor extends ProcessorBase {
                                   final GlobalLocker locker,
                                   final PaymentConfig paymentConfig,
                                   @Named(PLUGIN_EXECUTOR_NAMED) final ExecutorService executor,
+                                  @Named(PAGINATION_EXECUTOR_NAMED) final ExecutorService paginationExecutor,
                                   final InternalCallContextFactory internalCallContextFactory,
                                   final Clock clock) {
         super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, executor, internalCallContextFactory, invoiceApi, clock);
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
         this.uuidPluginNotificationDispatcher = new PluginDispatcher<UUID>(paymentPluginTimeoutSec, executor);
+        this.paginationExecutor = paginationExecutor;
+        this.paginationTimeoutMs = paymentConfig.getPaymentPluginPaginationTimeout().getMillis();
     }
 
     public UUID addPaymentMethod(final String paymentMethodExternalKey, final String paymentPluginServiceName, final Account account,
@@ -185,6 +192,8 @@ public class PaymentMethodProcessor extends ProcessorBase {
         return getEntityPaginationFromPlugins(getAvailablePlugins(),
                                               offset,
                                               limit,
+                                              paginationExecutor,
+                                              paginationTimeoutMs,
                                               new EntityPaginationBuilder<PaymentMethod, PaymentApiException>() {
                                                   @Override
                                                   public Pagination<PaymentMethod> build(final Long offset, final Long limit, final String pluginName) throws PaymentApiException {
@@ -195,6 +204,8 @@ public class PaymentMethodProcessor extends ProcessorBase {
     }
 
     public Pagination<PaymentMethod> getPaymentMethods(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        verifyPluginPaginationOffset(offset);
+
         final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
 
         return getEntityPagination(limit,
@@ -228,6 +239,8 @@ public class PaymentMethodProcessor extends ProcessorBase {
         return getEntityPaginationFromPlugins(getAvailablePlugins(),
                                               offset,
                                               limit,
+                                              paginationExecutor,
+                                              paginationTimeoutMs,
                                               new EntityPaginationBuilder<PaymentMethod, PaymentApiException>() {
                                                   @Override
                                                   public Pagination<PaymentMethod> build(final Long offset, final Long limit, final String pluginName) throws PaymentApiException {
@@ -239,6 +252,8 @@ public class PaymentMethodProcessor extends ProcessorBase {
 
     public Pagination<PaymentMethod> searchPaymentMethods(final String searchKey, final Long offset, final Long limit, final String pluginName,
                                                           final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        verifyPluginPaginationOffset(offset);
+
         if (withPluginInfo) {
             final PaymentPluginApi pluginApi = getPaymentPluginApi(pluginName);
 
@@ -60,6 +60,7 @@ import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
@@ -76,15 +77,19 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.inject.name.Named;
 
+import static org.killbill.billing.payment.glue.PaymentModule.PAGINATION_EXECUTOR_NAMED;
 import static org.killbill.billing.payment.glue.PaymentModule.PLUGIN_EXECUTOR_NAMED;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPlugins;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.verifyPluginPaginationOffset;
 
 public class PaymentProcessor extends ProcessorBase {
 
     private static final ImmutableList<PluginProperty> PLUGIN_PROPERTIES = ImmutableList.<PluginProperty>of();
 
     private final PaymentAutomatonRunner paymentAutomatonRunner;
+    private final ExecutorService paginationExecutor;
+    private final long paginationTimeoutMs;
 
     private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
 
@@ -97,10 +102,14 @@ public class PaymentProcessor extends ProcessorBase {
                             final InternalCallContextFactory internalCallContextFactory,
                             final GlobalLocker locker,
                             @Named(PLUGIN_EXECUTOR_NAMED) final ExecutorService executor,
+                            @Named(PAGINATION_EXECUTOR_NAMED) final ExecutorService paginationExecutor,
+                            final PaymentConfig paymentConfig,
                             final PaymentAutomatonRunner paymentAutomatonRunner,
                             final Clock clock) {
         super(pluginRegistry, accountUserApi, paymentDao, tagUserApi, locker, executor, internalCallContextFactory, invoiceApi, clock);
         this.paymentAutomatonRunner = paymentAutomatonRunner;
+        this.paginationExecutor = paginationExecutor;
+        this.paginationTimeoutMs = paymentConfig.getPaymentPluginPaginationTimeout().getMillis();
     }
 
     public Payment createAuthorization(final boolean isApiPayment, @Nullable final UUID attemptId, final Account account, @Nullable final UUID paymentMethodId, @Nullable final UUID paymentId, final BigDecimal amount, final Currency currency,
@@ -209,6 +218,8 @@ public class PaymentProcessor extends ProcessorBase {
         return getEntityPaginationFromPlugins(getAvailablePlugins(),
                                               offset,
                                               limit,
+                                              paginationExecutor,
+                                              paginationTimeoutMs,
                                               new EntityPaginationBuilder<Payment, PaymentApiException>() {
                                                   @Override
                                                   public Pagination<Payment> build(final Long offset, final Long limit, final String pluginName) throws PaymentApiException {
@@ -219,6 +230,8 @@ public class PaymentProcessor extends ProcessorBase {
     }
 
     public Pagination<Payment> getPayments(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        verifyPluginPaginationOffset(offset);
+
         final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
 
         return getEntityPagination(limit,
@@ -243,6 +256,8 @@ public class PaymentProcessor extends ProcessorBase {
         return getEntityPaginationFromPlugins(getAvailablePlugins(),
                                               offset,
                                               limit,
+                                              paginationExecutor,
+                                              paginationTimeoutMs,
                                               new EntityPaginationBuilder<Payment, PaymentApiException>() {
                                                   @Override
                                                   public Pagination<Payment> build(final Long offset, final Long limit, final String pluginName) throws PaymentApiException {
@@ -253,6 +268,8 @@ public class PaymentProcessor extends ProcessorBase {
     }
 
     public Pagination<Payment> searchPayments(final String searchKey, final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        verifyPluginPaginationOffset(offset);
+
         if (withPluginInfo) {
             final PaymentPluginApi pluginApi = getPaymentPluginApi(pluginName);
 
@@ -17,11 +17,14 @@
 
 package org.killbill.billing.payment.core.sm;
 
+import javax.annotation.Nullable;
+
 import org.killbill.automaton.OperationResult;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.profiling.LatencyHistograms;
 import org.killbill.commons.locker.GlobalLocker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,8 +35,9 @@ public class CaptureOperation extends PaymentOperation {
 
     public CaptureOperation(final PaymentAutomatonDAOHelper daoHelper,
                             final GlobalLocker locker, final PluginDispatcher<OperationResult> paymentPluginDispatcher,
-                            final PaymentStateContext paymentStateContext) throws PaymentApiException {
-        super(locker, daoHelper, paymentPluginDispatcher, paymentStateContext);
+                            final PaymentStateContext paymentStateContext,
+                            @Nullable final LatencyHistograms latencyHistograms) throws PaymentApiException {
+        super(locker, daoHelper, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
     }
 
     @Override
@@ -19,6 +19,8 @@ package org.killbill.billing.payment.core.sm;
 
 import java.math.BigDecimal;
 
+import javax.annotation.Nullable;
+
 import org.killbill.automaton.OperationResult;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.TransactionType;
@@ -28,6 +30,7 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.payment.provider.DefaultNoOpPaymentInfoPlugin;
+import org.killbill.billing.util.profiling.LatencyHistograms;
 import org.killbill.commons.locker.GlobalLocker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +41,9 @@ public class ChargebackOperation extends PaymentOperation {
 
     public ChargebackOperation(final PaymentAutomatonDAOHelper daoHelper,
                                final GlobalLocker locker, final PluginDispatcher<OperationResult> paymentPluginDispatcher,
-                               final PaymentStateContext paymentStateContext) throws PaymentApiException {
-        super(locker, daoHelper, paymentPluginDispatcher, paymentStateContext);
+                               final PaymentStateContext paymentStateContext,
+                               @Nullable final LatencyHistograms latencyHistograms) throws PaymentApiException {
+        super(locker, daoHelper, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
     }
 
     @Override
@@ -56,6 +56,9 @@ public class PaymentAutomatonDAOHelper {
     private final OSGIServiceRegistration<PaymentPluginApi> pluginRegistry;
     private final PersistentBus eventBus;
 
+    // Name of the plugin returned by getPaymentProviderPlugin
+    private String pluginName;
+
     // Used to build new payments and transactions
     public PaymentAutomatonDAOHelper(final PaymentStateContext paymentStateContext,
                                      final DateTime utcNow, final PaymentDao paymentDao,
@@ -133,7 +136,13 @@ public class PaymentAutomatonDAOHelper {
         if (methodDao == null) {
             throw new PaymentApiException(ErrorCode.PAYMENT_NO_SUCH_PAYMENT_METHOD, paymentMethodId);
         }
-        return getPaymentPluginApi(methodDao.getPluginName());
+        pluginName = methodDao.getPluginName();
+        return getPaymentPluginApi(pluginName);
+    }
+
+    @Nullable
+    public String getPluginName() {
+        return pluginName;
     }
 
     public PaymentModelDao getPayment() throws PaymentApiException {
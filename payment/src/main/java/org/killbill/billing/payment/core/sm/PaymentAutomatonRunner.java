@@ -53,6 +53,7 @@ import org.killbill.billing.payment.invoice.InvoicePaymentRoutingPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.billing.util.profiling.LatencyHistograms;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
@@ -75,6 +76,9 @@ public class PaymentAutomatonRunner {
     protected final Clock clock;
     private final PersistentBus eventBus;
 
+    // Only bound when the ProfilingModule is installed
+    private volatile LatencyHistograms latencyHistograms;
+
     @Inject
     public PaymentAutomatonRunner(@javax.inject.Named(PaymentModule.STATE_MACHINE_PAYMENT) final StateMachineConfig stateMachineConfig,
                                   final PaymentConfig paymentConfig,
@@ -97,6 +101,11 @@ public class PaymentAutomatonRunner {
 
     }
 
+    @com.google.inject.Inject(optional = true)
+    public void setLatencyHistograms(final LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
     public UUID run(final boolean isApiPayment, final TransactionType transactionType, final Account account, @Nullable final UUID attemptId, @Nullable final UUID paymentMethodId,
                     @Nullable final UUID paymentId, @Nullable final UUID transactionId, @Nullable final String paymentExternalKey, final String paymentTransactionExternalKey,
                     @Nullable final BigDecimal amount, @Nullable final Currency currency,
@@ -133,37 +142,37 @@ public class PaymentAutomatonRunner {
         final EnteringStateCallback enteringStateCallback;
         switch (transactionType) {
             case PURCHASE:
-                operationCallback = new PurchaseOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new PurchaseOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new PurchaseInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new PurchaseCompleted(daoHelper, paymentStateContext);
                 break;
             case AUTHORIZE:
-                operationCallback = new AuthorizeOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new AuthorizeOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new AuthorizeInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new AuthorizeCompleted(daoHelper, paymentStateContext);
                 break;
             case CAPTURE:
-                operationCallback = new CaptureOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new CaptureOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new CaptureInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new CaptureCompleted(daoHelper, paymentStateContext);
                 break;
             case VOID:
-                operationCallback = new VoidOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new VoidOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new VoidInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new VoidCompleted(daoHelper, paymentStateContext);
                 break;
             case REFUND:
-                operationCallback = new RefundOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new RefundOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new RefundInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new RefundCompleted(daoHelper, paymentStateContext);
                 break;
             case CREDIT:
-                operationCallback = new CreditOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new CreditOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new CreditInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new CreditCompleted(daoHelper, paymentStateContext);
                 break;
             case CHARGEBACK:
-                operationCallback = new ChargebackOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext);
+                operationCallback = new ChargebackOperation(daoHelper, locker, paymentPluginDispatcher, paymentStateContext, latencyHistograms);
                 leavingStateCallback = new ChargebackInitiated(daoHelper, paymentStateContext);
                 enteringStateCallback = new ChargebackCompleted(daoHelper, paymentStateContext);
                 break;
@@ -22,6 +22,8 @@ import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
+
 import org.killbill.automaton.Operation.OperationCallback;
 import org.killbill.automaton.OperationException;
 import org.killbill.automaton.OperationResult;
@@ -38,8 +40,11 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.payment.provider.DefaultNoOpPaymentInfoPlugin;
+import org.killbill.billing.util.profiling.LatencyHistograms;
+import org.killbill.billing.util.profiling.LatencyHistograms.Sample;
 import org.killbill.commons.locker.GlobalLocker;
 import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
@@ -50,14 +55,24 @@ import com.google.common.collect.Iterables;
 public abstract class PaymentOperation extends OperationCallbackBase<PaymentTransactionInfoPlugin, PaymentPluginApiException> implements OperationCallback {
 
     protected final PaymentAutomatonDAOHelper daoHelper;
+    private final LatencyHistograms latencyHistograms;
     protected PaymentPluginApi plugin;
 
     protected PaymentOperation(final GlobalLocker locker,
                                final PaymentAutomatonDAOHelper daoHelper,
                                final PluginDispatcher<OperationResult> paymentPluginDispatcher,
                                final PaymentStateContext paymentStateContext) {
+        this(locker, daoHelper, paymentPluginDispatcher, paymentStateContext, null);
+    }
+
+    protected PaymentOperation(final GlobalLocker locker,
+                               final PaymentAutomatonDAOHelper daoHelper,
+                               final PluginDispatcher<OperationResult> paymentPluginDispatcher,
+                               final PaymentStateContext paymentStateContext,
+                               @Nullable final LatencyHistograms latencyHistograms) {
         super(locker, paymentPluginDispatcher, paymentStateContext);
         this.daoHelper = daoHelper;
+        this.latencyHistograms = latencyHistograms;
     }
 
     @Override
@@ -166,7 +181,13 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
             // about running through the state machine to bring the transaction/payment into a new state.
             //
             if (paymentStateContext.getOverridePluginOperationResult() == null) {
-                final PaymentTransactionInfoPlugin paymentInfoPlugin = doCallSpecificOperationCallback();
+                final PaymentTransactionInfoPlugin paymentInfoPlugin;
+                final Sample sample = latencyHistograms == null ? null : latencyHistograms.start(ProfilingFeatureType.PLUGIN, daoHelper.getPluginName(), paymentStateContext.getTransactionType().name());
+                try {
+                    paymentInfoPlugin = doCallSpecificOperationCallback();
+                } finally {
+                    LatencyHistograms.stop(sample);
+                }
                 // Throws if plugin is  ot correctly implemented (e.g returns null result, values,..)
                 sanityOnPaymentInfoPlugin(paymentInfoPlugin);
 
@@ -48,6 +48,7 @@ import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Pagina
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.profiling.LatencyHistograms;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.clock.Clock;
@@ -78,6 +79,12 @@ public class DefaultPaymentDao implements PaymentDao {
         this.clock = clock;
     }
 
+    // Only bound when the ProfilingModule is installed
+    @com.google.inject.Inject(optional = true)
+    public void setLatencyHistograms(final LatencyHistograms latencyHistograms) {
+        transactionalSqlDao.setLatencyHistograms(latencyHistograms);
+    }
+
     @Override
     public PaymentAttemptModelDao getPaymentAttempt(final UUID attemptId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<PaymentAttemptModelDao>() {
@@ -18,6 +18,11 @@
 
 package org.killbill.billing.payment.glue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PaymentService;
 import org.killbill.billing.payment.bus.InvoiceHandler;
@@ -34,18 +39,23 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
+import static org.killbill.billing.payment.glue.PaymentModule.PAGINATION_EXECUTOR_NAMED;
+
 public class DefaultPaymentService implements PaymentService {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultPaymentService.class);
 
     public static final String SERVICE_NAME = "payment-service";
 
+    private static final int TERMINATION_TIMEOUT_SEC = 5;
+
     private final InvoiceHandler invoiceHandler;
     private final PaymentTagHandler tagHandler;
     private final PersistentBus eventBus;
     private final PaymentApi api;
     private final DefaultRetryService retryService;
     private final Janitor janitor;
+    private final ExecutorService paginationExecutor;
 
     @Inject
     public DefaultPaymentService(final InvoiceHandler invoiceHandler,
@@ -53,13 +63,15 @@ public class DefaultPaymentService implements PaymentService {
                                  final PaymentApi api,
                                  final DefaultRetryService retryService,
                                  final PersistentBus eventBus,
-                                 final Janitor janitor) {
+                                 final Janitor janitor,
+                                 @Named(PAGINATION_EXECUTOR_NAMED) final ExecutorService paginationExecutor) {
         this.invoiceHandler = invoiceHandler;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.api = api;
         this.retryService = retryService;
         this.janitor = janitor;
+        this.paginationExecutor = paginationExecutor;
     }
 
     @Override
@@ -94,6 +106,21 @@ public class DefaultPaymentService implements PaymentService {
         }
         retryService.stop();
         janitor.stop();
+        stopPaginationExecutor();
+    }
+
+    private void stopPaginationExecutor() {
+        // Let in-flight searches complete (callers give up on them after the pagination timeout anyways)
+        paginationExecutor.shutdown();
+        try {
+            final boolean success = paginationExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
+            if (!success) {
+                log.warn("Pagination executor failed to complete termination within " + TERMINATION_TIMEOUT_SEC + "sec");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Pagination executor stop sequence got interrupted");
+        }
     }
 
     @Override
@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Provider;
@@ -69,9 +70,11 @@ import com.google.inject.name.Names;
 public class PaymentModule extends KillBillModule {
 
     private static final String PLUGIN_THREAD_PREFIX = "Plugin-th-";
+    private static final String PAGINATION_THREAD_PREFIX = "Pagination-th-";
 
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
+    public static final String PAGINATION_EXECUTOR_NAMED = "PaginationExecutor";
     public static final String RETRYABLE_NAMED = "Retryable";
 
     public static final String STATE_MACHINE_RETRY = "RetryStateMachine";
@@ -158,6 +161,23 @@ public class PaymentModule extends KillBillModule {
                                                                                               }
                                                                                           });
         bind(ExecutorService.class).annotatedWith(Names.named(PLUGIN_EXECUTOR_NAMED)).toInstance(pluginExecutorService);
+
+        // Separate pool, so that searches across plugins can't starve payment operations
+        // Bounded queue: when saturated, searches are run in the calling thread instead, which throttles the callers (it is shut down by DefaultPaymentService)
+        final ExecutorService paginationExecutorService = new WithProfilingThreadPoolExecutor(paymentConfig.getPaymentPluginPaginationThreadNb(), paymentConfig.getPaymentPluginPaginationThreadNb(),
+                                                                                              0L, TimeUnit.MILLISECONDS,
+                                                                                              new LinkedBlockingQueue<Runnable>(paymentConfig.getPaymentPluginPaginationQueueSize()),
+                                                                                              new ThreadFactory() {
+
+                                                                                                  @Override
+                                                                                                  public Thread newThread(final Runnable r) {
+                                                                                                      final Thread th = new Thread(r);
+                                                                                                      th.setName(PAGINATION_THREAD_PREFIX + th.getId());
+                                                                                                      return th;
+                                                                                                  }
+                                                                                              },
+                                                                                              new ThreadPoolExecutor.CallerRunsPolicy());
+        bind(ExecutorService.class).annotatedWith(Names.named(PAGINATION_EXECUTOR_NAMED)).toInstance(paginationExecutorService);
         bind(PaymentProcessor.class).asEagerSingleton();
         bind(PluginRoutingPaymentProcessor.class).asEagerSingleton();
         bind(PaymentGatewayProcessor.class).asEagerSingleton();
@@ -38,6 +38,7 @@ import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoicePayment;
+import org.killbill.billing.payment.api.InvoicePaymentControlProperties;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
@@ -81,9 +82,11 @@ public final class InvoicePaymentRoutingPluginApi implements PaymentRoutingPlugi
 
     /* Don't change value String for properties as they are referenced from jaxrs without the constants which are not accessible */
     public static final String PLUGIN_NAME = "__INVOICE_PAYMENT_CONTROL_PLUGIN__";
-    public static final String PROP_IPCD_INVOICE_ID = "IPCD_INVOICE_ID";
+    public static final String PROP_IPCD_INVOICE_ID = InvoicePaymentControlProperties.PROP_IPCD_INVOICE_ID;
     public static final String PROP_IPCD_REFUND_IDS_WITH_AMOUNT_KEY = "IPCD_REFUND_IDS_AMOUNTS";
     public static final String PROP_IPCD_REFUND_WITH_ADJUSTMENTS = "IPCD_REFUND_WITH_ADJUSTMENTS";
+    // Set by server-side callers which already rebalanced the account CBA prior to paying its invoices (e.g. bulk payment runs)
+    public static final String PROP_IPCD_CBA_REBALANCED = InvoicePaymentControlProperties.PROP_IPCD_CBA_REBALANCED;
 
     private final PaymentConfig paymentConfig;
     private final InvoiceInternalApi invoiceApi;
@@ -231,7 +234,9 @@ public final class InvoicePaymentRoutingPluginApi implements PaymentRoutingPlugi
 
         try {
             final UUID invoiceId = getInvoiceId(paymentRoutingPluginContext);
-            final Invoice invoice = rebalanceAndGetInvoice(invoiceId, internalContext);
+            final PluginProperty cbaRebalancedProp = getPluginProperty(paymentRoutingPluginContext.getPluginProperties(), PROP_IPCD_CBA_REBALANCED);
+            final boolean isCBARebalanced = cbaRebalancedProp != null ? Boolean.valueOf((String) cbaRebalancedProp.getValue()) : false;
+            final Invoice invoice = isCBARebalanced ? invoiceApi.getInvoiceById(invoiceId, internalContext) : rebalanceAndGetInvoice(invoiceId, internalContext);
             final BigDecimal requestedAmount = validateAndComputePaymentAmount(invoice, paymentRoutingPluginContext.getAmount(), paymentRoutingPluginContext.isApiPayment());
 
             final boolean isAborted = requestedAmount.compareTo(BigDecimal.ZERO) == 0;
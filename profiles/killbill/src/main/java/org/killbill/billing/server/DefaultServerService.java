@@ -21,6 +21,7 @@ package org.killbill.billing.server;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.killbill.billing.jaxrs.util.BulkInvoicePaymentRunner;
 import org.killbill.billing.lifecycle.glue.BusModule;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
@@ -38,11 +39,15 @@ public class DefaultServerService implements ServerService {
 
     private final PersistentBus bus;
     private final PushNotificationListener pushNotificationListener;
+    private final BulkInvoicePaymentRunner bulkInvoicePaymentRunner;
 
     @Inject
-    public DefaultServerService(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus bus, final PushNotificationListener pushNotificationListener) {
+    public DefaultServerService(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus bus,
+                                final PushNotificationListener pushNotificationListener,
+                                final BulkInvoicePaymentRunner bulkInvoicePaymentRunner) {
         this.bus = bus;
         this.pushNotificationListener = pushNotificationListener;
+        this.bulkInvoicePaymentRunner = bulkInvoicePaymentRunner;
     }
 
     @Override
@@ -67,4 +72,9 @@ public class DefaultServerService implements ServerService {
             log.warn("Failed to stop Server service :", e);
         }
     }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stopBulkInvoicePayments() {
+        bulkInvoicePaymentRunner.stop();
+    }
 }
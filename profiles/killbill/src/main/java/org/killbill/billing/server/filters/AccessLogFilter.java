@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.server.filters;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.HttpHeaders;
+
+import org.killbill.billing.util.config.JaxrsConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Singleton;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Sampled access log: one line per request with the route, status, latency and request/response sizes.
+ * <p/>
+ * Entities are never buffered, the response size is counted as the bytes go through. Server errors are always logged.
+ * The logger is expected to be backed by an asynchronous appender (see logback.xml).
+ */
+@Singleton
+public class AccessLogFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogFilter.class);
+
+    @VisibleForTesting
+    static final String START_NANOS_PROPERTY = AccessLogFilter.class.getName() + ".startNanos";
+
+    private final double samplingRate;
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    @Inject
+    public AccessLogFilter(final JaxrsConfig jaxrsConfig) {
+        this(jaxrsConfig.getAccessLogSamplingRate());
+    }
+
+    @VisibleForTesting
+    AccessLogFilter(final double samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    @Override
+    public ContainerRequest filter(final ContainerRequest request) {
+        if (log.isInfoEnabled()) {
+            request.getProperties().put(START_NANOS_PROPERTY, System.nanoTime());
+        }
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(final ContainerRequest request, final ContainerResponse response) {
+        final Long startNanos = (Long) request.getProperties().get(START_NANOS_PROPERTY);
+        if (startNanos != null && shouldLog(response.getStatus())) {
+            response.setContainerResponseWriter(new AccessLogResponseWriter(response.getContainerResponseWriter(), request, response.getStatus(), startNanos));
+        }
+        return response;
+    }
+
+    @VisibleForTesting
+    boolean shouldLog(final int status) {
+        return status >= 500 ||
+               samplingRate >= 1 ||
+               (samplingRate > 0 && random.get().nextDouble() < samplingRate);
+    }
+
+    private static final class AccessLogResponseWriter implements ContainerResponseWriter {
+
+        private final ContainerResponseWriter containerResponseWriter;
+        private final ContainerRequest request;
+        private final int status;
+        private final long startNanos;
+
+        private CountingOutputStream countingOutputStream;
+
+        private AccessLogResponseWriter(final ContainerResponseWriter containerResponseWriter, final ContainerRequest request, final int status, final long startNanos) {
+            this.containerResponseWriter = containerResponseWriter;
+            this.request = request;
+            this.status = status;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public OutputStream writeStatusAndHeaders(final long contentLength, final ContainerResponse response) throws IOException {
+            countingOutputStream = new CountingOutputStream(containerResponseWriter.writeStatusAndHeaders(contentLength, response));
+            return countingOutputStream;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                containerResponseWriter.finish();
+            } finally {
+                final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                log.info(toAccessLogLine(request, status, latencyMillis, countingOutputStream == null ? 0 : countingOutputStream.count));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static String toAccessLogLine(final ContainerRequest request, final int status, final long latencyMillis, final long responseLength) {
+        final String requestLength = request.getHeaderValue(HttpHeaders.CONTENT_LENGTH);
+        return String.format("%s %s %d %dms in=%s out=%d",
+                             request.getMethod(),
+                             request.getRequestUri().getRawPath(),
+                             status,
+                             latencyMillis,
+                             requestLength == null ? "-" : requestLength,
+                             responseLength);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
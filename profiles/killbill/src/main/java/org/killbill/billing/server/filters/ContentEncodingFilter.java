@@ -0,0 +1,255 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.server.filters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.core.HttpHeaders;
+
+import org.killbill.billing.util.config.JaxrsConfig;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Singleton;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Negotiates gzip or deflate response encoding from the Accept-Encoding header.
+ * <p/>
+ * Unlike Jersey's GZIPContentEncodingFilter, small entities are sent as-is: the entity is buffered up to the
+ * configured threshold, and only once that threshold is crossed are the headers committed and the remaining
+ * bytes streamed through the compressor.
+ */
+@Singleton
+public class ContentEncodingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int threshold;
+
+    @Inject
+    public ContentEncodingFilter(final JaxrsConfig jaxrsConfig) {
+        this(jaxrsConfig.getCompressionThreshold());
+    }
+
+    @VisibleForTesting
+    ContentEncodingFilter(final int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public ContainerRequest filter(final ContainerRequest request) {
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(final ContainerRequest request, final ContainerResponse response) {
+        if (threshold < 0 ||
+            response.getEntity() == null ||
+            response.getStatus() == 204 ||
+            response.getStatus() == 304 ||
+            response.getHttpHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return response;
+        }
+
+        response.getHttpHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        final String encoding = negotiateEncoding(request.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding != null) {
+            response.setContainerResponseWriter(new ContentEncodingResponseWriter(response.getContainerResponseWriter(), encoding, threshold));
+        }
+        return response;
+    }
+
+    // Returns the preferred supported encoding (gzip wins ties), or null if the client only accepts identity
+    @VisibleForTesting
+    static String negotiateEncoding(@Nullable final List<String> acceptEncodingHeaders) {
+        if (acceptEncodingHeaders == null) {
+            return null;
+        }
+
+        Double gzipQuality = null;
+        Double deflateQuality = null;
+        Double wildcardQuality = null;
+        for (final String acceptEncodingHeader : acceptEncodingHeaders) {
+            for (final String codingAndParameters : acceptEncodingHeader.split(",")) {
+                final String[] parts = codingAndParameters.split(";");
+                final String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                final double quality = parseQuality(parts);
+                if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                    gzipQuality = quality;
+                } else if (DEFLATE.equals(coding)) {
+                    deflateQuality = quality;
+                } else if ("*".equals(coding)) {
+                    wildcardQuality = quality;
+                }
+            }
+        }
+
+        final double gzip = gzipQuality != null ? gzipQuality : (wildcardQuality != null ? wildcardQuality : 0);
+        final double deflate = deflateQuality != null ? deflateQuality : (wildcardQuality != null ? wildcardQuality : 0);
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        } else if (deflate > 0) {
+            return DEFLATE;
+        } else {
+            return null;
+        }
+    }
+
+    private static double parseQuality(final String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (final NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static final class ContentEncodingResponseWriter implements ContainerResponseWriter {
+
+        private final ContainerResponseWriter containerResponseWriter;
+        private final String encoding;
+        private final int threshold;
+
+        private ContentEncodingOutputStream contentEncodingOutputStream;
+
+        private ContentEncodingResponseWriter(final ContainerResponseWriter containerResponseWriter, final String encoding, final int threshold) {
+            this.containerResponseWriter = containerResponseWriter;
+            this.encoding = encoding;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public OutputStream writeStatusAndHeaders(final long contentLength, final ContainerResponse response) throws IOException {
+            if (contentLength >= 0 && contentLength < threshold) {
+                // Not worth compressing
+                return containerResponseWriter.writeStatusAndHeaders(contentLength, response);
+            }
+
+            contentEncodingOutputStream = new ContentEncodingOutputStream(containerResponseWriter, response, encoding, threshold);
+            return contentEncodingOutputStream;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (contentEncodingOutputStream != null) {
+                contentEncodingOutputStream.close();
+            }
+            containerResponseWriter.finish();
+        }
+    }
+
+    @VisibleForTesting
+    static final class ContentEncodingOutputStream extends OutputStream {
+
+        private final ContainerResponseWriter containerResponseWriter;
+        private final ContainerResponse response;
+        private final String encoding;
+        private final int threshold;
+
+        // Holds the entity until we know whether it is large enough to be compressed
+        private ByteArrayOutputStream buffer;
+        private OutputStream out;
+        private boolean closed;
+
+        ContentEncodingOutputStream(final ContainerResponseWriter containerResponseWriter, final ContainerResponse response, final String encoding, final int threshold) {
+            this.containerResponseWriter = containerResponseWriter;
+            this.response = response;
+            this.encoding = encoding;
+            this.threshold = threshold;
+            this.buffer = new ByteArrayOutputStream(Math.min(Math.max(threshold, 32), BUFFER_SIZE));
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (out == null && buffer.size() + 1 < threshold) {
+                buffer.write(b);
+                return;
+            }
+            startEncoding();
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (out == null && buffer.size() + len < threshold) {
+                buffer.write(b, off, len);
+                return;
+            }
+            startEncoding();
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Flushing while buffering would force us to commit the headers too early
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (out != null) {
+                // Writes the trailer and releases the native deflater
+                out.close();
+            } else {
+                // The whole entity stayed below the threshold: send it uncompressed, with its exact length
+                final OutputStream entityStream = containerResponseWriter.writeStatusAndHeaders(buffer.size(), response);
+                buffer.writeTo(entityStream);
+                buffer = null;
+            }
+        }
+
+        private void startEncoding() throws IOException {
+            if (out != null) {
+                return;
+            }
+
+            response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            final OutputStream entityStream = containerResponseWriter.writeStatusAndHeaders(-1, response);
+            out = GZIP.equals(encoding) ? new GZIPOutputStream(entityStream, BUFFER_SIZE) : new DeflaterOutputStream(entityStream);
+            buffer.writeTo(out);
+            buffer = null;
+        }
+    }
+}
@@ -27,6 +27,8 @@ import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.util.KillbillEventHandler;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.platform.config.DefaultKillbillConfigSource;
+import org.killbill.billing.server.filters.AccessLogFilter;
+import org.killbill.billing.server.filters.ContentEncodingFilter;
 import org.killbill.billing.server.filters.ProfilingContainerResponseFilter;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
 import org.killbill.billing.server.modules.KillbillServerModule;
@@ -64,14 +66,14 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
         //
         // Add jersey filters which are executed prior jersey write the output stream
         //
-        builder.addJerseyFilter("com.sun.jersey.api.container.filter.LoggingFilter");
+        // The access log must be registered first, so that it sees the (compressed) bytes sent on the wire
+        builder.addJerseyFilter(AccessLogFilter.class.getName());
+        builder.addJerseyFilter(ContentEncodingFilter.class.getName());
 
         // Disable WADL - it generates noisy log messages, such as:
         // c.s.j.s.w.g.AbstractWadlGeneratorGrammarGenerator - Couldn't find grammar element for class javax.ws.rs.core.Response
         builder.addJerseyParam("com.sun.jersey.config.feature.DisableWADL", "true");
 
-        // The logging filter is still incompatible with the GZIP filter
-        //builder.addJerseyFilter(GZIPContentEncodingFilter.class.getName());
         builder.addJerseyFilter(ProfilingContainerResponseFilter.class.getName());
 
         // Broader, to support the "Try it out!" feature
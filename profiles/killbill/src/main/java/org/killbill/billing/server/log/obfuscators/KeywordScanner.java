@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.server.log.obfuscators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Aho-Corasick automaton finding, in a single pass over the input, which of a set of keywords
+ * occur in it (ASCII case-insensitive, like patterns compiled with {@link java.util.regex.Pattern#CASE_INSENSITIVE}).
+ * <p/>
+ * Used as a prefilter: a pattern starting with a literal keyword cannot match a String which doesn't contain
+ * that keyword, so it doesn't need to be run at all.
+ */
+class KeywordScanner {
+
+    private static final int ALPHABET_SIZE = 128;
+
+    private final int nbKeywords;
+    // Goto function, completed with the failure links (i.e. a DFA)
+    private final int[][] transitions;
+    // For each state, bitmask of the keywords ending there
+    private final long[] outputs;
+
+    KeywordScanner(final String... keywords) {
+        Preconditions.checkArgument(keywords.length <= Long.SIZE, "Too many keywords: %s", keywords.length);
+        this.nbKeywords = keywords.length;
+
+        final List<int[]> gotoFunction = new ArrayList<int[]>();
+        final List<Long> outputMasks = new ArrayList<Long>();
+        gotoFunction.add(newState());
+        outputMasks.add(0L);
+
+        // Build the trie
+        for (int keywordIdx = 0; keywordIdx < keywords.length; keywordIdx++) {
+            final String keyword = keywords[keywordIdx];
+            Preconditions.checkArgument(!keyword.isEmpty(), "Empty keyword");
+
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                final char c = toLowerCase(keyword.charAt(i));
+                Preconditions.checkArgument(c < ALPHABET_SIZE, "Non ASCII keyword: %s", keyword);
+                if (gotoFunction.get(state)[c] == 0) {
+                    gotoFunction.get(state)[c] = gotoFunction.size();
+                    gotoFunction.add(newState());
+                    outputMasks.add(0L);
+                }
+                state = gotoFunction.get(state)[c];
+            }
+            outputMasks.set(state, outputMasks.get(state) | (1L << keywordIdx));
+        }
+
+        this.transitions = gotoFunction.toArray(new int[gotoFunction.size()][]);
+        this.outputs = new long[outputMasks.size()];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = outputMasks.get(i);
+        }
+
+        // Breadth-first traversal to compute the failure links and turn the trie into a DFA
+        final int[] failure = new int[transitions.length];
+        final int[] queue = new int[transitions.length];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            if (transitions[0][c] != 0) {
+                queue[tail++] = transitions[0][c];
+            }
+        }
+        while (head < tail) {
+            final int state = queue[head++];
+            outputs[state] |= outputs[failure[state]];
+            for (int c = 0; c < ALPHABET_SIZE; c++) {
+                final int next = transitions[state][c];
+                if (next != 0) {
+                    failure[next] = transitions[failure[state]][c];
+                    queue[tail++] = next;
+                } else {
+                    transitions[state][c] = transitions[failure[state]][c];
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan the input once.
+     *
+     * @param input the String to scan
+     * @return bitmask of the keywords (by index, in constructor order) found in the input
+     */
+    long scan(final CharSequence input) {
+        final long allKeywords = nbKeywords == Long.SIZE ? -1L : (1L << nbKeywords) - 1;
+
+        long found = 0L;
+        int state = 0;
+        for (int i = 0; i < input.length(); i++) {
+            final char c = toLowerCase(input.charAt(i));
+            if (c >= ALPHABET_SIZE) {
+                // Keywords are ASCII only
+                state = 0;
+                continue;
+            }
+
+            state = transitions[state][c];
+            found |= outputs[state];
+            if (found == allKeywords) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    private static int[] newState() {
+        return new int[ALPHABET_SIZE];
+    }
+
+    // Pattern.CASE_INSENSITIVE (without UNICODE_CASE) only folds US-ASCII characters
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.killbill.billing.server.log.obfuscators;
 
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,14 +43,48 @@ public abstract class Obfuscator {
 
     public abstract String obfuscate(final String originalString);
 
+    /**
+     * Obfuscate the String using patterns which can only match if the corresponding keyword is present.
+     * <p/>
+     * The String is scanned once for all keywords and only the patterns of the keywords found are run
+     * (followed by the extra patterns, always run), in order: the result is the same as running all patterns.
+     *
+     * @param originalString     the String to obfuscate
+     * @param keywordScanner     scanner for the keywords
+     * @param patternsByKeyword  patterns, per keyword (same order as in the scanner). Each pattern must require its keyword to match
+     * @param extraPatterns      patterns without keyword
+     * @return the obfuscated String
+     */
+    protected String obfuscate(final String originalString,
+                               final KeywordScanner keywordScanner,
+                               final List<? extends Iterable<Pattern>> patternsByKeyword,
+                               final Iterable<Pattern> extraPatterns) {
+        final long keywordsFound = keywordScanner.scan(originalString);
+
+        String obfuscatedString = originalString;
+        for (int i = 0; i < patternsByKeyword.size(); i++) {
+            if ((keywordsFound & (1L << i)) != 0) {
+                obfuscatedString = obfuscate(obfuscatedString, patternsByKeyword.get(i));
+            }
+        }
+
+        return obfuscate(obfuscatedString, extraPatterns);
+    }
+
     protected String obfuscate(final String originalString, final Iterable<Pattern> patterns) {
-        final StringBuilder obfuscatedStringBuilder = new StringBuilder(originalString);
+        String obfuscatedString = originalString;
 
         for (final Pattern pattern : patterns) {
+            final Matcher matcher = pattern.matcher(obfuscatedString);
+            if (!matcher.find()) {
+                // Nothing to mask, avoid copying the String
+                continue;
+            }
+
             int currentOffset = 0;
-            // Create a matcher with a copy of the current obfuscated String
-            Matcher matcher = pattern.matcher(obfuscatedStringBuilder.toString());
-            while (matcher.find()) {
+            // The matcher works on the current (immutable) obfuscated String, while we modify a copy of it
+            final StringBuilder obfuscatedStringBuilder = new StringBuilder(obfuscatedString);
+            do {
                 for (int groupNb = 1; groupNb <= matcher.groupCount(); groupNb++) {
                     final String confidentialData = matcher.group(groupNb);
                     final String obfuscatedConfidentialData = obfuscateConfidentialData(confidentialData);
@@ -60,10 +95,11 @@ public abstract class Obfuscator {
                         currentOffset += obfuscatedConfidentialData.length() - confidentialData.length();
                     }
                 }
-            }
+            } while (matcher.find());
+            obfuscatedString = obfuscatedStringBuilder.toString();
         }
 
-        return obfuscatedStringBuilder.toString();
+        return obfuscatedString;
     }
 
     private String obfuscateConfidentialData(final CharSequence confidentialSequence) {
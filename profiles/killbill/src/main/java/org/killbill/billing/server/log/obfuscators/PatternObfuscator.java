@@ -17,8 +17,9 @@
 
 package org.killbill.billing.server.log.obfuscators;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import com.google.common.collect.ImmutableList;
@@ -45,7 +46,9 @@ public class PatternObfuscator extends Obfuscator {
             "xid"
     };
 
-    private final Collection<Pattern> patterns = new LinkedList<Pattern>();
+    private final KeywordScanner keywordScanner = new KeywordScanner(DEFAULT_SENSITIVE_KEYS);
+    private final List<Collection<Pattern>> patternsByKey = new ArrayList<Collection<Pattern>>(DEFAULT_SENSITIVE_KEYS.length);
+    private final Collection<Pattern> extraPatterns;
 
     public PatternObfuscator() {
         this(ImmutableList.<Pattern>of());
@@ -55,16 +58,16 @@ public class PatternObfuscator extends Obfuscator {
         super();
 
         for (final String sensitiveKey : DEFAULT_SENSITIVE_KEYS) {
-            this.patterns.add(buildJSONPattern(sensitiveKey));
-            this.patterns.add(buildXMLPattern(sensitiveKey));
-            this.patterns.add(buildMultiValuesXMLPattern(sensitiveKey));
+            this.patternsByKey.add(ImmutableList.<Pattern>of(buildJSONPattern(sensitiveKey),
+                                                             buildXMLPattern(sensitiveKey),
+                                                             buildMultiValuesXMLPattern(sensitiveKey)));
         }
-        this.patterns.addAll(extraPatterns);
+        this.extraPatterns = ImmutableList.<Pattern>copyOf(extraPatterns);
     }
 
     @Override
     public String obfuscate(final String originalString) {
-        return obfuscate(originalString, patterns);
+        return obfuscate(originalString, keywordScanner, patternsByKey, extraPatterns);
     }
 
     private Pattern buildJSONPattern(final String key) {
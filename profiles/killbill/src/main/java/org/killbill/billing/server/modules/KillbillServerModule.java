@@ -18,7 +18,11 @@
 
 package org.killbill.billing.server.modules;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
 import javax.servlet.ServletContext;
+import javax.ws.rs.HttpMethod;
 
 import org.killbill.billing.account.glue.DefaultAccountModule;
 import org.killbill.billing.beatrix.glue.BeatrixModule;
@@ -34,6 +38,7 @@ import org.killbill.billing.jaxrs.resources.CustomFieldResource;
 import org.killbill.billing.jaxrs.resources.ExportResource;
 import org.killbill.billing.jaxrs.resources.InvoicePaymentResource;
 import org.killbill.billing.jaxrs.resources.InvoiceResource;
+import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.resources.PaymentGatewayResource;
 import org.killbill.billing.jaxrs.resources.PaymentMethodResource;
 import org.killbill.billing.jaxrs.resources.PaymentResource;
@@ -54,11 +59,14 @@ import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.server.DefaultServerService;
 import org.killbill.billing.server.ServerService;
 import org.killbill.billing.server.config.KillbillServerConfig;
+import org.killbill.billing.server.filters.AccessLogFilter;
+import org.killbill.billing.server.filters.ContentEncodingFilter;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
 import org.killbill.billing.server.notifications.PushNotificationListener;
 import org.killbill.billing.subscription.glue.DefaultSubscriptionModule;
 import org.killbill.billing.tenant.glue.DefaultTenantModule;
 import org.killbill.billing.usage.glue.UsageModule;
+import org.killbill.billing.util.config.JaxrsConfig;
 import org.killbill.billing.util.dao.AuditLogModelDaoMapper;
 import org.killbill.billing.util.dao.RecordIdIdMappingsMapper;
 import org.killbill.billing.util.email.EmailModule;
@@ -73,17 +81,23 @@ import org.killbill.billing.util.glue.GlobalLockerModule;
 import org.killbill.billing.util.glue.KillBillShiroAopModule;
 import org.killbill.billing.util.glue.KillbillApiAopModule;
 import org.killbill.billing.util.glue.NonEntityDaoModule;
+import org.killbill.billing.util.glue.ProfilingModule;
 import org.killbill.billing.util.glue.RecordIdModule;
 import org.killbill.billing.util.glue.SecurityModule;
 import org.killbill.billing.util.glue.TagStoreModule;
+import org.killbill.billing.util.profiling.LatencyHistogramsMethodInterceptor;
 import org.killbill.billing.util.security.shiro.dao.SessionModelDao;
 import org.killbill.clock.Clock;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.killbill.commons.jdbi.mapper.LowerToCamelBeanMapperFactory;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+import org.skife.config.ConfigurationObjectFactory;
 import org.skife.jdbi.v2.ResultSetMapperFactory;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.multibindings.Multibinder;
 
 public class KillbillServerModule extends KillbillPlatformModule {
@@ -103,6 +117,7 @@ public class KillbillServerModule extends KillbillPlatformModule {
         configureResources();
         configureFilters();
         configurePushNotification();
+        configureProfiling();
     }
 
     @Override
@@ -154,6 +169,7 @@ public class KillbillServerModule extends KillbillPlatformModule {
         install(new KillBillShiroWebModule(servletContext, skifeConfigSource));
         install(new NonEntityDaoModule(configSource));
         install(new PaymentModule(configSource));
+        install(new ProfilingModule(configSource));
         install(new RecordIdModule(configSource));
         install(new SecurityModule(configSource));
         install(new TagStoreModule(configSource));
@@ -187,11 +203,38 @@ public class KillbillServerModule extends KillbillPlatformModule {
     }
 
     protected void configureFilters() {
+        final JaxrsConfig jaxrsConfig = new ConfigurationObjectFactory(skifeConfigSource).build(JaxrsConfig.class);
+        bind(JaxrsConfig.class).toInstance(jaxrsConfig);
+
         bind(ResponseCorsFilter.class).asEagerSingleton();
+        bind(AccessLogFilter.class).asEagerSingleton();
+        bind(ContentEncodingFilter.class).asEagerSingleton();
     }
 
     protected void configurePushNotification() {
         bind(ServerService.class).to(DefaultServerService.class).asEagerSingleton();
         bind(PushNotificationListener.class).asEagerSingleton();
     }
+
+    protected void configureProfiling() {
+        // Latency histograms per JAX-RS route (resource method)
+        final LatencyHistogramsMethodInterceptor jaxrsInterceptor = new LatencyHistogramsMethodInterceptor(ProfilingFeatureType.JAXRS);
+        requestInjection(jaxrsInterceptor);
+        bindInterceptor(Matchers.subclassesOf(JaxRsResourceBase.class),
+                        new AbstractMatcher<Method>() {
+                            @Override
+                            public boolean matches(final Method method) {
+                                if (method.isSynthetic()) {
+                                    return false;
+                                }
+                                for (final Annotation annotation : method.getAnnotations()) {
+                                    if (annotation.annotationType().isAnnotationPresent(HttpMethod.class)) {
+                                        return true;
+                                    }
+                                }
+                                return false;
+                            }
+                        },
+                        jaxrsInterceptor);
+    }
 }
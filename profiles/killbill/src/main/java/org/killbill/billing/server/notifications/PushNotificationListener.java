@@ -32,6 +32,7 @@ import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
 import org.killbill.billing.util.callcontext.CallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.jackson.ObjectReaderWriterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,14 +61,14 @@ public class PushNotificationListener {
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
     private final AsyncHttpClient httpClient;
-    private final ObjectMapper mapper;
+    private final ObjectReaderWriterRegistry jsonRegistry;
 
     @Inject
     public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory) {
         this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeout(TIMEOUT_NOTIFICATION * 1000).build());
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
-        this.mapper = mapper;
+        this.jsonRegistry = new ObjectReaderWriterRegistry(mapper);
     }
 
     @Subscribe
@@ -89,7 +90,7 @@ public class PushNotificationListener {
 
     private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
-        final String body = mapper.writeValueAsString(notification);
+        final String body = jsonRegistry.writeValueAsString(notification);
         for (final String cur : callbacks) {
             doPost(tenantId, cur, body, TIMEOUT_NOTIFICATION);
         }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.server.filters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+public class TestAccessLogFilter extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSampling() throws Exception {
+        Assert.assertFalse(new AccessLogFilter(0).shouldLog(200));
+        Assert.assertTrue(new AccessLogFilter(1).shouldLog(200));
+
+        final AccessLogFilter accessLogFilter = new AccessLogFilter(0.5);
+        int logged = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (accessLogFilter.shouldLog(200)) {
+                logged++;
+            }
+        }
+        Assert.assertTrue(logged > 4000 && logged < 6000, "logged=" + logged);
+    }
+
+    @Test(groups = "fast")
+    public void testServerErrorsAreAlwaysLogged() throws Exception {
+        final AccessLogFilter accessLogFilter = new AccessLogFilter(0);
+        Assert.assertFalse(accessLogFilter.shouldLog(404));
+        Assert.assertTrue(accessLogFilter.shouldLog(500));
+        Assert.assertTrue(accessLogFilter.shouldLog(503));
+
+        // Don't depend on the logger level of the test environment
+        final ContainerRequest request = createRequest("GET", null);
+        request.getProperties().put(AccessLogFilter.START_NANOS_PROPERTY, System.nanoTime());
+
+        final ContainerResponse successResponse = createResponse(200);
+        accessLogFilter.filter(request, successResponse);
+        Mockito.verify(successResponse, Mockito.never()).setContainerResponseWriter(Mockito.<ContainerResponseWriter>any());
+
+        final ContainerResponse errorResponse = createResponse(500);
+        accessLogFilter.filter(request, errorResponse);
+        Mockito.verify(errorResponse).setContainerResponseWriter(Mockito.<ContainerResponseWriter>any());
+    }
+
+    @Test(groups = "fast")
+    public void testResponseSizeIsCounted() throws Exception {
+        final AccessLogFilter accessLogFilter = new AccessLogFilter(1);
+        final ContainerRequest request = createRequest("GET", null);
+        request.getProperties().put(AccessLogFilter.START_NANOS_PROPERTY, System.nanoTime());
+
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+        final ContainerResponseWriter writer = Mockito.mock(ContainerResponseWriter.class);
+        Mockito.when(writer.writeStatusAndHeaders(Mockito.anyLong(), Mockito.<ContainerResponse>any())).thenReturn(entity);
+        final ContainerResponse response = createResponse(200);
+        Mockito.when(response.getContainerResponseWriter()).thenReturn(writer);
+        accessLogFilter.filter(request, response);
+
+        final ArgumentCaptor<ContainerResponseWriter> captor = ArgumentCaptor.forClass(ContainerResponseWriter.class);
+        Mockito.verify(response).setContainerResponseWriter(captor.capture());
+        final OutputStream out = captor.getValue().writeStatusAndHeaders(-1, response);
+        out.write("hello".getBytes());
+        out.write('!');
+        captor.getValue().finish();
+
+        // The entity isn't buffered
+        Assert.assertEquals(new String(entity.toByteArray()), "hello!");
+        Mockito.verify(writer).finish();
+    }
+
+    @Test(groups = "fast")
+    public void testAccessLogLine() throws Exception {
+        Assert.assertEquals(AccessLogFilter.toAccessLogLine(createRequest("GET", null), 200, 12, 345),
+                            "GET /1.0/kb/accounts/a%20b 200 12ms in=- out=345");
+        Assert.assertEquals(AccessLogFilter.toAccessLogLine(createRequest("POST", "27"), 201, 3, 0),
+                            "POST /1.0/kb/accounts/a%20b 201 3ms in=27 out=0");
+    }
+
+    private ContainerRequest createRequest(final String method, final String contentLength) throws Exception {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        final ContainerRequest request = Mockito.mock(ContainerRequest.class);
+        Mockito.when(request.getProperties()).thenReturn(properties);
+        Mockito.when(request.getMethod()).thenReturn(method);
+        Mockito.when(request.getRequestUri()).thenReturn(new URI("http://127.0.0.1:8080/1.0/kb/accounts/a%20b?audit=NONE"));
+        Mockito.when(request.getHeaderValue(HttpHeaders.CONTENT_LENGTH)).thenReturn(contentLength);
+        return request;
+    }
+
+    private ContainerResponse createResponse(final int status) throws IOException {
+        final ContainerResponse response = Mockito.mock(ContainerResponse.class);
+        Mockito.when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.server.filters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+public class TestContentEncodingFilter extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testNegotiateEncoding() throws Exception {
+        Assert.assertNull(ContentEncodingFilter.negotiateEncoding(null));
+        Assert.assertNull(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("identity")));
+        Assert.assertNull(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("gzip;q=0, deflate;q=0")));
+        Assert.assertNull(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("*;q=0")));
+
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("gzip, deflate")), ContentEncodingFilter.GZIP);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("deflate, gzip")), ContentEncodingFilter.GZIP);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("GZIP")), ContentEncodingFilter.GZIP);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("*")), ContentEncodingFilter.GZIP);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("gzip;q=0.5, deflate")), ContentEncodingFilter.DEFLATE);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("gzip;q=0", "*")), ContentEncodingFilter.DEFLATE);
+        Assert.assertEquals(ContentEncodingFilter.negotiateEncoding(ImmutableList.<String>of("br, deflate ; q=0.8")), ContentEncodingFilter.DEFLATE);
+    }
+
+    @Test(groups = "fast")
+    public void testBelowThreshold() throws Exception {
+        final RecordingResponseWriter writer = new RecordingResponseWriter();
+        final ContainerResponse response = createResponse();
+
+        final OutputStream out = new ContentEncodingFilter.ContentEncodingOutputStream(writer, response, ContentEncodingFilter.GZIP, 16);
+        out.write("hello".getBytes());
+        out.write('!');
+        out.flush();
+        // Nothing is committed until we know the size of the entity
+        Assert.assertNull(writer.contentLength);
+        out.close();
+        out.close();
+
+        Assert.assertEquals((long) writer.contentLength, 6L);
+        Assert.assertNull(response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(new String(writer.entity.toByteArray()), "hello!");
+    }
+
+    @Test(groups = "fast")
+    public void testAboveThreshold() throws Exception {
+        final RecordingResponseWriter writer = new RecordingResponseWriter();
+        final ContainerResponse response = createResponse();
+
+        final StringBuilder entity = new StringBuilder();
+        final OutputStream out = new ContentEncodingFilter.ContentEncodingOutputStream(writer, response, ContentEncodingFilter.GZIP, 16);
+        for (int i = 0; i < 100; i++) {
+            final String chunk = "chunk-" + i + ";";
+            entity.append(chunk);
+            out.write(chunk.getBytes());
+        }
+        Assert.assertEquals((long) writer.contentLength, -1L);
+        Assert.assertEquals(response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), ContentEncodingFilter.GZIP);
+        out.close();
+        out.close();
+
+        final byte[] decompressed = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(writer.entity.toByteArray())));
+        Assert.assertEquals(new String(decompressed), entity.toString());
+    }
+
+    private ContainerResponse createResponse() {
+        final ContainerResponse response = Mockito.mock(ContainerResponse.class);
+        Mockito.when(response.getHttpHeaders()).thenReturn(new OutBoundHeaders());
+        return response;
+    }
+
+    private static final class RecordingResponseWriter implements ContainerResponseWriter {
+
+        private final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+
+        private Long contentLength;
+
+        @Override
+        public OutputStream writeStatusAndHeaders(final long contentLength, final ContainerResponse response) throws IOException {
+            Assert.assertNull(this.contentLength, "Headers written twice");
+            this.contentLength = contentLength;
+            return entity;
+        }
+
+        @Override
+        public void finish() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestKeywordScanner extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testScan() throws Exception {
+        final KeywordScanner scanner = new KeywordScanner("accountnumber", "bankaccountnumber", "cvNumber", "number", "xid");
+
+        Assert.assertEquals(scanner.scan(""), 0L);
+        Assert.assertEquals(scanner.scan("nothing to see here"), 0L);
+        Assert.assertEquals(scanner.scan("numbe"), 0L);
+        Assert.assertEquals(scanner.scan("number"), 0x08L);
+        // Overlapping keywords (suffixes of each other)
+        Assert.assertEquals(scanner.scan("<bankAccountNumber>"), 0x0BL);
+        Assert.assertEquals(scanner.scan("CVNUMBER"), 0x0CL);
+        // Failure links: "cvxid" must still find "xid"
+        Assert.assertEquals(scanner.scan("cvxid"), 0x10L);
+        // Only US-ASCII characters are case folded (like Pattern.CASE_INSENSITIVE)
+        Assert.assertEquals(scanner.scan("\u0130xid"), 0x10L);
+        Assert.assertEquals(scanner.scan("x\u0130d"), 0L);
+    }
+}
@@ -257,6 +257,19 @@ public class TestPatternObfuscator extends ServerTestSuiteNoDB {
               );
     }
 
+    @Test(groups = "fast")
+    public void testNoSensitiveKey() throws Exception {
+        final String input = "{\"paymentId\":\"e92a3bfd-0713-4396-a1e2-ff46cb051f8c\",\"amount\":10.5,\"currency\":\"USD\"}";
+        // No copy when there is nothing to mask
+        Assert.assertSame(obfuscator.obfuscate(input), input);
+    }
+
+    @Test(groups = "fast")
+    public void testMixedCaseKeys() throws Exception {
+        verify("{\"CVNUMBER\": 123, \"Email\": \"bob@example.org\", \"iBaN\":\"DE89370400440532013000\"}",
+               "{\"CVNUMBER\": MASKED, \"Email\": *****MASKED******, \"iBaN\":*********MASKED**********");
+    }
+
     private void verify(final String input, final String output) {
         final String obfuscated = obfuscator.obfuscate(input);
         Assert.assertEquals(obfuscated, output, obfuscated);
@@ -59,6 +59,7 @@ import org.killbill.billing.util.glue.GlobalLockerModule;
 import org.killbill.billing.util.glue.KillBillShiroAopModule;
 import org.killbill.billing.util.glue.KillbillApiAopModule;
 import org.killbill.billing.util.glue.NonEntityDaoModule;
+import org.killbill.billing.util.glue.ProfilingModule;
 import org.killbill.billing.util.glue.RecordIdModule;
 import org.killbill.billing.util.glue.SecurityModule;
 import org.killbill.billing.util.glue.TagStoreModule;
@@ -85,6 +86,7 @@ public class KillpayServerModule extends KillbillServerModule {
         install(new KillBillShiroWebModule(servletContext, skifeConfigSource));
         install(new NonEntityDaoModule(configSource));
         install(new PaymentModule(configSource));
+        install(new ProfilingModule(configSource));
         install(new RecordIdModule(configSource));
         install(new SecurityModule(configSource));
         install(new TagStoreModule(configSource));
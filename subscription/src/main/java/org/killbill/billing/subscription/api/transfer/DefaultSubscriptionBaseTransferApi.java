@@ -18,10 +18,18 @@
 
 package org.killbill.billing.subscription.api.transfer;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 
 import org.killbill.billing.ErrorCode;
@@ -37,11 +45,13 @@ import org.killbill.billing.catalog.api.ProductCategory;
 import org.killbill.clock.Clock;
 import org.killbill.billing.entitlement.api.Entitlement.EntitlementState;
 import org.killbill.billing.subscription.api.SubscriptionApiBase;
+import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseApiService;
 import org.killbill.billing.subscription.api.migration.AccountMigrationData.BundleMigrationData;
 import org.killbill.billing.subscription.api.migration.AccountMigrationData.SubscriptionMigrationData;
 import org.killbill.billing.subscription.api.svcs.DefaultSubscriptionInternalApi;
 import org.killbill.billing.subscription.api.timeline.BundleBaseTimeline;
+import org.killbill.billing.subscription.api.timeline.DefaultSubscriptionBaseTimeline;
 import org.killbill.billing.subscription.api.timeline.SubscriptionBaseRepairException;
 import org.killbill.billing.subscription.api.timeline.SubscriptionBaseTimeline;
 import org.killbill.billing.subscription.api.timeline.SubscriptionBaseTimeline.ExistingEvent;
@@ -60,6 +70,10 @@ import org.killbill.billing.subscription.events.user.ApiEventTransfer;
 import org.killbill.billing.subscription.exceptions.SubscriptionBaseError;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
@@ -67,17 +81,21 @@ import com.google.inject.Inject;
 
 public class DefaultSubscriptionBaseTransferApi extends SubscriptionApiBase implements SubscriptionBaseTransferApi {
 
+    private static final int NB_LOCK_TRY = 5;
+
     private final CatalogService catalogService;
     private final SubscriptionBaseTimelineApi timelineApi;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final GlobalLocker locker;
 
     @Inject
     public DefaultSubscriptionBaseTransferApi(final Clock clock, final SubscriptionDao dao, final SubscriptionBaseTimelineApi timelineApi, final CatalogService catalogService,
-                                              final SubscriptionBaseApiService apiService, final InternalCallContextFactory internalCallContextFactory) {
+                                              final SubscriptionBaseApiService apiService, final InternalCallContextFactory internalCallContextFactory, final GlobalLocker locker) {
         super(dao, apiService, clock, catalogService);
         this.catalogService = catalogService;
         this.timelineApi = timelineApi;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.locker = locker;
     }
 
     private SubscriptionBaseEvent createEvent(final boolean firstEvent, final ExistingEvent existingEvent, final DefaultSubscriptionBase subscription, final DateTime transferDate, final InternalTenantContext context)
@@ -197,12 +215,7 @@ public class DefaultSubscriptionBaseTransferApi extends SubscriptionApiBase impl
         final InternalCallContext toInternalCallContext = internalCallContextFactory.createInternalCallContext(destAccountId, context);
 
         try {
-            final DateTime effectiveTransferDate = transferDate == null ? clock.getUTCNow() : transferDate;
-            if (effectiveTransferDate.isAfter(clock.getUTCNow())) {
-                // The transfer event for the migrated bundle will be the first one, which cannot be in the future
-                // (subscription always expects the first event to be in the past)
-                throw new SubscriptionBaseTransferApiException(ErrorCode.SUB_TRANSFER_INVALID_EFF_DATE, effectiveTransferDate);
-            }
+            final DateTime effectiveTransferDate = getEffectiveTransferDate(transferDate);
 
             final List<SubscriptionBaseBundle> bundlesForAccountAndKey = dao.getSubscriptionBundlesForAccountAndKey(sourceAccountId, bundleKey, fromInternalCallContext);
             final SubscriptionBaseBundle bundle = DefaultSubscriptionInternalApi.getActiveBundleForKeyNotException(bundlesForAccountAndKey, dao, clock, fromInternalCallContext);
@@ -213,77 +226,181 @@ public class DefaultSubscriptionBaseTransferApi extends SubscriptionApiBase impl
             // Get the bundle timeline for the old account
             final BundleBaseTimeline bundleBaseTimeline = timelineApi.getBundleTimeline(bundle, context);
 
-            final DefaultSubscriptionBaseBundle subscriptionBundleData = new DefaultSubscriptionBaseBundle(bundleKey, destAccountId, effectiveTransferDate,
-                                                                                                           bundle.getOriginalCreatedDate(), clock.getUTCNow(), clock.getUTCNow());
-            final List<SubscriptionMigrationData> subscriptionMigrationDataList = new LinkedList<SubscriptionMigrationData>();
+            final List<SubscriptionBaseTimeline> timelines = bundleBaseTimeline.getSubscriptions();
+            final Map<UUID, DefaultSubscriptionBase> oldSubscriptions = new HashMap<UUID, DefaultSubscriptionBase>();
+            for (final SubscriptionBaseTimeline cur : timelines) {
+                oldSubscriptions.put(cur.getId(), (DefaultSubscriptionBase) dao.getSubscriptionFromId(cur.getId(), fromInternalCallContext));
+            }
 
             final List<TransferCancelData> transferCancelDataList = new LinkedList<TransferCancelData>();
+            final BundleMigrationData bundleMigrationData = createBundleMigrationData(bundle, destAccountId, effectiveTransferDate, timelines, oldSubscriptions,
+                                                                                      transferAddOn, cancelImmediately, transferCancelDataList, fromInternalCallContext);
 
-            DateTime bundleStartdate = null;
+            // Atomically cancelWithRequestedDate all subscription on old account and create new bundle, subscriptions, events for new account
+            dao.transfer(sourceAccountId, destAccountId, bundleMigrationData, transferCancelDataList, fromInternalCallContext, toInternalCallContext);
 
-            for (final SubscriptionBaseTimeline cur : bundleBaseTimeline.getSubscriptions()) {
-                final DefaultSubscriptionBase oldSubscription = (DefaultSubscriptionBase) dao.getSubscriptionFromId(cur.getId(), fromInternalCallContext);
-                // Skip already cancelled subscriptions
-                if (oldSubscription.getState() == EntitlementState.CANCELLED) {
-                    continue;
-                }
-                final List<ExistingEvent> existingEvents = cur.getExistingEvents();
-                final ProductCategory productCategory = existingEvents.get(0).getPlanPhaseSpecifier().getProductCategory();
-
-                // For future add-on cancellations, don't add a cancellation on disk right away (mirror the behavior
-                // on base plan cancellations, even though we don't support un-transfer today)
-                if (productCategory != ProductCategory.ADD_ON || cancelImmediately) {
-                    // Create the cancelWithRequestedDate event on effectiveCancelDate
-                    final DateTime effectiveCancelDate = !cancelImmediately && oldSubscription.getChargedThroughDate() != null &&
-                                                         effectiveTransferDate.isBefore(oldSubscription.getChargedThroughDate()) ?
-                                                         oldSubscription.getChargedThroughDate() : effectiveTransferDate;
-
-                    final SubscriptionBaseEvent cancelEvent = new ApiEventCancel(new ApiEventBuilder()
-                                                                                         .setSubscriptionId(cur.getId())
-                                                                                         .setActiveVersion(cur.getActiveVersion())
-                                                                                         .setProcessedDate(clock.getUTCNow())
-                                                                                         .setEffectiveDate(effectiveCancelDate)
-                                                                                         .setRequestedDate(effectiveTransferDate)
-                                                                                         .setFromDisk(true));
-
-                    TransferCancelData cancelData = new TransferCancelData(oldSubscription, cancelEvent);
-                    transferCancelDataList.add(cancelData);
+            return bundleMigrationData.getData();
+        } catch (SubscriptionBaseRepairException e) {
+            throw new SubscriptionBaseTransferApiException(e);
+        } catch (CatalogApiException e) {
+            throw new SubscriptionBaseTransferApiException(e);
+        }
+    }
+
+    @Override
+    public List<SubscriptionBaseBundle> transferBundles(final UUID sourceAccountId, final UUID destAccountId, final List<UUID> bundleIds,
+                                                        final Map<UUID, DateTime> transferDates, final boolean transferAddOn, final boolean cancelImmediately,
+                                                        final CallContext context) throws SubscriptionBaseTransferApiException {
+        final InternalCallContext fromInternalCallContext = internalCallContextFactory.createInternalCallContext(sourceAccountId, context);
+        final InternalCallContext toInternalCallContext = internalCallContextFactory.createInternalCallContext(destAccountId, context);
+
+        // Each bundle can only be migrated once: a duplicate would create two bundles with the same external key on the destination account
+        final Set<UUID> uniqueBundleIds = new HashSet<UUID>();
+        for (final UUID bundleId : bundleIds) {
+            if (!uniqueBundleIds.add(bundleId)) {
+                throw new SubscriptionBaseTransferApiException(ErrorCode.UNEXPECTED_ERROR, String.format("Bundle %s is specified more than once for the transfer", bundleId));
+            }
+        }
+
+        final List<GlobalLock> locks = new LinkedList<GlobalLock>();
+        try {
+            // Validate all the dates before taking the locks
+            final Map<UUID, DateTime> effectiveTransferDates = new HashMap<UUID, DateTime>();
+            for (final UUID bundleId : bundleIds) {
+                effectiveTransferDates.put(bundleId, getEffectiveTransferDate(transferDates.get(bundleId)));
+            }
+
+            // Lock both accounts once for the whole batch, always in the same order to avoid deadlocks between concurrent transfers
+            for (final UUID accountId : new TreeSet<UUID>(ImmutableList.<UUID>of(sourceAccountId, destAccountId))) {
+                locks.add(locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), NB_LOCK_TRY));
+            }
+
+            // Single account-wide read of the source bundles, subscriptions and events
+            final Map<UUID, SubscriptionBaseBundle> bundlesForAccount = new HashMap<UUID, SubscriptionBaseBundle>();
+            for (final SubscriptionBaseBundle bundle : dao.getSubscriptionBundleForAccount(sourceAccountId, fromInternalCallContext)) {
+                bundlesForAccount.put(bundle.getId(), bundle);
+            }
+            final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = dao.getSubscriptionsForAccount(fromInternalCallContext);
+            final Catalog catalog = catalogService.getFullCatalog(fromInternalCallContext);
+
+            final List<BundleMigrationData> bundleMigrationDataList = new LinkedList<BundleMigrationData>();
+            final List<TransferCancelData> transferCancelDataList = new LinkedList<TransferCancelData>();
+            for (final UUID bundleId : bundleIds) {
+                final SubscriptionBaseBundle bundle = bundlesForAccount.get(bundleId);
+                if (bundle == null) {
+                    throw new SubscriptionBaseTransferApiException(ErrorCode.SUB_GET_INVALID_BUNDLE_ID, bundleId);
                 }
 
-                if (productCategory == ProductCategory.ADD_ON && !transferAddOn) {
-                    continue;
+                final List<SubscriptionBase> subscriptions = subscriptionsForAccount.get(bundleId);
+                if (subscriptions == null || subscriptions.isEmpty()) {
+                    throw new SubscriptionBaseTransferApiException(ErrorCode.SUB_REPAIR_NO_ACTIVE_SUBSCRIPTIONS, bundleId);
                 }
 
-                // We Align with the original subscription
-                final DateTime subscriptionAlignStartDate = oldSubscription.getAlignStartDate();
-                if (bundleStartdate == null) {
-                    bundleStartdate = oldSubscription.getStartDate();
+                // Same timelines as the ones returned by the timeline api, built from the subscriptions already in memory
+                final List<SubscriptionBaseTimeline> timelines = new LinkedList<SubscriptionBaseTimeline>();
+                final Map<UUID, DefaultSubscriptionBase> oldSubscriptions = new HashMap<UUID, DefaultSubscriptionBase>();
+                for (final SubscriptionBase subscription : subscriptions) {
+                    timelines.add(new DefaultSubscriptionBaseTimeline((DefaultSubscriptionBase) subscription, catalog));
+                    oldSubscriptions.put(subscription.getId(), (DefaultSubscriptionBase) subscription);
                 }
 
-                // Create the new subscription for the new bundle on the new account
-                final DefaultSubscriptionBase defaultSubscriptionBase = createSubscriptionForApiUse(new SubscriptionBuilder()
-                                                                                                            .setId(UUID.randomUUID())
-                                                                                                            .setBundleId(subscriptionBundleData.getId())
-                                                                                                            .setCategory(productCategory)
-                                                                                                            .setBundleStartDate(effectiveTransferDate)
-                                                                                                            .setAlignStartDate(subscriptionAlignStartDate),
-                                                                                                    ImmutableList.<SubscriptionBaseEvent>of(), fromInternalCallContext);
-
-                final List<SubscriptionBaseEvent> events = toEvents(existingEvents, defaultSubscriptionBase, effectiveTransferDate, fromInternalCallContext);
-                final SubscriptionMigrationData curData = new SubscriptionMigrationData(defaultSubscriptionBase, events, null);
-                subscriptionMigrationDataList.add(curData);
+                bundleMigrationDataList.add(createBundleMigrationData(bundle, destAccountId, effectiveTransferDates.get(bundleId), timelines, oldSubscriptions,
+                                                                      transferAddOn, cancelImmediately, transferCancelDataList, fromInternalCallContext));
             }
-            BundleMigrationData bundleMigrationData = new BundleMigrationData(subscriptionBundleData, subscriptionMigrationDataList);
 
-            // Atomically cancelWithRequestedDate all subscription on old account and create new bundle, subscriptions, events for new account
-            dao.transfer(sourceAccountId, destAccountId, bundleMigrationData, transferCancelDataList, fromInternalCallContext, toInternalCallContext);
+            // Atomically cancel all subscriptions on the old account and create the new bundles, subscriptions, events for the new account
+            dao.transferBundles(sourceAccountId, destAccountId, bundleMigrationDataList, transferCancelDataList, fromInternalCallContext, toInternalCallContext);
 
-            return bundleMigrationData.getData();
-        } catch (SubscriptionBaseRepairException e) {
-            throw new SubscriptionBaseTransferApiException(e);
+            final List<SubscriptionBaseBundle> result = new ArrayList<SubscriptionBaseBundle>(bundleMigrationDataList.size());
+            for (final BundleMigrationData bundleMigrationData : bundleMigrationDataList) {
+                result.add(bundleMigrationData.getData());
+            }
+            return result;
+        } catch (LockFailedException e) {
+            throw new SubscriptionBaseTransferApiException(e, ErrorCode.UNEXPECTED_ERROR, String.format("Failed to lock accounts %s and %s for the transfer", sourceAccountId, destAccountId));
         } catch (CatalogApiException e) {
             throw new SubscriptionBaseTransferApiException(e);
+        } finally {
+            for (final GlobalLock lock : locks) {
+                lock.release();
+            }
+        }
+    }
+
+    private DateTime getEffectiveTransferDate(@Nullable final DateTime transferDate) throws SubscriptionBaseTransferApiException {
+        final DateTime effectiveTransferDate = transferDate == null ? clock.getUTCNow() : transferDate;
+        if (effectiveTransferDate.isAfter(clock.getUTCNow())) {
+            // The transfer event for the migrated bundle will be the first one, which cannot be in the future
+            // (subscription always expects the first event to be in the past)
+            throw new SubscriptionBaseTransferApiException(ErrorCode.SUB_TRANSFER_INVALID_EFF_DATE, effectiveTransferDate);
+        }
+        return effectiveTransferDate;
+    }
+
+    // Compute (in memory) the new bundle for the destination account, and add the cancellations on the source account to transferCancelDataList
+    private BundleMigrationData createBundleMigrationData(final SubscriptionBaseBundle bundle, final UUID destAccountId, final DateTime effectiveTransferDate,
+                                                          final List<SubscriptionBaseTimeline> timelines, final Map<UUID, DefaultSubscriptionBase> oldSubscriptions,
+                                                          final boolean transferAddOn, final boolean cancelImmediately, final List<TransferCancelData> transferCancelDataList,
+                                                          final InternalCallContext fromInternalCallContext) throws SubscriptionBaseTransferApiException, CatalogApiException {
+        final DefaultSubscriptionBaseBundle subscriptionBundleData = new DefaultSubscriptionBaseBundle(bundle.getExternalKey(), destAccountId, effectiveTransferDate,
+                                                                                                       bundle.getOriginalCreatedDate(), clock.getUTCNow(), clock.getUTCNow());
+        final List<SubscriptionMigrationData> subscriptionMigrationDataList = new LinkedList<SubscriptionMigrationData>();
+
+        DateTime bundleStartdate = null;
+
+        for (final SubscriptionBaseTimeline cur : timelines) {
+            final DefaultSubscriptionBase oldSubscription = oldSubscriptions.get(cur.getId());
+            // Skip already cancelled subscriptions
+            if (oldSubscription.getState() == EntitlementState.CANCELLED) {
+                continue;
+            }
+            final List<ExistingEvent> existingEvents = cur.getExistingEvents();
+            final ProductCategory productCategory = existingEvents.get(0).getPlanPhaseSpecifier().getProductCategory();
+
+            // For future add-on cancellations, don't add a cancellation on disk right away (mirror the behavior
+            // on base plan cancellations, even though we don't support un-transfer today)
+            if (productCategory != ProductCategory.ADD_ON || cancelImmediately) {
+                // Create the cancelWithRequestedDate event on effectiveCancelDate
+                final DateTime effectiveCancelDate = !cancelImmediately && oldSubscription.getChargedThroughDate() != null &&
+                                                     effectiveTransferDate.isBefore(oldSubscription.getChargedThroughDate()) ?
+                                                     oldSubscription.getChargedThroughDate() : effectiveTransferDate;
+
+                final SubscriptionBaseEvent cancelEvent = new ApiEventCancel(new ApiEventBuilder()
+                                                                                     .setSubscriptionId(cur.getId())
+                                                                                     .setActiveVersion(cur.getActiveVersion())
+                                                                                     .setProcessedDate(clock.getUTCNow())
+                                                                                     .setEffectiveDate(effectiveCancelDate)
+                                                                                     .setRequestedDate(effectiveTransferDate)
+                                                                                     .setFromDisk(true));
+
+                TransferCancelData cancelData = new TransferCancelData(oldSubscription, cancelEvent);
+                transferCancelDataList.add(cancelData);
+            }
+
+            if (productCategory == ProductCategory.ADD_ON && !transferAddOn) {
+                continue;
+            }
+
+            // We Align with the original subscription
+            final DateTime subscriptionAlignStartDate = oldSubscription.getAlignStartDate();
+            if (bundleStartdate == null) {
+                bundleStartdate = oldSubscription.getStartDate();
+            }
+
+            // Create the new subscription for the new bundle on the new account
+            final DefaultSubscriptionBase defaultSubscriptionBase = createSubscriptionForApiUse(new SubscriptionBuilder()
+                                                                                                        .setId(UUID.randomUUID())
+                                                                                                        .setBundleId(subscriptionBundleData.getId())
+                                                                                                        .setCategory(productCategory)
+                                                                                                        .setBundleStartDate(effectiveTransferDate)
+                                                                                                        .setAlignStartDate(subscriptionAlignStartDate),
+                                                                                                ImmutableList.<SubscriptionBaseEvent>of(), fromInternalCallContext);
+
+            final List<SubscriptionBaseEvent> events = toEvents(existingEvents, defaultSubscriptionBase, effectiveTransferDate, fromInternalCallContext);
+            final SubscriptionMigrationData curData = new SubscriptionMigrationData(defaultSubscriptionBase, events, null);
+            subscriptionMigrationDataList.add(curData);
         }
+        return new BundleMigrationData(subscriptionBundleData, subscriptionMigrationDataList);
     }
 
 }
@@ -97,6 +97,7 @@ import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ArrayListMultimap;
@@ -204,6 +205,16 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                                   public Iterator<SubscriptionBundleModelDao> build(final BundleSqlDao bundleSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return bundleSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final BundleSqlDao bundleSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return bundleSqlDao.getSearchNextRecordIdFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<SubscriptionBundleModelDao> buildFromRecordId(final BundleSqlDao bundleSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return bundleSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -332,35 +343,26 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         final Map<UUID, List<SubscriptionBase>> subscriptionsFromAccountId = getSubscriptionsFromAccountId(context);
 
         final List<SubscriptionBaseEvent> eventsForAccount = getEventsForAccountId(context);
+        final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = groupEventsBySubscriptionId(eventsForAccount);
 
         final Map<UUID, List<SubscriptionBase>> result = new HashMap<UUID, List<SubscriptionBase>>();
         for (final UUID bundleId : subscriptionsFromAccountId.keySet()) {
-
             final List<SubscriptionBase> subscriptionsForBundle = subscriptionsFromAccountId.get(bundleId);
-            final Collection<UUID> subscriptionIdsForBundle = Collections2.transform(subscriptionsForBundle, new Function<SubscriptionBase, UUID>() {
-                @Override
-                public UUID apply(final SubscriptionBase input) {
-                    return input.getId();
-                }
-            });
-            final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = ArrayListMultimap.create();
-
-            for (final SubscriptionBase cur : subscriptionsForBundle) {
-                final Collection<SubscriptionBaseEvent> events = Collections2.filter(eventsForAccount, new Predicate<SubscriptionBaseEvent>() {
-                    @Override
-                    public boolean apply(final SubscriptionBaseEvent input) {
-                        return input.getSubscriptionId().equals(cur.getId());
-
-                    }
-                });
-                eventsForSubscriptions.putAll(cur.getId(), ImmutableList.copyOf(events));
-            }
-
             result.put(bundleId, buildBundleSubscriptions(subscriptionsForBundle, eventsForSubscriptions, null, context));
         }
         return result;
     }
 
+    // Single pass over the account events: the events of each subscription are kept in their original order
+    @VisibleForTesting
+    static Multimap<UUID, SubscriptionBaseEvent> groupEventsBySubscriptionId(final Iterable<SubscriptionBaseEvent> events) {
+        final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = ArrayListMultimap.create();
+        for (final SubscriptionBaseEvent event : events) {
+            eventsForSubscriptions.put(event.getSubscriptionId(), event);
+        }
+        return eventsForSubscriptions;
+    }
+
     private Map<UUID, List<SubscriptionBase>> getSubscriptionsFromAccountId(final InternalTenantContext context) {
         final List<SubscriptionBase> allSubscriptions = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<SubscriptionBase>>() {
             @Override
@@ -1016,18 +1018,26 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public void transfer(final UUID srcAccountId, final UUID destAccountId, final BundleMigrationData bundleTransferData,
                          final List<TransferCancelData> transferCancelData, final InternalCallContext fromContext, final InternalCallContext toContext) {
+        transferBundles(srcAccountId, destAccountId, ImmutableList.<BundleMigrationData>of(bundleTransferData), transferCancelData, fromContext, toContext);
+    }
+
+    @Override
+    public void transferBundles(final UUID srcAccountId, final UUID destAccountId, final List<BundleMigrationData> bundlesTransferData,
+                                final List<TransferCancelData> transferCancelData, final InternalCallContext fromContext, final InternalCallContext toContext) {
 
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final SubscriptionEventSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
 
-                // Cancel the subscriptions for the old bundle
+                // Cancel the subscriptions for the old bundles
                 for (final TransferCancelData cancel : transferCancelData) {
                     cancelSubscriptionFromTransaction(cancel.getSubscription(), cancel.getCancelEvent(), entitySqlDaoWrapperFactory, fromContext, 0);
                 }
 
-                migrateBundleDataFromTransaction(bundleTransferData, transactional, entitySqlDaoWrapperFactory, toContext);
+                for (final BundleMigrationData bundleTransferData : bundlesTransferData) {
+                    migrateBundleDataFromTransaction(bundleTransferData, transactional, entitySqlDaoWrapperFactory, toContext);
+                }
                 return null;
             }
         });
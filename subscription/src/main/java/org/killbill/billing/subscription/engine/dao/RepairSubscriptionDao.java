@@ -323,6 +323,13 @@ public class RepairSubscriptionDao extends EntityDaoBase<SubscriptionBundleModel
         throw new SubscriptionBaseError(NOT_IMPLEMENTED);
     }
 
+    @Override
+    public void transferBundles(final UUID srcAccountId, final UUID destAccountId, final List<BundleMigrationData> data,
+                                final List<TransferCancelData> transferCancelData, final InternalCallContext fromContext,
+                                final InternalCallContext toContext) {
+        throw new SubscriptionBaseError(NOT_IMPLEMENTED);
+    }
+
     @Override
     public void updateBundleExternalKey(final UUID bundleId, final String externalKey, final InternalCallContext context) {
         throw new SubscriptionBaseError(NOT_IMPLEMENTED);
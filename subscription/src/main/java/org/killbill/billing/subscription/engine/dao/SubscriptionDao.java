@@ -97,6 +97,8 @@ public interface SubscriptionDao extends EntityDao<SubscriptionBundleModelDao, S
 
     public void transfer(UUID srcAccountId, UUID destAccountId, BundleMigrationData data, List<TransferCancelData> transferCancelData, InternalCallContext fromContext, InternalCallContext toContext);
 
+    public void transferBundles(UUID srcAccountId, UUID destAccountId, List<BundleMigrationData> data, List<TransferCancelData> transferCancelData, InternalCallContext fromContext, InternalCallContext toContext);
+
     public void updateBundleExternalKey(UUID bundleId, String externalKey, InternalCallContext context);
 
     // Repair
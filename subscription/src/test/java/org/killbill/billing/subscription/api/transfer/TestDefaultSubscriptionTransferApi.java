@@ -27,6 +27,9 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.MockCatalog;
 import org.killbill.billing.catalog.MockCatalogService;
 import org.killbill.billing.catalog.api.BillingPeriod;
@@ -36,11 +39,14 @@ import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
 import org.killbill.billing.catalog.api.PriceListSet;
 import org.killbill.billing.catalog.api.ProductCategory;
 import org.killbill.billing.subscription.SubscriptionTestSuiteNoDB;
+import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseApiService;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.subscription.api.migration.AccountMigrationData.BundleMigrationData;
 import org.killbill.billing.subscription.api.timeline.SubscriptionBaseTimeline.ExistingEvent;
 import org.killbill.billing.subscription.api.timeline.SubscriptionBaseTimelineApi;
 import org.killbill.billing.subscription.api.user.DefaultSubscriptionBase;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
 import org.killbill.billing.subscription.api.user.SubscriptionBuilder;
 import org.killbill.billing.subscription.engine.dao.SubscriptionDao;
 import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
@@ -50,12 +56,17 @@ import org.killbill.billing.subscription.events.user.ApiEventType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.commons.locker.memory.MemoryGlobalLocker;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 // Simple unit tests for DefaultSubscriptionBaseTransferApi, see TestTransfer for more advanced tests with dao
 public class TestDefaultSubscriptionTransferApi extends SubscriptionTestSuiteNoDB {
 
+    private SubscriptionDao dao;
+    private MemoryGlobalLocker locker;
     private DefaultSubscriptionBaseTransferApi transferApi;
 
     @Override
@@ -63,12 +74,13 @@ public class TestDefaultSubscriptionTransferApi extends SubscriptionTestSuiteNoD
     public void beforeMethod() throws Exception {
         super.beforeMethod();
         final NonEntityDao nonEntityDao = Mockito.mock(NonEntityDao.class);
-        final SubscriptionDao dao = Mockito.mock(SubscriptionDao.class);
+        dao = Mockito.mock(SubscriptionDao.class);
          final CatalogService catalogService = new MockCatalogService(new MockCatalog(), cacheControllerDispatcher);
         final SubscriptionBaseApiService apiService = Mockito.mock(SubscriptionBaseApiService.class);
         final SubscriptionBaseTimelineApi timelineApi = Mockito.mock(SubscriptionBaseTimelineApi.class);
+        locker = new MemoryGlobalLocker();
         final InternalCallContextFactory internalCallContextFactory = new InternalCallContextFactory(clock, nonEntityDao, new CacheControllerDispatcher());
-        transferApi = new DefaultSubscriptionBaseTransferApi(clock, dao, timelineApi, catalogService, apiService, internalCallContextFactory);
+        transferApi = new DefaultSubscriptionBaseTransferApi(clock, dao, timelineApi, catalogService, apiService, internalCallContextFactory, locker);
     }
 
     @Test(groups = "fast")
@@ -160,6 +172,74 @@ public class TestDefaultSubscriptionTransferApi extends SubscriptionTestSuiteNoD
         Assert.assertEquals(((ApiEventTransfer) events.get(0)).getEventType(), ApiEventType.TRANSFER);
     }
 
+    @Test(groups = "fast")
+    public void testTransferBundlesWithUnknownBundle() throws Exception {
+        final UUID sourceAccountId = UUID.randomUUID();
+        final UUID destAccountId = UUID.randomUUID();
+        final UUID bundleId = UUID.randomUUID();
+        Mockito.when(dao.getSubscriptionBundleForAccount(Mockito.eq(sourceAccountId), Mockito.<InternalTenantContext>any())).thenReturn(ImmutableList.<SubscriptionBaseBundle>of());
+        Mockito.when(dao.getSubscriptionsForAccount(Mockito.<InternalTenantContext>any())).thenReturn(ImmutableMap.<UUID, List<SubscriptionBase>>of());
+
+        try {
+            transferApi.transferBundles(sourceAccountId, destAccountId, ImmutableList.<UUID>of(bundleId), ImmutableMap.<UUID, DateTime>of(bundleId, clock.getUTCNow()), false, false, callContext);
+            Assert.fail("Transfer should fail on the unknown bundle");
+        } catch (final SubscriptionBaseTransferApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.SUB_GET_INVALID_BUNDLE_ID.getCode());
+        }
+
+        // Nothing was written and both accounts were unlocked
+        Mockito.verify(dao, Mockito.never()).transferBundles(Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<List<BundleMigrationData>>any(), Mockito.<List<TransferCancelData>>any(),
+                                                              Mockito.<InternalCallContext>any(), Mockito.<InternalCallContext>any());
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), sourceAccountId.toString()));
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), destAccountId.toString()));
+    }
+
+    @Test(groups = "fast")
+    public void testTransferBundlesWithDuplicateBundle() throws Exception {
+        final UUID sourceAccountId = UUID.randomUUID();
+        final UUID destAccountId = UUID.randomUUID();
+        final UUID bundleId = UUID.randomUUID();
+
+        try {
+            transferApi.transferBundles(sourceAccountId, destAccountId, ImmutableList.<UUID>of(bundleId, bundleId), ImmutableMap.<UUID, DateTime>of(bundleId, clock.getUTCNow()), false, false, callContext);
+            Assert.fail("Transfer should fail on the duplicate bundle");
+        } catch (final SubscriptionBaseTransferApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.UNEXPECTED_ERROR.getCode());
+        }
+
+        // Rejected before reading the source account or writing anything
+        Mockito.verify(dao, Mockito.never()).getSubscriptionBundleForAccount(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any());
+        Mockito.verify(dao, Mockito.never()).transferBundles(Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<List<BundleMigrationData>>any(), Mockito.<List<TransferCancelData>>any(),
+                                                              Mockito.<InternalCallContext>any(), Mockito.<InternalCallContext>any());
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), sourceAccountId.toString()));
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), destAccountId.toString()));
+    }
+
+    @Test(groups = "fast")
+    public void testTransferBundlesWithFutureDate() throws Exception {
+        final UUID sourceAccountId = UUID.randomUUID();
+        final UUID destAccountId = UUID.randomUUID();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID otherBundleId = UUID.randomUUID();
+
+        try {
+            // Only the date of the second bundle is invalid
+            transferApi.transferBundles(sourceAccountId, destAccountId, ImmutableList.<UUID>of(bundleId, otherBundleId),
+                                        ImmutableMap.<UUID, DateTime>of(bundleId, clock.getUTCNow().minusDays(1), otherBundleId, clock.getUTCNow().plusDays(1)),
+                                        false, false, callContext);
+            Assert.fail("Transfer should fail on the future date");
+        } catch (final SubscriptionBaseTransferApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.SUB_TRANSFER_INVALID_EFF_DATE.getCode());
+        }
+
+        // Rejected before reading the source account or writing anything
+        Mockito.verify(dao, Mockito.never()).getSubscriptionBundleForAccount(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any());
+        Mockito.verify(dao, Mockito.never()).transferBundles(Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<List<BundleMigrationData>>any(), Mockito.<List<TransferCancelData>>any(),
+                                                              Mockito.<InternalCallContext>any(), Mockito.<InternalCallContext>any());
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), sourceAccountId.toString()));
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), destAccountId.toString()));
+    }
+
     private List<SubscriptionBaseEvent> transferBundle(final DateTime migrateSubscriptionEventEffectiveDate, final DateTime migrateBillingEventEffectiveDate,
                                                        final DateTime transferDate) throws SubscriptionBaseTransferApiException {
         final ImmutableList<ExistingEvent> existingEvents = createMigrateEvents(migrateSubscriptionEventEffectiveDate, migrateBillingEventEffectiveDate);
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.api.TestApiListener.NextEvent;
@@ -43,6 +44,9 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
@@ -518,4 +522,65 @@ public class TestTransfer extends SubscriptionTestSuiteWithEmbeddedDB {
         final List<SubscriptionBase> subscriptions = subscriptionInternalApi.getSubscriptionsForBundle(newBundle.getId(), null, internalCallContext);
         assertEquals(subscriptions.size(), 1);
     }
+
+    @Test(groups = "slow")
+    public void testTransferSeveralBundles() throws Exception {
+        final String baseProduct = "Shotgun";
+        final BillingPeriod baseTerm = BillingPeriod.MONTHLY;
+        final String basePriceList = PriceListSet.DEFAULT_PRICELIST_NAME;
+
+        // CREATE BP ON TWO BUNDLES
+        final SubscriptionBase baseSubscription = testUtil.createSubscription(bundle, baseProduct, baseTerm, basePriceList);
+        final SubscriptionBaseBundle otherBundle = subscriptionInternalApi.createBundleForAccount(bundle.getAccountId(), "otherBundleKey", internalCallContext);
+        final SubscriptionBase otherBaseSubscription = testUtil.createSubscription(otherBundle, baseProduct, baseTerm, basePriceList);
+
+        // MOVE A LITTLE, STILL IN TRIAL
+        clock.addDays(20);
+
+        // EACH BUNDLE IS TRANSFERRED AT ITS OWN DATE
+        final DateTime transferRequestedDate = clock.getUTCNow();
+        final DateTime otherTransferRequestedDate = clock.getUTCNow().minusDays(5);
+
+        testListener.pushExpectedEvents(NextEvent.TRANSFER, NextEvent.CANCEL, NextEvent.TRANSFER, NextEvent.CANCEL);
+        final List<SubscriptionBaseBundle> newBundles = transferApi.transferBundles(bundle.getAccountId(), newAccountId, ImmutableList.<UUID>of(bundle.getId(), otherBundle.getId()),
+                                                                                    ImmutableMap.<UUID, DateTime>of(bundle.getId(), transferRequestedDate, otherBundle.getId(), otherTransferRequestedDate),
+                                                                                    false, false, callContext);
+        assertListenerStatus();
+
+        // CHECK OLD BASE SUBSCRIPTIONS ARE CANCELLED AT THEIR TRANSFER DATE
+        final SubscriptionBase oldBaseSubscription = subscriptionInternalApi.getSubscriptionFromId(baseSubscription.getId(), internalCallContext);
+        assertEquals(oldBaseSubscription.getEndDate().compareTo(transferRequestedDate), 0);
+        final SubscriptionBase oldOtherBaseSubscription = subscriptionInternalApi.getSubscriptionFromId(otherBaseSubscription.getId(), internalCallContext);
+        assertEquals(oldOtherBaseSubscription.getEndDate().compareTo(otherTransferRequestedDate), 0);
+
+        // CHECK NEW BUNDLES EXIST IN THE REQUESTED ORDER, WITH ONE SUBSCRIPTION EACH
+        assertEquals(newBundles.size(), 2);
+        assertEquals(newBundles.get(0).getExternalKey(), bundle.getExternalKey());
+        assertEquals(newBundles.get(1).getExternalKey(), otherBundle.getExternalKey());
+        for (final SubscriptionBaseBundle newBundle : newBundles) {
+            assertEquals(newBundle.getAccountId(), newAccountId);
+            final List<SubscriptionBase> subscriptions = subscriptionInternalApi.getSubscriptionsForBundle(newBundle.getId(), null, internalCallContext);
+            assertEquals(subscriptions.size(), 1);
+            assertEquals(subscriptions.get(0).getCurrentPlan().getProduct().getName(), baseProduct);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testTransferSeveralBundlesWithInvalidBundle() throws Exception {
+        testUtil.createSubscription(bundle, "Shotgun", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME);
+
+        clock.addDays(20);
+
+        final UUID unknownBundleId = UUID.randomUUID();
+        try {
+            transferApi.transferBundles(bundle.getAccountId(), newAccountId, ImmutableList.<UUID>of(bundle.getId(), unknownBundleId),
+                                        ImmutableMap.<UUID, DateTime>of(bundle.getId(), clock.getUTCNow(), unknownBundleId, clock.getUTCNow()), false, false, callContext);
+            Assert.fail("Transfer should fail on the unknown bundle");
+        } catch (final SubscriptionBaseTransferApiException e) {
+            assertEquals(e.getCode(), ErrorCode.SUB_GET_INVALID_BUNDLE_ID.getCode());
+        }
+
+        // Nothing should have been transferred
+        assertEquals(subscriptionInternalApi.getBundlesForAccount(newAccountId, internalCallContext).size(), 0);
+    }
 }
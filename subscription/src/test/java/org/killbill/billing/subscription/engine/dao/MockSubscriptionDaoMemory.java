@@ -496,6 +496,12 @@ public class MockSubscriptionDaoMemory extends MockEntityDaoBase<SubscriptionBun
                          final InternalCallContext toContext) {
     }
 
+    @Override
+    public void transferBundles(final UUID srcAccountId, final UUID destAccountId, final List<BundleMigrationData> data,
+                                final List<TransferCancelData> transferCancelData, final InternalCallContext fromContext,
+                                final InternalCallContext toContext) {
+    }
+
     @Override
     public void updateBundleExternalKey(final UUID bundleId, final String externalKey, final InternalCallContext context) {
     }
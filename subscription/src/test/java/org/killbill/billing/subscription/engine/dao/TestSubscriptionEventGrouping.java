@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.subscription.engine.dao;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+
+public class TestSubscriptionEventGrouping {
+
+    @Test(groups = "fast")
+    public void testEventsAreGroupedInOrder() throws Exception {
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+
+        final List<SubscriptionBaseEvent> eventsForAccount = new LinkedList<SubscriptionBaseEvent>();
+        final SubscriptionBaseEvent event1 = createEvent(subscriptionId1, eventsForAccount);
+        final SubscriptionBaseEvent event2 = createEvent(subscriptionId2, eventsForAccount);
+        final SubscriptionBaseEvent event3 = createEvent(subscriptionId1, eventsForAccount);
+        final SubscriptionBaseEvent event4 = createEvent(subscriptionId2, eventsForAccount);
+        final SubscriptionBaseEvent event5 = createEvent(subscriptionId1, eventsForAccount);
+
+        final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = DefaultSubscriptionDao.groupEventsBySubscriptionId(eventsForAccount);
+        Assert.assertEquals(eventsForSubscriptions.keySet().size(), 2);
+        Assert.assertEquals(eventsForSubscriptions.get(subscriptionId1), ImmutableList.<SubscriptionBaseEvent>of(event1, event3, event5));
+        Assert.assertEquals(eventsForSubscriptions.get(subscriptionId2), ImmutableList.<SubscriptionBaseEvent>of(event2, event4));
+        // buildBundleSubscriptions expects (mutable) lists, including for subscriptions without any event
+        Assert.assertTrue(eventsForSubscriptions.get(UUID.randomUUID()) instanceof List);
+    }
+
+    private SubscriptionBaseEvent createEvent(final UUID subscriptionId, final List<SubscriptionBaseEvent> eventsForAccount) {
+        final SubscriptionBaseEvent event = Mockito.mock(SubscriptionBaseEvent.class);
+        Mockito.when(event.getSubscriptionId()).thenReturn(subscriptionId);
+        eventsForAccount.add(event);
+        return event;
+    }
+}
@@ -27,6 +27,7 @@ import org.killbill.billing.subscription.SubscriptionTestInitializer;
 import org.killbill.billing.subscription.api.user.TestSubscriptionHelper;
 import org.killbill.billing.util.glue.CacheModule;
 import org.killbill.billing.util.glue.CallContextModule;
+import org.killbill.billing.util.glue.MemoryGlobalLockerModule;
 
 public class TestDefaultSubscriptionModule extends DefaultSubscriptionModule {
 
@@ -41,6 +42,7 @@ public class TestDefaultSubscriptionModule extends DefaultSubscriptionModule {
         install(new CallContextModule(configSource));
         install(new CacheModule(configSource));
         install(new MockTenantModule(configSource));
+        install(new MemoryGlobalLockerModule(configSource));
 
         bind(TestSubscriptionHelper.class).asEagerSingleton();
         bind(TestApiListener.class).asEagerSingleton();
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+@Singleton
+public class AccountCacheLoader extends BaseCacheLoader {
+
+    @Inject
+    public AccountCacheLoader() {
+        super();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return CacheType.ACCOUNT;
+    }
+
+    @Override
+    public Object load(final Object key, final Object argument) {
+        checkCacheLoaderStatus();
+
+        if (!(key instanceof String)) {
+            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
+        }
+        if (!(argument instanceof CacheLoaderArgument)) {
+            throw new IllegalArgumentException("Unexpected argument type of " + argument.getClass().getName());
+        }
+
+        final CacheLoaderArgument cacheLoaderArgument = (CacheLoaderArgument) argument;
+        if (cacheLoaderArgument.getArgs() == null || cacheLoaderArgument.getArgs().length != 1 || !(cacheLoaderArgument.getArgs()[0] instanceof LoaderCallback)) {
+            throw new IllegalArgumentException("Missing LoaderCallback from the arguments");
+        }
+
+        // The key is accountId::tenantRecordId, so that a tenant can never see an account cached on behalf of another one
+        final String[] parts = ((String) key).split(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
+        final UUID accountId = UUID.fromString(parts[0]);
+        final InternalTenantContext internalTenantContext = cacheLoaderArgument.getInternalTenantContext();
+        if (internalTenantContext == null || !parts[1].equals(String.valueOf(internalTenantContext.getTenantRecordId()))) {
+            throw new IllegalArgumentException("Tenant context doesn't match key " + key);
+        }
+
+        final LoaderCallback callback = (LoaderCallback) cacheLoaderArgument.getArgs()[0];
+        return callback.loadAccount(accountId, internalTenantContext);
+    }
+
+    public static String getCacheKey(final UUID accountId, final Long tenantRecordId) {
+        return accountId + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + tenantRecordId;
+    }
+
+    public interface LoaderCallback {
+
+        public Object loadAccount(final UUID accountId, final InternalTenantContext context);
+    }
+}
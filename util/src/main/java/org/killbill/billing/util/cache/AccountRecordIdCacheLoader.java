@@ -46,7 +46,7 @@ public class AccountRecordIdCacheLoader extends BaseIdCacheLoader implements Cac
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType) {
-        return nonEntityDao.retrieveAccountRecordIdFromObject(UUID.fromString(rawKey), objectType, null);
+    protected Object doRetrieveOperation(final Object key, final ObjectType objectType) {
+        return nonEntityDao.retrieveAccountRecordIdFromObject((UUID) key, objectType, null);
     }
 }
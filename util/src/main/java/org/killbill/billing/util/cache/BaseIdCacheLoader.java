@@ -17,6 +17,8 @@
 
 package org.killbill.billing.util.cache;
 
+import java.util.UUID;
+
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -32,27 +34,21 @@ public abstract class BaseIdCacheLoader extends BaseCacheLoader {
     public abstract CacheType getCacheType();
 
 
-    protected abstract Object doRetrieveOperation(final String rawKey, final ObjectType objectType);
+    protected abstract Object doRetrieveOperation(final Object key, final ObjectType objectType);
 
     @Override
     public Object load(final Object key, final Object argument) {
         checkCacheLoaderStatus();
 
-        if (!(key instanceof String)) {
+        final Class<?> expectedKeyClass = getCacheType().isKeyPrefixedWithTableName() ? ObjectIdCacheKey.class : UUID.class;
+        if (!expectedKeyClass.isInstance(key)) {
             throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
         }
         if (!(argument instanceof CacheLoaderArgument)) {
             throw new IllegalArgumentException("Unexpected key type of " + argument.getClass().getName());
         }
 
-        final String rawKey;
-        if (getCacheType().isKeyPrefixedWithTableName()) {
-            String [] parts = ((String) key).split(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
-            rawKey = parts[1];
-        } else {
-            rawKey = (String) key;
-        }
         final ObjectType objectType = ((CacheLoaderArgument) argument).getObjectType();
-        return doRetrieveOperation(rawKey, objectType);
+        return doRetrieveOperation(key, objectType);
     }
 }
@@ -60,7 +60,8 @@ public class EhCacheCacheManagerProvider implements Provider<CacheManager> {
                                        final TenantCatalogCacheLoader tenantCatalogCacheLoader,
                                        final TenantOverdueConfigCacheLoader tenantOverdueConfigCacheLoader,
                                        final TenantKVCacheLoader tenantKVCacheLoader,
-                                       final OverriddenPlanCacheLoader overriddenPlanCacheLoader) {
+                                       final OverriddenPlanCacheLoader overriddenPlanCacheLoader,
+                                       final AccountCacheLoader accountCacheLoader) {
         this.metricRegistry = metricRegistry;
         this.cacheConfig = cacheConfig;
         cacheLoaders.add(recordIdCacheLoader);
@@ -73,6 +74,7 @@ public class EhCacheCacheManagerProvider implements Provider<CacheManager> {
         cacheLoaders.add(tenantOverdueConfigCacheLoader);
         cacheLoaders.add(tenantKVCacheLoader);
         cacheLoaders.add(overriddenPlanCacheLoader);
+        cacheLoaders.add(accountCacheLoader);
     }
 
     @Override
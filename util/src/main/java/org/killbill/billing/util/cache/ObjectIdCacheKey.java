@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.io.Serializable;
+
+import org.killbill.billing.util.dao.TableName;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Key for the {@link Cachable.CacheType#OBJECT_ID} cache: 'tableName::recordId', without building the String.
+ * <p/>
+ * The other id caches (RECORD_ID, ACCOUNT_RECORD_ID and TENANT_RECORD_ID) are simply keyed by the object UUID.
+ */
+public final class ObjectIdCacheKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TableName tableName;
+    private final long recordId;
+    // Don't rely on the enum identity hashCode, which differs across JVMs (keys may be replicated)
+    private final int hashCode;
+
+    public ObjectIdCacheKey(final TableName tableName, final Long recordId) {
+        Preconditions.checkNotNull(tableName, "tableName can't be null");
+        Preconditions.checkNotNull(recordId, "recordId can't be null");
+        this.tableName = tableName;
+        this.recordId = recordId;
+        this.hashCode = 31 * tableName.ordinal() + (int) (recordId ^ (recordId >>> 32));
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public long getRecordId() {
+        return recordId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final ObjectIdCacheKey that = (ObjectIdCacheKey) o;
+        return recordId == that.recordId && tableName == that.tableName;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + recordId;
+    }
+}
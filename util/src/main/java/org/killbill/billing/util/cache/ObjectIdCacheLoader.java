@@ -45,8 +45,8 @@ public class ObjectIdCacheLoader extends BaseIdCacheLoader implements CacheLoade
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType) {
-        final Long recordId = Long.valueOf(rawKey);
+    protected Object doRetrieveOperation(final Object key, final ObjectType objectType) {
+        final Long recordId = ((ObjectIdCacheKey) key).getRecordId();
         return nonEntityDao.retrieveIdFromObject(recordId, objectType, null);
     }
 }
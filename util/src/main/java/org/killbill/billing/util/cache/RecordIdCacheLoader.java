@@ -46,7 +46,7 @@ public class RecordIdCacheLoader extends BaseIdCacheLoader implements CacheLoade
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType) {
-        return nonEntityDao.retrieveRecordIdFromObject(UUID.fromString(rawKey), objectType, null);
+    protected Object doRetrieveOperation(final Object key, final ObjectType objectType) {
+        return nonEntityDao.retrieveRecordIdFromObject((UUID) key, objectType, null);
     }
 }
@@ -46,7 +46,7 @@ public class TenantRecordIdCacheLoader extends BaseIdCacheLoader implements Cach
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType) {
-        return nonEntityDao.retrieveTenantRecordIdFromObject(UUID.fromString(rawKey), objectType, null);
+    protected Object doRetrieveOperation(final Object key, final ObjectType objectType) {
+        return nonEntityDao.retrieveTenantRecordIdFromObject((UUID) key, objectType, null);
     }
 }
@@ -44,4 +44,14 @@ public interface InvoiceConfig extends KillbillConfig {
     @Description("Maximum number of billingPeriod we read when retrieving raw usage data")
     public int getMaxRawUsagePreviousPeriod();
 
+    @Config("org.killbill.invoice.incrementalGeneration")
+    @Default("false")
+    @Description("Whether invoice runs triggered by a subscription only regenerate the items of the subscriptions which may have changed since the last invoice")
+    public boolean isIncrementalGenerationEnabled();
+
+    @Config("org.killbill.invoice.debounceWindow")
+    @Default("0s")
+    @Description("How long to wait for other subscription, entitlement or blocking events on the same account before running the invoice generation (ignored if set to 0s)")
+    public TimeSpan getDebounceWindow();
+
 }
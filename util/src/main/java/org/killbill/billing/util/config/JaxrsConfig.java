@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface JaxrsConfig extends KillbillConfig {
+
+    @Config("org.killbill.jaxrs.compression.threshold")
+    @Default("8192")
+    @Description("Minimum size (in bytes) of the responses to compress, for clients accepting gzip or deflate (negative to disable compression)")
+    public int getCompressionThreshold();
+
+    @Config("org.killbill.jaxrs.accessLog.samplingRate")
+    @Default("1")
+    @Description("Fraction (between 0 and 1) of the requests to log in the access log (server errors are always logged)")
+    public double getAccessLogSamplingRate();
+}
@@ -65,6 +65,31 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     public int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.pagination.threads.nb")
+    @Default("10")
+    @Description("Number of threads used to search across payment plugins concurrently")
+    public int getPaymentPluginPaginationThreadNb();
+
+    @Config("org.killbill.payment.plugin.pagination.queue.size")
+    @Default("100")
+    @Description("Maximum number of pending searches across payment plugins (further ones are run in the calling thread)")
+    public int getPaymentPluginPaginationQueueSize();
+
+    @Config("org.killbill.payment.plugin.pagination.timeout")
+    @Default("30s")
+    @Description("Timeout for searches across all payment plugins")
+    public TimeSpan getPaymentPluginPaginationTimeout();
+
+    @Config("org.killbill.payment.bulk.threads.nb")
+    @Default("10")
+    @Description("Number of threads used to pay the unpaid invoices of several accounts concurrently during bulk payment runs")
+    public int getBulkPaymentThreadNb();
+
+    @Config("org.killbill.payment.bulk.plugin.concurrency")
+    @Default("5")
+    @Description("Maximum number of concurrent payments per payment plugin during bulk payment runs")
+    public int getBulkPaymentMaxConcurrencyPerPlugin();
+
     @Config("org.killbill.payment.janitor.pending")
     @Default("12h")
     @Description("Delay after which pending transactions should be marked as failed")
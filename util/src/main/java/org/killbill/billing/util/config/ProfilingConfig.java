@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface ProfilingConfig extends KillbillConfig {
+
+    @Config("org.killbill.profiling.histograms.sampling.rate")
+    @Default("0.01")
+    @Description("Fraction (between 0 and 1) of API, DAO, plugin and JAX-RS calls recorded in the latency histograms (0 to disable)")
+    public double getLatencyHistogramsSamplingRate();
+}
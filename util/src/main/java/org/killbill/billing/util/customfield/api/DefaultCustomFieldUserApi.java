@@ -16,15 +16,15 @@
 
 package org.killbill.billing.util.customfield.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
@@ -40,7 +40,6 @@ import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePagina
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationNoException;
@@ -89,38 +88,15 @@ public class DefaultCustomFieldUserApi implements CustomFieldUserApi {
 
     @Override
     public void addCustomFields(final List<CustomField> customFields, final CallContext context) throws CustomFieldApiException {
-        // TODO make it transactional
-
-        final Map<UUID, ObjectType> mapping = new HashMap<UUID, ObjectType>();
-        for (final CustomField cur : customFields) {
-            mapping.put(cur.getObjectId(), cur.getObjectType());
-        }
-
-        final List<CustomFieldModelDao> all = new LinkedList<CustomFieldModelDao>();
-        for (UUID cur : mapping.keySet()) {
-            final ObjectType type = mapping.get(cur);
-            all.addAll(customFieldDao.getCustomFieldsForObject(cur, type, internalCallContextFactory.createInternalCallContext(cur, type, context)));
-        }
-        final List<CustomField> toBeInserted = new LinkedList<CustomField>();
+        final Map<UUID, InternalCallContext> contexts = new HashMap<UUID, InternalCallContext>();
+        final List<CustomFieldModelDao> toBeInserted = new ArrayList<CustomFieldModelDao>(customFields.size());
         for (final CustomField cur : customFields) {
-            final CustomFieldModelDao match = Iterables.tryFind(all, new com.google.common.base.Predicate<CustomFieldModelDao>() {
-                @Override
-                public boolean apply(final CustomFieldModelDao input) {
-                    return input.getObjectId().equals(cur.getObjectId()) &&
-                           input.getObjectType() == cur.getObjectType() &&
-                           input.getFieldName().equals(cur.getFieldName());
-
-                }
-            }).orNull();
-            if (match != null) {
-                throw new CustomFieldApiException(ErrorCode.CUSTOM_FIELD_ALREADY_EXISTS, match.getId());
+            if (!contexts.containsKey(cur.getObjectId())) {
+                contexts.put(cur.getObjectId(), internalCallContextFactory.createInternalCallContext(cur.getObjectId(), cur.getObjectType(), context));
             }
-            toBeInserted.add(cur);
-        }
-
-        for (CustomField cur : toBeInserted) {
-            customFieldDao.create(new CustomFieldModelDao(cur), internalCallContextFactory.createInternalCallContext(cur.getObjectId(), cur.getObjectType(), context));
+            toBeInserted.add(new CustomFieldModelDao(cur));
         }
+        customFieldDao.createCustomFields(toBeInserted, contexts);
     }
 
     @Override
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.customfield.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -38,4 +39,13 @@ public interface CustomFieldDao extends EntityDao<CustomFieldModelDao, CustomFie
     public List<CustomFieldModelDao> getCustomFieldsForAccount(final InternalTenantContext context);
 
     void deleteCustomField(UUID customFieldId, InternalCallContext context) throws CustomFieldApiException;
+
+    /**
+     * Create all the custom fields in a single transaction: nothing is created if one of them already exists
+     *
+     * @param customFields the custom fields to create
+     * @param contexts     the call context for each object id referenced by the custom fields
+     * @throws CustomFieldApiException if a custom field with the same name already exists for that object
+     */
+    void createCustomFields(List<CustomFieldModelDao> customFields, Map<UUID, InternalCallContext> contexts) throws CustomFieldApiException;
 }
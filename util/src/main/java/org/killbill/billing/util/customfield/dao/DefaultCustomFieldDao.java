@@ -16,8 +16,10 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -109,6 +111,41 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
 
     }
 
+    @Override
+    public void createCustomFields(final List<CustomFieldModelDao> customFields, final Map<UUID, InternalCallContext> contexts) throws CustomFieldApiException {
+        transactionalSqlDao.execute(CustomFieldApiException.class, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final CustomFieldSqlDao transactional = entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class);
+
+                // Validate the whole batch before inserting anything
+                final Map<UUID, Map<String, UUID>> fieldIdsPerObjectId = new HashMap<UUID, Map<String, UUID>>();
+                for (final CustomFieldModelDao customField : customFields) {
+                    Map<String, UUID> fieldIds = fieldIdsPerObjectId.get(customField.getObjectId());
+                    if (fieldIds == null) {
+                        fieldIds = new HashMap<String, UUID>();
+                        for (final CustomFieldModelDao existing : transactional.getCustomFieldsForObject(customField.getObjectId(), customField.getObjectType(), contexts.get(customField.getObjectId()))) {
+                            fieldIds.put(existing.getFieldName(), existing.getId());
+                        }
+                        fieldIdsPerObjectId.put(customField.getObjectId(), fieldIds);
+                    }
+                    final UUID existingFieldId = fieldIds.get(customField.getFieldName());
+                    if (existingFieldId != null) {
+                        throw new CustomFieldApiException(ErrorCode.CUSTOM_FIELD_ALREADY_EXISTS, existingFieldId);
+                    }
+                    fieldIds.put(customField.getFieldName(), customField.getId());
+                }
+
+                for (final CustomFieldModelDao customField : customFields) {
+                    final InternalCallContext context = contexts.get(customField.getObjectId());
+                    transactional.create(customField, context);
+                    postBusEventFromTransaction(customField, customField, ChangeType.INSERT, entitySqlDaoWrapperFactory, context);
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     protected CustomFieldApiException generateAlreadyExistsException(final CustomFieldModelDao entity, final InternalCallContext context) {
         return new CustomFieldApiException(ErrorCode.CUSTOM_FIELD_ALREADY_EXISTS, entity.getId());
@@ -154,6 +191,16 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
                                                   public Iterator<CustomFieldModelDao> build(final CustomFieldSqlDao customFieldSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return customFieldSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final CustomFieldSqlDao customFieldSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return customFieldSqlDao.getSearchNextRecordIdFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<CustomFieldModelDao> buildFromRecordId(final CustomFieldSqlDao customFieldSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return customFieldSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -22,7 +22,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.callcontext.InternalCallContext;
-import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.ObjectIdCacheKey;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
@@ -137,9 +137,10 @@ public class DefaultNonEntityDao implements NonEntityDao {
                 return null;
             }
             if (cache != null) {
-                final String key = (cache.getCacheType().isKeyPrefixedWithTableName()) ?
-                                   tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectOrRecordId.toString() :
-                                   objectOrRecordId.toString();
+                // Either the UUID (RECORD_ID, ACCOUNT_RECORD_ID and TENANT_RECORD_ID caches) or the table and record id (OBJECT_ID cache)
+                final Object key = (cache.getCacheType().isKeyPrefixedWithTableName()) ?
+                                   new ObjectIdCacheKey(tableName, (Long) objectOrRecordId) :
+                                   objectOrRecordId;
                 return (TypeOut) cache.get(key, new CacheLoaderArgument(objectType));
             }
             final TypeOut result;
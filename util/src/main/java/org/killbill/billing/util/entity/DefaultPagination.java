@@ -32,6 +32,9 @@ public class DefaultPagination<T> implements Pagination<T> {
     private final Long totalNbRecords;
     private final Long maxNbRecords;
     private final Iterator<T> delegateIterator;
+    // Only set for keyset (seek) paginations, where offsets are opaque tokens (see DefaultPaginationSqlDaoHelper)
+    private final boolean isKeyset;
+    private final Long keysetNextOffset;
 
     // Builder when the streaming API can't be used (should only be used for tests)
     // Notes: elements should be the entire records set (regardless of filtering) otherwise maxNbRecords won't be accurate
@@ -49,9 +52,20 @@ public class DefaultPagination<T> implements Pagination<T> {
         return new DefaultPagination<T>(offset, limit, (long) results.size(), (long) allResults.size(), results.iterator());
     }
 
+    // Builder for keyset paginations: the next offset cannot be derived from the current one
+    public static <T> Pagination<T> buildKeyset(final Long currentOffset, final Long limit, @Nullable final Long nextOffset, final Iterator<T> results) {
+        return new DefaultPagination<T>(currentOffset, limit, null, null, true, nextOffset, results);
+    }
+
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(),
+             limit,
+             original.getTotalNbRecords(),
+             original.getMaxNbRecords(),
+             original instanceof DefaultPagination && ((DefaultPagination) original).isKeyset,
+             original.getNextOffset(),
+             delegate);
     }
 
     // Constructor for DAO getAll calls
@@ -62,10 +76,19 @@ public class DefaultPagination<T> implements Pagination<T> {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, false, null, delegateIterator);
+    }
+
+    private DefaultPagination(final Long currentOffset, final Long limit,
+                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                              final boolean isKeyset, @Nullable final Long keysetNextOffset,
+                              final Iterator<T> delegateIterator) {
         this.currentOffset = currentOffset;
         this.limit = limit;
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
+        this.isKeyset = isKeyset;
+        this.keysetNextOffset = isKeyset ? keysetNextOffset : null;
         this.delegateIterator = delegateIterator;
     }
 
@@ -81,6 +104,10 @@ public class DefaultPagination<T> implements Pagination<T> {
 
     @Override
     public Long getNextOffset() {
+        if (isKeyset) {
+            return keysetNextOffset;
+        }
+
         final long candidate = currentOffset + limit;
         if (totalNbRecords != null && candidate >= totalNbRecords) {
             // No more results
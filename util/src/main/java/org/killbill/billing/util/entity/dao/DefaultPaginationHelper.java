@@ -16,8 +16,15 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +36,7 @@ import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
@@ -42,7 +50,15 @@ public class DefaultPaginationHelper {
         public abstract Pagination<E> build(final Long offset, final Long limit, final String pluginName) throws T;
     }
 
+    // Plugins only support offsets: keyset paginations can't be passed down to them, nor can their results be merged
+    // into a single continuation token. Reject them rather than silently searching our own tables only.
+    public static void verifyPluginPaginationOffset(final Long offset) {
+        Preconditions.checkArgument(!DefaultPaginationSqlDaoHelper.isKeysetToken(offset), "Keyset pagination isn't supported for plugin-backed paginations, use offsets instead");
+    }
+
     public static <E extends Entity, T extends BillingExceptionBase> Pagination<E> getEntityPaginationFromPlugins(final Iterable<String> plugins, final Long offset, final Long limit, final EntityPaginationBuilder<E, T> entityPaginationBuilder) {
+        verifyPluginPaginationOffset(offset);
+
         // Note that we cannot easily do streaming here, since we would have to rely on the statistics
         // returned by the Pagination objects from the plugins and we probably don't want to do that (if
         // one plugin gets it wrong, it may starve the others).
@@ -77,6 +93,122 @@ public class DefaultPaginationHelper {
         return new DefaultPagination<E>(offset, limit, totalNbRecords, maxNbRecords, allResults.iterator());
     }
 
+    // Same semantics (and same plugin queries) as above, but the plugin calls run on the specified executor, so that a slow plugin
+    // can't block the search past the (shared) deadline: plugins which don't respond in time are skipped, as if they had failed.
+    // Data queries depend on the results of the previous plugins and are issued one plugin at a time, their results being appended
+    // as soon as each plugin responds. Once the page is full, the (limit 1) statistics queries for the remaining plugins are issued concurrently.
+    public static <E extends Entity, T extends BillingExceptionBase> Pagination<E> getEntityPaginationFromPlugins(final Iterable<String> plugins,
+                                                                                                                  final Long offset,
+                                                                                                                  final Long limit,
+                                                                                                                  final ExecutorService executor,
+                                                                                                                  final long timeoutMs,
+                                                                                                                  final EntityPaginationBuilder<E, T> entityPaginationBuilder) {
+        verifyPluginPaginationOffset(offset);
+
+        final List<String> pluginNames = ImmutableList.<String>copyOf(plugins);
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        final List<E> allResults = new LinkedList<E>();
+        Long totalNbRecords = 0L;
+        Long maxNbRecords = 0L;
+
+        boolean firstSearch = true;
+        int i = 0;
+        for (; i < pluginNames.size() && allResults.size() < limit; i++) {
+            final String pluginName = pluginNames.get(i);
+            final Future<PluginPage<E>> future = submitPluginSearch(executor, pluginName, firstSearch ? offset : 0L, limit - allResults.size(), entityPaginationBuilder);
+            final PluginPage<E> page = getPluginPage(future, pluginName, deadlineNanos);
+            if (page == null) {
+                continue;
+            }
+
+            allResults.addAll(page.results);
+            // Make sure not to start at 0 for subsequent plugins if previous ones didn't yield any result
+            firstSearch = allResults.isEmpty();
+            totalNbRecords += page.totalNbRecords;
+            maxNbRecords += page.maxNbRecords;
+        }
+
+        // We have enough results, we just need the stats from the remaining plugins (limit 1)
+        final List<Future<PluginPage<E>>> futures = new ArrayList<Future<PluginPage<E>>>(pluginNames.size() - i);
+        for (int j = i; j < pluginNames.size(); j++) {
+            futures.add(submitPluginSearch(executor, pluginNames.get(j), firstSearch ? offset : 0L, 1L, entityPaginationBuilder));
+        }
+        try {
+            for (int j = 0; j < futures.size(); j++) {
+                final PluginPage<E> page = getPluginPage(futures.get(j), pluginNames.get(i + j), deadlineNanos);
+                if (page == null) {
+                    continue;
+                }
+
+                totalNbRecords += page.totalNbRecords;
+                maxNbRecords += page.maxNbRecords;
+            }
+        } finally {
+            // No-op for completed searches. Don't interrupt the running ones, plugins may not handle it gracefully.
+            for (final Future<PluginPage<E>> future : futures) {
+                future.cancel(false);
+            }
+        }
+
+        return new DefaultPagination<E>(offset, limit, totalNbRecords, maxNbRecords, allResults.iterator());
+    }
+
+    private static <E extends Entity, T extends BillingExceptionBase> Future<PluginPage<E>> submitPluginSearch(final ExecutorService executor,
+                                                                                                                final String pluginName,
+                                                                                                                final Long offset,
+                                                                                                                final Long limit,
+                                                                                                                final EntityPaginationBuilder<E, T> entityPaginationBuilder) {
+        return executor.submit(new Callable<PluginPage<E>>() {
+            @Override
+            public PluginPage<E> call() throws Exception {
+                final Pagination<E> pages = entityPaginationBuilder.build(offset, limit, pluginName);
+                // Required to close database connections
+                final List<E> results = ImmutableList.<E>copyOf(pages);
+                return new PluginPage<E>(results, pages.getTotalNbRecords(), pages.getMaxNbRecords());
+            }
+        });
+    }
+
+    // Returns null if the plugin failed or timed out
+    private static <E extends Entity> PluginPage<E> getPluginPage(final Future<PluginPage<E>> future, final String pluginName, final long deadlineNanos) {
+        try {
+            return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            log.warn("Timeout while searching plugin " + pluginName);
+            future.cancel(false);
+            return null;
+        } catch (final InterruptedException e) {
+            log.warn("Interrupted while searching plugin " + pluginName);
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            return null;
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof BillingExceptionBase) {
+                log.warn("Error while searching plugin " + pluginName, e.getCause());
+                // Non-fatal, continue to search other plugins
+                return null;
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private static final class PluginPage<E> {
+
+        private final List<E> results;
+        private final Long totalNbRecords;
+        private final Long maxNbRecords;
+
+        private PluginPage(final List<E> results, final Long totalNbRecords, final Long maxNbRecords) {
+            this.results = results;
+            this.totalNbRecords = totalNbRecords;
+            this.maxNbRecords = maxNbRecords;
+        }
+    }
+
     public abstract static class SourcePaginationBuilder<O, T extends BillingExceptionBase> {
 
         public abstract Pagination<O> build() throws T;
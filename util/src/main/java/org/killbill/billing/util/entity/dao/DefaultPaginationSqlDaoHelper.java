@@ -18,6 +18,8 @@ package org.killbill.billing.util.entity.dao;
 
 import java.util.Iterator;
 
+import javax.annotation.Nullable;
+
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
@@ -25,6 +27,11 @@ import org.killbill.billing.util.entity.Pagination;
 
 public class DefaultPaginationSqlDaoHelper {
 
+    // Keyset (seek) pagination: instead of an offset, callers pass an opaque (negative) token encoding the record_id
+    // to resume from. Each page then costs the same, regardless of its depth. Start with KEYSET_FIRST_PAGE and
+    // follow getNextOffset() until it returns null. Counts are not computed in that mode.
+    public static final Long KEYSET_FIRST_PAGE = -1L;
+
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     public DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao) {
@@ -36,6 +43,10 @@ public class DefaultPaginationSqlDaoHelper {
                                                                                                                      final Long offset,
                                                                                                                      final Long limit,
                                                                                                                      final InternalTenantContext context) {
+        if (isKeysetToken(offset)) {
+            return getKeysetPagination(sqlDaoClazz, paginationIteratorBuilder, offset, limit, context);
+        }
+
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
@@ -57,10 +68,55 @@ public class DefaultPaginationSqlDaoHelper {
         return new DefaultPagination<M>(offset, limit, count, totalCount, results);
     }
 
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getKeysetPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                            final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                            final Long offset,
+                                                                                                                            final Long limit,
+                                                                                                                            final InternalTenantContext context) {
+        final Long fromRecordId = toRecordId(offset);
+
+        // Seek to the first record of the next page up-front (index scan bounded by limit), as the pagination
+        // headers are sent before the results are streamed out
+        final Long nextRecordId = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                return paginationIteratorBuilder.getNextRecordId((S) sqlDao, fromRecordId, limit, context);
+            }
+        });
+
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+        final Iterator<M> results = paginationIteratorBuilder.buildFromRecordId((S) sqlDao, fromRecordId, limit, context);
+
+        return DefaultPagination.<M>buildKeyset(offset, limit, nextRecordId == null ? null : toKeysetToken(nextRecordId), results);
+    }
+
+    public static boolean isKeysetToken(@Nullable final Long offset) {
+        return offset != null && offset < 0;
+    }
+
+    public static Long toKeysetToken(final Long recordId) {
+        return -recordId;
+    }
+
+    public static Long toRecordId(final Long keysetToken) {
+        return -keysetToken;
+    }
+
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
 
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long limit, final InternalTenantContext context);
+
+        // Keyset pagination support (optional): record_id of the first record of the next page, if any
+        public Long getNextRecordId(final S sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+            throw new IllegalArgumentException("Keyset pagination isn't supported for this query");
+        }
+
+        // Keyset pagination support (optional): up to limit records, starting at record_id fromRecordId
+        public Iterator<M> buildFromRecordId(final S sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+            throw new IllegalArgumentException("Keyset pagination isn't supported for this query");
+        }
     }
 }
@@ -27,6 +27,9 @@ import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.profiling.LatencyHistograms;
+
+import com.google.inject.Inject;
 
 public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> implements EntityDao<M, E, U> {
 
@@ -41,6 +44,12 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
         this.paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao);
     }
 
+    // Only bound when the ProfilingModule is installed
+    @Inject(optional = true)
+    public void setLatencyHistograms(final LatencyHistograms latencyHistograms) {
+        transactionalSqlDao.setLatencyHistograms(latencyHistograms);
+    }
+
     @Override
     public void create(final M entity, final InternalCallContext context) throws U {
         transactionalSqlDao.execute(getCreateEntitySqlDaoTransactionWrapper(entity, context));
@@ -144,6 +153,16 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long limit, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), context);
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final EntitySqlDao<M, E> sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return sqlDao.getNextRecordIdFromRecordId(fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<M> buildFromRecordId(final EntitySqlDao<M, E> sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return sqlDao.getFromRecordId(fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -80,6 +80,21 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                                @Bind("likeSearchKey") final String likeSearchKey,
                                @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchFromRecordId(@Bind("searchKey") final String searchKey,
+                                          @Bind("likeSearchKey") final String likeSearchKey,
+                                          @Bind("fromRecordId") final Long fromRecordId,
+                                          @Bind("rowCount") final Long rowCount,
+                                          @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getSearchNextRecordIdFromRecordId(@Bind("searchKey") final String searchKey,
+                                                  @Bind("likeSearchKey") final String likeSearchKey,
+                                                  @Bind("fromRecordId") final Long fromRecordId,
+                                                  @Bind("rowCount") final Long rowCount,
+                                                  @BindBean final InternalTenantContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<M> getAll(@BindBean final InternalTenantContext context);
@@ -91,6 +106,17 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("orderBy") final String orderBy,
                            @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getFromRecordId(@Bind("fromRecordId") final Long fromRecordId,
+                                       @Bind("rowCount") final Long rowCount,
+                                       @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getNextRecordIdFromRecordId(@Bind("fromRecordId") final Long fromRecordId,
+                                            @Bind("rowCount") final Long rowCount,
+                                            @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCount(@BindBean final InternalTenantContext context);
 
@@ -27,9 +27,12 @@ import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -43,12 +46,15 @@ import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.ObjectIdCacheKey;
 import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.profiling.LatencyHistograms;
+import org.killbill.billing.util.profiling.LatencyHistograms.Sample;
 import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 import org.killbill.clock.Clock;
 import org.killbill.commons.profiling.Profiling;
@@ -65,11 +71,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 
 /**
  * Wraps an instance of EntitySqlDao, performing extra work around each method (Sql query)
@@ -82,6 +85,9 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
+    // Handlers are created per transaction: keep the @CachableKey lookups (reflection) across instances
+    private static final ConcurrentMap<Method, int[]> CACHABLE_KEY_ARGUMENT_POSITIONS = new ConcurrentHashMap<Method, int[]>();
+
     private final Class<S> sqlDaoClass;
     private final S sqlDao;
     private final Handle handle;
@@ -90,6 +96,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private final Clock clock;
     private final NonEntityDao nonEntityDao;
     private final Profiling prof;
+    private final LatencyHistograms latencyHistograms;
 
     public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
                                                 final S sqlDao,
@@ -97,7 +104,9 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 final Clock clock,
                                                 // Special DAO that don't require caching can invoke EntitySqlDaoWrapperInvocationHandler with no caching (e.g NoCachingTenantDao)
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
-                                                @Nullable final NonEntityDao nonEntityDao) {
+                                                @Nullable final NonEntityDao nonEntityDao,
+                                                // Only available when the ProfilingModule is installed
+                                                @Nullable final LatencyHistograms latencyHistograms) {
         this.sqlDaoClass = sqlDaoClass;
         this.sqlDao = sqlDao;
         this.handle = handle;
@@ -105,10 +114,13 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
         this.prof = new Profiling<Object>();
+        this.latencyHistograms = latencyHistograms;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        // One timer per SqlDao method, the nested queries (audit, history) being part of it
+        final Sample sample = latencyHistograms == null ? null : latencyHistograms.start(ProfilingFeatureType.DAO, sqlDaoClass.getSimpleName(), method.getName());
         try {
             return prof.executeWithProfiling(ProfilingFeatureType.DAO, sqlDaoClass.getSimpleName() + ":" + method.getName(), new WithProfilingCallback() {
                 @Override
@@ -146,6 +158,8 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             } else {
                 errorDuringTransaction(t, method);
             }
+        } finally {
+            LatencyHistograms.stop(sample);
         }
 
         // Never reached
@@ -221,28 +235,25 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         Object result = null;
         if (cache != null) {
             // Find all arguments marked with @CachableKey
-            final Map<Integer, Object> keyPieces = new LinkedHashMap<Integer, Object>();
-            final Annotation[][] annotations = method.getParameterAnnotations();
-            for (int i = 0; i < annotations.length; i++) {
-                for (int j = 0; j < annotations[i].length; j++) {
-                    final Annotation annotation = annotations[i][j];
-                    if (CachableKey.class.equals(annotation.annotationType())) {
-                        // CachableKey position starts at 1
-                        keyPieces.put(((CachableKey) annotation).value() - 1, args[i]);
-                        break;
-                    }
-                }
+            final int[] cachableKeyArgumentPositions = getCachableKeyArgumentPositions(method);
+            final Object[] keyPieces = new Object[cachableKeyArgumentPositions.length];
+            for (int i = 0; i < cachableKeyArgumentPositions.length; i++) {
+                keyPieces[i] = args[cachableKeyArgumentPositions[i]];
             }
 
             // Build the Cache key
-            final String cacheKey = buildCacheKey(keyPieces);
-
-            final InternalTenantContext internalTenantContext = (InternalTenantContext) Iterables.find(ImmutableList.copyOf(args), new Predicate<Object>() {
-                @Override
-                public boolean apply(final Object input) {
-                    return input instanceof InternalTenantContext;
+            final Object cacheKey = cacheType == CacheType.RECORD_ID ?
+                                    // Id caches are keyed by UUID (UUID.fromString is case insensitive)
+                                    UUID.fromString(String.valueOf(keyPieces[0])) :
+                                    buildCacheKey(keyPieces);
+
+            InternalTenantContext internalTenantContext = null;
+            for (final Object arg : args) {
+                if (arg instanceof InternalTenantContext) {
+                    internalTenantContext = (InternalTenantContext) arg;
+                    break;
                 }
-            }, null);
+            }
             final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(objectType, args, internalTenantContext);
             return cache.get(cacheKey, cacheLoaderArgument);
         }
@@ -341,28 +352,22 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private void populateCacheOnGetByIdInvocation(M model) {
 
         final CacheController<Object, Object> cacheRecordId = cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID);
-        cacheRecordId.add(getKey(model.getId().toString(), CacheType.RECORD_ID, model.getTableName()), model.getRecordId());
+        cacheRecordId.add(model.getId(), model.getRecordId());
 
         final CacheController<Object, Object> cacheObjectId = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
-        cacheObjectId.add(getKey(model.getRecordId().toString(), CacheType.OBJECT_ID, model.getTableName()), model.getId());
+        cacheObjectId.add(new ObjectIdCacheKey(model.getTableName(), model.getRecordId()), model.getId());
 
         if (model.getTenantRecordId() != null) {
             final CacheController<Object, Object> cacheTenantRecordId = cacheControllerDispatcher.getCacheController(CacheType.TENANT_RECORD_ID);
-            cacheTenantRecordId.add(getKey(model.getId().toString(), CacheType.TENANT_RECORD_ID, model.getTableName()), model.getTenantRecordId());
+            cacheTenantRecordId.add(model.getId(), model.getTenantRecordId());
         }
 
         if (model.getAccountRecordId() != null) {
             final CacheController<Object, Object> cacheAccountRecordId = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_RECORD_ID);
-            cacheAccountRecordId.add(getKey(model.getId().toString(), CacheType.ACCOUNT_RECORD_ID, model.getTableName()), model.getAccountRecordId());
+            cacheAccountRecordId.add(model.getId(), model.getAccountRecordId());
         }
     }
 
-    private String getKey(final String rawKey, final CacheType cacheType, final TableName tableName) {
-        return cacheType.isKeyPrefixedWithTableName() ?
-               tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + rawKey :
-               rawKey;
-    }
-
     private void updateHistoryAndAudit(final String entityId, final Map<String, M> entities, final Map<String, Long> entityRecordIds,
                                        final ChangeType changeType, final InternalCallContext context) throws Throwable {
 
@@ -476,30 +481,56 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         if (tableName.getHistoryTableName() != null) {
             final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
             if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
+                final String key = buildCacheKey(tableName.getHistoryTableName(), tableName.getHistoryTableName(), entityRecordId);
                 cacheController.remove(key);
             }
         } else {
             final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
             if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
+                final String key = buildCacheKey(tableName, entityRecordId);
                 cacheController.remove(key);
             }
         }
     }
 
-    private String buildCacheKey(final Map<Integer, Object> keyPieces) {
+    private String buildCacheKey(final Object... keyPieces) {
         final StringBuilder cacheKey = new StringBuilder();
-        for (int i = 0; i < keyPieces.size(); i++) {
+        for (int i = 0; i < keyPieces.length; i++) {
             // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
             // Since the database engine may be case insensitive and we use arguments of the SQL method call
             // to build the key, the key has to be case insensitive as well.
-            final String str = String.valueOf(keyPieces.get(i)).toUpperCase();
+            final String str = String.valueOf(keyPieces[i]).toUpperCase();
             cacheKey.append(str);
-            if (i < keyPieces.size() - 1) {
+            if (i < keyPieces.length - 1) {
                 cacheKey.append(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
             }
         }
         return cacheKey.toString();
     }
+
+    // Positions of the arguments marked with @CachableKey, ordered by CachableKey#value
+    private static int[] getCachableKeyArgumentPositions(final Method method) {
+        int[] positions = CACHABLE_KEY_ARGUMENT_POSITIONS.get(method);
+        if (positions == null) {
+            final Map<Integer, Integer> positionsByKeyIndex = new TreeMap<Integer, Integer>();
+            final Annotation[][] annotations = method.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                for (int j = 0; j < annotations[i].length; j++) {
+                    final Annotation annotation = annotations[i][j];
+                    if (CachableKey.class.equals(annotation.annotationType())) {
+                        positionsByKeyIndex.put(((CachableKey) annotation).value(), i);
+                        break;
+                    }
+                }
+            }
+
+            positions = new int[positionsByKeyIndex.size()];
+            int k = 0;
+            for (final Integer position : positionsByKeyIndex.values()) {
+                positions[k++] = position;
+            }
+            CACHABLE_KEY_ARGUMENT_POSITIONS.putIfAbsent(method, positions);
+        }
+        return positions;
+    }
 }
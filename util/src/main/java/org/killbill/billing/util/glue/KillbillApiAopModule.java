@@ -22,11 +22,14 @@ import java.lang.reflect.Method;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.killbill.billing.KillbillApi;
+import org.killbill.billing.util.profiling.LatencyHistograms;
+import org.killbill.billing.util.profiling.LatencyHistograms.Sample;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
 import com.google.inject.matcher.Matcher;
 import com.google.inject.matcher.Matchers;
 
@@ -35,23 +38,40 @@ public class KillbillApiAopModule extends AbstractModule {
     @Override
     protected void configure() {
 
+        final ProfilingMethodInterceptor profilingMethodInterceptor = new ProfilingMethodInterceptor();
+        requestInjection(profilingMethodInterceptor);
         bindInterceptor(Matchers.subclassesOf(KillbillApi.class),
                         Matchers.not(SYNTHETIC_METHOD_MATCHER),
-                        new ProfilingMethodInterceptor());
+                        profilingMethodInterceptor);
     }
 
     public static class ProfilingMethodInterceptor implements MethodInterceptor {
 
         private final Profiling prof = new Profiling<Object>();
 
+        // Only bound when the ProfilingModule is installed
+        private volatile LatencyHistograms latencyHistograms;
+
+        @Inject(optional = true)
+        public void setLatencyHistograms(final LatencyHistograms latencyHistograms) {
+            this.latencyHistograms = latencyHistograms;
+        }
+
         @Override
         public Object invoke(final MethodInvocation invocation) throws Throwable {
-            return prof.executeWithProfiling(ProfilingFeatureType.API, invocation.getMethod().getName(), new WithProfilingCallback() {
-                @Override
-                public Object execute() throws Throwable {
-                    return invocation.proceed();
-                }
-            });
+            final Method method = invocation.getMethod();
+            final LatencyHistograms latencyHistograms = this.latencyHistograms;
+            final Sample sample = latencyHistograms == null ? null : latencyHistograms.start(ProfilingFeatureType.API, method.getDeclaringClass().getSimpleName(), method.getName());
+            try {
+                return prof.executeWithProfiling(ProfilingFeatureType.API, method.getName(), new WithProfilingCallback() {
+                    @Override
+                    public Object execute() throws Throwable {
+                        return invocation.proceed();
+                    }
+                });
+            } finally {
+                LatencyHistograms.stop(sample);
+            }
         }
     }
 
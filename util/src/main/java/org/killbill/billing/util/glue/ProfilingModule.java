@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.glue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.ProfilingConfig;
+import org.killbill.billing.util.entity.dao.EntityDao;
+import org.killbill.billing.util.profiling.LatencyHistograms;
+import org.killbill.billing.util.profiling.LatencyHistogramsMethodInterceptor;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matcher;
+import com.google.inject.matcher.Matchers;
+
+public class ProfilingModule extends KillBillModule {
+
+    public ProfilingModule(final KillbillConfigSource configSource) {
+        super(configSource);
+    }
+
+    @Override
+    protected void configure() {
+        final ProfilingConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(ProfilingConfig.class);
+        bind(ProfilingConfig.class).toInstance(config);
+
+        bind(LatencyHistograms.class).asEagerSingleton();
+
+        // Each SqlDao query is timed by the EntitySqlDaoWrapperInvocationHandler. This records the EntityDao calls
+        // (one sample per top-level call, see LatencyHistogramsMethodInterceptor)
+        final LatencyHistogramsMethodInterceptor daoInterceptor = new LatencyHistogramsMethodInterceptor(ProfilingFeatureType.DAO);
+        requestInjection(daoInterceptor);
+        bindInterceptor(Matchers.subclassesOf(EntityDao.class),
+                        DAO_METHOD_MATCHER,
+                        daoInterceptor);
+    }
+
+    private static final Matcher<Method> DAO_METHOD_MATCHER = new AbstractMatcher<Method>() {
+        @Override
+        public boolean matches(final Method method) {
+            return Modifier.isPublic(method.getModifiers()) && !method.isSynthetic() && !method.isAnnotationPresent(Inject.class);
+        }
+    };
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.jackson;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Pre-built readers and writers, one per concrete class.
+ * <p/>
+ * Going through the mapper resolves the root (de)serializer of the value on every call, while a reader or writer
+ * built for a given type resolves it once. Readers and writers are immutable and thread-safe: the mapper must be fully
+ * configured before being handed to the registry.
+ */
+public class ObjectReaderWriterRegistry {
+
+    private final com.fasterxml.jackson.databind.ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    public ObjectReaderWriterRegistry() {
+        this(new ObjectMapper());
+    }
+
+    public ObjectReaderWriterRegistry(final com.fasterxml.jackson.databind.ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ObjectReader readerFor(final Class<?> clazz) {
+        ObjectReader reader = readers.get(clazz);
+        if (reader == null) {
+            reader = mapper.reader(clazz);
+            final ObjectReader existingReader = readers.putIfAbsent(clazz, reader);
+            if (existingReader != null) {
+                reader = existingReader;
+            }
+        }
+        return reader;
+    }
+
+    public ObjectWriter writerFor(final Class<?> clazz) {
+        ObjectWriter writer = writers.get(clazz);
+        if (writer == null) {
+            writer = mapper.writerWithType(clazz);
+            final ObjectWriter existingWriter = writers.putIfAbsent(clazz, writer);
+            if (existingWriter != null) {
+                writer = existingWriter;
+            }
+        }
+        return writer;
+    }
+
+    public <T> T readValue(final String json, final Class<T> clazz) throws IOException {
+        return readerFor(clazz).readValue(json);
+    }
+
+    public <T> T readValue(final byte[] json, final Class<T> clazz) throws IOException {
+        return readerFor(clazz).readValue(json);
+    }
+
+    // As with ObjectMapper#writeValueAsString, the value is serialized using its runtime type
+    public String writeValueAsString(final Object value) throws JsonProcessingException {
+        return value == null ? mapper.writeValueAsString(null) : writerFor(value.getClass()).writeValueAsString(value);
+    }
+
+    public byte[] writeValueAsBytes(final Object value) throws JsonProcessingException {
+        return value == null ? mapper.writeValueAsBytes(null) : writerFor(value.getClass()).writeValueAsBytes(value);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.profiling;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.util.config.ProfilingConfig;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Always-on counterpart of the per-request Profiling: a sample of the calls is timed and recorded,
+ * per feature and operation, in Timers (histograms and rates) of the MetricRegistry.
+ * <p/>
+ * The instance is bound by the ProfilingModule and injected (optionally, as the ProfilingModule is only installed
+ * by the servers) in the callers: each injector records in its own MetricRegistry.
+ */
+@Singleton
+public class LatencyHistograms {
+
+    private static final String METRIC_PREFIX = "killbill.profiling";
+
+    private final MetricRegistry metricRegistry;
+    private final double samplingRate;
+
+    // One generator per thread, to keep the sampling decision uncontended
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    @Inject
+    public LatencyHistograms(final MetricRegistry metricRegistry, final ProfilingConfig profilingConfig) {
+        this(metricRegistry, profilingConfig.getLatencyHistogramsSamplingRate());
+    }
+
+    @VisibleForTesting
+    LatencyHistograms(final MetricRegistry metricRegistry, final double samplingRate) {
+        Preconditions.checkArgument(samplingRate >= 0 && samplingRate <= 1, "Invalid sampling rate %s", samplingRate);
+        this.metricRegistry = metricRegistry;
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * Start timing a call, if it is part of the sample.
+     *
+     * @param featureType profiling feature (e.g. DAO)
+     * @param component   component invoked (e.g. DAO class)
+     * @param operation   operation invoked (e.g. method name)
+     * @return the sample to stop once the call is done, null if the call isn't sampled
+     */
+    @Nullable
+    public Sample start(final ProfilingFeatureType featureType, final String component, final String operation) {
+        if (!shouldSample()) {
+            return null;
+        }
+        return new Sample(this, featureType, component, operation);
+    }
+
+    public static void stop(@Nullable final Sample sample) {
+        if (sample != null) {
+            sample.stop();
+        }
+    }
+
+    @VisibleForTesting
+    boolean shouldSample() {
+        return samplingRate > 0 && (samplingRate >= 1 || random.get().nextDouble() < samplingRate);
+    }
+
+    @VisibleForTesting
+    void update(final ProfilingFeatureType featureType, final String component, final String operation, final long durationNanos) {
+        // The metric name is only built for sampled calls. Timers are lock-free (LongAdder based) on the update path,
+        // except for the reservoir which sampling keeps uncontended
+        metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, featureType.name(), component, operation))
+                      .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static final class Sample {
+
+        private final LatencyHistograms latencyHistograms;
+        private final ProfilingFeatureType featureType;
+        private final String component;
+        private final String operation;
+        private final long startNanos;
+
+        private Sample(final LatencyHistograms latencyHistograms, final ProfilingFeatureType featureType, final String component, final String operation) {
+            this.latencyHistograms = latencyHistograms;
+            this.featureType = featureType;
+            this.component = component;
+            this.operation = operation;
+            this.startNanos = System.nanoTime();
+        }
+
+        private void stop() {
+            latencyHistograms.update(featureType, component, operation, System.nanoTime() - startNanos);
+        }
+    }
+}
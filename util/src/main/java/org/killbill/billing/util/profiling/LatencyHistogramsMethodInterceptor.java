@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.profiling;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.killbill.billing.util.profiling.LatencyHistograms.Sample;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+
+import com.google.inject.Inject;
+
+/**
+ * Record the latency of the intercepted methods, by declaring class and method name.
+ * <p/>
+ * Only the outermost intercepted call of each thread is recorded: calls nested in it (e.g. a DAO calling another one,
+ * or one of its own public methods) are part of its latency and aren't counted again.
+ */
+public class LatencyHistogramsMethodInterceptor implements MethodInterceptor {
+
+    private final ProfilingFeatureType featureType;
+
+    private final ThreadLocal<Boolean> inInterceptedCall = new ThreadLocal<Boolean>();
+
+    private volatile LatencyHistograms latencyHistograms;
+
+    public LatencyHistogramsMethodInterceptor(final ProfilingFeatureType featureType) {
+        this.featureType = featureType;
+    }
+
+    // Interceptors are created by the modules: the histograms are injected through requestInjection, no-op if the ProfilingModule isn't installed
+    @Inject(optional = true)
+    public void setLatencyHistograms(final LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        final LatencyHistograms latencyHistograms = this.latencyHistograms;
+        if (latencyHistograms == null || inInterceptedCall.get() != null) {
+            return invocation.proceed();
+        }
+
+        final Method method = invocation.getMethod();
+        final Sample sample = latencyHistograms.start(featureType, method.getDeclaringClass().getSimpleName(), method.getName());
+        inInterceptedCall.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            inInterceptedCall.remove();
+            LatencyHistograms.stop(sample);
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package org.killbill.billing.util.tag;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -80,6 +82,18 @@ public class DefaultTagInternalApi implements TagInternalApi {
 
     }
 
+    @Override
+    public void addTags(final ObjectType objectType, final Map<UUID, List<UUID>> tagDefinitionIdsPerObjectId, final Map<UUID, InternalCallContext> contextPerObjectId) throws TagApiException {
+        final List<TagModelDao> tags = new ArrayList<TagModelDao>();
+        for (final Map.Entry<UUID, List<UUID>> entry : tagDefinitionIdsPerObjectId.entrySet()) {
+            final InternalCallContext context = contextPerObjectId.get(entry.getKey());
+            for (final UUID tagDefinitionId : entry.getValue()) {
+                tags.add(new TagModelDao(context.getCreatedDate(), tagDefinitionId, entry.getKey(), objectType));
+            }
+        }
+        tagDao.createTags(tags, contextPerObjectId);
+    }
+
     @Override
     public void removeTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final InternalCallContext context)
             throws TagApiException {
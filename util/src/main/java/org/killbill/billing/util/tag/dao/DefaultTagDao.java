@@ -16,8 +16,13 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.IDBI;
@@ -114,8 +119,13 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
                                                final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context)
             throws BillingExceptionBase {
 
-        final TagInternalEvent tagEvent;
         final TagDefinitionModelDao tagDefinition = getTagDefinitionFromTransaction(tag.getTagDefinitionId(), entitySqlDaoWrapperFactory, context);
+        postBusEventFromTransaction(tag, tagDefinition, changeType, entitySqlDaoWrapperFactory, context);
+    }
+
+    private void postBusEventFromTransaction(final TagModelDao tag, final TagDefinitionModelDao tagDefinition, final ChangeType changeType,
+                                             final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final TagInternalEvent tagEvent;
         final boolean isControlTag = ControlTagType.getTypeFromId(tagDefinition.getId()) != null;
         switch (changeType) {
             case INSERT:
@@ -186,6 +196,47 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
         transactionalSqlDao.execute(TagApiException.class, getCreateEntitySqlDaoTransactionWrapper(entity, context));
     }
 
+    @Override
+    public void createTags(final List<TagModelDao> tags, final Map<UUID, InternalCallContext> contexts) throws TagApiException {
+        transactionalSqlDao.execute(TagApiException.class, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final TagSqlDao transactional = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+
+                // Validate the whole batch before inserting anything
+                final Map<UUID, TagDefinitionModelDao> tagDefinitions = new HashMap<UUID, TagDefinitionModelDao>();
+                final Map<UUID, Set<UUID>> tagDefinitionIdsPerObjectId = new HashMap<UUID, Set<UUID>>();
+                final List<TagModelDao> toBeInserted = new ArrayList<TagModelDao>(tags.size());
+                for (final TagModelDao tag : tags) {
+                    final InternalCallContext context = contexts.get(tag.getObjectId());
+                    if (!tagDefinitions.containsKey(tag.getTagDefinitionId())) {
+                        tagDefinitions.put(tag.getTagDefinitionId(), getTagDefinitionFromTransaction(tag.getTagDefinitionId(), entitySqlDaoWrapperFactory, context));
+                    }
+
+                    Set<UUID> tagDefinitionIds = tagDefinitionIdsPerObjectId.get(tag.getObjectId());
+                    if (tagDefinitionIds == null) {
+                        tagDefinitionIds = new HashSet<UUID>();
+                        for (final TagModelDao existingTag : transactional.getTagsForObject(tag.getObjectId(), tag.getObjectType(), context)) {
+                            tagDefinitionIds.add(existingTag.getTagDefinitionId());
+                        }
+                        tagDefinitionIdsPerObjectId.put(tag.getObjectId(), tagDefinitionIds);
+                    }
+                    // Be lenient, as for a single tag, and skip the tags which already exist
+                    if (tagDefinitionIds.add(tag.getTagDefinitionId())) {
+                        toBeInserted.add(tag);
+                    }
+                }
+
+                for (final TagModelDao tag : toBeInserted) {
+                    final InternalCallContext context = contexts.get(tag.getObjectId());
+                    transactional.create(tag, context);
+                    postBusEventFromTransaction(tag, tagDefinitions.get(tag.getTagDefinitionId()), ChangeType.INSERT, entitySqlDaoWrapperFactory, context);
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public void deleteTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final InternalCallContext context) throws TagApiException {
 
@@ -230,6 +281,16 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
                                                   public Iterator<TagModelDao> build(final TagSqlDao tagSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return tagSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Long getNextRecordId(final TagSqlDao tagSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return tagSqlDao.getSearchNextRecordIdFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<TagModelDao> buildFromRecordId(final TagSqlDao tagSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return tagSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
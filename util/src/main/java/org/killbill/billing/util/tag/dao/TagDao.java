@@ -17,6 +17,7 @@
 package org.killbill.billing.util.tag.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -31,6 +32,16 @@ public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
 
     void deleteTag(UUID objectId, ObjectType objectType, UUID tagDefinition, InternalCallContext context) throws TagApiException;
 
+    /**
+     * Create all the tags in a single transaction. Tags which already exist are skipped, and nothing is created if one
+     * of the tag definitions does not exist.
+     *
+     * @param tags     the tags to create
+     * @param contexts the call context for each object id referenced by the tags
+     * @throws TagApiException if one of the tag definitions does not exist
+     */
+    void createTags(List<TagModelDao> tags, Map<UUID, InternalCallContext> contexts) throws TagApiException;
+
     Pagination<TagModelDao> searchTags(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
     List<TagModelDao> getTagsForObject(UUID objectId, ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.dao.TableName;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestObjectIdCacheKey extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testEqualsAndHashCode() throws Exception {
+        final ObjectIdCacheKey key = new ObjectIdCacheKey(TableName.TAG, 12L);
+
+        Assert.assertEquals(new ObjectIdCacheKey(TableName.TAG, 12L), key);
+        Assert.assertEquals(new ObjectIdCacheKey(TableName.TAG, 12L).hashCode(), key.hashCode());
+        Assert.assertNotEquals(new ObjectIdCacheKey(TableName.TAG, 13L), key);
+        Assert.assertNotEquals(new ObjectIdCacheKey(TableName.ACCOUNT, 12L), key);
+        Assert.assertEquals(key.toString(), "TAG::12");
+    }
+
+    @Test(groups = "fast")
+    public void testSerialization() throws Exception {
+        final ObjectIdCacheKey key = new ObjectIdCacheKey(TableName.INVOICES, Long.MAX_VALUE);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOutputStream = new ObjectOutputStream(out);
+        objectOutputStream.writeObject(key);
+        objectOutputStream.close();
+
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+        final Object deserializedKey = in.readObject();
+        Assert.assertEquals(deserializedKey, key);
+        Assert.assertEquals(deserializedKey.hashCode(), key.hashCode());
+    }
+}
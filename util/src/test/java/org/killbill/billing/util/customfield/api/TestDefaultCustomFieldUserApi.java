@@ -26,9 +26,11 @@ import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
 
@@ -93,4 +95,35 @@ public class TestDefaultCustomFieldUserApi extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(remainingCustomFields.size(), 0);
 
     }
+
+    @Test(groups = "slow")
+    public void testAddCustomFieldsForSeveralObjects() throws Exception {
+        final UUID objectId1 = UUID.randomUUID();
+        final UUID objectId2 = UUID.randomUUID();
+
+        final CustomField customField1 = new StringCustomField("name", "value1", ObjectType.INVOICE, objectId1, callContext.getCreatedDate());
+        final CustomField customField2 = new StringCustomField("name", "value2", ObjectType.INVOICE, objectId2, callContext.getCreatedDate());
+        eventsListener.pushExpectedEvents(NextEvent.CUSTOM_FIELD, NextEvent.CUSTOM_FIELD);
+        customFieldUserApi.addCustomFields(ImmutableList.<CustomField>of(customField1, customField2), callContext);
+        assertListenerStatus();
+
+        final List<CustomField> customFields1 = customFieldUserApi.getCustomFieldsForObject(objectId1, ObjectType.INVOICE, callContext);
+        Assert.assertEquals(customFields1.size(), 1);
+        Assert.assertEquals(customFields1.get(0).getFieldValue(), "value1");
+        final List<CustomField> customFields2 = customFieldUserApi.getCustomFieldsForObject(objectId2, ObjectType.INVOICE, callContext);
+        Assert.assertEquals(customFields2.size(), 1);
+        Assert.assertEquals(customFields2.get(0).getFieldValue(), "value2");
+
+        // The whole batch is rejected if one of the fields already exists
+        final UUID objectId3 = UUID.randomUUID();
+        final CustomField customField3 = new StringCustomField("name", "value3", ObjectType.INVOICE, objectId3, callContext.getCreatedDate());
+        final CustomField duplicateCustomField = new StringCustomField("name", "other", ObjectType.INVOICE, objectId2, callContext.getCreatedDate());
+        try {
+            customFieldUserApi.addCustomFields(ImmutableList.<CustomField>of(customField3, duplicateCustomField), callContext);
+            Assert.fail("Should not be able to create twice the same custom field");
+        } catch (final CustomFieldApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CUSTOM_FIELD_ALREADY_EXISTS.getCode());
+        }
+        Assert.assertEquals(customFieldUserApi.getCustomFieldsForObject(objectId3, ObjectType.INVOICE, callContext).size(), 0);
+    }
 }
@@ -18,8 +18,10 @@ package org.killbill.billing.util.customfield.dao;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -61,4 +63,18 @@ public class MockCustomFieldDao extends MockEntityDaoBase<CustomFieldModelDao, C
     public void deleteCustomField(final UUID customFieldId, final InternalCallContext context) throws CustomFieldApiException {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public void createCustomFields(final List<CustomFieldModelDao> customFields, final Map<UUID, InternalCallContext> contexts) throws CustomFieldApiException {
+        for (final CustomFieldModelDao customField : customFields) {
+            for (final CustomFieldModelDao existing : getCustomFieldsForObject(customField.getObjectId(), customField.getObjectType(), contexts.get(customField.getObjectId()))) {
+                if (existing.getFieldName().equals(customField.getFieldName())) {
+                    throw new CustomFieldApiException(ErrorCode.CUSTOM_FIELD_ALREADY_EXISTS, existing.getId());
+                }
+            }
+        }
+        for (final CustomFieldModelDao customField : customFields) {
+            create(customField, contexts.get(customField.getObjectId()));
+        }
+    }
 }
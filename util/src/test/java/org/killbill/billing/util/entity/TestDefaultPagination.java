@@ -46,6 +46,22 @@ public class TestDefaultPagination extends UtilTestSuiteNoDB {
         Assert.assertEquals(DefaultPagination.<Integer>build(5L, 3L, ImmutableList.<Integer>of(1, 2, 3, 4, 5)), expectedOf(5L, 0L, 5L, ImmutableList.<Integer>of()));
     }
 
+    @Test(groups = "fast", description = "Test Util: keyset pagination tests")
+    public void testKeysetPagination() throws Exception {
+        final Pagination<Integer> keysetPagination = DefaultPagination.<Integer>buildKeyset(-1L, 3L, -4L, ImmutableList.<Integer>of(1, 2, 3).iterator());
+        Assert.assertEquals(keysetPagination.getCurrentOffset(), (Long) (-1L));
+        Assert.assertEquals(keysetPagination.getNextOffset(), (Long) (-4L));
+        Assert.assertNull(keysetPagination.getTotalNbRecords());
+        Assert.assertNull(keysetPagination.getMaxNbRecords());
+
+        // The continuation token should survive the DAO -> API bridge
+        final Pagination<Integer> bridgedPagination = new DefaultPagination<Integer>(keysetPagination, 3L, keysetPagination.iterator());
+        Assert.assertEquals(bridgedPagination.getNextOffset(), (Long) (-4L));
+
+        final Pagination<Integer> lastPage = DefaultPagination.<Integer>buildKeyset(-4L, 3L, null, ImmutableList.<Integer>of(4).iterator());
+        Assert.assertNull(lastPage.getNextOffset());
+    }
+
     private Pagination<Integer> expectedOf(final Long currentOffset, final Long totalNbRecords,
                                            final Long maxNbRecords, final List<Integer> delegate) {
         return new DefaultPagination<Integer>(currentOffset, Long.MAX_VALUE, totalNbRecords, maxNbRecords, delegate.iterator());
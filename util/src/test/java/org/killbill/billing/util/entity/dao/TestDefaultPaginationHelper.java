@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.killbill.billing.entity.EntityBase;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.api.TagApiException;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class TestDefaultPaginationHelper extends UtilTestSuiteNoDB {
+
+    private ExecutorService executor;
+
+    @BeforeClass(groups = "fast")
+    public void beforeClass() throws Exception {
+        super.beforeClass();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterClass(groups = "fast")
+    public void afterClass() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast", description = "Test Util: concurrent pagination across plugins should match the sequential one")
+    public void testConcurrentPaginationFromPlugins() throws Exception {
+        final Map<String, List<TestEntity>> entitiesPerPlugin = ImmutableMap.<String, List<TestEntity>>of("A", buildEntities(0),
+                                                                                                          "B", buildEntities(3),
+                                                                                                          "C", buildEntities(5));
+        // Record the plugin queries, to make sure the concurrent version doesn't fetch more rows
+        final Collection<String> queries = new ConcurrentLinkedQueue<String>();
+        final EntityPaginationBuilder<TestEntity, TagApiException> builder = new EntityPaginationBuilder<TestEntity, TagApiException>() {
+            @Override
+            public Pagination<TestEntity> build(final Long offset, final Long limit, final String pluginName) throws TagApiException {
+                queries.add(pluginName + "-" + offset + "-" + limit);
+                return DefaultPagination.<TestEntity>build(offset, limit, entitiesPerPlugin.get(pluginName));
+            }
+        };
+
+        for (long offset = 0; offset < 10; offset++) {
+            for (long limit = 1; limit < 10; limit++) {
+                queries.clear();
+                final Pagination<TestEntity> expected = DefaultPaginationHelper.getEntityPaginationFromPlugins(entitiesPerPlugin.keySet(), offset, limit, builder);
+                final Set<String> expectedQueries = ImmutableSet.<String>copyOf(queries);
+
+                queries.clear();
+                final Pagination<TestEntity> actual = DefaultPaginationHelper.getEntityPaginationFromPlugins(entitiesPerPlugin.keySet(), offset, limit, executor, 10000L, builder);
+                Assert.assertEquals(queries.size(), expectedQueries.size());
+                Assert.assertEquals(ImmutableSet.<String>copyOf(queries), expectedQueries);
+
+                Assert.assertEquals(actual.getTotalNbRecords(), expected.getTotalNbRecords());
+                Assert.assertEquals(actual.getMaxNbRecords(), expected.getMaxNbRecords());
+                Assert.assertEquals(ImmutableList.<TestEntity>copyOf(actual), ImmutableList.<TestEntity>copyOf(expected));
+            }
+        }
+    }
+
+    @Test(groups = "fast", description = "Test Util: plugins not responding before the deadline are skipped")
+    public void testConcurrentPaginationFromPluginsWithTimeout() throws Exception {
+        final List<TestEntity> entities = buildEntities(2);
+        final Pagination<TestEntity> result = DefaultPaginationHelper.getEntityPaginationFromPlugins(ImmutableList.<String>of("fast", "slow"),
+                                                                                                      0L,
+                                                                                                      10L,
+                                                                                                      executor,
+                                                                                                      500L,
+                                                                                                      new EntityPaginationBuilder<TestEntity, TagApiException>() {
+                                                                                                          @Override
+                                                                                                          public Pagination<TestEntity> build(final Long offset, final Long limit, final String pluginName) throws TagApiException {
+                                                                                                              if ("slow".equals(pluginName)) {
+                                                                                                                  try {
+                                                                                                                      Thread.sleep(5000L);
+                                                                                                                  } catch (final InterruptedException e) {
+                                                                                                                      Thread.currentThread().interrupt();
+                                                                                                                  }
+                                                                                                              }
+                                                                                                              return DefaultPagination.<TestEntity>build(offset, limit, entities);
+                                                                                                          }
+                                                                                                      });
+        Assert.assertEquals(result.getTotalNbRecords(), (Long) 2L);
+        Assert.assertEquals(ImmutableList.<TestEntity>copyOf(result), entities);
+    }
+
+    private List<TestEntity> buildEntities(final int nb) {
+        final ImmutableList.Builder<TestEntity> builder = ImmutableList.<TestEntity>builder();
+        for (int i = 0; i < nb; i++) {
+            builder.add(new TestEntity(UUID.randomUUID()));
+        }
+        return builder.build();
+    }
+
+    private static final class TestEntity extends EntityBase {
+
+        private TestEntity(final UUID id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.jackson;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TestObjectReaderWriterRegistry extends UtilTestSuiteNoDB {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test(groups = "fast")
+    public void testRoundTrip() throws Exception {
+        final ObjectReaderWriterRegistry registry = new ObjectReaderWriterRegistry(mapper);
+        final TestEvent event = new TestEvent(UUID.randomUUID(), new DateTime(2015, 6, 1, 12, 30, DateTimeZone.UTC));
+
+        final String json = registry.writeValueAsString(event);
+        Assert.assertEquals(json, mapper.writeValueAsString(event));
+
+        final TestEvent result = registry.readValue(json, TestEvent.class);
+        Assert.assertEquals(result.getObjectId(), event.getObjectId());
+        Assert.assertEquals(result.getEffectiveDate().compareTo(event.getEffectiveDate()), 0);
+
+        Assert.assertEquals(registry.readValue(registry.writeValueAsBytes(event), TestEvent.class).getObjectId(), event.getObjectId());
+        Assert.assertEquals(registry.writeValueAsString(null), "null");
+    }
+
+    @Test(groups = "fast")
+    public void testReadersAndWritersAreCached() throws Exception {
+        final ObjectReaderWriterRegistry registry = new ObjectReaderWriterRegistry(mapper);
+
+        Assert.assertSame(registry.writerFor(TestEvent.class), registry.writerFor(TestEvent.class));
+        Assert.assertSame(registry.readerFor(TestEvent.class), registry.readerFor(TestEvent.class));
+        Assert.assertNotSame(registry.readerFor(TestEvent.class), registry.readerFor(String.class));
+    }
+
+    public static class TestEvent {
+
+        private final UUID objectId;
+        private final DateTime effectiveDate;
+
+        @JsonCreator
+        public TestEvent(@JsonProperty("objectId") final UUID objectId,
+                         @JsonProperty("effectiveDate") final DateTime effectiveDate) {
+            this.objectId = objectId;
+            this.effectiveDate = effectiveDate;
+        }
+
+        public UUID getObjectId() {
+            return objectId;
+        }
+
+        public DateTime getEffectiveDate() {
+            return effectiveDate;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.profiling;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.profiling.LatencyHistograms.Sample;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+public class TestLatencyHistograms extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSampling() throws Exception {
+        Assert.assertFalse(new LatencyHistograms(new MetricRegistry(), 0).shouldSample());
+        Assert.assertTrue(new LatencyHistograms(new MetricRegistry(), 1).shouldSample());
+
+        final LatencyHistograms latencyHistograms = new LatencyHistograms(new MetricRegistry(), 0.5);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (latencyHistograms.shouldSample()) {
+                sampled++;
+            }
+        }
+        Assert.assertTrue(sampled > 4000 && sampled < 6000, "sampled=" + sampled);
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSamplingRate() throws Exception {
+        new LatencyHistograms(new MetricRegistry(), 1.5);
+    }
+
+    @Test(groups = "fast")
+    public void testRecordLatency() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LatencyHistograms latencyHistograms = new LatencyHistograms(metricRegistry, 1);
+        for (int i = 0; i < 3; i++) {
+            final Sample sample = latencyHistograms.start(ProfilingFeatureType.DAO, "AccountDao", "getById");
+            Assert.assertNotNull(sample);
+            LatencyHistograms.stop(sample);
+        }
+        LatencyHistograms.stop(latencyHistograms.start(ProfilingFeatureType.API, "AccountUserApi", "getAccountById"));
+
+        final Timer daoTimer = metricRegistry.getTimers().get("killbill.profiling.DAO.AccountDao.getById");
+        Assert.assertNotNull(daoTimer);
+        Assert.assertEquals(daoTimer.getCount(), 3);
+        Assert.assertEquals(metricRegistry.getTimers().get("killbill.profiling.API.AccountUserApi.getAccountById").getCount(), 1);
+
+        // Each instance records in its own registry
+        final MetricRegistry otherMetricRegistry = new MetricRegistry();
+        LatencyHistograms.stop(new LatencyHistograms(otherMetricRegistry, 1).start(ProfilingFeatureType.DAO, "AccountDao", "getById"));
+        Assert.assertEquals(otherMetricRegistry.getTimers().get("killbill.profiling.DAO.AccountDao.getById").getCount(), 1);
+        Assert.assertEquals(daoTimer.getCount(), 3);
+    }
+
+    @Test(groups = "fast")
+    public void testMethodInterceptor() throws Throwable {
+        final MethodInvocation invocation = Mockito.mock(MethodInvocation.class);
+        Mockito.when(invocation.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        Mockito.when(invocation.proceed()).thenReturn("result");
+
+        // Not injected (ProfilingModule not installed): no-op
+        final LatencyHistogramsMethodInterceptor interceptor = new LatencyHistogramsMethodInterceptor(ProfilingFeatureType.DAO);
+        Assert.assertEquals(interceptor.invoke(invocation), "result");
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        interceptor.setLatencyHistograms(new LatencyHistograms(metricRegistry, 1));
+        Assert.assertEquals(interceptor.invoke(invocation), "result");
+        Assert.assertEquals(metricRegistry.getTimers().get("killbill.profiling.DAO.Object.toString").getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testMethodInterceptorNestedCalls() throws Throwable {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LatencyHistogramsMethodInterceptor interceptor = new LatencyHistogramsMethodInterceptor(ProfilingFeatureType.DAO);
+        interceptor.setLatencyHistograms(new LatencyHistograms(metricRegistry, 1));
+
+        final MethodInvocation nestedInvocation = Mockito.mock(MethodInvocation.class);
+        Mockito.when(nestedInvocation.getMethod()).thenReturn(Object.class.getMethod("hashCode"));
+        Mockito.when(nestedInvocation.proceed()).thenReturn(1);
+
+        final MethodInvocation invocation = Mockito.mock(MethodInvocation.class);
+        Mockito.when(invocation.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        Mockito.when(invocation.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocationOnMock) throws Throwable {
+                return "result" + interceptor.invoke(nestedInvocation);
+            }
+        });
+
+        // Only the outermost call is recorded
+        Assert.assertEquals(interceptor.invoke(invocation), "result1");
+        Assert.assertEquals(metricRegistry.getTimers().get("killbill.profiling.DAO.Object.toString").getCount(), 1);
+        Assert.assertNull(metricRegistry.getTimers().get("killbill.profiling.DAO.Object.hashCode"));
+
+        // The next top-level call is recorded
+        Assert.assertEquals(interceptor.invoke(nestedInvocation), 1);
+        Assert.assertEquals(metricRegistry.getTimers().get("killbill.profiling.DAO.Object.hashCode").getCount(), 1);
+    }
+}
@@ -47,6 +47,19 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
         tagStore.get(tag.getObjectId()).add(tag);
     }
 
+    @Override
+    public void createTags(final List<TagModelDao> tags, final Map<UUID, InternalCallContext> contexts) throws TagApiException {
+        for (final TagModelDao tag : tags) {
+            boolean exists = false;
+            for (final TagModelDao existing : getTagsForObject(tag.getObjectId(), tag.getObjectType(), false, contexts.get(tag.getObjectId()))) {
+                exists = exists || existing.getTagDefinitionId().equals(tag.getTagDefinitionId());
+            }
+            if (!exists) {
+                create(tag, contexts.get(tag.getObjectId()));
+            }
+        }
+    }
+
     @Override
     public void deleteTag(final UUID objectId, final ObjectType objectType,
                           final UUID tagDefinitionId, final InternalCallContext context) {
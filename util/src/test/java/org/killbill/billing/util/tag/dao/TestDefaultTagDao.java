@@ -26,6 +26,7 @@ import org.testng.annotations.Test;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.api.TestApiListener.NextEvent;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
@@ -33,6 +34,9 @@ import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
@@ -176,4 +180,40 @@ public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testCreateTags() throws TagApiException {
+        final UUID objectId1 = UUID.randomUUID();
+        final UUID objectId2 = UUID.randomUUID();
+        final ObjectType objectType = ObjectType.INVOICE_ITEM;
+        final ImmutableMap<UUID, InternalCallContext> contexts = ImmutableMap.<UUID, InternalCallContext>of(objectId1, internalCallContext, objectId2, internalCallContext);
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.create(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId1, objectType), internalCallContext);
+        assertListenerStatus();
+
+        // The existing tag and the duplicate in the batch are skipped
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.TAG, NextEvent.TAG);
+        tagDao.createTags(ImmutableList.<TagModelDao>of(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId1, objectType),
+                                                        new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_PAY_OFF.getId(), objectId1, objectType),
+                                                        new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId2, objectType),
+                                                        new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_PAY_OFF.getId(), objectId2, objectType),
+                                                        new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_PAY_OFF.getId(), objectId2, objectType)),
+                          contexts);
+        assertListenerStatus();
+
+        Assert.assertEquals(tagDao.getTagsForObject(objectId1, objectType, false, internalCallContext).size(), 2);
+        Assert.assertEquals(tagDao.getTagsForObject(objectId2, objectType, false, internalCallContext).size(), 2);
+
+        // Nothing is created if one of the tag definitions does not exist
+        final UUID objectId3 = UUID.randomUUID();
+        try {
+            tagDao.createTags(ImmutableList.<TagModelDao>of(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_PAY_OFF.getId(), objectId3, objectType),
+                                                            new TagModelDao(internalCallContext.getCreatedDate(), UUID.randomUUID(), objectId3, objectType)),
+                              ImmutableMap.<UUID, InternalCallContext>of(objectId3, internalCallContext));
+            Assert.fail("Should not be able to create a tag for an unknown tag definition");
+        } catch (final TagApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.TAG_DEFINITION_DOES_NOT_EXIST.getCode());
+        }
+        Assert.assertEquals(tagDao.getTagsForObject(objectId3, objectType, false, internalCallContext).size(), 0);
+    }
 }